@@ -140,6 +140,22 @@ public abstract class AbstractListPresenter<T> implements RefreshMenuBuilder.Sup
         updateRefreshTimer();
     }
 
+    /**
+     * Total row count reported by the data set, never lower than the rows already seen so that paging keeps
+     * working when only the size of the returned page is known
+     */
+    protected int getTotalRowCount(int startRange, int pageRowCount, int rowCountNonTrimmed) {
+        return Math.max(rowCountNonTrimmed, startRange + pageRowCount);
+    }
+
+    /**
+     * Total row count is exact when the page is not full or the reported total goes past it, otherwise it is
+     * only an estimate and there might be more rows to page through
+     */
+    protected boolean isTotalRowCountExact(int startRange, int pageRowCount, int rowCountNonTrimmed) {
+        return pageRowCount < getListView().getListGrid().getPageSize() || rowCountNonTrimmed > startRange + pageRowCount;
+    }
+
     public void addDataDisplay( final HasData<T> display ) {
         dataProvider.addDataDisplay(display);
     }
@@ -18,7 +18,9 @@ package org.jbpm.workbench.df.client.list.base;
 import com.google.gwt.core.client.GWT;
 import org.dashbuilder.common.client.StringUtils;
 import org.dashbuilder.common.client.error.ClientRuntimeError;
+import org.dashbuilder.dataset.DataColumn;
 import org.dashbuilder.dataset.DataSet;
+import org.dashbuilder.dataset.DataSetLookup;
 import org.dashbuilder.dataset.client.DataSetClientServices;
 import org.dashbuilder.dataset.client.DataSetReadyCallback;
 import org.dashbuilder.dataset.sort.SortOrder;
@@ -30,7 +32,10 @@ import org.jbpm.workbench.df.client.filter.FilterSettings;
 
 import javax.enterprise.context.Dependent;
 import javax.inject.Inject;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
 
 @Dependent
 public class DataSetQueryHelper<T> {
@@ -45,6 +50,20 @@ public class DataSetQueryHelper<T> {
 
     protected DataSet dataSet;
 
+    protected DataSetLookup dataSetLookup;
+
+    protected static final int PREFETCH_CACHE_SIZE = 2;
+
+    protected static final long PREFETCH_MAX_AGE = 10000;
+
+    protected String keysetColumnId;
+
+    protected String[] pivotColumnIds;
+
+    protected boolean prefetchEnabled = false;
+
+    protected final List<PrefetchedPage> prefetchedPages = new ArrayList<PrefetchedPage>();
+
     protected DataSetHandler dataSetHandler;
 
     protected DataSetClientServices dataSetClientServices;
@@ -70,15 +89,19 @@ public class DataSetQueryHelper<T> {
             }
             // Lookup only the target rows
             dataSetHandler.limitDataSetRows(offset, currentTableSetting.getTablePageSize());
+            if (lookupPrefetchedPage(callback)) {
+                return;
+            }
+            applyKeysetPagination(dataSetHandler.getCurrentDataSetLookup());
+            applyPivot(dataSetHandler.getCurrentDataSetLookup());
+            final DataSetLookup requestedLookup = dataSetHandler.getCurrentDataSetLookup() == null ? null : dataSetHandler.getCurrentDataSetLookup().cloneInstance();
 
             // Do the lookup
             dataSetHandler.lookupDataSet(
                     new DataSetReadyCallback() {
 
                         public void callback( DataSet dataSet ) {
-                            DataSetQueryHelper.this.dataSet = dataSet;
-                            numberOfRows = dataSet.getRowCountNonTrimmed();
-                            callback.callback( dataSet );
+                            onDataSetReady(requestedLookup, dataSet, callback);
                         }
                         public void notFound() {
                             callback.notFound();
@@ -98,6 +121,196 @@ public class DataSetQueryHelper<T> {
         }
     }
 
+    protected void onDataSetReady(final DataSetLookup requestedLookup, final DataSet dataSet, final DataSetReadyCallback callback) {
+        this.dataSet = dataSet;
+        this.dataSetLookup = requestedLookup;
+        numberOfRows = dataSet.getRowCountNonTrimmed();
+        callback.callback( dataSet );
+        prefetchNextPage();
+    }
+
+    /**
+     * Serves the current lookup from the prefetched pages when possible, waiting for the prefetch to complete
+     * if it is still in flight. Prefetched pages of a different query, i.e. after filter or sort changes, or
+     * of a refreshed query are discarded and the results of their in flight lookups ignored.
+     */
+    protected boolean lookupPrefetchedPage(final DataSetReadyCallback callback) {
+        if (!(dataSetHandler.getCurrentDataSetLookup() instanceof ConsoleDataSetLookup)) {
+            prefetchedPages.clear();
+            return false;
+        }
+        final ConsoleDataSetLookup lookup = (ConsoleDataSetLookup) dataSetHandler.getCurrentDataSetLookup();
+        if (dataSetLookup instanceof ConsoleDataSetLookup && dataSetLookup.getRowOffset() == lookup.getRowOffset()) {
+            // current page is refreshed, pages ahead might be outdated too
+            prefetchedPages.clear();
+            return false;
+        }
+        PrefetchedPage prefetched = null;
+        final Iterator<PrefetchedPage> iterator = prefetchedPages.iterator();
+        while (iterator.hasNext()) {
+            final PrefetchedPage page = iterator.next();
+            if (!isSameQuery(page.lookup, lookup) || page.isExpired()) {
+                iterator.remove();
+            } else if (page.lookup.getRowOffset() == lookup.getRowOffset()) {
+                prefetched = page;
+            }
+        }
+        if (prefetched == null) {
+            return false;
+        }
+        if (prefetched.dataSet == null) {
+            prefetched.waiting = callback;
+        } else {
+            prefetchedPages.remove(prefetched);
+            onDataSetReady(prefetched.requestedLookup, prefetched.dataSet, callback);
+        }
+        return true;
+    }
+
+    /**
+     * Looks up the page following the current one in background, so that it is ready when the user pages forward
+     */
+    protected void prefetchNextPage() {
+        if (!prefetchEnabled || dataSet == null || !(dataSetLookup instanceof ConsoleDataSetLookup)) {
+            return;
+        }
+        final ConsoleDataSetLookup current = (ConsoleDataSetLookup) dataSetLookup;
+        final int nextOffset = current.getRowOffset() + current.getNumberOfRows();
+        if (current.getNumberOfRows() <= 0 || dataSet.getRowCount() < current.getNumberOfRows() || numberOfRows <= current.getRowOffset() + dataSet.getRowCount()) {
+            // last page
+            return;
+        }
+        for (PrefetchedPage page : prefetchedPages) {
+            if (page.lookup.getRowOffset() == nextOffset && isSameQuery(page.lookup, current)) {
+                return;
+            }
+        }
+
+        final ConsoleDataSetLookup next = (ConsoleDataSetLookup) current.cloneInstance();
+        next.setRowOffset(nextOffset);
+        next.clearKeyset();
+        final ConsoleDataSetLookup requestedLookup = (ConsoleDataSetLookup) next.cloneInstance();
+        applyKeysetPagination(requestedLookup);
+
+        final PrefetchedPage page = new PrefetchedPage(next, requestedLookup);
+        prefetchedPages.add(page);
+        if (prefetchedPages.size() > PREFETCH_CACHE_SIZE) {
+            prefetchedPages.remove(0);
+        }
+        try {
+            dataSetClientServices.lookupDataSet(requestedLookup, new DataSetReadyCallback() {
+
+                public void callback(DataSet dataSet) {
+                    if (!prefetchedPages.contains(page)) {
+                        // cancelled
+                        return;
+                    }
+                    page.dataSet = dataSet;
+                    if (page.waiting != null) {
+                        prefetchedPages.remove(page);
+                        onDataSetReady(page.requestedLookup, dataSet, page.waiting);
+                    }
+                }
+
+                public void notFound() {
+                    if (prefetchedPages.remove(page) && page.waiting != null) {
+                        page.waiting.notFound();
+                    }
+                }
+
+                @Override
+                public boolean onError(final ClientRuntimeError error) {
+                    if (prefetchedPages.remove(page) && page.waiting != null) {
+                        page.waiting.onError(error);
+                    }
+                    return false;
+                }
+            });
+        } catch (Exception e) {
+            prefetchedPages.remove(page);
+            GWT.log("DataSetQueryHelper: prefetch error " + e.getMessage());
+        }
+    }
+
+    protected boolean isSameQuery(final ConsoleDataSetLookup lookup, final ConsoleDataSetLookup other) {
+        return lookup.getNumberOfRows() == other.getNumberOfRows()
+                && equals(lookup.getDataSetUUID(), other.getDataSetUUID())
+                && equals(lookup.getServerTemplateId(), other.getServerTemplateId())
+                && lookup.getOperationList().equals(other.getOperationList());
+    }
+
+    /**
+     * When paging forward over the same query, seeks right after the last row of the previous page
+     * instead of using the row offset, see {@link ConsoleDataSetLookup#setKeyset(String, Comparable, Comparable)}
+     */
+    protected void applyKeysetPagination(final DataSetLookup dataSetLookup) {
+        if (keysetColumnId == null || !(dataSetLookup instanceof ConsoleDataSetLookup)) {
+            return;
+        }
+        final ConsoleDataSetLookup lookup = (ConsoleDataSetLookup) dataSetLookup;
+        lookup.clearKeyset();
+        if (!isNextPage(lookup)) {
+            return;
+        }
+        final int lastRow = dataSet.getRowCount() - 1;
+        final DataColumn idColumn = dataSet.getColumnById(keysetColumnId);
+        if (idColumn == null) {
+            return;
+        }
+        final DataColumn sortColumn = lastOrderedColumn == null ? null : dataSet.getColumnById(lastOrderedColumn);
+        lookup.setKeyset(keysetColumnId,
+                         sortColumn == null ? null : (Comparable) sortColumn.getValues().get(lastRow),
+                         (Comparable) idColumn.getValues().get(lastRow));
+    }
+
+    /**
+     * Asks the server to return one row per key instead of name/value rows,
+     * see {@link ConsoleDataSetLookup#setPivot(String, String, String)}
+     */
+    protected void applyPivot(final DataSetLookup dataSetLookup) {
+        if (pivotColumnIds == null || !(dataSetLookup instanceof ConsoleDataSetLookup)) {
+            return;
+        }
+        ((ConsoleDataSetLookup) dataSetLookup).setPivot(pivotColumnIds[0], pivotColumnIds[1], pivotColumnIds[2]);
+    }
+
+    protected boolean isNextPage(final ConsoleDataSetLookup lookup) {
+        if (dataSet == null || !(dataSetLookup instanceof ConsoleDataSetLookup) || dataSet.getRowCount() == 0) {
+            return false;
+        }
+        final ConsoleDataSetLookup previous = (ConsoleDataSetLookup) dataSetLookup;
+        return dataSet.getRowCount() == previous.getNumberOfRows()
+                && lookup.getRowOffset() == previous.getRowOffset() + previous.getNumberOfRows()
+                && isSameQuery(lookup, previous);
+    }
+
+    private static boolean equals(final Object o1, final Object o2) {
+        return o1 == null ? o2 == null : o1.equals(o2);
+    }
+
+    public void setPrefetchEnabled(final boolean prefetchEnabled) {
+        this.prefetchEnabled = prefetchEnabled;
+        if (!prefetchEnabled) {
+            prefetchedPages.clear();
+        }
+    }
+
+    public boolean isPrefetchEnabled() {
+        return prefetchEnabled;
+    }
+
+    public void setKeysetColumnId(final String keysetColumnId) {
+        this.keysetColumnId = keysetColumnId;
+    }
+
+    public String getKeysetColumnId() {
+        return keysetColumnId;
+    }
+
+    public void setPivotColumnIds(final String keyColumnId, final String nameColumnId, final String valueColumnId) {
+        this.pivotColumnIds = new String[]{keyColumnId, nameColumnId, valueColumnId};
+    }
+
     public void setLastOrderedColumn(String lastOrderedColumn){
         this.lastOrderedColumn = lastOrderedColumn;
     }
@@ -168,4 +381,25 @@ public class DataSetQueryHelper<T> {
         Object value = currentDataSet.getColumnById( columnId ).getValues().get(index);
         return value != null ? Integer.parseInt(value.toString()) : -1;
     }
+
+    /**
+     * Page looked up ahead of time, data set is null while the lookup is in flight
+     */
+    protected static class PrefetchedPage {
+
+        private final ConsoleDataSetLookup lookup;
+        private final ConsoleDataSetLookup requestedLookup;
+        private final long created = System.currentTimeMillis();
+        private DataSet dataSet;
+        private DataSetReadyCallback waiting;
+
+        PrefetchedPage(final ConsoleDataSetLookup lookup, final ConsoleDataSetLookup requestedLookup) {
+            this.lookup = lookup;
+            this.requestedLookup = requestedLookup;
+        }
+
+        boolean isExpired() {
+            return dataSet != null && System.currentTimeMillis() - created > PREFETCH_MAX_AGE;
+        }
+    }
 }
@@ -20,22 +20,29 @@ import java.util.List;
 
 import com.google.common.collect.ImmutableList;
 import org.dashbuilder.common.client.error.ClientRuntimeError;
+import org.dashbuilder.dataset.ColumnType;
 import org.dashbuilder.dataset.DataSet;
+import org.dashbuilder.dataset.DataSetFactory;
 import org.dashbuilder.dataset.DataSetLookup;
 import org.dashbuilder.dataset.client.DataSetClientServices;
 import org.dashbuilder.dataset.client.DataSetReadyCallback;
+import org.dashbuilder.dataset.filter.DataSetFilter;
 import org.dashbuilder.displayer.client.DataSetHandler;
 import org.jbpm.workbench.df.client.filter.FilterSettings;
 import org.jbpm.workbench.df.client.filter.FilterSettingsBuilderHelper;
+import org.jbpm.workbench.ks.integration.ConsoleDataSetLookup;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
 import static org.dashbuilder.dataset.filter.FilterFactory.*;
 import static org.dashbuilder.dataset.sort.SortOrder.*;
-import static org.mockito.Mockito.verify;
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
 
 @RunWith(MockitoJUnitRunner.class)
 public class DataSetQueryHelperTest {
@@ -85,6 +92,117 @@ public class DataSetQueryHelperTest {
         verify(dataSetHandlerMock).sort(COLUMN_1,DESCENDING);
     }
 
+    @Test
+    public void lookupNextPageUsesKeysetTest() throws Exception {
+        currentTableSetting.setTablePageSize(2);
+        dataSetQueryHelper.setKeysetColumnId(COLUMN_2);
+        final ConsoleDataSetLookup lookup = (ConsoleDataSetLookup) ConsoleDataSetLookup.fromInstance(currentTableSetting.getDataSetLookup(), "template");
+        when(dataSetHandlerMock.getCurrentDataSetLookup()).thenReturn(lookup);
+        final DataSetReadyCallback callback = mock(DataSetReadyCallback.class);
+
+        lookup.setRowOffset(0);
+        lookup.setNumberOfRows(2);
+        dataSetQueryHelper.lookupDataSet(0, callback);
+        assertFalse(lookup.isKeysetPagination());
+
+        final ArgumentCaptor<DataSetReadyCallback> captor = ArgumentCaptor.forClass(DataSetReadyCallback.class);
+        verify(dataSetHandlerMock).lookupDataSet(captor.capture());
+        captor.getValue().callback(DataSetFactory.newDataSetBuilder()
+                                           .column(COLUMN_1, ColumnType.LABEL)
+                                           .column(COLUMN_2, ColumnType.NUMBER)
+                                           .row("a", 1L)
+                                           .row("b", 2L)
+                                           .buildDataSet());
+
+        lookup.setRowOffset(2);
+        dataSetQueryHelper.lookupDataSet(2, callback);
+
+        assertTrue(lookup.isKeysetPagination());
+        assertEquals(COLUMN_2, lookup.getKeysetColumnId());
+        assertEquals("b", lookup.getKeysetSortValue());
+        assertEquals(2d, lookup.getKeysetIdValue());
+
+        // jumping to another page uses the row offset
+        lookup.setRowOffset(6);
+        dataSetQueryHelper.lookupDataSet(6, callback);
+
+        assertFalse(lookup.isKeysetPagination());
+    }
+
+    @Test
+    public void lookupPivotedTest() throws Exception {
+        currentTableSetting.setTablePageSize(2);
+        final ConsoleDataSetLookup lookup = (ConsoleDataSetLookup) ConsoleDataSetLookup.fromInstance(currentTableSetting.getDataSetLookup(), "template");
+        when(dataSetHandlerMock.getCurrentDataSetLookup()).thenReturn(lookup);
+
+        dataSetQueryHelper.lookupDataSet(0, mock(DataSetReadyCallback.class));
+        assertFalse(lookup.isPivoted());
+
+        dataSetQueryHelper.setPivotColumnIds(COLUMN_2, COLUMN_1, "value");
+        dataSetQueryHelper.lookupDataSet(0, mock(DataSetReadyCallback.class));
+
+        assertTrue(lookup.isPivoted());
+        assertEquals(COLUMN_2, lookup.getPivotKeyColumnId());
+        assertEquals(COLUMN_1, lookup.getPivotNameColumnId());
+        assertEquals("value", lookup.getPivotValueColumnId());
+        assertTrue(((ConsoleDataSetLookup) lookup.cloneInstance()).isPivoted());
+    }
+
+    @Test
+    public void lookupPrefetchedNextPageTest() throws Exception {
+        currentTableSetting.setTablePageSize(2);
+        dataSetQueryHelper.setPrefetchEnabled(true);
+        final ConsoleDataSetLookup lookup = (ConsoleDataSetLookup) ConsoleDataSetLookup.fromInstance(currentTableSetting.getDataSetLookup(), "template");
+        lookup.setNumberOfRows(2);
+        when(dataSetHandlerMock.getCurrentDataSetLookup()).thenReturn(lookup);
+        final DataSetReadyCallback callback = mock(DataSetReadyCallback.class);
+
+        dataSetQueryHelper.lookupDataSet(0, callback);
+        final ArgumentCaptor<DataSetReadyCallback> captor = ArgumentCaptor.forClass(DataSetReadyCallback.class);
+        verify(dataSetHandlerMock).lookupDataSet(captor.capture());
+        captor.getValue().callback(createDataSet(5, "a", "b"));
+
+        // next page is requested in background once current one is rendered
+        final ArgumentCaptor<DataSetLookup> prefetchLookup = ArgumentCaptor.forClass(DataSetLookup.class);
+        final ArgumentCaptor<DataSetReadyCallback> prefetchCallback = ArgumentCaptor.forClass(DataSetReadyCallback.class);
+        verify(dataSetClientServicesMock).lookupDataSet(prefetchLookup.capture(), prefetchCallback.capture());
+        assertEquals(2, prefetchLookup.getValue().getRowOffset());
+        final DataSet nextPage = createDataSet(5, "c", "d");
+        prefetchCallback.getValue().callback(nextPage);
+
+        lookup.setRowOffset(2);
+        final DataSetReadyCallback nextCallback = mock(DataSetReadyCallback.class);
+        dataSetQueryHelper.lookupDataSet(2, nextCallback);
+
+        verify(nextCallback).callback(nextPage);
+        verify(dataSetHandlerMock, times(1)).lookupDataSet(any(DataSetReadyCallback.class));
+
+        // filter change cancels the prefetch of the following page
+        verify(dataSetClientServicesMock, times(2)).lookupDataSet(prefetchLookup.capture(), prefetchCallback.capture());
+        assertEquals(4, prefetchLookup.getValue().getRowOffset());
+        final DataSetFilter filter = new DataSetFilter();
+        filter.addFilterColumn(equalsTo(COLUMN_1, "value"));
+        lookup.addOperation(filter);
+        lookup.setRowOffset(4);
+        final DataSetReadyCallback filteredCallback = mock(DataSetReadyCallback.class);
+        dataSetQueryHelper.lookupDataSet(4, filteredCallback);
+        prefetchCallback.getValue().callback(createDataSet(5, "e"));
+
+        verify(dataSetHandlerMock, times(2)).lookupDataSet(any(DataSetReadyCallback.class));
+        verify(filteredCallback, never()).callback(any(DataSet.class));
+    }
+
+    private DataSet createDataSet(int totalRows, String... values) {
+        final DataSet dataSet = DataSetFactory.newDataSetBuilder()
+                .column(COLUMN_1, ColumnType.LABEL)
+                .buildDataSet();
+        for (String value : values) {
+            dataSet.getColumnById(COLUMN_1).getValues().add(value);
+        }
+        dataSet.setRowCountNonTrimmed(totalRows);
+        return dataSet;
+    }
+
     private FilterSettings createTableSettings(){
         FilterSettingsBuilderHelper builder = FilterSettingsBuilderHelper.init();
         builder.initBuilder();
@@ -81,6 +81,9 @@ public class DataSetDefsBootstrap {
         requestListDef.setPublic(false);
         requestListDef.setProvider(KieServerDataSetProvider.TYPE);
 
+        // Column identifying the rows, used to read large results in chunks
+        requestListDef.setProperty(KieServerDataSetProvider.UNIQUE_COLUMN, COLUMN_ID);
+
         // Register the data set definitions
         dataSetDefRegistry.registerDataSetDef(requestListDef);
         logger.info("Executor service datasets registered");
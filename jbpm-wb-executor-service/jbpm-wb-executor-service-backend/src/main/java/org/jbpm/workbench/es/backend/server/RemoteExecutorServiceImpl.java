@@ -31,6 +31,7 @@ import org.kie.server.api.model.instance.RequestInfoInstance;
 import org.kie.server.client.JobServicesClient;
 
 import static java.util.Optional.ofNullable;
+import static org.jbpm.workbench.es.model.RequestDataSetConstants.REQUEST_LIST_DATASET;
 
 @Service
 @ApplicationScoped
@@ -57,19 +58,23 @@ public class RemoteExecutorServiceImpl extends AbstractKieServerService implemen
                 .data(data)
                 .scheduledDate(date)
                 .build();
-        return jobClient.scheduleRequest(jobRequest);
+        final Long requestId = jobClient.scheduleRequest(jobRequest);
+        invalidateQueryCache(serverTemplateId, REQUEST_LIST_DATASET);
+        return requestId;
     }
 
     @Override
     public void cancelRequest(String serverTemplateId, Long requestId) {
         JobServicesClient jobClient = getClient(serverTemplateId, JobServicesClient.class);
         jobClient.cancelRequest(requestId);
+        invalidateQueryCache(serverTemplateId, REQUEST_LIST_DATASET);
     }
 
     @Override
     public void requeueRequest(String serverTemplateId, Long requestId) {
         JobServicesClient jobClient = getClient(serverTemplateId, JobServicesClient.class);
         jobClient.requeueRequest(requestId);
+        invalidateQueryCache(serverTemplateId, REQUEST_LIST_DATASET);
     }
 
 }
\ No newline at end of file
@@ -16,6 +16,9 @@
 
 package org.jbpm.workbench.es.backend.server;
 
+import org.jbpm.workbench.ks.integration.KieServerCircuitBreakers;
+import org.jbpm.workbench.ks.integration.KieServerClientCache;
+import org.jbpm.workbench.ks.integration.KieServerClientMetrics;
 import org.jbpm.workbench.ks.integration.KieServerIntegration;
 import org.jbpm.workbench.es.model.RequestDetails;
 import org.junit.Before;
@@ -26,6 +29,7 @@ import org.kie.server.client.JobServicesClient;
 import org.kie.server.client.KieServicesClient;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.runners.MockitoJUnitRunner;
 
 import static org.jbpm.workbench.es.backend.server.RequestDetailsMapperTest.assertRequestDetails;
@@ -41,6 +45,15 @@ public class RemoteExecutorServiceImplTest {
     @Mock
     KieServerIntegration kieServerIntegration;
 
+    @Spy
+    KieServerCircuitBreakers circuitBreakers = new KieServerCircuitBreakers(5, 30000, 50);
+
+    @Spy
+    KieServerClientMetrics clientMetrics = new KieServerClientMetrics(true);
+
+    @Spy
+    KieServerClientCache clientCache = new KieServerClientCache();
+
     @Mock
     JobServicesClient jobServicesClient;
 
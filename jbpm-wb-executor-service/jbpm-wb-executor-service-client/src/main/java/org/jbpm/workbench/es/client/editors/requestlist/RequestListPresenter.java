@@ -129,6 +129,7 @@ public class RequestListPresenter extends AbstractMultiGridPresenter<RequestSumm
                 }
 
                 dataSetQueryHelper.setDataSetHandler(currentTableSettings);
+                dataSetQueryHelper.setKeysetColumnId(COLUMN_ID);
                 dataSetQueryHelper.lookupDataSet(visibleRange.getStart(), new AbstractDataSetReadyCallback( errorPopup, view, currentTableSettings.getUUID() ) {
                     @Override
                     public void callback(DataSet dataSet) {
@@ -139,11 +140,10 @@ public class RequestListPresenter extends AbstractMultiGridPresenter<RequestSumm
 
                                 myRequestSumaryFromDataSet.add(getRequestSummary(dataSet, i));
                             }
-                            boolean lastPageExactCount=false;
-                            if( dataSet.getRowCount() < view.getListGrid().getPageSize()) {
-                                lastPageExactCount=true;
-                            }
-                            updateDataOnCallback(myRequestSumaryFromDataSet,visibleRange.getStart(),visibleRange.getStart()+ myRequestSumaryFromDataSet.size(), lastPageExactCount);
+                            updateDataOnCallback(myRequestSumaryFromDataSet,
+                                                 visibleRange.getStart(),
+                                                 getTotalRowCount(visibleRange.getStart(), dataSet.getRowCount(), dataSet.getRowCountNonTrimmed()),
+                                                 isTotalRowCountExact(visibleRange.getStart(), dataSet.getRowCount(), dataSet.getRowCountNonTrimmed()));
 
                         }
                     }
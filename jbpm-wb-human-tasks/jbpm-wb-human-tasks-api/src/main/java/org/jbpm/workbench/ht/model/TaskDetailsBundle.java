@@ -0,0 +1,90 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jbpm.workbench.ht.model;
+
+import java.io.Serializable;
+import java.util.List;
+
+import org.jboss.errai.common.client.api.annotations.Portable;
+
+/**
+ * Everything shown when a task is opened, loaded in a single request
+ */
+@Portable
+public class TaskDetailsBundle implements Serializable {
+
+    private TaskSummary task;
+
+    private TaskAssignmentSummary assignmentDetails;
+
+    private List<CommentSummary> comments;
+
+    private TaskEventPage events;
+
+    public TaskDetailsBundle(TaskSummary task, TaskAssignmentSummary assignmentDetails, List<CommentSummary> comments, TaskEventPage events) {
+        this.task = task;
+        this.assignmentDetails = assignmentDetails;
+        this.comments = comments;
+        this.events = events;
+    }
+
+    public TaskDetailsBundle() {
+    }
+
+    public TaskSummary getTask() {
+        return task;
+    }
+
+    public void setTask(TaskSummary task) {
+        this.task = task;
+    }
+
+    public TaskAssignmentSummary getAssignmentDetails() {
+        return assignmentDetails;
+    }
+
+    public void setAssignmentDetails(TaskAssignmentSummary assignmentDetails) {
+        this.assignmentDetails = assignmentDetails;
+    }
+
+    public List<CommentSummary> getComments() {
+        return comments;
+    }
+
+    public void setComments(List<CommentSummary> comments) {
+        this.comments = comments;
+    }
+
+    public TaskEventPage getEvents() {
+        return events;
+    }
+
+    public void setEvents(TaskEventPage events) {
+        this.events = events;
+    }
+
+    @Override
+    public String toString() {
+        return "TaskDetailsBundle{" +
+                "task=" + task +
+                ", assignmentDetails=" + assignmentDetails +
+                ", comments=" + comments +
+                ", events=" + events +
+                '}';
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jbpm.workbench.ht.model;
+
+import java.io.Serializable;
+import java.util.List;
+
+import org.jboss.errai.common.client.api.annotations.Portable;
+
+/**
+ * A page of the events of a task, along with the cursor to fetch the next one
+ */
+@Portable
+public class TaskEventPage implements Serializable {
+
+    private List<TaskEventSummary> events;
+
+    private String nextCursor;
+
+    private int pageSize;
+
+    public TaskEventPage(List<TaskEventSummary> events, String nextCursor, int pageSize) {
+        this.events = events;
+        this.nextCursor = nextCursor;
+        this.pageSize = pageSize;
+    }
+
+    public TaskEventPage() {
+    }
+
+    public List<TaskEventSummary> getEvents() {
+        return events;
+    }
+
+    public void setEvents(List<TaskEventSummary> events) {
+        this.events = events;
+    }
+
+    /**
+     * @return cursor of the next page, null when this is the last one
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * @return page size applied by the server, which may be lower than the requested one
+     */
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public void setPageSize(int pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+
+    @Override
+    public String toString() {
+        return "TaskEventPage{" + "events=" + events + ", nextCursor=" + nextCursor + ", pageSize=" + pageSize + '}';
+    }
+}
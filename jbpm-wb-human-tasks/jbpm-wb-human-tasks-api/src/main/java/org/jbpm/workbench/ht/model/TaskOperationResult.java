@@ -0,0 +1,84 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jbpm.workbench.ht.model;
+
+import java.io.Serializable;
+
+import org.jboss.errai.common.client.api.annotations.Portable;
+
+/**
+ * Outcome of an operation on a single task of a bulk request
+ */
+@Portable
+public class TaskOperationResult implements Serializable {
+
+    private Long taskId;
+
+    private String containerId;
+
+    private boolean successful;
+
+    private String errorMessage;
+
+    public TaskOperationResult(Long taskId, String containerId, boolean successful, String errorMessage) {
+        this.taskId = taskId;
+        this.containerId = containerId;
+        this.successful = successful;
+        this.errorMessage = errorMessage;
+    }
+
+    public TaskOperationResult() {
+    }
+
+    public Long getTaskId() {
+        return taskId;
+    }
+
+    public void setTaskId(Long taskId) {
+        this.taskId = taskId;
+    }
+
+    public String getContainerId() {
+        return containerId;
+    }
+
+    public void setContainerId(String containerId) {
+        this.containerId = containerId;
+    }
+
+    public boolean isSuccessful() {
+        return successful;
+    }
+
+    public void setSuccessful(boolean successful) {
+        this.successful = successful;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public void setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+    }
+
+    @Override
+    public String toString() {
+        return "TaskOperationResult{" + "taskId=" + taskId + ", containerId=" + containerId + ", successful=" + successful + '}';
+    }
+}
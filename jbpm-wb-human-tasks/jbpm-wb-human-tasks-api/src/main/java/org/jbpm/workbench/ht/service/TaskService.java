@@ -23,7 +23,11 @@ import java.util.Map;
 import org.jboss.errai.bus.server.annotations.Remote;
 import org.jbpm.workbench.ht.model.CommentSummary;
 import org.jbpm.workbench.ht.model.TaskAssignmentSummary;
+import org.jbpm.workbench.ht.model.TaskDetailsBundle;
+import org.jbpm.workbench.ht.model.TaskEventPage;
 import org.jbpm.workbench.ht.model.TaskEventSummary;
+import org.jbpm.workbench.ht.model.TaskKey;
+import org.jbpm.workbench.ht.model.TaskOperationResult;
 import org.jbpm.workbench.ht.model.TaskSummary;
 
 @Remote
@@ -33,6 +37,12 @@ public interface TaskService {
 
     void updateTask(String serverTemplateId, String containerId, Long taskId, Integer priority, String description, Date dueDate);
 
+    /**
+     * Updates only the fields that differ from given current state of the task, in a single request.
+     * The current state is loaded from the server when not provided.
+     */
+    void updateTask(String serverTemplateId, String containerId, Long taskId, Integer priority, String description, Date dueDate, TaskSummary currentTask);
+
     void claimTask(String serverTemplateId, String containerId, Long taskId);
 
     void releaseTask(String serverTemplateId, String containerId, Long taskId);
@@ -51,10 +61,28 @@ public interface TaskService {
 
     List<TaskEventSummary> getTaskEvents(String serverTemplateId, String containerId, Long taskId);
 
+    /**
+     * Returns a page of the events of given task, starting at given cursor or at the first event when it is null.
+     * Requested page size is capped by the server, the applied one is returned along with the events.
+     */
+    TaskEventPage getTaskEventsPage(String serverTemplateId, String containerId, Long taskId, String cursor, Integer pageSize);
+
     void delegate(String serverTemplateId, String containerId, Long taskId, String entity);
 
     TaskAssignmentSummary getTaskAssignmentDetails(String serverTemplateId, String containerId, Long taskId);
 
+    TaskDetailsBundle getTaskDetailsBundle(String serverTemplateId, String containerId, Long taskId);
+
     void executeReminderForTask(String serverTemplateId, String containerId, Long taskId,String fromUser);
 
+    List<TaskOperationResult> claimTasks(String serverTemplateId, List<TaskKey> tasks);
+
+    List<TaskOperationResult> releaseTasks(String serverTemplateId, List<TaskKey> tasks);
+
+    List<TaskOperationResult> startTasks(String serverTemplateId, List<TaskKey> tasks);
+
+    List<TaskOperationResult> completeTasks(String serverTemplateId, List<TaskKey> tasks, Map<String, Object> output);
+
+    List<TaskOperationResult> delegateTasks(String serverTemplateId, List<TaskKey> tasks, String entity);
+
 }
\ No newline at end of file
@@ -139,11 +139,13 @@ public class DataSetDefsBootstrap {
                 .dataSource(JBPM_DATA_SOURCE)
                 .dbSQL("select " +
                             "tvi.taskId, " +
-                            "(select ati.name from AuditTaskImpl ati where ati.taskId = tvi.taskId) as \"" + COLUMN_TASK_VARIABLE_TASK_NAME + "\", " +
+                            "ati.name as \"" + COLUMN_TASK_VARIABLE_TASK_NAME + "\", " +
                             "tvi.name, " +
                             "tvi.value " +
                         "from " +
-                            "TaskVariableImpl tvi", false)
+                            "TaskVariableImpl tvi " +
+                        "left join " +
+                            "AuditTaskImpl ati on ati.taskId = tvi.taskId", false)
                .number(COLUMN_TASK_VARIABLE_TASK_ID)
                .label(COLUMN_TASK_VARIABLE_TASK_NAME)
                .label(COLUMN_TASK_VARIABLE_NAME)
@@ -161,6 +163,9 @@ public class DataSetDefsBootstrap {
         humanTasksWithUserDomainDef.setPublic(false);
         humanTasksWithUserDomainDef.setProvider(KieServerDataSetProvider.TYPE);
 
+        // Column identifying the rows, used to read large results in chunks
+        humanTasksDef.setProperty(KieServerDataSetProvider.UNIQUE_COLUMN, COLUMN_TASK_ID);
+
         // Register the data set definitions
         dataSetDefRegistry.registerDataSetDef(humanTasksDef);
         dataSetDefRegistry.registerDataSetDef(humanTasksWithUserDef);
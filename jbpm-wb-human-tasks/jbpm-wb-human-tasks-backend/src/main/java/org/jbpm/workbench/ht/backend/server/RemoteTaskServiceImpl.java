@@ -16,10 +16,19 @@
 
 package org.jbpm.workbench.ht.backend.server;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.IntStream;
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 
@@ -27,26 +36,53 @@ import org.jboss.errai.bus.server.annotations.Service;
 import org.jbpm.workbench.ks.integration.AbstractKieServerService;
 import org.jbpm.workbench.ht.model.CommentSummary;
 import org.jbpm.workbench.ht.model.TaskAssignmentSummary;
+import org.jbpm.workbench.ht.model.TaskDetailsBundle;
+import org.jbpm.workbench.ht.model.TaskEventPage;
 import org.jbpm.workbench.ht.model.TaskEventSummary;
+import org.jbpm.workbench.ht.model.TaskKey;
+import org.jbpm.workbench.ht.model.TaskOperationResult;
 import org.jbpm.workbench.ht.model.TaskSummary;
 import org.jbpm.workbench.ht.service.TaskService;
 import org.kie.internal.identity.IdentityProvider;
+import org.kie.server.api.commands.CommandScript;
+import org.kie.server.api.commands.DescriptorCommand;
 import org.kie.server.api.exception.KieServicesException;
+import org.kie.server.api.marshalling.Marshaller;
+import org.kie.server.api.marshalling.MarshallerFactory;
+import org.kie.server.api.marshalling.MarshallingFormat;
+import org.kie.server.api.model.KieServerCommand;
+import org.kie.server.api.model.ServiceResponse;
 import org.kie.server.api.model.instance.TaskComment;
 import org.kie.server.api.model.instance.TaskEventInstance;
 import org.kie.server.api.model.instance.TaskInstance;
+import org.kie.server.client.KieServicesClient;
 import org.kie.server.client.UserTaskServicesClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.uberfire.commons.async.SimpleAsyncExecutorService;
 
 import static java.util.Collections.emptyList;
+import static java.util.stream.Collectors.groupingBy;
 import static java.util.stream.Collectors.toList;
+import static org.jbpm.workbench.ht.model.TaskDataSetConstants.*;
 
 @Service
 @ApplicationScoped
 public class RemoteTaskServiceImpl extends AbstractKieServerService implements TaskService {
 
+    public static final String BULK_PARALLELISM = "org.jbpm.wb.task.bulk.parallelism";
+    public static final String EVENTS_PAGE_SIZE = "org.jbpm.wb.task.events.page.size";
+    public static final String EVENTS_MAX_PAGE_SIZE = "org.jbpm.wb.task.events.page.size.max";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RemoteTaskServiceImpl.class);
+
+    private static final String[] TASK_DATA_SETS = {HUMAN_TASKS_DATASET, HUMAN_TASKS_WITH_USER_DATASET, HUMAN_TASKS_WITH_ADMIN_DATASET, HUMAN_TASKS_WITH_VARIABLES_DATASET};
+
     @Inject
     private IdentityProvider identityProvider;
 
+    private final Marshaller payloadMarshaller = MarshallerFactory.getMarshaller(MarshallingFormat.JSON, RemoteTaskServiceImpl.class.getClassLoader());
+
     @Override
     public TaskSummary getTask(String serverTemplateId, String containerId, Long taskId) {
         if (serverTemplateId == null || serverTemplateId.isEmpty()) {
@@ -65,15 +101,59 @@ public class RemoteTaskServiceImpl extends AbstractKieServerService implements T
 
     @Override
     public void updateTask(String serverTemplateId, String containerId, Long taskId, Integer priority, String description, Date dueDate) {
+        updateTask(serverTemplateId, containerId, taskId, priority, description, dueDate, null);
+    }
+
+    @Override
+    public void updateTask(String serverTemplateId, String containerId, Long taskId, Integer priority, String description, Date dueDate, TaskSummary currentTask) {
         if (serverTemplateId == null || serverTemplateId.isEmpty()) {
             return;
         }
 
-        UserTaskServicesClient client = getClient(serverTemplateId, UserTaskServicesClient.class);
-        // TODO update only when it actually changed
-        client.setTaskDescription(containerId, taskId, description);
-        client.setTaskPriority(containerId, taskId, priority);
-        client.setTaskExpirationDate(containerId, taskId, dueDate);
+        final KieServicesClient client = getKieServicesClient(serverTemplateId);
+        final String currentDescription;
+        final Integer currentPriority;
+        final Date currentDueDate;
+        if (currentTask != null) {
+            currentDescription = currentTask.getDescription();
+            currentPriority = currentTask.getPriority();
+            currentDueDate = currentTask.getExpirationTime();
+        } else {
+            final TaskInstance task = client.getServicesClient(UserTaskServicesClient.class).getTaskInstance(containerId, taskId);
+            currentDescription = task.getDescription();
+            currentPriority = task.getPriority();
+            currentDueDate = task.getExpirationDate();
+        }
+
+        final List<KieServerCommand> commands = new ArrayList<>();
+        if (!Objects.equals(description, currentDescription)) {
+            commands.add(newTaskCommand("setDescription", containerId, taskId, description));
+        }
+        if (priority != null && !priority.equals(currentPriority)) {
+            commands.add(newTaskCommand("setPriority", containerId, taskId, priority));
+        }
+        if (!Objects.equals(dueDate, currentDueDate)) {
+            commands.add(newTaskCommand("setExpirationDate", containerId, taskId, dueDate));
+        }
+        if (commands.isEmpty()) {
+            return;
+        }
+
+        // all changes are sent as a single script, so an edit costs one round trip
+        final List<ServiceResponse<?>> responses = client.executeScript(new CommandScript(commands)).getResponses();
+        invalidateQueryCache(serverTemplateId, TASK_DATA_SETS);
+        for (ServiceResponse<?> response : responses) {
+            if (ServiceResponse.ResponseType.FAILURE.equals(response.getType())) {
+                throw new KieServicesException(response.getMsg());
+            }
+        }
+    }
+
+    /**
+     * Creates a command that invokes given method of the user task service, the same way its client does over JMS.
+     */
+    protected DescriptorCommand newTaskCommand(String method, String containerId, Long taskId, Object value) {
+        return new DescriptorCommand("UserTaskService", method, payloadMarshaller.marshall(value), payloadMarshaller.getFormat().getType(), containerId, taskId);
     }
 
     @Override
@@ -85,6 +165,7 @@ public class RemoteTaskServiceImpl extends AbstractKieServerService implements T
         UserTaskServicesClient client = getClient(serverTemplateId, UserTaskServicesClient.class);
 
         client.claimTask(containerId, taskId, identityProvider.getName());
+        invalidateQueryCache(serverTemplateId, TASK_DATA_SETS);
     }
 
     @Override
@@ -96,6 +177,7 @@ public class RemoteTaskServiceImpl extends AbstractKieServerService implements T
         UserTaskServicesClient client = getClient(serverTemplateId, UserTaskServicesClient.class);
 
         client.releaseTask(containerId, taskId, identityProvider.getName());
+        invalidateQueryCache(serverTemplateId, TASK_DATA_SETS);
     }
 
     @Override
@@ -107,6 +189,7 @@ public class RemoteTaskServiceImpl extends AbstractKieServerService implements T
         UserTaskServicesClient client = getClient(serverTemplateId, UserTaskServicesClient.class);
 
         client.startTask(containerId, taskId, identityProvider.getName());
+        invalidateQueryCache(serverTemplateId, TASK_DATA_SETS);
     }
 
     @Override
@@ -118,6 +201,8 @@ public class RemoteTaskServiceImpl extends AbstractKieServerService implements T
         UserTaskServicesClient client = getClient(serverTemplateId, UserTaskServicesClient.class);
 
         client.completeTask(containerId, taskId, identityProvider.getName(), output);
+        // completion moves the process instance forward so all its data sets are affected
+        invalidateQueryCache(serverTemplateId);
     }
 
     @Override
@@ -129,6 +214,7 @@ public class RemoteTaskServiceImpl extends AbstractKieServerService implements T
         UserTaskServicesClient client = getClient(serverTemplateId, UserTaskServicesClient.class);
 
         client.saveTaskContent(containerId, taskId, output);
+        invalidateQueryCache(serverTemplateId, HUMAN_TASKS_WITH_VARIABLES_DATASET);
     }
 
     @Override
@@ -174,9 +260,70 @@ public class RemoteTaskServiceImpl extends AbstractKieServerService implements T
 
         UserTaskServicesClient client = getClient(serverTemplateId, UserTaskServicesClient.class);
 
-        List<TaskEventInstance> events = client.findTaskEvents(containerId, taskId, 0, 1000);
+        // all the events, so page through them with the largest page allowed
+        final int pageSize = getMaxEventsPageSize();
+        final List<TaskEventSummary> events = new ArrayList<>();
+        List<TaskEventInstance> page;
+        int pageIndex = 0;
+        do {
+            page = client.findTaskEvents(containerId, taskId, pageIndex++, pageSize);
+            page.forEach(e -> events.add(build(e)));
+        } while (page.size() == pageSize);
+
+        return events;
+    }
+
+    @Override
+    public TaskEventPage getTaskEventsPage(String serverTemplateId, String containerId, Long taskId, String cursor, Integer pageSize) {
+        if (serverTemplateId == null || serverTemplateId.isEmpty()) {
+            return null;
+        }
+
+        return getTaskEventsPage(getClient(serverTemplateId, UserTaskServicesClient.class), containerId, taskId, cursor, pageSize);
+    }
+
+    protected TaskEventPage getTaskEventsPage(UserTaskServicesClient client, String containerId, Long taskId, String cursor, Integer pageSize) {
+        final int[] position = cursor == null ? new int[]{0, negotiateEventsPageSize(pageSize)} : decodeCursor(cursor);
+        final int page = position[0];
+        final int size = position[1];
+
+        final List<TaskEventSummary> events = client.findTaskEvents(containerId, taskId, page, size).stream().map(e -> build(e)).collect(toList());
+        // a full page means there might be more events, the last page may then turn out to be empty
+        final String nextCursor = events.size() == size ? encodeCursor(page + 1, size) : null;
+        return new TaskEventPage(events, nextCursor, size);
+    }
+
+    /**
+     * Applies the default page size when none is requested and caps it to {@link #EVENTS_MAX_PAGE_SIZE}.
+     */
+    protected int negotiateEventsPageSize(Integer requested) {
+        final int size = requested == null || requested <= 0 ? Integer.getInteger(EVENTS_PAGE_SIZE, 20) : requested;
+        return Math.max(1, Math.min(size, getMaxEventsPageSize()));
+    }
 
-        return events.stream().map(e -> build(e)).collect(toList());
+    protected int getMaxEventsPageSize() {
+        return Math.max(1, Integer.getInteger(EVENTS_MAX_PAGE_SIZE, 100));
+    }
+
+    /**
+     * Cursors keep the page size they were created with, as the position of a page depends on it.
+     */
+    protected String encodeCursor(int page, int pageSize) {
+        return page + ":" + pageSize;
+    }
+
+    protected int[] decodeCursor(String cursor) {
+        final String[] parts = cursor.split(":");
+        try {
+            final int page = Integer.parseInt(parts[0]);
+            final int pageSize = Integer.parseInt(parts[1]);
+            if (parts.length == 2 && page >= 0 && pageSize > 0 && pageSize <= getMaxEventsPageSize()) {
+                return new int[]{page, pageSize};
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException("Invalid task events cursor '" + cursor + "'");
     }
 
     @Override
@@ -188,6 +335,7 @@ public class RemoteTaskServiceImpl extends AbstractKieServerService implements T
         UserTaskServicesClient client = getClient(serverTemplateId, UserTaskServicesClient.class);
 
         client.delegateTask(containerId, taskId, identityProvider.getName(), entity);
+        invalidateQueryCache(serverTemplateId, TASK_DATA_SETS);
     }
 
     @Override
@@ -199,22 +347,53 @@ public class RemoteTaskServiceImpl extends AbstractKieServerService implements T
         UserTaskServicesClient client = getClient(serverTemplateId, UserTaskServicesClient.class);
         try {
             TaskInstance task = client.getTaskInstance(containerId, taskId, false, false, true);
-            TaskAssignmentSummary summary = new TaskAssignmentSummary();
-            summary.setTaskId(task.getId());
-            summary.setActualOwner(task.getActualOwner());
-            summary.setTaskName(task.getName());
-            summary.setPotOwnersString(task.getPotentialOwners());
-            summary.setCreatedBy(task.getCreatedBy());
-            summary.setBusinessAdmins(task.getBusinessAdmins());
-            summary.setStatus(task.getStatus());
-            summary.setDelegationAllowed(isDelegationAllowed(task));
-            return summary;
+            return buildAssignmentSummary(task);
         } catch (KieServicesException e) {
             // task not found
             return null;
         }
     }
 
+    /**
+     * Loads the task once, with its assignments, while its comments and events are loaded in parallel with the
+     * credentials of the caller.
+     */
+    @Override
+    public TaskDetailsBundle getTaskDetailsBundle(String serverTemplateId, String containerId, Long taskId) {
+        if (serverTemplateId == null || serverTemplateId.isEmpty()) {
+            return null;
+        }
+
+        UserTaskServicesClient client = getClient(serverTemplateId, UserTaskServicesClient.class);
+
+        final CompletableFuture<List<CommentSummary>> comments = CompletableFuture.supplyAsync(
+                withCallerCredentials(() -> client.getTaskCommentsByTaskId(containerId, taskId).stream().map(c -> build(c)).collect(toList())),
+                SimpleAsyncExecutorService.getDefaultInstance());
+        final CompletableFuture<TaskEventPage> events = CompletableFuture.supplyAsync(
+                withCallerCredentials(() -> getTaskEventsPage(client, containerId, taskId, null, null)),
+                SimpleAsyncExecutorService.getDefaultInstance());
+
+        try {
+            final TaskInstance task;
+            try {
+                task = client.getTaskInstance(containerId, taskId, false, false, true);
+            } catch (KieServicesException e) {
+                // task not found
+                return null;
+            }
+            return new TaskDetailsBundle(build(task), buildAssignmentSummary(task), comments.join(), events.join());
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        } finally {
+            // loads that are not needed anymore are not started, e.g. when the task could not be read
+            comments.cancel(false);
+            events.cancel(false);
+        }
+    }
+
     protected Boolean isDelegationAllowed(final TaskInstance task) {
 
         if (task == null) {
@@ -257,6 +436,101 @@ public class RemoteTaskServiceImpl extends AbstractKieServerService implements T
 
     }
 
+    @Override
+    public List<TaskOperationResult> claimTasks(String serverTemplateId, List<TaskKey> tasks) {
+        final String userId = getUserId(serverTemplateId);
+        return executeBulk(serverTemplateId, tasks, (client, containerId, taskId) -> client.claimTask(containerId, taskId, userId), TASK_DATA_SETS);
+    }
+
+    @Override
+    public List<TaskOperationResult> releaseTasks(String serverTemplateId, List<TaskKey> tasks) {
+        final String userId = getUserId(serverTemplateId);
+        return executeBulk(serverTemplateId, tasks, (client, containerId, taskId) -> client.releaseTask(containerId, taskId, userId), TASK_DATA_SETS);
+    }
+
+    @Override
+    public List<TaskOperationResult> startTasks(String serverTemplateId, List<TaskKey> tasks) {
+        final String userId = getUserId(serverTemplateId);
+        return executeBulk(serverTemplateId, tasks, (client, containerId, taskId) -> client.startTask(containerId, taskId, userId), TASK_DATA_SETS);
+    }
+
+    @Override
+    public List<TaskOperationResult> completeTasks(String serverTemplateId, List<TaskKey> tasks, Map<String, Object> output) {
+        final String userId = getUserId(serverTemplateId);
+        // completion moves the process instances forward so all their data sets are affected
+        return executeBulk(serverTemplateId, tasks, (client, containerId, taskId) -> client.completeTask(containerId, taskId, userId, output));
+    }
+
+    @Override
+    public List<TaskOperationResult> delegateTasks(String serverTemplateId, List<TaskKey> tasks, String entity) {
+        final String userId = getUserId(serverTemplateId);
+        return executeBulk(serverTemplateId, tasks, (client, containerId, taskId) -> client.delegateTask(containerId, taskId, userId, entity), TASK_DATA_SETS);
+    }
+
+    private String getUserId(String serverTemplateId) {
+        // resolved on the calling thread as the identity is request scoped
+        return serverTemplateId == null || serverTemplateId.isEmpty() ? null : identityProvider.getName();
+    }
+
+    /**
+     * Runs given operation on every task, with at most {@link #BULK_PARALLELISM} remote calls in progress. Tasks are
+     * grouped by container so that the calls of a container are issued together, and the query cache is invalidated
+     * once for the whole request. Workers on the executor call kie server with the credentials of the caller.
+     * @return outcome of every task, in the order of the given tasks
+     */
+    protected List<TaskOperationResult> executeBulk(String serverTemplateId, List<TaskKey> tasks, TaskOperation operation, String... dataSetUUIDs) {
+        if (serverTemplateId == null || serverTemplateId.isEmpty() || tasks == null || tasks.isEmpty()) {
+            return emptyList();
+        }
+
+        final UserTaskServicesClient client = getClient(serverTemplateId, UserTaskServicesClient.class);
+
+        final Queue<Integer> pending = new ConcurrentLinkedQueue<>();
+        IntStream.range(0, tasks.size()).boxed()
+                .collect(groupingBy(i -> String.valueOf(tasks.get(i).getDeploymentId()), LinkedHashMap::new, toList()))
+                .values().forEach(pending::addAll);
+
+        final TaskOperationResult[] results = new TaskOperationResult[tasks.size()];
+        final Runnable worker = () -> {
+            Integer index;
+            while ((index = pending.poll()) != null) {
+                final TaskKey task = tasks.get(index);
+                try {
+                    operation.execute(client, task.getDeploymentId(), task.getTaskId());
+                    results[index] = new TaskOperationResult(task.getTaskId(), task.getDeploymentId(), true, null);
+                } catch (Exception e) {
+                    LOGGER.debug("Bulk operation on task {} failed due to {}", task.getTaskId(), e.getMessage());
+                    results[index] = new TaskOperationResult(task.getTaskId(), task.getDeploymentId(), false, e.getMessage());
+                }
+            }
+        };
+
+        // the calling thread works as well, so a busy executor only reduces parallelism
+        final int workers = Math.min(getBulkParallelism(), tasks.size());
+        final List<CompletableFuture<Void>> futures = new ArrayList<>();
+        final Runnable asyncWorker = workers > 1 ? withCallerCredentials(worker) : null;
+        for (int i = 1; i < workers; i++) {
+            futures.add(CompletableFuture.runAsync(asyncWorker, SimpleAsyncExecutorService.getDefaultInstance()));
+        }
+        worker.run();
+        futures.forEach(CompletableFuture::join);
+
+        if (Arrays.stream(results).anyMatch(TaskOperationResult::isSuccessful)) {
+            invalidateQueryCache(serverTemplateId, dataSetUUIDs);
+        }
+        return Arrays.asList(results);
+    }
+
+    protected int getBulkParallelism() {
+        return Math.max(1, Integer.getInteger(BULK_PARALLELISM, 4));
+    }
+
+    @FunctionalInterface
+    protected interface TaskOperation {
+
+        void execute(UserTaskServicesClient client, String containerId, Long taskId);
+    }
+
     protected TaskSummary build(org.kie.server.api.model.instance.TaskSummary task) {
         TaskSummary taskSummary = new TaskSummary(
                 task.getId(),
@@ -313,6 +587,19 @@ public class RemoteTaskServiceImpl extends AbstractKieServerService implements T
         return taskSummary;
     }
 
+    protected TaskAssignmentSummary buildAssignmentSummary(TaskInstance task) {
+        TaskAssignmentSummary summary = new TaskAssignmentSummary();
+        summary.setTaskId(task.getId());
+        summary.setActualOwner(task.getActualOwner());
+        summary.setTaskName(task.getName());
+        summary.setPotOwnersString(task.getPotentialOwners());
+        summary.setCreatedBy(task.getCreatedBy());
+        summary.setBusinessAdmins(task.getBusinessAdmins());
+        summary.setStatus(task.getStatus());
+        summary.setDelegationAllowed(isDelegationAllowed(task));
+        return summary;
+    }
+
     protected CommentSummary build(TaskComment comment) {
         CommentSummary summary = new CommentSummary(
                 comment.getId(),
@@ -16,20 +16,45 @@
 package org.jbpm.workbench.ht.backend.server;
 
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Collection;
 import java.util.Date;
+import java.util.List;
 
+import org.jbpm.workbench.ht.model.TaskDetailsBundle;
+import org.jbpm.workbench.ht.model.TaskEventPage;
 import org.jbpm.workbench.ht.model.TaskEventSummary;
+import org.jbpm.workbench.ht.model.TaskKey;
+import org.jbpm.workbench.ht.model.TaskOperationResult;
+import org.jbpm.workbench.ht.model.TaskSummary;
 import org.jbpm.workbench.ht.service.TaskService;
+import org.jbpm.workbench.ks.integration.KieServerCircuitBreakers;
+import org.jbpm.workbench.ks.integration.KieServerClientCache;
+import org.jbpm.workbench.ks.integration.KieServerClientMetrics;
+import org.jbpm.workbench.ks.integration.KieServerIntegration;
+import org.jbpm.workbench.ks.integration.KieServerQueryCache;
+import org.jbpm.workbench.ks.security.PropagatingCredentialsProvider;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.kie.internal.identity.IdentityProvider;
+import org.kie.server.api.model.instance.TaskComment;
 import org.kie.server.api.model.instance.TaskEventInstance;
+import org.kie.server.api.commands.CommandScript;
+import org.kie.server.api.commands.DescriptorCommand;
+import org.kie.server.api.exception.KieServicesException;
+import org.kie.server.api.model.ServiceResponse;
+import org.kie.server.api.model.ServiceResponsesList;
 import org.kie.server.api.model.instance.TaskInstance;
+import org.kie.server.client.CredentialsProvider;
+import org.kie.server.client.KieServicesClient;
+import org.kie.server.client.UserTaskServicesClient;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.runners.MockitoJUnitRunner;
 
 import static java.lang.String.format;
@@ -48,9 +73,33 @@ public class RemoteTaskServiceImplTest {
     @Mock
     IdentityProvider identityProvider;
 
+    @Mock
+    KieServerIntegration kieServerIntegration;
+
+    @Mock
+    KieServicesClient kieServicesClient;
+
+    @Mock
+    UserTaskServicesClient userTaskServicesClient;
+
+    @Spy
+    KieServerQueryCache queryCache = new KieServerQueryCache(10, 60000);
+
+    @Spy
+    KieServerCircuitBreakers circuitBreakers = new KieServerCircuitBreakers(5, 30000, 50);
+
+    @Spy
+    KieServerClientMetrics clientMetrics = new KieServerClientMetrics(true);
+
+    @Spy
+    KieServerClientCache clientCache = new KieServerClientCache();
+
     @Before
     public void initMocks() {
         when(identityProvider.getName()).thenReturn(CURRENT_USER);
+
+        when(kieServerIntegration.getServerClient(anyString())).thenReturn(kieServicesClient);
+        when(kieServicesClient.getServicesClient(UserTaskServicesClient.class)).thenReturn(userTaskServicesClient);
     }
 
     @Test
@@ -153,6 +202,226 @@ public class RemoteTaskServiceImplTest {
         assertEquals(event.getMessage(), summary.getMessage());
     }
 
+    @Test
+    public void testUpdateTaskSendsOnlyChangedFields() {
+        final Date dueDate = new Date();
+        final TaskSummary current = newTaskSummary("description", 5, dueDate);
+        when(kieServicesClient.executeScript(any(CommandScript.class))).thenReturn(
+                new ServiceResponsesList(Collections.singletonList(new ServiceResponse<>(ServiceResponse.ResponseType.SUCCESS, ""))));
+
+        remoteTaskService.updateTask("template", "container", 1l, 8, "description", dueDate, current);
+
+        final ArgumentCaptor<CommandScript> captor = ArgumentCaptor.forClass(CommandScript.class);
+        verify(kieServicesClient).executeScript(captor.capture());
+        assertEquals(1, captor.getValue().getCommands().size());
+        final DescriptorCommand command = (DescriptorCommand) captor.getValue().getCommands().get(0);
+        assertEquals("UserTaskService", command.getService());
+        assertEquals("setPriority", command.getMethod());
+        assertEquals("8", command.getPayload());
+        assertEquals(Arrays.asList("container", 1l), command.getArguments());
+        verifyZeroInteractions(userTaskServicesClient);
+        verify(queryCache).invalidate(eq("template"), anyVararg());
+    }
+
+    @Test
+    public void testUpdateTaskWithoutChangesSkipsRequest() {
+        final TaskSummary current = newTaskSummary("description", 5, null);
+
+        remoteTaskService.updateTask("template", "container", 1l, 5, "description", null, current);
+
+        verify(kieServicesClient, never()).executeScript(any(CommandScript.class));
+        verify(queryCache, never()).invalidate(anyString(), anyVararg());
+    }
+
+    @Test
+    public void testUpdateTaskLoadsCurrentState() {
+        final TaskInstance task = TaskInstance.builder().id(1l).description("description").priority(5).build();
+        when(userTaskServicesClient.getTaskInstance("container", 1l)).thenReturn(task);
+        when(kieServicesClient.executeScript(any(CommandScript.class))).thenReturn(
+                new ServiceResponsesList(Collections.singletonList(new ServiceResponse<>(ServiceResponse.ResponseType.FAILURE, "Not allowed"))));
+
+        try {
+            remoteTaskService.updateTask("template", "container", 1l, 5, "newDescription", null);
+            fail("Failed response should be reported");
+        } catch (KieServicesException e) {
+            assertEquals("Not allowed", e.getMessage());
+        }
+
+        final ArgumentCaptor<CommandScript> captor = ArgumentCaptor.forClass(CommandScript.class);
+        verify(kieServicesClient).executeScript(captor.capture());
+        assertEquals(1, captor.getValue().getCommands().size());
+        assertEquals("setDescription", ((DescriptorCommand) captor.getValue().getCommands().get(0)).getMethod());
+    }
+
+    @Test
+    public void testTaskDetailsBundleLoadsTaskOnce() {
+        final TaskInstance task = TaskInstance.builder().id(1l).name("task").status("Reserved").actualOwner(CURRENT_USER)
+                .potentialOwners(Arrays.asList(CURRENT_USER)).priority(5).processInstanceId(2l).parentId(-1l).build();
+        when(userTaskServicesClient.getTaskInstance("container", 1l, false, false, true)).thenReturn(task);
+        when(userTaskServicesClient.getTaskCommentsByTaskId("container", 1l)).thenReturn(
+                Collections.singletonList(TaskComment.builder().id(3l).text("comment").addedBy(CURRENT_USER).addedAt(new Date()).build()));
+        when(userTaskServicesClient.findTaskEvents("container", 1l, 0, 20)).thenReturn(
+                Collections.singletonList(TaskEventInstance.builder().id(4l).taskId(1l).type("ADDED").build()));
+
+        final TaskDetailsBundle bundle = remoteTaskService.getTaskDetailsBundle("template", "container", 1l);
+
+        assertNotNull(bundle);
+        assertEquals("task", bundle.getTask().getTaskName());
+        assertEquals(Long.valueOf(1), bundle.getAssignmentDetails().getTaskId());
+        assertEquals(Arrays.asList(CURRENT_USER), bundle.getAssignmentDetails().getPotOwnersString());
+        assertTrue(bundle.getAssignmentDetails().isDelegationAllowed());
+        assertEquals(1, bundle.getComments().size());
+        assertEquals("comment", bundle.getComments().get(0).getText());
+        assertEquals(1, bundle.getEvents().getEvents().size());
+        assertEquals("ADDED", bundle.getEvents().getEvents().get(0).getType());
+        assertFalse(bundle.getEvents().hasMore());
+        verify(userTaskServicesClient).getTaskInstance("container", 1l, false, false, true);
+        verify(kieServerIntegration).getServerClient("template");
+    }
+
+    @Test
+    public void testTaskDetailsBundleForMissingTask() {
+        when(userTaskServicesClient.getTaskInstance("container", 1l, false, false, true)).thenThrow(new KieServicesException("Task not found"));
+
+        assertNull(remoteTaskService.getTaskDetailsBundle("template", "container", 1l));
+    }
+
+    @Test
+    public void testTaskDetailsBundleLoadedWithCallerCredentials() {
+        final PropagatingCredentialsProvider userCredentials = new PropagatingCredentialsProvider(mock(CredentialsProvider.class));
+        final List<String> authorizations = Collections.synchronizedList(new ArrayList<>());
+        final TaskInstance task = TaskInstance.builder().id(1l).name("task").status("Reserved").actualOwner(CURRENT_USER)
+                .potentialOwners(Arrays.asList(CURRENT_USER)).priority(5).processInstanceId(2l).parentId(-1l).build();
+        when(userTaskServicesClient.getTaskInstance("container", 1l, false, false, true)).thenReturn(task);
+        when(userTaskServicesClient.getTaskCommentsByTaskId("container", 1l)).thenAnswer(invocation -> {
+            authorizations.add(userCredentials.getAuthorization());
+            return Collections.emptyList();
+        });
+        when(userTaskServicesClient.findTaskEvents("container", 1l, 0, 20)).thenAnswer(invocation -> {
+            authorizations.add(userCredentials.getAuthorization());
+            return Collections.emptyList();
+        });
+
+        final PropagatingCredentialsProvider.Credentials previous = PropagatingCredentialsProvider.bind(new PropagatingCredentialsProvider.Credentials("Bearer john"));
+        try {
+            assertNotNull(remoteTaskService.getTaskDetailsBundle("template", "container", 1l));
+        } finally {
+            PropagatingCredentialsProvider.restore(previous);
+        }
+
+        assertEquals(Arrays.asList("Bearer john", "Bearer john"), authorizations);
+    }
+
+    @Test
+    public void testTaskDetailsBundleLoadsCancelledOnError() {
+        when(userTaskServicesClient.getTaskInstance("container", 1l, false, false, true)).thenThrow(new IllegalStateException("Server down"));
+
+        try {
+            remoteTaskService.getTaskDetailsBundle("template", "container", 1l);
+            fail("Server error expected");
+        } catch (IllegalStateException e) {
+            assertEquals("Server down", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testTaskEventsPagedWithCursor() {
+        when(userTaskServicesClient.findTaskEvents("container", 1l, 0, 2)).thenReturn(newTaskEvents(2));
+        when(userTaskServicesClient.findTaskEvents("container", 1l, 1, 2)).thenReturn(newTaskEvents(1));
+
+        final TaskEventPage first = remoteTaskService.getTaskEventsPage("template", "container", 1l, null, 2);
+
+        assertEquals(2, first.getEvents().size());
+        assertEquals(2, first.getPageSize());
+        assertTrue(first.hasMore());
+
+        final TaskEventPage second = remoteTaskService.getTaskEventsPage("template", "container", 1l, first.getNextCursor(), 50);
+
+        assertEquals(1, second.getEvents().size());
+        assertEquals(2, second.getPageSize());
+        assertFalse(second.hasMore());
+    }
+
+    @Test
+    public void testTaskEventsPageSizeNegotiated() {
+        assertEquals(20, remoteTaskService.negotiateEventsPageSize(null));
+        assertEquals(20, remoteTaskService.negotiateEventsPageSize(0));
+        assertEquals(5, remoteTaskService.negotiateEventsPageSize(5));
+        assertEquals(100, remoteTaskService.negotiateEventsPageSize(5000));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidTaskEventsCursor() {
+        remoteTaskService.getTaskEventsPage("template", "container", 1l, "1:5000", 20);
+    }
+
+    @Test
+    public void testAllTaskEventsLoaded() {
+        when(userTaskServicesClient.findTaskEvents("container", 1l, 0, 100)).thenReturn(newTaskEvents(100));
+        when(userTaskServicesClient.findTaskEvents("container", 1l, 1, 100)).thenReturn(newTaskEvents(100));
+        when(userTaskServicesClient.findTaskEvents("container", 1l, 2, 100)).thenReturn(newTaskEvents(10));
+
+        assertEquals(210, remoteTaskService.getTaskEvents("template", "container", 1l).size());
+    }
+
+    @Test
+    public void testBulkClaimReturnsOutcomePerTask() {
+        doThrow(new KieServicesException("Task 2 not found")).when(userTaskServicesClient).claimTask("container2", 2l, CURRENT_USER);
+
+        final List<TaskOperationResult> results = remoteTaskService.claimTasks("template",
+                                                                              Arrays.asList(new TaskKey("template", "container1", 1l),
+                                                                                            new TaskKey("template", "container2", 2l),
+                                                                                            new TaskKey("template", "container1", 3l)));
+
+        assertEquals(3, results.size());
+        assertEquals(Long.valueOf(1), results.get(0).getTaskId());
+        assertTrue(results.get(0).isSuccessful());
+        assertEquals(Long.valueOf(2), results.get(1).getTaskId());
+        assertFalse(results.get(1).isSuccessful());
+        assertEquals("Task 2 not found", results.get(1).getErrorMessage());
+        assertEquals(Long.valueOf(3), results.get(2).getTaskId());
+        assertTrue(results.get(2).isSuccessful());
+        verify(userTaskServicesClient).claimTask("container1", 1l, CURRENT_USER);
+        verify(userTaskServicesClient).claimTask("container1", 3l, CURRENT_USER);
+        verify(queryCache).invalidate(eq("template"), anyVararg());
+    }
+
+    @Test
+    public void testBulkOperationWorkersUseCallerCredentials() {
+        final PropagatingCredentialsProvider userCredentials = new PropagatingCredentialsProvider(mock(CredentialsProvider.class));
+        final List<String> authorizations = Collections.synchronizedList(new ArrayList<>());
+        doAnswer(invocation -> {
+            // slow calls leave work for the executor's workers
+            Thread.sleep(5);
+            return authorizations.add(userCredentials.getAuthorization());
+        }).when(userTaskServicesClient).startTask(anyString(), anyLong(), anyString());
+        final List<TaskKey> tasks = new ArrayList<>();
+        for (long i = 0; i < 20; i++) {
+            tasks.add(new TaskKey("template", "container", i));
+        }
+
+        final PropagatingCredentialsProvider.Credentials previous = PropagatingCredentialsProvider.bind(new PropagatingCredentialsProvider.Credentials("Bearer john"));
+        try {
+            remoteTaskService.startTasks("template", tasks);
+        } finally {
+            PropagatingCredentialsProvider.restore(previous);
+        }
+
+        assertEquals(Collections.nCopies(20, "Bearer john"), authorizations);
+    }
+
+    @Test
+    public void testBulkOperationWithoutSuccessKeepsCache() {
+        doThrow(new KieServicesException("Not allowed")).when(userTaskServicesClient).releaseTask(anyString(), anyLong(), anyString());
+
+        final List<TaskOperationResult> results = remoteTaskService.releaseTasks("template",
+                                                                                Arrays.asList(new TaskKey("template", "container1", 1l)));
+
+        assertEquals(1, results.size());
+        assertFalse(results.get(0).isSuccessful());
+        verify(queryCache, never()).invalidate(anyString(), anyVararg());
+    }
+
     @Test
     public void testInvalidServerTemplate() throws Exception {
         final Method[] methods = TaskService.class.getMethods();
@@ -169,6 +438,18 @@ public class RemoteTaskServiceImplTest {
         }
     }
 
+    private List<TaskEventInstance> newTaskEvents(final int count) {
+        final List<TaskEventInstance> events = new ArrayList<>();
+        for (long i = 0; i < count; i++) {
+            events.add(TaskEventInstance.builder().id(i).taskId(1l).type("UPDATED").build());
+        }
+        return events;
+    }
+
+    private TaskSummary newTaskSummary(final String description, final int priority, final Date dueDate) {
+        return new TaskSummary(1l, null, description, null, priority, null, null, null, null, dueDate, null, -1, -1, "container", -1, null, null, null);
+    }
+
     private void assertMethodResult(final Method method, final Class<?> returnType, final Object result) {
         if (Collection.class.isAssignableFrom(returnType)) {
             assertNotNull(format("Returned collection for method %s should not be null", method.getName()), result);
@@ -116,37 +116,40 @@ public class TaskAdminPresenter {
                 new RemoteCallback<TaskAssignmentSummary>() {
                     @Override
                     public void callback(TaskAssignmentSummary ts) {
-                        if (ts == null) {
-                            view.getReminderButton().setEnabled(false);
-                            view.getForwardButton().setEnabled(false);
-                            view.getUserOrGroupText().setEnabled(false);
-                            return;
-                        }
-                        if (ts.getPotOwnersString() != null && ts.getPotOwnersString().isEmpty()) {
-                            view.getUsersGroupsControlsPanel().setText(Constants.INSTANCE.No_Potential_Owners());
-                        } else {
-                            view.getUsersGroupsControlsPanel().setText("" + ts.getPotOwnersString().toString());
-                        }
-                        view.getForwardButton().setEnabled(true);
-                        view.getUserOrGroupText().setEnabled(true);
-
-                        if (ts.getActualOwner() == null || ts.getActualOwner().equals("")) {
-                            view.getReminderButton().setEnabled(false);
-                            view.getActualOwnerPanel().setText(Constants.INSTANCE.No_Actual_Owner());
-                        } else {
-                            view.getReminderButton().setEnabled(true);
-                            view.getActualOwnerPanel().setText(ts.getActualOwner());
-                        }
+                        setTaskAssignmentDetails(ts);
                     }
                 }
         ).getTaskAssignmentDetails(serverTemplateId, containerId, currentTaskId);
     }
 
+    public void setTaskAssignmentDetails(final TaskAssignmentSummary ts) {
+        if (ts == null) {
+            view.getReminderButton().setEnabled(false);
+            view.getForwardButton().setEnabled(false);
+            view.getUserOrGroupText().setEnabled(false);
+            return;
+        }
+        if (ts.getPotOwnersString() != null && ts.getPotOwnersString().isEmpty()) {
+            view.getUsersGroupsControlsPanel().setText(Constants.INSTANCE.No_Potential_Owners());
+        } else {
+            view.getUsersGroupsControlsPanel().setText("" + ts.getPotOwnersString().toString());
+        }
+        view.getForwardButton().setEnabled(true);
+        view.getUserOrGroupText().setEnabled(true);
+
+        if (ts.getActualOwner() == null || ts.getActualOwner().equals("")) {
+            view.getReminderButton().setEnabled(false);
+            view.getActualOwnerPanel().setText(Constants.INSTANCE.No_Actual_Owner());
+        } else {
+            view.getReminderButton().setEnabled(true);
+            view.getActualOwnerPanel().setText(ts.getActualOwner());
+        }
+    }
+
     public void onTaskSelectionEvent( @Observes final TaskSelectionEvent event ) {
         this.currentTaskId = event.getTaskId();
         serverTemplateId = event.getServerTemplateId();
         containerId = event.getContainerId();
-        refreshTaskPotentialOwners();
     }
 
     public void onTaskRefreshedEvent( @Observes TaskRefreshedEvent event ) {
@@ -123,26 +123,32 @@ public class TaskAssignmentsPresenter {
             taskService.call(new RemoteCallback<TaskAssignmentSummary>() {
                 @Override
                 public void callback(final TaskAssignmentSummary response) {
-                    if (response == null || response.getPotOwnersString() == null || response.getPotOwnersString().isEmpty()) {
-                        view.setPotentialOwnersInfo(singletonList(constants.No_Potential_Owners()));
-                    } else {
-                        view.setPotentialOwnersInfo(response.getPotOwnersString());
-                        view.enableDelegateButton(response.isDelegationAllowed());
-                        view.enableUserOrGroupInput(response.isDelegationAllowed());
-                    }
+                    setTaskAssignmentDetails(response);
                 }
             }).getTaskAssignmentDetails(serverTemplateId, containerId, currentTaskId);
 
         }
     }
 
+    public void setTaskAssignmentDetails(final TaskAssignmentSummary response) {
+        if (response == null || response.getPotOwnersString() == null || response.getPotOwnersString().isEmpty()) {
+            view.setPotentialOwnersInfo(singletonList(constants.No_Potential_Owners()));
+        } else {
+            view.setPotentialOwnersInfo(response.getPotOwnersString());
+            view.enableDelegateButton(response.isDelegationAllowed());
+            view.enableUserOrGroupInput(response.isDelegationAllowed());
+        }
+    }
+
     public void onTaskSelectionEvent(@Observes final TaskSelectionEvent event) {
         this.currentTaskId = event.getTaskId();
         serverTemplateId = event.getServerTemplateId();
         containerId = event.getContainerId();
         view.setHelpText("");
         view.clearUserOrGroupInput();
-        refreshTaskPotentialOwners();
+        view.enableDelegateButton(false);
+        view.enableUserOrGroupInput(false);
+        view.setPotentialOwnersInfo(emptyList());
     }
 
     public void onTaskRefreshedEvent(@Observes TaskRefreshedEvent event) {
@@ -78,14 +78,18 @@ public class TaskCommentsPresenter {
                 new RemoteCallback<List<CommentSummary>>() {
                     @Override
                     public void callback(List<CommentSummary> comments) {
-                        dataProvider.getList().clear();
-                        dataProvider.getList().addAll(comments);
-                        view.redrawDataGrid();
+                        setComments(comments);
                     }
                 }
         ).getTaskComments(serverTemplateId, containerId, currentTaskId);
     }
 
+    public void setComments(final List<CommentSummary> comments) {
+        dataProvider.getList().clear();
+        dataProvider.getList().addAll(comments);
+        view.redrawDataGrid();
+    }
+
     public void addTaskComment(final String text) {
         if ("".equals(text.trim())) {
             view.displayNotification(constants.CommentCannotBeEmpty());
@@ -127,7 +131,6 @@ public class TaskCommentsPresenter {
         currentTaskId = event.getTaskId();
         serverTemplateId = event.getServerTemplateId();
         containerId = event.getContainerId();
-        refreshComments();
     }
 
     public void onTaskRefreshedEvent(@Observes final TaskRefreshedEvent event) {
@@ -80,6 +80,7 @@ public class TaskDetailsPresenter {
     private long currentTaskId = 0;
     private String currentServerTemplateId;
     private String currentContainerId;
+    private TaskSummary currentTask;
 
     @Inject
     public TaskDetailsPresenter(
@@ -114,7 +115,7 @@ public class TaskDetailsPresenter {
                     taskRefreshed.fire( new TaskRefreshedEvent( currentTaskId ) );
                     taskCalendarEvent.fire( new TaskCalendarEvent( currentTaskId ) );
                 }
-            }).updateTask(currentServerTemplateId, currentContainerId, currentTaskId, priority, taskDescription, dueDate);
+            }).updateTask(currentServerTemplateId, currentContainerId, currentTaskId, priority, taskDescription, dueDate, currentTask);
 
         }
     }
@@ -125,26 +126,31 @@ public class TaskDetailsPresenter {
         taskService.call(new RemoteCallback<TaskSummary>() {
             @Override
             public void callback(TaskSummary details) {
-                if (details == null) {
-                    setReadOnlyTaskDetail();
-                    return;
-                }
-                if (details.getStatus().equals("Completed")) {
-                    setReadOnlyTaskDetail();
-                }
-                view.setTaskDescription(details.getDescription());
-                final Long date = UTCDateBox.date2utc(details.getExpirationTime());
-                if (date != null) {
-                    view.setDueDate(date);
-                    view.setDueDateTime(date);
-                }
-                view.setUser(details.getActualOwner());
-                view.setTaskStatus(details.getStatus());
-                view.setTaskPriority(String.valueOf(details.getPriority()));
+                setTask(details);
             }
         }).getTask(currentServerTemplateId, currentContainerId, currentTaskId);
     }
 
+    public void setTask(final TaskSummary details) {
+        currentTask = details;
+        if (details == null) {
+            setReadOnlyTaskDetail();
+            return;
+        }
+        if (details.getStatus().equals("Completed")) {
+            setReadOnlyTaskDetail();
+        }
+        view.setTaskDescription(details.getDescription());
+        final Long date = UTCDateBox.date2utc(details.getExpirationTime());
+        if (date != null) {
+            view.setDueDate(date);
+            view.setDueDateTime(date);
+        }
+        view.setUser(details.getActualOwner());
+        view.setTaskStatus(details.getStatus());
+        view.setTaskPriority(String.valueOf(details.getPriority()));
+    }
+
     public void setReadOnlyTaskDetail() {
         view.setTaskDescriptionEnabled(false);
         view.setDueDateEnabled(false);
@@ -157,7 +163,8 @@ public class TaskDetailsPresenter {
         this.currentTaskId = event.getTaskId();
         this.currentServerTemplateId = event.getServerTemplateId();
         this.currentContainerId = event.getContainerId();
-        refreshTask();
+        // details are loaded along with the rest of the task by TaskDetailsMultiPresenter
+        this.currentTask = null;
     }
 
     public void onTaskRefreshedEvent(@Observes final TaskRefreshedEvent event) {
@@ -15,12 +15,15 @@
  */
 package org.jbpm.workbench.ht.client.editors.taskdetailsmulti;
 
+import java.util.Collections;
 import javax.enterprise.context.Dependent;
 import javax.enterprise.event.Event;
 import javax.enterprise.event.Observes;
 import javax.inject.Inject;
 
 import com.google.gwt.user.client.ui.IsWidget;
+import org.jboss.errai.common.client.api.Caller;
+import org.jboss.errai.common.client.api.RemoteCallback;
 import org.uberfire.ext.widgets.common.client.menu.RefreshMenuBuilder;
 import org.jbpm.workbench.ht.client.editors.taskadmin.TaskAdminPresenter;
 import org.jbpm.workbench.ht.client.editors.taskassignments.TaskAssignmentsPresenter;
@@ -32,8 +35,11 @@ import org.jbpm.workbench.ht.client.editors.taskprocesscontext.TaskProcessContex
 import org.jbpm.workbench.ht.client.resources.i18n.Constants;
 import org.jbpm.workbench.forms.display.api.HumanTaskDisplayerConfig;
 import org.jbpm.workbench.forms.client.display.api.HumanTaskFormDisplayProvider;
+import org.jbpm.workbench.ht.model.CommentSummary;
+import org.jbpm.workbench.ht.model.TaskDetailsBundle;
 import org.jbpm.workbench.ht.model.TaskKey;
 import org.jbpm.workbench.ht.model.events.TaskSelectionEvent;
+import org.jbpm.workbench.ht.service.TaskService;
 import org.uberfire.client.annotations.DefaultPosition;
 import org.uberfire.client.annotations.WorkbenchMenu;
 import org.uberfire.client.annotations.WorkbenchPartTitle;
@@ -100,6 +106,9 @@ public class TaskDetailsMultiPresenter implements RefreshMenuBuilder.SupportsRef
     @Inject
     private Event<TaskSelectionEvent> taskSelected;
 
+    @Inject
+    private Caller<TaskService> taskService;
+
     private PlaceRequest place;
 
     private Long taskId;
@@ -180,6 +189,34 @@ public class TaskDetailsMultiPresenter implements RefreshMenuBuilder.SupportsRef
         } else {
             view.setAdminTabVisible(false);
         }
+
+        loadTaskDetails();
+    }
+
+    /**
+     * Loads the data of all the tabs in a single request, instead of letting each of them query the task.
+     */
+    protected void loadTaskDetails() {
+        taskService.call(new RemoteCallback<TaskDetailsBundle>() {
+            @Override
+            public void callback(final TaskDetailsBundle bundle) {
+                if (bundle == null) {
+                    taskDetailsPresenter.setTask(null);
+                    taskProcessContextPresenter.setProcessContext(null);
+                    taskAssignmentsPresenter.setTaskAssignmentDetails(null);
+                    taskAdminPresenter.setTaskAssignmentDetails(null);
+                    taskCommentsPresenter.setComments(Collections.<CommentSummary>emptyList());
+                    taskLogsPresenter.setTaskEvents(null);
+                    return;
+                }
+                taskDetailsPresenter.setTask(bundle.getTask());
+                taskProcessContextPresenter.setProcessContext(bundle.getTask());
+                taskAssignmentsPresenter.setTaskAssignmentDetails(bundle.getAssignmentDetails());
+                taskAdminPresenter.setTaskAssignmentDetails(bundle.getAssignmentDetails());
+                taskCommentsPresenter.setComments(bundle.getComments());
+                taskLogsPresenter.setTaskEvents(bundle.getEvents());
+            }
+        }).getTaskDetailsBundle(serverTemplateId, containerId, taskId);
     }
 
     public void closeDetails() {
@@ -16,6 +16,7 @@
 package org.jbpm.workbench.ht.client.editors.tasklogs;
 
 import java.util.List;
+import javax.annotation.PostConstruct;
 import javax.enterprise.context.Dependent;
 import javax.enterprise.event.Observes;
 import javax.inject.Inject;
@@ -24,10 +25,12 @@ import com.google.gwt.user.client.ui.IsWidget;
 import org.jboss.errai.common.client.api.Caller;
 import org.jboss.errai.common.client.api.RemoteCallback;
 import org.jbpm.workbench.common.client.util.DateUtils;
+import org.jbpm.workbench.ht.model.TaskEventPage;
 import org.jbpm.workbench.ht.model.TaskEventSummary;
 import org.jbpm.workbench.ht.model.events.TaskRefreshedEvent;
 import org.jbpm.workbench.ht.model.events.TaskSelectionEvent;
 import org.jbpm.workbench.ht.service.TaskService;
+import org.uberfire.client.mvp.UberView;
 
 import static java.util.Collections.emptyList;
 import static java.util.stream.Collectors.toList;
@@ -35,12 +38,18 @@ import static java.util.stream.Collectors.toList;
 @Dependent
 public class TaskLogsPresenter {
 
-    public interface TaskLogsView extends IsWidget {
+    public static final int PAGE_SIZE = 20;
+
+    public interface TaskLogsView extends UberView<TaskLogsPresenter> {
 
         void displayNotification(String text);
 
         void setLogTextAreaText(List<String> logs);
 
+        void appendLogTextAreaText(List<String> logs);
+
+        void setLoadMoreVisible(boolean visible);
+
     }
 
     private TaskLogsView view;
@@ -50,6 +59,7 @@ public class TaskLogsPresenter {
     private long currentTaskId = 0;
     private String serverTemplateId;
     private String containerId;
+    private String nextCursor;
 
     @Inject
     public TaskLogsPresenter( final TaskLogsView view, final Caller<TaskService> taskService) {
@@ -57,33 +67,74 @@ public class TaskLogsPresenter {
         this.taskService = taskService;
     }
 
+    @PostConstruct
+    public void init() {
+        view.init(this);
+    }
+
     public IsWidget getView() {
         return view;
     }
 
     public void refreshLogs() {
         view.setLogTextAreaText(emptyList());
+        view.setLoadMoreVisible(false);
         taskService.call(
-                new RemoteCallback<List<TaskEventSummary>>() {
+                new RemoteCallback<TaskEventPage>() {
                     @Override
-                    public void callback(final List<TaskEventSummary> events) {
-                        view.setLogTextAreaText(events.stream().map(e -> summaryToString(e)).collect(toList()));
+                    public void callback(final TaskEventPage page) {
+                        setTaskEvents(page);
                     }
+                }
+        ).getTaskEventsPage( serverTemplateId, containerId, currentTaskId, null, PAGE_SIZE );
+    }
 
-                    public String summaryToString(TaskEventSummary tes) {
-                        String timeStamp = DateUtils.getDateTimeStr(tes.getLogTime());
-                        String additionalDetail = "UPDATED".equals(tes.getType()) ? tes.getMessage() : tes.getUserId();
-                        return timeStamp + ": Task " + tes.getType() + " (" + additionalDetail + ")";
+    public void loadMoreLogs() {
+        if ( nextCursor == null ) {
+            return;
+        }
+        view.setLoadMoreVisible(false);
+        taskService.call(
+                new RemoteCallback<TaskEventPage>() {
+                    @Override
+                    public void callback(final TaskEventPage page) {
+                        if ( page != null ) {
+                            view.appendLogTextAreaText(toLogs(page));
+                        }
+                        setNextCursor(page);
                     }
                 }
-        ).getTaskEvents( serverTemplateId, containerId, currentTaskId );
+        ).getTaskEventsPage( serverTemplateId, containerId, currentTaskId, nextCursor, PAGE_SIZE );
+    }
+
+    /**
+     * Shows the first page of the events, the following ones are loaded on demand.
+     */
+    public void setTaskEvents( final TaskEventPage page ) {
+        view.setLogTextAreaText(page == null ? emptyList() : toLogs(page));
+        setNextCursor(page);
+    }
+
+    protected void setNextCursor( final TaskEventPage page ) {
+        nextCursor = page == null ? null : page.getNextCursor();
+        view.setLoadMoreVisible(nextCursor != null);
+    }
+
+    protected List<String> toLogs( final TaskEventPage page ) {
+        return page.getEvents().stream().map(e -> summaryToString(e)).collect(toList());
+    }
+
+    protected String summaryToString(TaskEventSummary tes) {
+        String timeStamp = DateUtils.getDateTimeStr(tes.getLogTime());
+        String additionalDetail = "UPDATED".equals(tes.getType()) ? tes.getMessage() : tes.getUserId();
+        return timeStamp + ": Task " + tes.getType() + " (" + additionalDetail + ")";
     }
 
     public void onTaskSelectionEvent( @Observes final TaskSelectionEvent event ) {
         this.currentTaskId = event.getTaskId();
         this.containerId = event.getContainerId();
         this.serverTemplateId = event.getServerTemplateId();
-        refreshLogs();
+        this.nextCursor = null;
     }
 
     public void onTaskRefreshedEvent( @Observes final TaskRefreshedEvent event ) {
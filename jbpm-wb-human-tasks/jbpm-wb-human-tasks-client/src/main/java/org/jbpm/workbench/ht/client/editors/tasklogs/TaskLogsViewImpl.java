@@ -21,12 +21,17 @@ import javax.enterprise.context.Dependent;
 import javax.enterprise.event.Event;
 import javax.inject.Inject;
 
+import com.google.gwt.core.client.GWT;
+import com.google.gwt.event.dom.client.ClickEvent;
 import com.google.gwt.safehtml.shared.SafeHtmlUtils;
 import com.google.gwt.user.client.ui.Composite;
+import org.gwtbootstrap3.client.ui.Button;
 import org.jboss.errai.common.client.dom.HTMLElement;
 import org.jboss.errai.common.client.dom.UnorderedList;
 import org.jboss.errai.ui.shared.api.annotations.DataField;
+import org.jboss.errai.ui.shared.api.annotations.EventHandler;
 import org.jboss.errai.ui.shared.api.annotations.Templated;
+import org.jbpm.workbench.ht.client.resources.i18n.Constants;
 import org.uberfire.workbench.events.NotificationEvent;
 
 import static org.jboss.errai.common.client.dom.DOMUtil.removeAllChildren;
@@ -36,13 +41,34 @@ import static org.jboss.errai.common.client.dom.Window.getDocument;
 @Templated(value = "TaskLogsViewImpl.html")
 public class TaskLogsViewImpl extends Composite implements TaskLogsPresenter.TaskLogsView {
 
+    private TaskLogsPresenter presenter;
+
     @Inject
     @DataField
     public UnorderedList logTextArea;
 
+    @Inject
+    @DataField
+    public Button loadMoreButton;
+
     @Inject
     private Event<NotificationEvent> notification;
 
+    private Constants constants = GWT.create(Constants.class);
+
+    @Override
+    public void init(TaskLogsPresenter presenter) {
+        this.presenter = presenter;
+
+        loadMoreButton.setText(constants.Load_More());
+        loadMoreButton.setVisible(false);
+    }
+
+    @EventHandler("loadMoreButton")
+    public void loadMoreButton(ClickEvent e) {
+        presenter.loadMoreLogs();
+    }
+
     @Override
     public void displayNotification( String text ) {
         notification.fire( new NotificationEvent( text ) );
@@ -51,6 +77,11 @@ public class TaskLogsViewImpl extends Composite implements TaskLogsPresenter.Tas
     @Override
     public void setLogTextAreaText(final List<String> logs) {
         removeAllChildren(logTextArea);
+        appendLogTextAreaText(logs);
+    }
+
+    @Override
+    public void appendLogTextAreaText(final List<String> logs) {
         logs.forEach(log -> {
             HTMLElement li = getDocument().createElement("li");
             li.setTextContent(SafeHtmlUtils.htmlEscape(log));
@@ -58,4 +89,9 @@ public class TaskLogsViewImpl extends Composite implements TaskLogsPresenter.Tas
         });
     }
 
+    @Override
+    public void setLoadMoreVisible(final boolean visible) {
+        loadMoreButton.setVisible(visible);
+    }
+
 }
@@ -133,21 +133,25 @@ public class TaskProcessContextPresenter {
         taskService.call(new RemoteCallback<TaskSummary>() {
                                   @Override
                                   public void callback(TaskSummary details) {
-                                      if (details == null || details.getProcessInstanceId() == -1) {
-                                          view.setProcessInstanceId("None");
-                                          view.setProcessId("None");
-                                          view.enablePIDetailsButton(false);
-                                          return;
-                                      }
-
-                                      currentProcessInstanceId = details.getProcessInstanceId();
-                                      view.setProcessInstanceId(String.valueOf(currentProcessInstanceId));
-                                      view.setProcessId(details.getProcessId());
+                                      setProcessContext(details);
                                   }
                               }
         ).getTask(serverTemplateId, containerId, currentTaskId);
     }
 
+    public void setProcessContext(final TaskSummary details) {
+        if (details == null || details.getProcessInstanceId() == -1) {
+            view.setProcessInstanceId("None");
+            view.setProcessId("None");
+            view.enablePIDetailsButton(false);
+            return;
+        }
+
+        currentProcessInstanceId = details.getProcessInstanceId();
+        view.setProcessInstanceId(String.valueOf(currentProcessInstanceId));
+        view.setProcessId(details.getProcessId());
+    }
+
     boolean hasAccessToPerspective(String perspectiveId) {
         ResourceRef resourceRef = new ResourceRef(perspectiveId, ActivityResourceType.PERSPECTIVE);
         return authorizationManager.authorize(resourceRef, identity);
@@ -158,7 +162,6 @@ public class TaskProcessContextPresenter {
         this.currentTaskId = event.getTaskId();
         this.serverTemplateId = event.getServerTemplateId();
         this.containerId = event.getContainerId();
-        refreshProcessContextOfTask();
     }
 
     public void onTaskRefreshedEvent(@Observes final TaskRefreshedEvent event) {
@@ -17,8 +17,10 @@
 package org.jbpm.workbench.ht.client.editors.taskslist;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import javax.enterprise.event.Event;
 import javax.enterprise.event.Observes;
@@ -26,6 +28,7 @@ import javax.inject.Inject;
 
 import com.google.gwt.user.cellview.client.ColumnSortList;
 import com.google.gwt.view.client.Range;
+import org.dashbuilder.dataset.DataColumn;
 import org.dashbuilder.dataset.DataSet;
 import org.dashbuilder.dataset.DataSetOp;
 import org.dashbuilder.dataset.DataSetOpType;
@@ -35,7 +38,9 @@ import org.dashbuilder.dataset.filter.CoreFunctionFilter;
 import org.dashbuilder.dataset.filter.CoreFunctionType;
 import org.dashbuilder.dataset.filter.DataSetFilter;
 import org.dashbuilder.dataset.sort.SortOrder;
+import org.jboss.errai.bus.client.api.messaging.Message;
 import org.jboss.errai.common.client.api.Caller;
+import org.jboss.errai.common.client.api.ErrorCallback;
 import org.jboss.errai.common.client.api.RemoteCallback;
 import org.jboss.errai.security.shared.api.Group;
 import org.jbpm.workbench.common.client.list.AbstractMultiGridPresenter;
@@ -45,6 +50,8 @@ import org.jbpm.workbench.df.client.list.base.DataSetQueryHelper;
 import org.jbpm.workbench.common.client.dataset.AbstractDataSetReadyCallback;
 import org.jbpm.workbench.common.client.list.ExtendedPagedTable;
 import org.jbpm.workbench.ht.client.resources.i18n.Constants;
+import org.jbpm.workbench.ht.model.TaskKey;
+import org.jbpm.workbench.ht.model.TaskOperationResult;
 import org.jbpm.workbench.ht.model.TaskSummary;
 import org.jbpm.workbench.ht.model.events.NewTaskEvent;
 import org.jbpm.workbench.ht.model.events.TaskCompletedEvent;
@@ -72,6 +79,8 @@ public abstract class AbstractTaskListPresenter extends AbstractMultiGridPresent
 
     }
 
+    protected static final int BULK_CHUNK_SIZE = 50;
+
     private Constants constants = Constants.INSTANCE;
 
     private Caller<TaskService> taskService;
@@ -111,6 +120,8 @@ public abstract class AbstractTaskListPresenter extends AbstractMultiGridPresent
                     }
                 }
                 dataSetQueryHelper.setDataSetHandler(currentTableSettings);
+                dataSetQueryHelper.setKeysetColumnId(COLUMN_TASK_ID);
+                dataSetQueryHelper.setPrefetchEnabled(true);
                 dataSetQueryHelper.lookupDataSet(visibleRange.getStart(), createDataSetTaskCallback(visibleRange.getStart(), currentTableSettings));
             }
         } catch (Exception e) {
@@ -176,15 +187,13 @@ public abstract class AbstractTaskListPresenter extends AbstractMultiGridPresent
                     List<DataSetOp> ops = tableSettings.getDataSetLookup().getOperationList();
                     String filterValue = isFilteredByTaskName(ops); //Add here the check to add the domain data columns taskName?
 
-                    boolean lastPageExactCount = false;
-                    if( dataSet.getRowCount() < view.getListGrid().getPageSize()) {
-                        lastPageExactCount = true;
-                    }
+                    final int totalRowCount = getTotalRowCount(startRange, dataSet.getRowCount(), dataSet.getRowCountNonTrimmed());
+                    final boolean exactCount = isTotalRowCountExact(startRange, dataSet.getRowCount(), dataSet.getRowCountNonTrimmed());
 
                     if (filterValue != null) {
-                        getDomainSpecifDataForTasks(startRange, filterValue, myTasksFromDataSet, lastPageExactCount);
+                        getDomainSpecifDataForTasks(startRange, filterValue, myTasksFromDataSet, totalRowCount, exactCount);
                     } else {
-                        updateDataOnCallback(myTasksFromDataSet, startRange,startRange + myTasksFromDataSet.size(), lastPageExactCount);
+                        updateDataOnCallback(myTasksFromDataSet, startRange, totalRowCount, exactCount);
                     }
 
                 }
@@ -220,16 +229,18 @@ public abstract class AbstractTaskListPresenter extends AbstractMultiGridPresent
 
     }
 
-    public void getDomainSpecifDataForTasks(final int startRange, String filterValue, final List<TaskSummary> myTasksFromDataSet, boolean lastPageExactCount) {
+    public void getDomainSpecifDataForTasks(final int startRange, String filterValue, final List<TaskSummary> myTasksFromDataSet, final int totalRowCount, boolean exactCount) {
 
         FilterSettings variablesTableSettings = view.getVariablesTableSettings(filterValue);
-        variablesTableSettings.setTablePageSize(-1);
+        // variables are pivoted on the server into one row per task of the page
+        variablesTableSettings.setTablePageSize(myTasksFromDataSet.size());
         variablesTableSettings.setServerTemplateId(selectedServerTemplate);
 
         dataSetQueryHelperDomainSpecific.setDataSetHandler(variablesTableSettings);
         dataSetQueryHelperDomainSpecific.setCurrentTableSettings(variablesTableSettings);
         dataSetQueryHelperDomainSpecific.setLastOrderedColumn(COLUMN_TASK_ID);
         dataSetQueryHelperDomainSpecific.setLastSortOrder(SortOrder.ASCENDING);
+        dataSetQueryHelperDomainSpecific.setPivotColumnIds(COLUMN_TASK_VARIABLE_TASK_ID, COLUMN_TASK_VARIABLE_NAME, COLUMN_TASK_VARIABLE_VALUE);
 
         List<Comparable> tasksIds = new ArrayList<Comparable>();
         for (TaskSummary task : myTasksFromDataSet) {
@@ -240,31 +251,41 @@ public abstract class AbstractTaskListPresenter extends AbstractMultiGridPresent
         filter.addFilterColumn(filter1);
         variablesTableSettings.getDataSetLookup().addOperation(filter);
 
-        dataSetQueryHelperDomainSpecific.lookupDataSet(0, createDataSetDomainSpecificCallback(startRange, myTasksFromDataSet, variablesTableSettings, lastPageExactCount));
+        dataSetQueryHelperDomainSpecific.lookupDataSet(0, createDataSetDomainSpecificCallback(startRange, myTasksFromDataSet, variablesTableSettings, totalRowCount, exactCount));
 
     }
 
-    protected DataSetReadyCallback createDataSetDomainSpecificCallback(final int startRange, final List<TaskSummary> instances, final FilterSettings tableSettings, boolean lastPageExactCount) {
+    protected DataSetReadyCallback createDataSetDomainSpecificCallback(final int startRange, final List<TaskSummary> instances, final FilterSettings tableSettings, final int totalRowCount, boolean exactCount) {
         return new AbstractDataSetReadyCallback(errorPopup, view, tableSettings.getUUID()) {
             @Override
             public void callback(DataSet dataSet) {
                 if (dataSet.getRowCount() > 0) {
+                    Map<Long, TaskSummary> tasksById = new HashMap<Long, TaskSummary>();
+                    for (TaskSummary task : instances) {
+                        tasksById.put(task.getTaskId(), task);
+                    }
+                    // every column but the task id holds the values of one variable
                     Set<String> columns = new HashSet<String>();
+                    for (DataColumn column : dataSet.getColumns()) {
+                        if (!COLUMN_TASK_VARIABLE_TASK_ID.equals(column.getId())) {
+                            columns.add(column.getId());
+                        }
+                    }
                     for (int i = 0; i < dataSet.getRowCount(); i++) {
-                        Long taskId = dataSetQueryHelperDomainSpecific.getColumnLongValue(dataSet, COLUMN_TASK_ID, i);
-                        String variableName = dataSetQueryHelperDomainSpecific.getColumnStringValue(dataSet, COLUMN_TASK_VARIABLE_NAME, i);
-                        String variableValue = dataSetQueryHelperDomainSpecific.getColumnStringValue(dataSet, COLUMN_TASK_VARIABLE_VALUE, i);
-
-                        for (TaskSummary task : instances) {
-                            if (task.getTaskId().equals(taskId)) {
+                        TaskSummary task = tasksById.get(dataSetQueryHelperDomainSpecific.getColumnLongValue(dataSet, COLUMN_TASK_VARIABLE_TASK_ID, i));
+                        if (task == null) {
+                            continue;
+                        }
+                        for (String variableName : columns) {
+                            String variableValue = dataSetQueryHelperDomainSpecific.getColumnStringValue(dataSet, variableName, i);
+                            if (variableValue != null) {
                                 task.addDomainData(variableName, variableValue);
-                                columns.add(variableName);
                             }
                         }
                     }
                     view.addDomainSpecifColumns(view.getListGrid(), columns);
                 }
-                updateDataOnCallback(instances, startRange, startRange + instances.size(), lastPageExactCount);
+                updateDataOnCallback(instances, startRange, totalRowCount, exactCount);
             }
 
         };
@@ -323,6 +344,68 @@ public abstract class AbstractTaskListPresenter extends AbstractMultiGridPresent
         taskSelected.fire( new TaskSelectionEvent( selectedServerTemplate, task.getDeploymentId(),task.getTaskId(), task.getTaskName() ) );
     }
 
+    public void bulkClaim(final List<TaskSummary> tasks) {
+        executeBulkOperation(tasks,
+                             (callback, errorCallback, taskKeys) -> taskService.call(callback, errorCallback).claimTasks(selectedServerTemplate, taskKeys));
+    }
+
+    public void bulkRelease(final List<TaskSummary> tasks) {
+        executeBulkOperation(tasks,
+                             (callback, errorCallback, taskKeys) -> taskService.call(callback, errorCallback).releaseTasks(selectedServerTemplate, taskKeys));
+    }
+
+    /**
+     * Sends the tasks in chunks of {@link #BULK_CHUNK_SIZE} so that progress can be reported after every chunk. When
+     * a chunk cannot be sent the remaining ones are not either, the tasks processed so far are reported instead.
+     */
+    protected void executeBulkOperation(final List<TaskSummary> tasks, final BulkOperation operation) {
+        if (tasks == null || tasks.isEmpty()) {
+            return;
+        }
+        final List<TaskKey> taskKeys = new ArrayList<TaskKey>();
+        for (TaskSummary task : tasks) {
+            taskKeys.add(new TaskKey(selectedServerTemplate, task.getDeploymentId(), task.getTaskId()));
+        }
+        executeBulkChunk(taskKeys, 0, 0, operation);
+    }
+
+    protected void executeBulkChunk(final List<TaskKey> taskKeys, final int start, final int failed, final BulkOperation operation) {
+        final int end = Math.min(start + BULK_CHUNK_SIZE, taskKeys.size());
+        operation.execute(new RemoteCallback<List<TaskOperationResult>>() {
+                              @Override
+                              public void callback(final List<TaskOperationResult> results) {
+                                  int totalFailed = failed;
+                                  for (TaskOperationResult result : results) {
+                                      if (!result.isSuccessful()) {
+                                          totalFailed++;
+                                      }
+                                  }
+                                  if (end < taskKeys.size()) {
+                                      view.displayNotification(constants.BulkOperationProgress(end, taskKeys.size()));
+                                      executeBulkChunk(taskKeys, end, totalFailed, operation);
+                                  } else {
+                                      view.displayNotification(constants.BulkOperationCompleted(taskKeys.size() - totalFailed, totalFailed));
+                                      refreshGrid();
+                                  }
+                              }
+                          },
+                          new ErrorCallback<Message>() {
+                              @Override
+                              public boolean error(final Message message, final Throwable throwable) {
+                                  view.displayNotification(constants.BulkOperationInterrupted(start, taskKeys.size(), failed));
+                                  errorPopup.showMessage(constants.UnexpectedError(throwable.getMessage()));
+                                  refreshGrid();
+                                  return false;
+                              }
+                          },
+                          new ArrayList<TaskKey>(taskKeys.subList(start, end)));
+    }
+
+    protected interface BulkOperation {
+
+        void execute(RemoteCallback<List<TaskOperationResult>> callback, ErrorCallback<Message> errorCallback, List<TaskKey> taskKeys);
+    }
+
     public abstract Menus getMenus();
 
     public void selectTask(final TaskSummary summary, final Boolean close) {
@@ -25,24 +25,35 @@ import javax.inject.Inject;
 
 import com.google.gwt.cell.client.ActionCell;
 import com.google.gwt.cell.client.Cell;
+import com.google.gwt.cell.client.CheckboxCell;
 import com.google.gwt.cell.client.CompositeCell;
 import com.google.gwt.cell.client.HasCell;
 import com.google.gwt.cell.client.TextCell;
+import com.google.gwt.cell.client.ValueUpdater;
 import com.google.gwt.core.client.GWT;
 import com.google.gwt.dom.client.BrowserEvents;
+import com.google.gwt.dom.client.Element;
+import com.google.gwt.dom.client.InputElement;
 import com.google.gwt.dom.client.NativeEvent;
+import com.google.gwt.dom.client.Style;
 import com.google.gwt.event.dom.client.ClickEvent;
 import com.google.gwt.event.dom.client.ClickHandler;
 import com.google.gwt.safehtml.shared.SafeHtmlBuilder;
 import com.google.gwt.user.cellview.client.Column;
+import com.google.gwt.user.cellview.client.Header;
 import com.google.gwt.user.cellview.client.RowStyles;
 import com.google.gwt.view.client.CellPreviewEvent;
 import com.google.gwt.view.client.DefaultSelectionEventManager;
 import com.google.gwt.view.client.NoSelectionModel;
 import com.google.gwt.view.client.SelectionChangeEvent;
+import org.gwtbootstrap3.client.ui.AnchorListItem;
 import org.gwtbootstrap3.client.ui.Button;
+import org.gwtbootstrap3.client.ui.ButtonGroup;
+import org.gwtbootstrap3.client.ui.DropDownMenu;
 import org.gwtbootstrap3.client.ui.constants.ButtonSize;
 import org.gwtbootstrap3.client.ui.constants.IconType;
+import org.gwtbootstrap3.client.ui.constants.Styles;
+import org.gwtbootstrap3.client.ui.constants.Toggle;
 import org.jbpm.workbench.common.client.list.AbstractMultiGridView;
 import org.jbpm.workbench.common.client.list.ExtendedPagedTable;
 import org.jbpm.workbench.common.client.resources.CommonResources;
@@ -71,6 +82,7 @@ public class TaskListViewImpl extends AbstractMultiGridView<TaskSummary, TaskLis
 
     public static final String DATA_SET_TASK_LIST_PREFIX = "DataSetTaskListGrid";
     public static final String COL_ID_ACTIONS = "actions";
+    public static final String COL_ID_SELECT = "Select";
     private static final String TAB_ADMIN = DATA_SET_TASK_LIST_PREFIX + "_4";
     private static final String TAB_ALL = DATA_SET_TASK_LIST_PREFIX + "_3";
     private static final String TAB_GROUP = DATA_SET_TASK_LIST_PREFIX + "_2";
@@ -82,12 +94,25 @@ public class TaskListViewImpl extends AbstractMultiGridView<TaskSummary, TaskLis
     @Inject
     private DataSetEditorManager dataSetEditorManager;
 
+    private final List<TaskSummary> selectedTasks = new ArrayList<TaskSummary>();
+
+    private AnchorListItem bulkClaimNavLink;
+    private AnchorListItem bulkReleaseNavLink;
+
+    private void controlBulkOperations() {
+        final boolean enabled = !selectedTasks.isEmpty();
+        bulkClaimNavLink.setEnabled( enabled );
+        bulkReleaseNavLink.setEnabled( enabled );
+    }
+
     @Override
     public void init( final TaskListPresenter presenter ) {
         final List<String> bannedColumns = new ArrayList<String>();
+        bannedColumns.add( COL_ID_SELECT );
         bannedColumns.add( COLUMN_NAME );
         bannedColumns.add( COL_ID_ACTIONS );
         final List<String> initColumns = new ArrayList<String>();
+        initColumns.add( COL_ID_SELECT );
         initColumns.add( COLUMN_NAME );
         initColumns.add( COLUMN_PROCESS_ID );
         initColumns.add( COLUMN_STATUS );
@@ -163,6 +188,8 @@ public class TaskListViewImpl extends AbstractMultiGridView<TaskSummary, TaskLis
         };
 
         extendedPagedTable.setEmptyTableCaption( constants.No_Tasks_Found() );
+        extendedPagedTable.getRightActionsToolbar().clear();
+        initBulkActions( extendedPagedTable );
 
         selectionModel = new NoSelectionModel<TaskSummary>();
         selectionModel.addSelectionChangeHandler( new SelectionChangeEvent.Handler() {
@@ -199,10 +226,29 @@ public class TaskListViewImpl extends AbstractMultiGridView<TaskSummary, TaskLis
                     @Override
                     public DefaultSelectionEventManager.SelectAction translateSelectionEvent( CellPreviewEvent<TaskSummary> event ) {
                         NativeEvent nativeEvent = event.getNativeEvent();
-                        if ( BrowserEvents.CLICK.equals( nativeEvent.getType() ) &&
+                        if ( BrowserEvents.CLICK.equals( nativeEvent.getType() ) ) {
                             // Ignore if the event didn't occur in the correct column.
-                            extendedPagedTable.getColumnIndex( actionsColumn ) == event.getColumn() ) {
+                            if ( extendedPagedTable.getColumnIndex( actionsColumn ) == event.getColumn() ) {
                                 return DefaultSelectionEventManager.SelectAction.IGNORE;
+                            }
+                            //Extension for checkboxes
+                            Element target = nativeEvent.getEventTarget().cast();
+                            if ( "input".equals( target.getTagName().toLowerCase() ) ) {
+                                final InputElement input = target.cast();
+                                if ( "checkbox".equals( input.getType().toLowerCase() ) ) {
+                                    // Synchronize the checkbox with the current selection state.
+                                    if ( !selectedTasks.contains( event.getValue() ) ) {
+                                        selectedTasks.add( event.getValue() );
+                                        input.setChecked( true );
+                                    } else {
+                                        selectedTasks.remove( event.getValue() );
+                                        input.setChecked( false );
+                                    }
+                                    getListGrid().redraw();
+                                    controlBulkOperations();
+                                    return DefaultSelectionEventManager.SelectAction.IGNORE;
+                                }
+                            }
                         }
                         return DefaultSelectionEventManager.SelectAction.DEFAULT;
                     }
@@ -215,10 +261,13 @@ public class TaskListViewImpl extends AbstractMultiGridView<TaskSummary, TaskLis
     public void initColumns( ExtendedPagedTable extendedPagedTable ) {
         initCellPreview( extendedPagedTable );
 
+        final ColumnMeta<TaskSummary> checkColumnMeta = initChecksColumn();
+
         actionsColumn = initActionsColumn();
 
         final List<ColumnMeta<TaskSummary>> columnMetas = new ArrayList<ColumnMeta<TaskSummary>>();
 
+        columnMetas.add( checkColumnMeta );
         columnMetas.add(new ColumnMeta<>(createNumberColumn(COLUMN_TASK_ID,
                                                             task -> task.getTaskId()),
                                          constants.Id()));
@@ -272,6 +321,99 @@ public class TaskListViewImpl extends AbstractMultiGridView<TaskSummary, TaskLis
         }
 
         extendedPagedTable.addColumns( columnMetas );
+        extendedPagedTable.setColumnWidth( checkColumnMeta.getColumn(),
+                                           37,
+                                           Style.Unit.PX );
+    }
+
+    private ColumnMeta<TaskSummary> initChecksColumn() {
+        final CheckboxCell checkboxCell = new CheckboxCell( true, false );
+        final Column<TaskSummary, Boolean> checkColumn = new Column<TaskSummary, Boolean>( checkboxCell ) {
+            @Override
+            public Boolean getValue( TaskSummary object ) {
+                // Get the value from the selection model.
+                return selectedTasks.contains( object );
+            }
+        };
+
+        final Header<Boolean> selectPageHeader = new Header<Boolean>( checkboxCell ) {
+            @Override
+            public Boolean getValue() {
+                final List<TaskSummary> displayedTasks = getDisplayedTasks();
+                return displayedTasks.size() > 0 && selectedTasks.containsAll( displayedTasks );
+            }
+        };
+        selectPageHeader.setUpdater( new ValueUpdater<Boolean>() {
+            @Override
+            public void update( Boolean value ) {
+                selectedTasks.clear();
+                if ( value ) {
+                    selectedTasks.addAll( getDisplayedTasks() );
+                }
+                getListGrid().redraw();
+                controlBulkOperations();
+            }
+        } );
+
+        checkColumn.setSortable( false );
+        checkColumn.setDataStoreName( COL_ID_SELECT );
+        final ColumnMeta<TaskSummary> checkColMeta = new ColumnMeta<TaskSummary>( checkColumn, "" );
+        checkColMeta.setHeader( selectPageHeader );
+        return checkColMeta;
+    }
+
+    private List<TaskSummary> getDisplayedTasks() {
+        final List<TaskSummary> displayedTasks = new ArrayList<TaskSummary>();
+        for ( TaskSummary task : getListGrid().getVisibleItems() ) {
+            displayedTasks.add( task );
+        }
+        return displayedTasks;
+    }
+
+    private void initBulkActions( final ExtendedPagedTable<TaskSummary> extendedPagedTable ) {
+        bulkClaimNavLink = new AnchorListItem( constants.Bulk_Claim() );
+        bulkReleaseNavLink = new AnchorListItem( constants.Bulk_Release() );
+
+        final ButtonGroup bulkActions = new ButtonGroup() {{
+            add( new Button( constants.Bulk_Actions() ) {{
+                setDataToggle( Toggle.DROPDOWN );
+                getElement().getStyle().setMarginRight( 5, Style.Unit.PX );
+            }} );
+            add( new DropDownMenu() {{
+                addStyleName( Styles.DROPDOWN_MENU + "-right" );
+                getElement().getStyle().setMarginRight( 5, Style.Unit.PX );
+                add( bulkClaimNavLink );
+                add( bulkReleaseNavLink );
+            }} );
+        }};
+
+        bulkClaimNavLink.setIcon( IconType.USER );
+        bulkClaimNavLink.setIconFixedWidth( true );
+        bulkClaimNavLink.addClickHandler( new ClickHandler() {
+            @Override
+            public void onClick( ClickEvent event ) {
+                presenter.bulkClaim( new ArrayList<TaskSummary>( selectedTasks ) );
+                selectedTasks.clear();
+                extendedPagedTable.redraw();
+                controlBulkOperations();
+            }
+        } );
+
+        bulkReleaseNavLink.setIcon( IconType.UNDO );
+        bulkReleaseNavLink.setIconFixedWidth( true );
+        bulkReleaseNavLink.addClickHandler( new ClickHandler() {
+            @Override
+            public void onClick( ClickEvent event ) {
+                presenter.bulkRelease( new ArrayList<TaskSummary>( selectedTasks ) );
+                selectedTasks.clear();
+                extendedPagedTable.redraw();
+                controlBulkOperations();
+            }
+        } );
+
+        extendedPagedTable.getRightActionsToolbar().add( bulkActions );
+
+        controlBulkOperations();
     }
 
     private void initCellPreview( final ExtendedPagedTable extendedPagedTable ) {
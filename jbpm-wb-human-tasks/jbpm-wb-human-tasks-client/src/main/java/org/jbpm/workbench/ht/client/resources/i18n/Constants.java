@@ -218,4 +218,18 @@ public interface Constants extends Messages {
     String CommentDeleted();
 
     String TaskDetailsUpdatedForTaskId(Long taskId);
+
+    String Bulk_Actions();
+
+    String Bulk_Claim();
+
+    String Bulk_Release();
+
+    String BulkOperationProgress(int done, int total);
+
+    String BulkOperationCompleted(int successful, int failed);
+
+    String BulkOperationInterrupted(int processed, int total, int failed);
+
+    String Load_More();
 }
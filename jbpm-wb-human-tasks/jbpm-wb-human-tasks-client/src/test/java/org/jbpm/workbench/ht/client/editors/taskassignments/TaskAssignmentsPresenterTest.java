@@ -111,10 +111,9 @@ public class TaskAssignmentsPresenterTest {
         task.setTaskId(COMPLETED_TASK_ID);
         task.setStatus("Completed");
         task.setPotOwnersString(Arrays.asList(CURRENT_USER));
-        when(taskService.getTaskAssignmentDetails(anyString(), anyString(), eq(COMPLETED_TASK_ID))).thenReturn(task);
-
         // When task in status Completed is selected
         presenter.onTaskSelectionEvent(new TaskSelectionEvent(COMPLETED_TASK_ID));
+        presenter.setTaskAssignmentDetails(task);
 
         verify(viewMock, times(2)).enableDelegateButton(false);
         verify(viewMock, times(2)).enableUserOrGroupInput(false);
@@ -132,10 +131,9 @@ public class TaskAssignmentsPresenterTest {
         task.setActualOwner(OTHER_USER);
         task.setPotOwnersString(Arrays.asList(OTHER_USER));
         task.setDelegationAllowed(false);
-        when(taskService.getTaskAssignmentDetails(anyString(), anyString(), eq(TASK_OWNED_BY_SOMEONE_ELSE_ID))).thenReturn(task);
-
         // When task not owned by Current user
         presenter.onTaskSelectionEvent(new TaskSelectionEvent(TASK_OWNED_BY_SOMEONE_ELSE_ID));
+        presenter.setTaskAssignmentDetails(task);
 
         verify(viewMock, times(2)).enableDelegateButton(false);
         verify(viewMock, times(2)).enableUserOrGroupInput(false);
@@ -153,10 +151,9 @@ public class TaskAssignmentsPresenterTest {
         task.setActualOwner(CURRENT_USER);
         task.setPotOwnersString(Arrays.asList(CURRENT_USER));
         task.setDelegationAllowed(true);
-        when(taskService.getTaskAssignmentDetails(anyString(), anyString(), eq(TASK_OWNED_BY_CURRENT_USER))).thenReturn(task);
-
         // When task not owned by Current user
         presenter.onTaskSelectionEvent(new TaskSelectionEvent(TASK_OWNED_BY_CURRENT_USER));
+        presenter.setTaskAssignmentDetails(task);
 
         final InOrder inOrder = inOrder(viewMock);
         inOrder.verify(viewMock).enableDelegateButton(false);
@@ -63,6 +63,7 @@ public class TaskCommentsPresenterTest {
     public void commentsUpdatedWhenTaskSelectedOrRefreshed() {
         //When task selected
         presenter.onTaskSelectionEvent(new TaskSelectionEvent(TASK_ID));
+        presenter.refreshComments();
 
         //Then comments for given task loaded & comment grid refreshed
         verify(commentsServiceMock).getTaskComments(null, null, TASK_ID);
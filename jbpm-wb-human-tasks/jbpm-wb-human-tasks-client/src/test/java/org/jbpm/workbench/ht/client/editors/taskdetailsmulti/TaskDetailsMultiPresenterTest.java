@@ -15,17 +15,33 @@
  */
 package org.jbpm.workbench.ht.client.editors.taskdetailsmulti;
 
+import java.util.Collections;
 import javax.enterprise.event.Event;
 
 import com.google.gwtmockito.GwtMockitoTestRunner;
+import org.jboss.errai.common.client.api.Caller;
+import org.jboss.errai.common.client.api.RemoteCallback;
 import org.jbpm.workbench.forms.client.display.views.FormDisplayerView;
+import org.jbpm.workbench.ht.client.editors.taskadmin.TaskAdminPresenter;
+import org.jbpm.workbench.ht.client.editors.taskassignments.TaskAssignmentsPresenter;
+import org.jbpm.workbench.ht.client.editors.taskcomments.TaskCommentsPresenter;
 import org.jbpm.workbench.ht.client.editors.taskdetails.TaskDetailsPresenter;
 import org.jbpm.workbench.ht.client.editors.taskform.TaskFormPresenter;
 import org.jbpm.workbench.forms.client.display.api.HumanTaskFormDisplayProvider;
+import org.jbpm.workbench.ht.client.editors.tasklogs.TaskLogsPresenter;
+import org.jbpm.workbench.ht.client.editors.taskprocesscontext.TaskProcessContextPresenter;
+import org.jbpm.workbench.ht.model.CommentSummary;
+import org.jbpm.workbench.ht.model.TaskAssignmentSummary;
+import org.jbpm.workbench.ht.model.TaskDetailsBundle;
+import org.jbpm.workbench.ht.model.TaskEventPage;
+import org.jbpm.workbench.ht.model.TaskEventSummary;
+import org.jbpm.workbench.ht.model.TaskSummary;
 import org.jbpm.workbench.ht.model.events.TaskSelectionEvent;
+import org.jbpm.workbench.ht.service.TaskService;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Spy;
@@ -57,9 +73,30 @@ public class TaskDetailsMultiPresenterTest {
     @Mock @SuppressWarnings("unused")
     private HumanTaskFormDisplayProvider taskFormDisplayProvider;
 
-    @Mock @SuppressWarnings("unused")
+    @Mock
     private TaskDetailsPresenter taskDetailsPresenter;
 
+    @Mock
+    private TaskProcessContextPresenter taskProcessContextPresenter;
+
+    @Mock
+    private TaskAssignmentsPresenter taskAssignmentsPresenter;
+
+    @Mock
+    private TaskAdminPresenter taskAdminPresenter;
+
+    @Mock
+    private TaskCommentsPresenter taskCommentsPresenter;
+
+    @Mock
+    private TaskLogsPresenter taskLogsPresenter;
+
+    @Mock
+    private Caller<TaskService> taskServiceCaller;
+
+    @Mock
+    private TaskService taskService;
+
     @Spy
     Event<ChangeTitleWidgetEvent> changeTitleWidgetEvent = new EventSourceMock<ChangeTitleWidgetEvent>();
 
@@ -75,6 +112,47 @@ public class TaskDetailsMultiPresenterTest {
         when(taskFormViewMock.getDisplayerView()).thenReturn(formDisplayerViewMock);
         doNothing().when(changeTitleWidgetEvent).fire(any(ChangeTitleWidgetEvent.class));
         doNothing().when(taskSelectionEvent).fire(any(TaskSelectionEvent.class));
+        when(taskServiceCaller.call(any(RemoteCallback.class))).thenReturn(taskService);
+    }
+
+    @Test
+    public void taskDetailsLoadedInSingleRequest() {
+        final TaskSummary task = new TaskSummary();
+        final TaskAssignmentSummary assignments = new TaskAssignmentSummary();
+        final TaskDetailsBundle bundle = new TaskDetailsBundle(task,
+                                                               assignments,
+                                                               Collections.<CommentSummary>emptyList(),
+                                                               new TaskEventPage(Collections.<TaskEventSummary>emptyList(), null, 20));
+
+        presenter.onTaskSelectionEvent(new TaskSelectionEvent("serverTemplateId", "containerId", TASK_ID, TASK_NAME, false, false));
+
+        final ArgumentCaptor<RemoteCallback> captor = ArgumentCaptor.forClass(RemoteCallback.class);
+        verify(taskServiceCaller).call(captor.capture());
+        verify(taskService).getTaskDetailsBundle("serverTemplateId", "containerId", TASK_ID);
+        captor.getValue().callback(bundle);
+
+        verify(taskDetailsPresenter).setTask(task);
+        verify(taskProcessContextPresenter).setProcessContext(task);
+        verify(taskAssignmentsPresenter).setTaskAssignmentDetails(assignments);
+        verify(taskAdminPresenter).setTaskAssignmentDetails(assignments);
+        verify(taskCommentsPresenter).setComments(bundle.getComments());
+        verify(taskLogsPresenter).setTaskEvents(bundle.getEvents());
+    }
+
+    @Test
+    public void taskDetailsClearedWhenTaskNotFound() {
+        presenter.onTaskSelectionEvent(new TaskSelectionEvent("serverTemplateId", "containerId", TASK_ID, TASK_NAME, false, false));
+
+        final ArgumentCaptor<RemoteCallback> captor = ArgumentCaptor.forClass(RemoteCallback.class);
+        verify(taskServiceCaller).call(captor.capture());
+        captor.getValue().callback(null);
+
+        verify(taskDetailsPresenter).setTask(null);
+        verify(taskProcessContextPresenter).setProcessContext(null);
+        verify(taskAssignmentsPresenter).setTaskAssignmentDetails(null);
+        verify(taskAdminPresenter).setTaskAssignmentDetails(null);
+        verify(taskCommentsPresenter).setComments(Collections.<CommentSummary>emptyList());
+        verify(taskLogsPresenter).setTaskEvents(null);
     }
 
     @Test
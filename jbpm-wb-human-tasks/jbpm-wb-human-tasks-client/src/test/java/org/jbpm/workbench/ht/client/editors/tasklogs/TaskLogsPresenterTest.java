@@ -24,6 +24,7 @@ import java.util.List;
 
 import com.google.gwtmockito.GwtMockitoTestRunner;
 import org.jboss.errai.common.client.api.Caller;
+import org.jbpm.workbench.ht.model.TaskEventPage;
 import org.jbpm.workbench.ht.model.TaskEventSummary;
 import org.jbpm.workbench.ht.model.events.TaskRefreshedEvent;
 import org.jbpm.workbench.ht.model.events.TaskSelectionEvent;
@@ -32,6 +33,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.uberfire.mocks.CallerMock;
 
@@ -68,11 +70,14 @@ public class TaskLogsPresenterTest {
     public void logsUpdatedWhenTaskSelected() {
         //When task selected
         presenter.onTaskSelectionEvent(new TaskSelectionEvent(TASK_ID));
+        presenter.refreshLogs();
 
         //Logs retrieved and text area refreshed
-        verify(taskService).getTaskEvents(anyString(),
+        verify(taskService).getTaskEventsPage(anyString(),
                                           anyString(),
-                                          anyLong());
+                                          anyLong(),
+                                          anyString(),
+                                          anyInt());
         verify(taskLogsView,
                times(2)).setLogTextAreaText(emptyList());
     }
@@ -81,15 +86,18 @@ public class TaskLogsPresenterTest {
     public void logsUpdatedWhenTaskRefreshed() {
         //When task selected
         presenter.onTaskSelectionEvent(new TaskSelectionEvent(TASK_ID));
+        presenter.refreshLogs();
 
         //When task refreshed
         presenter.onTaskRefreshedEvent(new TaskRefreshedEvent(TASK_ID));
 
         //Logs retrieved and text area refreshed
         verify(taskService,
-               times(2)).getTaskEvents(anyString(),
+               times(2)).getTaskEventsPage(anyString(),
+                                       anyString(),
+                                       anyLong(),
                                        anyString(),
-                                       anyLong());
+                                       anyInt());
         verify(taskLogsView,
                times(4)).setLogTextAreaText(emptyList());
     }
@@ -98,14 +106,17 @@ public class TaskLogsPresenterTest {
     public void logsNotUpdatedWhenDifferentTaskRefreshed() {
         //When task selected
         presenter.onTaskSelectionEvent(new TaskSelectionEvent(TASK_ID));
+        presenter.refreshLogs();
 
         //When task refreshed
         presenter.onTaskRefreshedEvent(new TaskRefreshedEvent(TASK_ID + 1));
 
         //Logs retrieved and text area refreshed
-        verify(taskService).getTaskEvents(anyString(),
+        verify(taskService).getTaskEventsPage(anyString(),
+                                          anyString(),
+                                          anyLong(),
                                           anyString(),
-                                          anyLong());
+                                          anyInt());
         verify(taskLogsView,
                times(2)).setLogTextAreaText(emptyList());
     }
@@ -113,12 +124,17 @@ public class TaskLogsPresenterTest {
     @Test
     public void logEventsAreFormattedProperly() {
         List<TaskEventSummary> eventSummaries = createEventSummariesForTaks(TASK_ID);
-        when(taskService.getTaskEvents(anyString(),
-                                       anyString(),
-                                       eq(TASK_ID)))
-                .thenReturn(eventSummaries);
+        when(taskService.getTaskEventsPage(anyString(),
+                                           anyString(),
+                                           eq(TASK_ID),
+                                           anyString(),
+                                           anyInt()))
+                .thenReturn(new TaskEventPage(eventSummaries,
+                                              null,
+                                              TaskLogsPresenter.PAGE_SIZE));
 
         presenter.onTaskSelectionEvent(new TaskSelectionEvent(TASK_ID));
+        presenter.refreshLogs();
 
         final ArgumentCaptor<List> captor = ArgumentCaptor.forClass(List.class);
         verify(taskLogsView,
@@ -136,7 +152,56 @@ public class TaskLogsPresenterTest {
                      logs.get(2));
     }
 
-    private List<TaskEventSummary> createEventSummariesForTaks(Long taskId) {
+    @Test
+    public void moreLogsLoadedOnDemand() {
+        final List<TaskEventSummary> eventSummaries = createEventSummariesForTaks(TASK_ID);
+        when(taskService.getTaskEventsPage(anyString(),
+                                           anyString(),
+                                           eq(TASK_ID),
+                                           isNull(String.class),
+                                           eq(TaskLogsPresenter.PAGE_SIZE)))
+                .thenReturn(new TaskEventPage(eventSummaries.subList(0, 2),
+                                              "1:2",
+                                              2));
+        when(taskService.getTaskEventsPage(anyString(),
+                                           anyString(),
+                                           eq(TASK_ID),
+                                           eq("1:2"),
+                                           eq(TaskLogsPresenter.PAGE_SIZE)))
+                .thenReturn(new TaskEventPage(eventSummaries.subList(2, 3),
+                                              null,
+                                              2));
+
+        presenter.onTaskSelectionEvent(new TaskSelectionEvent(TASK_ID));
+        presenter.refreshLogs();
+
+        final ArgumentCaptor<List> captor = ArgumentCaptor.forClass(List.class);
+        verify(taskLogsView,
+               times(2)).setLogTextAreaText(captor.capture());
+        assertEquals(2,
+                     captor.getAllValues().get(1).size());
+        verify(taskLogsView).setLoadMoreVisible(true);
+
+        presenter.loadMoreLogs();
+
+        verify(taskLogsView).appendLogTextAreaText(captor.capture());
+        assertEquals(Arrays.asList("20/01/2018 00:00: Task CLAIMED (John)"),
+                     captor.getValue());
+        final InOrder inOrder = inOrder(taskLogsView);
+        inOrder.verify(taskLogsView).setLoadMoreVisible(true);
+        inOrder.verify(taskLogsView, times(2)).setLoadMoreVisible(false);
+
+        presenter.loadMoreLogs();
+
+        verify(taskService,
+               times(2)).getTaskEventsPage(anyString(),
+                                           anyString(),
+                                           anyLong(),
+                                           anyString(),
+                                           anyInt());
+    }
+
+        private List<TaskEventSummary> createEventSummariesForTaks(Long taskId) {
         TaskEventSummary added = new TaskEventSummary(
                 1L,
                 taskId,
@@ -104,6 +104,7 @@ public class TaskProcessContextPresenterTest {
     @Test
     public void processContextEmpty_whenTaskDetailsNull() {
         presenter.onTaskSelectionEvent(new TaskSelectionEvent(TASK_ID_NULL_DETAILS));
+        presenter.refreshProcessContextOfTask();
 
         verify(viewMock).setProcessId("None");
         verify(viewMock).setProcessInstanceId("None");
@@ -113,6 +114,7 @@ public class TaskProcessContextPresenterTest {
     @Test
     public void processContextEmtpy_whenTaskNotAssociatedWithProcess() {
         presenter.onTaskSelectionEvent(new TaskSelectionEvent(TASK_ID_NO_PROCESS));
+        presenter.refreshProcessContextOfTask();
 
         verify(viewMock).setProcessId("None");
         verify(viewMock).setProcessInstanceId("None");
@@ -122,6 +124,7 @@ public class TaskProcessContextPresenterTest {
     @Test
     public void processContextShowsProcessInfo_whenTaskDetailsHasProcess() {
         presenter.onTaskSelectionEvent(new TaskSelectionEvent(TASK_ID_WITH_PROC));
+        presenter.refreshProcessContextOfTask();
 
         verify(viewMock).setProcessId("TEST_PROCESS_ID");
         verify(viewMock).setProcessInstanceId("123");
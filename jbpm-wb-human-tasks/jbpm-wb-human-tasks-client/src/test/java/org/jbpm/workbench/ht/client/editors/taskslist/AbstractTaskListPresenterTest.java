@@ -16,6 +16,7 @@
 
 package org.jbpm.workbench.ht.client.editors.taskslist;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
@@ -27,6 +28,8 @@ import javax.enterprise.event.Event;
 
 import com.google.gwt.view.client.Range;
 import org.apache.commons.lang3.RandomStringUtils;
+import org.dashbuilder.dataset.ColumnType;
+import org.dashbuilder.dataset.DataColumn;
 import org.dashbuilder.dataset.DataSet;
 import org.dashbuilder.dataset.DataSetLookup;
 import org.dashbuilder.dataset.DataSetOp;
@@ -35,6 +38,7 @@ import org.dashbuilder.dataset.filter.ColumnFilter;
 import org.dashbuilder.dataset.filter.DataSetFilter;
 import org.dashbuilder.dataset.filter.LogicalExprFilter;
 import org.dashbuilder.dataset.filter.LogicalExprType;
+import org.dashbuilder.dataset.impl.DataColumnImpl;
 import org.dashbuilder.dataset.sort.SortOrder;
 import org.jboss.errai.security.shared.api.Group;
 import org.jboss.errai.security.shared.api.identity.User;
@@ -45,6 +49,8 @@ import org.jbpm.workbench.common.client.events.SearchEvent;
 import org.jbpm.workbench.common.client.menu.ServerTemplateSelectorMenuBuilder;
 import org.jbpm.workbench.ht.client.editors.taskslist.AbstractTaskListPresenter;
 import org.jbpm.workbench.ht.client.editors.taskslist.TaskListViewImpl;
+import org.jbpm.workbench.ht.model.TaskKey;
+import org.jbpm.workbench.ht.model.TaskOperationResult;
 import org.jbpm.workbench.ht.model.TaskSummary;
 import org.jbpm.workbench.ht.model.events.TaskSelectionEvent;
 import org.jbpm.workbench.ht.service.TaskService;
@@ -55,6 +61,7 @@ import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
+import org.uberfire.client.workbench.widgets.common.ErrorPopupPresenter;
 import org.uberfire.mocks.CallerMock;
 import org.uberfire.mocks.EventSourceMock;
 
@@ -98,6 +105,9 @@ public abstract class AbstractTaskListPresenterTest {
     @Mock
     protected TaskService taskService;
 
+    @Mock
+    protected ErrorPopupPresenter errorPopup;
+
     protected CallerMock<TaskService> callerMockRemoteTaskService;
 
     @Mock
@@ -178,6 +188,65 @@ public abstract class AbstractTaskListPresenterTest {
         verify(taskService).claimTask("", TASK_DEPLOYMENT_ID, TASK_ID);
     }
 
+    @Test
+    public void bulkClaimTest() {
+        final List<TaskSummary> tasks = new ArrayList<TaskSummary>();
+        for (long i = 0; i < 60; i++) {
+            tasks.add(new TaskSummary(i, null, null, null, 0, null, null, null, null, null, null, -1, -1, TASK_DEPLOYMENT_ID, -1, new Date(), null, null));
+        }
+        when(taskService.claimTasks(anyString(), anyList())).thenAnswer(new Answer<List<TaskOperationResult>>() {
+            @Override
+            public List<TaskOperationResult> answer(InvocationOnMock invocation) throws Throwable {
+                final List<TaskOperationResult> results = new ArrayList<TaskOperationResult>();
+                for (TaskKey key : (List<TaskKey>) invocation.getArguments()[1]) {
+                    results.add(new TaskOperationResult(key.getTaskId(), key.getDeploymentId(), key.getTaskId() % 2 == 0, null));
+                }
+                return results;
+            }
+        });
+
+        getPresenter().bulkClaim(tasks);
+
+        final ArgumentCaptor<List> captor = ArgumentCaptor.forClass(List.class);
+        verify(taskService, times(2)).claimTasks(eq(""), captor.capture());
+        assertEquals(50, captor.getAllValues().get(0).size());
+        assertEquals(10, captor.getAllValues().get(1).size());
+        assertEquals(Long.valueOf(50), ((TaskKey) captor.getAllValues().get(1).get(0)).getTaskId());
+        verify(viewMock, times(2)).displayNotification(anyString());
+    }
+
+    @Test
+    public void bulkClaimInterruptedTest() {
+        final List<TaskSummary> tasks = new ArrayList<TaskSummary>();
+        for (long i = 0; i < 120; i++) {
+            tasks.add(new TaskSummary(i, null, null, null, 0, null, null, null, null, null, null, -1, -1, TASK_DEPLOYMENT_ID, -1, new Date(), null, null));
+        }
+        when(taskService.claimTasks(anyString(), anyList())).thenAnswer(new Answer<List<TaskOperationResult>>() {
+            @Override
+            public List<TaskOperationResult> answer(InvocationOnMock invocation) throws Throwable {
+                final List<TaskOperationResult> results = new ArrayList<TaskOperationResult>();
+                for (TaskKey key : (List<TaskKey>) invocation.getArguments()[1]) {
+                    results.add(new TaskOperationResult(key.getTaskId(), key.getDeploymentId(), true, null));
+                }
+                return results;
+            }
+        }).thenThrow(new RuntimeException("Server down"));
+
+        getPresenter().bulkClaim(tasks);
+
+        verify(taskService, times(2)).claimTasks(eq(""), anyList());
+        verify(viewMock, times(2)).displayNotification(anyString());
+        verify(extendedPagedTable).setVisibleRangeAndClearData(any(Range.class), eq(true));
+        verify(errorPopup).showMessage(anyString());
+    }
+
+    @Test
+    public void bulkClaimEmptySelectionTest() {
+        getPresenter().bulkClaim(Collections.<TaskSummary>emptyList());
+
+        verify(taskService, never()).claimTasks(anyString(), anyList());
+    }
+
     @Test
     public void isFilteredByTaskNameTest() {
         final String taskName = "taskName";
@@ -209,16 +278,15 @@ public abstract class AbstractTaskListPresenterTest {
         //Task summary creation
         when(dataSetQueryHelper.getColumnLongValue(dataSetMock, COLUMN_TASK_ID, 0)).thenReturn(Long.valueOf(1));
 
-        when(dataSetTaskVarMock.getRowCount()).thenReturn(2); //two domain variables associated
-        when(dataSetQueryHelperDomainSpecific.getColumnLongValue(dataSetTaskVarMock, COLUMN_TASK_ID, 0)).thenReturn(Long.valueOf(1));
+        when(dataSetTaskVarMock.getRowCount()).thenReturn(1); //one pivoted row with two domain variables
+        when(dataSetTaskVarMock.getColumns()).thenReturn(Arrays.<DataColumn>asList(new DataColumnImpl(COLUMN_TASK_VARIABLE_TASK_ID, ColumnType.NUMBER),
+                                                                                   new DataColumnImpl("var1", ColumnType.LABEL),
+                                                                                   new DataColumnImpl("var2", ColumnType.LABEL)));
+        when(dataSetQueryHelperDomainSpecific.getColumnLongValue(dataSetTaskVarMock, COLUMN_TASK_VARIABLE_TASK_ID, 0)).thenReturn(Long.valueOf(1));
         String taskVariable1 = "var1";
-        when(dataSetQueryHelperDomainSpecific.getColumnStringValue(dataSetTaskVarMock, COLUMN_TASK_VARIABLE_NAME, 0)).thenReturn(taskVariable1);
-        when(dataSetQueryHelperDomainSpecific.getColumnStringValue(dataSetTaskVarMock, COLUMN_TASK_VARIABLE_VALUE, 0)).thenReturn("value1");
-
-        when(dataSetQueryHelperDomainSpecific.getColumnLongValue(dataSetTaskVarMock, COLUMN_TASK_ID, 1)).thenReturn(Long.valueOf(1));
+        when(dataSetQueryHelperDomainSpecific.getColumnStringValue(dataSetTaskVarMock, taskVariable1, 0)).thenReturn("value1");
         String taskVariable2 = "var2";
-        when(dataSetQueryHelperDomainSpecific.getColumnStringValue(dataSetTaskVarMock, COLUMN_TASK_VARIABLE_NAME, 1)).thenReturn(taskVariable2);
-        when(dataSetQueryHelperDomainSpecific.getColumnStringValue(dataSetTaskVarMock, COLUMN_TASK_VARIABLE_VALUE, 1)).thenReturn("value2");
+        when(dataSetQueryHelperDomainSpecific.getColumnStringValue(dataSetTaskVarMock, taskVariable2, 0)).thenReturn("value2");
 
         Set<String> expectedColumns = new HashSet<String>();
         expectedColumns.add(taskVariable1);
@@ -232,13 +300,16 @@ public abstract class AbstractTaskListPresenterTest {
         assertEquals(expectedColumns, argument.getValue());
 
         verify(dataSetQueryHelper).lookupDataSet(anyInt(), any(DataSetReadyCallback.class));
+        verify(dataSetQueryHelperDomainSpecific).setPivotColumnIds(COLUMN_TASK_VARIABLE_TASK_ID, COLUMN_TASK_VARIABLE_NAME, COLUMN_TASK_VARIABLE_VALUE);
+        final ArgumentCaptor<FilterSettings> settings = ArgumentCaptor.forClass(FilterSettings.class);
+        verify(dataSetQueryHelperDomainSpecific).setCurrentTableSettings(settings.capture());
+        assertEquals(1, settings.getValue().getTablePageSize());
         verify(dataSetQueryHelperDomainSpecific).lookupDataSet(anyInt(), any(DataSetReadyCallback.class));
 
-        when(dataSetTaskVarMock.getRowCount()).thenReturn(1); //one domain variables associated
-        when(dataSetQueryHelperDomainSpecific.getColumnLongValue(dataSetTaskVarMock, COLUMN_TASK_ID, 0)).thenReturn(Long.valueOf(1));
+        when(dataSetTaskVarMock.getColumns()).thenReturn(Arrays.<DataColumn>asList(new DataColumnImpl(COLUMN_TASK_VARIABLE_TASK_ID, ColumnType.NUMBER),
+                                                                                   new DataColumnImpl("varTest1", ColumnType.LABEL)));
         taskVariable1 = "varTest1";
-        when(dataSetQueryHelperDomainSpecific.getColumnStringValue(dataSetTaskVarMock, COLUMN_TASK_VARIABLE_NAME, 0)).thenReturn(taskVariable1);
-        when(dataSetQueryHelperDomainSpecific.getColumnStringValue(dataSetTaskVarMock, COLUMN_TASK_VARIABLE_VALUE, 0)).thenReturn("value1");
+        when(dataSetQueryHelperDomainSpecific.getColumnStringValue(dataSetTaskVarMock, taskVariable1, 0)).thenReturn("value1");
 
         expectedColumns = Collections.singleton(taskVariable1);
 
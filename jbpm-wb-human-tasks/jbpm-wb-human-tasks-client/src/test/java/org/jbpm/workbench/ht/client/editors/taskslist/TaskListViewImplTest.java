@@ -21,13 +21,19 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+import com.google.gwt.dom.client.Style;
+import com.google.gwt.user.cellview.client.Column;
+import com.google.gwt.user.client.ui.HasWidgets;
 import com.google.gwt.view.client.AsyncDataProvider;
 import com.google.gwtmockito.GwtMockitoTestRunner;
+import com.google.gwtmockito.WithClassesToStub;
 import org.dashbuilder.dataset.DataSetOp;
 import org.dashbuilder.dataset.DataSetOpType;
 import org.dashbuilder.dataset.filter.ColumnFilter;
 import org.dashbuilder.dataset.filter.DataSetFilter;
+import org.gwtbootstrap3.client.ui.Anchor;
 import org.gwtbootstrap3.client.ui.Button;
+import org.gwtbootstrap3.client.ui.html.Text;
 import org.jboss.errai.security.shared.api.identity.User;
 import org.jbpm.workbench.df.client.filter.FilterSettings;
 import org.jbpm.workbench.df.client.list.base.DataSetEditorManager;
@@ -59,6 +65,7 @@ import static org.mockito.Mockito.*;
 import static org.jbpm.workbench.ht.model.TaskDataSetConstants.*;
 
 @RunWith(GwtMockitoTestRunner.class)
+@WithClassesToStub({Text.class, Anchor.class})
 public class TaskListViewImplTest {
 
     private CallerMock<UserPreferencesService> callerMockUserPreferencesService;
@@ -160,7 +167,7 @@ public class TaskListViewImplTest {
             @Override
             public Void answer( InvocationOnMock invocationOnMock ) throws Throwable {
                 final List<ColumnMeta> columns = (List<ColumnMeta>) invocationOnMock.getArguments()[ 0 ];
-                assertTrue(columns.size()==14);
+                assertTrue(columns.size()==15);
                 return null;
             }
         } ).when( currentListGrid ).addColumns(anyList());
@@ -172,6 +179,7 @@ public class TaskListViewImplTest {
         view.initColumns( currentListGrid );
 
         verify( currentListGrid ).addColumns( anyList() );
+        verify( currentListGrid ).setColumnWidth( any( Column.class ), eq( 37d ), eq( Style.Unit.PX ) );
     }
 
     @Test
@@ -180,7 +188,7 @@ public class TaskListViewImplTest {
             @Override
             public Void answer( InvocationOnMock invocationOnMock ) throws Throwable {
                 final List<ColumnMeta> columns = (List<ColumnMeta>) invocationOnMock.getArguments()[ 0 ];
-                assertTrue(columns.size()==17);
+                assertTrue(columns.size()==18);
                 return null;
             }
         } ).when( currentListGrid ).addColumns(anyList());
@@ -239,13 +247,21 @@ public class TaskListViewImplTest {
 
     @Test
     public void initialColumsTest(){
-        view.init(presenter);
-        List<GridColumnPreference> columnPreferences = view.getListGrid().getGridPreferencesStore().getColumnPreferences();
-        assertEquals(COLUMN_NAME,columnPreferences.get(0).getName());
-        assertEquals(COLUMN_PROCESS_ID,columnPreferences.get(1).getName());
-        assertEquals(COLUMN_STATUS,columnPreferences.get(2).getName());
-        assertEquals(COLUMN_CREATED_ON,columnPreferences.get(3).getName());
-        assertEquals(TaskListViewImpl.COL_ID_ACTIONS, columnPreferences.get(4).getName());
+        final TaskListViewImpl spyView = spy(view);
+        doReturn(currentListGrid).when(spyView).createGridInstance(any(GridGlobalPreferences.class), anyString());
+        when(currentListGrid.getRightActionsToolbar()).thenReturn(mock(HasWidgets.class));
+
+        spyView.init(presenter);
+
+        final ArgumentCaptor<GridGlobalPreferences> preferences = ArgumentCaptor.forClass(GridGlobalPreferences.class);
+        verify(spyView, atLeastOnce()).createGridInstance(preferences.capture(), anyString());
+        List<String> initialColumns = preferences.getValue().getInitialColumns();
+        assertEquals(TaskListViewImpl.COL_ID_SELECT,initialColumns.get(0));
+        assertEquals(COLUMN_NAME,initialColumns.get(1));
+        assertEquals(COLUMN_PROCESS_ID,initialColumns.get(2));
+        assertEquals(COLUMN_STATUS,initialColumns.get(3));
+        assertEquals(COLUMN_CREATED_ON,initialColumns.get(4));
+        assertEquals(TaskListViewImpl.COL_ID_ACTIONS, initialColumns.get(5));
     }
 
 }
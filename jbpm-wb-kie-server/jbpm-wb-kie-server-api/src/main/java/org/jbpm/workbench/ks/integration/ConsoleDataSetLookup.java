@@ -16,6 +16,9 @@
 
 package org.jbpm.workbench.ks.integration;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.dashbuilder.dataset.DataSetLookup;
 import org.dashbuilder.dataset.DataSetOp;
 import org.jboss.errai.common.client.api.annotations.Portable;
@@ -23,8 +26,27 @@ import org.jboss.errai.common.client.api.annotations.Portable;
 @Portable
 public class ConsoleDataSetLookup extends DataSetLookup {
 
+    /**
+     * Column added to the results of federated lookups, holds the server template each row comes from
+     */
+    public static final String COLUMN_SERVER_TEMPLATE_ID = "serverTemplateId";
+
     private String serverTemplateId;
 
+    private List<String> federatedServerTemplateIds;
+
+    private String keysetColumnId;
+
+    private Comparable keysetSortValue;
+
+    private Comparable keysetIdValue;
+
+    private String pivotKeyColumnId;
+
+    private String pivotNameColumnId;
+
+    private String pivotValueColumnId;
+
     public String getServerTemplateId() {
         return serverTemplateId;
     }
@@ -33,6 +55,88 @@ public class ConsoleDataSetLookup extends DataSetLookup {
         this.serverTemplateId = serverTemplateId;
     }
 
+    public List<String> getFederatedServerTemplateIds() {
+        return federatedServerTemplateIds;
+    }
+
+    /**
+     * Switches the lookup to federated mode, the query is then executed against all given server templates and
+     * the results merged in the lookup sort order, see {@link #COLUMN_SERVER_TEMPLATE_ID}.
+     */
+    public void setFederatedServerTemplateIds(List<String> federatedServerTemplateIds) {
+        this.federatedServerTemplateIds = federatedServerTemplateIds;
+    }
+
+    public boolean isFederated() {
+        return federatedServerTemplateIds != null && !federatedServerTemplateIds.isEmpty();
+    }
+
+    public String getKeysetColumnId() {
+        return keysetColumnId;
+    }
+
+    public Comparable getKeysetSortValue() {
+        return keysetSortValue;
+    }
+
+    public Comparable getKeysetIdValue() {
+        return keysetIdValue;
+    }
+
+    /**
+     * Switches the lookup to keyset pagination, rows are then read right after the given last seen row instead of
+     * using the row offset.
+     * @param keysetColumnId unique column used to break ties of the sort column, e.g. process instance id
+     * @param keysetSortValue value of the sort column of the last seen row
+     * @param keysetIdValue value of the unique column of the last seen row
+     */
+    public void setKeyset(String keysetColumnId, Comparable keysetSortValue, Comparable keysetIdValue) {
+        this.keysetColumnId = keysetColumnId;
+        this.keysetSortValue = keysetSortValue;
+        this.keysetIdValue = keysetIdValue;
+    }
+
+    public void clearKeyset() {
+        setKeyset(null, null, null);
+    }
+
+    public boolean isKeysetPagination() {
+        return keysetColumnId != null && keysetIdValue != null;
+    }
+
+    public String getPivotKeyColumnId() {
+        return pivotKeyColumnId;
+    }
+
+    public String getPivotNameColumnId() {
+        return pivotNameColumnId;
+    }
+
+    public String getPivotValueColumnId() {
+        return pivotValueColumnId;
+    }
+
+    /**
+     * Pivots name/value rows into one row per key with a column for every distinct name, row offset and number
+     * of rows are then applied to the pivoted rows.
+     * @param pivotKeyColumnId column the rows are grouped by, e.g. task id
+     * @param pivotNameColumnId column holding the names of the pivoted columns, e.g. variable name
+     * @param pivotValueColumnId column holding the values of the pivoted columns, e.g. variable value
+     */
+    public void setPivot(String pivotKeyColumnId, String pivotNameColumnId, String pivotValueColumnId) {
+        this.pivotKeyColumnId = pivotKeyColumnId;
+        this.pivotNameColumnId = pivotNameColumnId;
+        this.pivotValueColumnId = pivotValueColumnId;
+    }
+
+    public void clearPivot() {
+        setPivot(null, null, null);
+    }
+
+    public boolean isPivoted() {
+        return pivotKeyColumnId != null && pivotNameColumnId != null && pivotValueColumnId != null;
+    }
+
     public static DataSetLookup fromInstance(DataSetLookup orig, String serverTemplateId) {
         ConsoleDataSetLookup clone = new ConsoleDataSetLookup();
         clone.setDataSetUUID(orig.getDataSetUUID());
@@ -45,8 +149,20 @@ public class ConsoleDataSetLookup extends DataSetLookup {
         return clone;
     }
 
+    public static DataSetLookup fromInstance(DataSetLookup orig, List<String> serverTemplateIds) {
+        ConsoleDataSetLookup clone = (ConsoleDataSetLookup) fromInstance(orig, serverTemplateIds.isEmpty() ? null : serverTemplateIds.get(0));
+        clone.setFederatedServerTemplateIds(new ArrayList<String>(serverTemplateIds));
+        return clone;
+    }
+
     @Override
     public DataSetLookup cloneInstance() {
-        return fromInstance(super.cloneInstance(), getServerTemplateId());
+        ConsoleDataSetLookup clone = (ConsoleDataSetLookup) fromInstance(super.cloneInstance(), getServerTemplateId());
+        clone.setKeyset(getKeysetColumnId(), getKeysetSortValue(), getKeysetIdValue());
+        clone.setPivot(getPivotKeyColumnId(), getPivotNameColumnId(), getPivotValueColumnId());
+        if (isFederated()) {
+            clone.setFederatedServerTemplateIds(new ArrayList<String>(getFederatedServerTemplateIds()));
+        }
+        return clone;
     }
 }
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jbpm.workbench.ks.security;
+
+import java.util.function.Supplier;
+
+import org.kie.server.client.CredentialsProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Credentials provider of user clients that lets tasks run on other threads call kie server as the user that
+ * started them. Container providers read the caller from thread bound state, the HTTP request or the JACC subject,
+ * which is missing on executor threads. Credentials are therefore captured on the request thread and bound to
+ * the worker thread while the task runs, see {@link #propagate(Supplier)}.
+ */
+public class PropagatingCredentialsProvider implements CredentialsProvider {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PropagatingCredentialsProvider.class);
+
+    private static final ThreadLocal<Credentials> PROPAGATED = new ThreadLocal<>();
+
+    private final CredentialsProvider delegate;
+
+    public PropagatingCredentialsProvider(final CredentialsProvider delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public String getHeaderName() {
+        return delegate.getHeaderName();
+    }
+
+    @Override
+    public String getAuthorization() {
+        final Credentials credentials = PROPAGATED.get();
+        return credentials != null ? credentials.getAuthorization() : delegate.getAuthorization();
+    }
+
+    /**
+     * Returns credentials of the current caller, or null when there is none to propagate
+     */
+    public Credentials capture() {
+        final Credentials propagated = PROPAGATED.get();
+        if (propagated != null) {
+            return propagated;
+        }
+        try {
+            return new Credentials(delegate.getAuthorization());
+        } catch (RuntimeException e) {
+            LOGGER.debug("No credentials to propagate due to {}", e.toString());
+            return null;
+        }
+    }
+
+    /**
+     * Wraps given task so that it runs with credentials of the current caller on whatever thread executes it
+     */
+    public <T> Supplier<T> propagate(final Supplier<T> task) {
+        final Credentials credentials = capture();
+        return () -> {
+            final Credentials previous = bind(credentials);
+            try {
+                return task.get();
+            } finally {
+                restore(previous);
+            }
+        };
+    }
+
+    public Runnable propagate(final Runnable task) {
+        final Supplier<Void> supplier = propagate(() -> {
+            task.run();
+            return null;
+        });
+        return supplier::get;
+    }
+
+    /**
+     * Binds given credentials to the current thread, to be followed by {@link #restore(Credentials)} with the
+     * returned value once done
+     */
+    public static Credentials bind(final Credentials credentials) {
+        final Credentials previous = PROPAGATED.get();
+        if (credentials != null) {
+            PROPAGATED.set(credentials);
+        }
+        return previous;
+    }
+
+    public static void restore(final Credentials previous) {
+        if (previous == null) {
+            PROPAGATED.remove();
+        } else {
+            PROPAGATED.set(previous);
+        }
+    }
+
+    /**
+     * Authorization header value of a caller, null for anonymous callers
+     */
+    public static final class Credentials {
+
+        private final String authorization;
+
+        public Credentials(final String authorization) {
+            this.authorization = authorization;
+        }
+
+        public String getAuthorization() {
+            return authorization;
+        }
+    }
+}
@@ -19,6 +19,7 @@ package org.jbpm.workbench.ks.utils;
 import java.util.Arrays;
 
 import org.jbpm.workbench.ks.security.KeyCloakTokenCredentialsProvider;
+import org.jbpm.workbench.ks.security.PropagatingCredentialsProvider;
 import org.kie.server.api.KieServerConstants;
 import org.kie.server.api.marshalling.MarshallingFormat;
 import org.kie.server.client.CredentialsProvider;
@@ -60,12 +61,21 @@ public class KieServerUtils {
         return createKieServicesClient(endpoint, classLoader, configuration, capabilities);
     }
 
+    public static KieServicesClient createKieServicesClient(final String endpoint, final ClassLoader classLoader, final CredentialsProvider credentialsProvider, final LoadBalancer loadBalancer, final long timeout, final String... capabilities) {
+        final KieServicesConfiguration configuration = KieServicesFactory.newRestConfiguration(endpoint, credentialsProvider);
+        return createKieServicesClient(endpoint, classLoader, configuration, loadBalancer, timeout, capabilities);
+    }
+
     public static KieServicesClient createKieServicesClient(final String endpoint, final ClassLoader classLoader, final KieServicesConfiguration configuration, final String... capabilities) {
+        return createKieServicesClient(endpoint, classLoader, configuration, LoadBalancer.getDefault(endpoint), 60000, capabilities);
+    }
+
+    public static KieServicesClient createKieServicesClient(final String endpoint, final ClassLoader classLoader, final KieServicesConfiguration configuration, final LoadBalancer loadBalancer, final long timeout, final String... capabilities) {
         LOGGER.debug("Creating client that will use following endpoint {}", endpoint);
-        configuration.setTimeout(60000);
+        configuration.setTimeout(timeout);
         configuration.setCapabilities(Arrays.asList(capabilities));
         configuration.setMarshallingFormat(MarshallingFormat.XSTREAM);
-        configuration.setLoadBalancer(LoadBalancer.getDefault(endpoint));
+        configuration.setLoadBalancer(loadBalancer);
 
         KieServicesClient kieServicesClient;
 
@@ -78,7 +88,7 @@ public class KieServerUtils {
         return kieServicesClient;
     }
 
-    public static CredentialsProvider getCredentialsProvider() {
+    public static PropagatingCredentialsProvider getCredentialsProvider() {
         CredentialsProvider credentialsProvider;
         try {
             credentialsProvider = new KeyCloakTokenCredentialsProvider();
@@ -86,7 +96,7 @@ public class KieServerUtils {
             credentialsProvider = new SubjectCredentialsProvider();
         }
         LOGGER.debug("{} initialized for the client.", credentialsProvider.getClass().getName());
-        return credentialsProvider;
+        return new PropagatingCredentialsProvider(credentialsProvider);
     }
 
     public static CredentialsProvider getAdminCredentialsProvider() {
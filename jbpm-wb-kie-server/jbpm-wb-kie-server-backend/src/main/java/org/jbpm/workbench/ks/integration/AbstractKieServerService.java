@@ -16,8 +16,11 @@
 
 package org.jbpm.workbench.ks.integration;
 
+import java.util.function.Supplier;
 import javax.inject.Inject;
 
+import org.jbpm.workbench.ks.security.PropagatingCredentialsProvider;
+import org.jbpm.workbench.ks.utils.KieServerUtils;
 import org.kie.server.client.KieServicesClient;
 
 public abstract class AbstractKieServerService {
@@ -25,6 +28,20 @@ public abstract class AbstractKieServerService {
     @Inject
     private KieServerIntegration kieServerIntegration;
 
+    @Inject
+    private KieServerQueryCache queryCache;
+
+    @Inject
+    private KieServerCircuitBreakers circuitBreakers;
+
+    @Inject
+    private KieServerClientMetrics clientMetrics;
+
+    @Inject
+    private KieServerClientCache clientCache;
+
+    private final PropagatingCredentialsProvider credentialsProvider = KieServerUtils.getCredentialsProvider();
+
     protected <T> T getClient(final String serverTemplateId, final Class<T> clientType) {
         KieServicesClient client = getKieServicesClient(serverTemplateId);
         return client.getServicesClient(clientType);
@@ -40,7 +57,27 @@ public abstract class AbstractKieServerService {
         if (client == null) {
             throw new RuntimeException("No connection to '" + serverTemplateId + "' server(s). Server template configuration requires container '" + containerId + "' to be configured and started");
         }
-        return client;
+        return wrap(serverTemplateId, containerId, client);
+    }
+
+    /**
+     * Invalidates cached query results of given server template, limited to given data sets when any is provided.
+     * To be called after operations that modify runtime data.
+     */
+    protected void invalidateQueryCache(final String serverTemplateId, final String... dataSetUUIDs) {
+        queryCache.invalidate(serverTemplateId, dataSetUUIDs);
+    }
+
+    /**
+     * Wraps a task to be run on another thread so that its kie server calls are made as the current caller,
+     * see {@link PropagatingCredentialsProvider}
+     */
+    protected <T> Supplier<T> withCallerCredentials(final Supplier<T> task) {
+        return credentialsProvider.propagate(task);
+    }
+
+    protected Runnable withCallerCredentials(final Runnable task) {
+        return credentialsProvider.propagate(task);
     }
 
     protected KieServicesClient getKieServicesClient(final String serverTemplateId) {
@@ -48,6 +85,13 @@ public abstract class AbstractKieServerService {
         if (client == null) {
             throw new RuntimeException("No connection to '" + serverTemplateId + "' server(s)");
         }
-        return client;
+        return wrap(serverTemplateId, null, client);
+    }
+
+    /**
+     * Guards and instruments given client, reusing the wrapped client for as long as the client is not replaced.
+     */
+    private KieServicesClient wrap(final String serverTemplateId, final String containerId, final KieServicesClient client) {
+        return clientCache.get(serverTemplateId, containerId, client, c -> clientMetrics.instrument(serverTemplateId, circuitBreakers.guard(serverTemplateId, c)));
     }
 }
\ No newline at end of file
@@ -0,0 +1,335 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jbpm.workbench.ks.integration;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.kie.server.api.exception.KieServicesHttpException;
+import org.kie.server.client.KieServicesClient;
+import org.kie.server.common.rest.KieServerHttpRequestException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Guards the calls made to every server template with a circuit breaker and a bulkhead, so that a template
+ * that is down or slow cannot exhaust the request threads used by the screens of healthy templates.
+ * <p>
+ * After a number of consecutive connection failures the circuit of the template opens and its calls fail fast,
+ * until the open time elapses and a single trial call is let through to decide whether to close it again.
+ * Calls exceeding the max concurrent calls of a template are rejected as well.
+ */
+@ApplicationScoped
+public class KieServerCircuitBreakers implements KieServerCircuitBreakersMBean {
+
+    public static final String FAILURE_THRESHOLD = "org.jbpm.wb.client.breaker.failures";
+    public static final String OPEN_TIME = "org.jbpm.wb.client.breaker.open.time";
+    public static final String MAX_CONCURRENT_CALLS = "org.jbpm.wb.client.bulkhead.max.concurrent";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(KieServerCircuitBreakers.class);
+
+    private static final String OBJECT_NAME = "org.jbpm.workbench:type=KieServerCircuitBreakers";
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openTime;
+    private final int maxConcurrentCalls;
+
+    private final ConcurrentMap<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+
+    public KieServerCircuitBreakers() {
+        this(Integer.parseInt(System.getProperty(FAILURE_THRESHOLD, "5")),
+             Long.parseLong(System.getProperty(OPEN_TIME, "30000")),
+             Integer.parseInt(System.getProperty(MAX_CONCURRENT_CALLS, "50")));
+    }
+
+    /**
+     * @param failureThreshold consecutive failed calls after which the circuit opens, 0 or less disables the breaker
+     * @param openTime time in milliseconds calls fail fast before a trial call is let through
+     * @param maxConcurrentCalls max calls in progress per server template, 0 or less disables the bulkhead
+     */
+    public KieServerCircuitBreakers(final int failureThreshold,
+                                    final long openTime,
+                                    final int maxConcurrentCalls) {
+        this.failureThreshold = failureThreshold;
+        this.openTime = openTime;
+        this.maxConcurrentCalls = maxConcurrentCalls;
+    }
+
+    @PostConstruct
+    public void registerMBean() {
+        try {
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(OBJECT_NAME);
+            if (!mBeanServer.isRegistered(objectName)) {
+                mBeanServer.registerMBean(this, objectName);
+            }
+        } catch (Exception e) {
+            LOGGER.warn("Unable to register kie server circuit breakers MBean due to {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void unregisterMBean() {
+        try {
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(OBJECT_NAME);
+            if (mBeanServer.isRegistered(objectName)) {
+                mBeanServer.unregisterMBean(objectName);
+            }
+        } catch (Exception e) {
+            LOGGER.debug("Unable to unregister kie server circuit breakers MBean due to {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Wraps given client so that its calls, and the calls of the services clients it returns, go through the
+     * circuit breaker of the server template.
+     */
+    public KieServicesClient guard(final String serverTemplateId,
+                                   final KieServicesClient client) {
+        return guard(serverTemplateId, KieServicesClient.class, client);
+    }
+
+    protected <T> T guard(final String serverTemplateId,
+                          final Class<T> type,
+                          final T client) {
+        if (serverTemplateId == null) {
+            return client;
+        }
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(),
+                                                new Class<?>[]{type},
+                                                new GuardedClient(getCircuitBreaker(serverTemplateId), client)));
+    }
+
+    public CircuitBreaker getCircuitBreaker(final String serverTemplateId) {
+        return circuitBreakers.computeIfAbsent(serverTemplateId, CircuitBreaker::new);
+    }
+
+    /**
+     * Connection failures and gateway errors tell the server is unavailable, any other error is an answer.
+     */
+    protected boolean isFailure(final Throwable error) {
+        if (error instanceof KieServerHttpRequestException) {
+            return true;
+        }
+        if (error instanceof KieServicesHttpException) {
+            final Integer httpCode = ((KieServicesHttpException) error).getHttpCode();
+            return httpCode != null && httpCode >= 502 && httpCode <= 504;
+        }
+        return false;
+    }
+
+    @Override
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    @Override
+    public long getOpenTime() {
+        return openTime;
+    }
+
+    @Override
+    public int getMaxConcurrentCalls() {
+        return maxConcurrentCalls;
+    }
+
+    @Override
+    public Map<String, String> getStates() {
+        return circuitBreakers.values().stream().collect(Collectors.toMap(breaker -> breaker.serverTemplateId,
+                                                                          breaker -> breaker.getState().name()));
+    }
+
+    @Override
+    public Map<String, Integer> getActiveCalls() {
+        return circuitBreakers.values().stream().collect(Collectors.toMap(breaker -> breaker.serverTemplateId,
+                                                                          CircuitBreaker::getActiveCalls));
+    }
+
+    @Override
+    public Map<String, Long> getRejectedCounts() {
+        return circuitBreakers.values().stream().collect(Collectors.toMap(breaker -> breaker.serverTemplateId,
+                                                                          CircuitBreaker::getRejectedCount));
+    }
+
+    @Override
+    public void reset(final String serverTemplateId) {
+        final CircuitBreaker circuitBreaker = circuitBreakers.get(serverTemplateId);
+        if (circuitBreaker != null) {
+            circuitBreaker.reset();
+        }
+    }
+
+    public class CircuitBreaker {
+
+        private final String serverTemplateId;
+        private final Semaphore bulkhead;
+        private final AtomicLong rejected = new AtomicLong();
+
+        private State state = State.CLOSED;
+        private int consecutiveFailures;
+        private long openedAt;
+        private boolean trialInProgress;
+
+        protected CircuitBreaker(final String serverTemplateId) {
+            this.serverTemplateId = serverTemplateId;
+            this.bulkhead = maxConcurrentCalls > 0 ? new Semaphore(maxConcurrentCalls) : null;
+        }
+
+        /**
+         * Acquires a permit for a call, to be released with {@link #release(boolean)} once done.
+         * @throws KieServerHttpRequestException when the circuit is open or the bulkhead is full
+         */
+        public void acquire() {
+            synchronized (this) {
+                if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openTime) {
+                    state = State.HALF_OPEN;
+                }
+                if (state == State.OPEN || (state == State.HALF_OPEN && trialInProgress)) {
+                    rejected.incrementAndGet();
+                    throw new KieServerHttpRequestException("Server template '" + serverTemplateId + "' is unavailable, calls are suspended after " + consecutiveFailures + " consecutive failures");
+                }
+                if (state == State.HALF_OPEN) {
+                    trialInProgress = true;
+                }
+            }
+            if (bulkhead != null && !bulkhead.tryAcquire()) {
+                synchronized (this) {
+                    trialInProgress = false;
+                }
+                rejected.incrementAndGet();
+                throw new KieServerHttpRequestException("Server template '" + serverTemplateId + "' has too many calls in progress (" + maxConcurrentCalls + ")");
+            }
+        }
+
+        public void release(final boolean failure) {
+            if (bulkhead != null) {
+                bulkhead.release();
+            }
+            synchronized (this) {
+                trialInProgress = false;
+                if (!failure) {
+                    consecutiveFailures = 0;
+                    if (state != State.CLOSED) {
+                        LOGGER.info("Calls to server template '{}' resumed", serverTemplateId);
+                        state = State.CLOSED;
+                    }
+                } else if (failureThreshold > 0 && (++consecutiveFailures >= failureThreshold || state == State.HALF_OPEN)) {
+                    if (state != State.OPEN) {
+                        LOGGER.warn("Calls to server template '{}' suspended for {} ms after {} consecutive failures", serverTemplateId, openTime, consecutiveFailures);
+                    }
+                    state = State.OPEN;
+                    openedAt = System.currentTimeMillis();
+                }
+            }
+        }
+
+        public synchronized void reset() {
+            state = State.CLOSED;
+            consecutiveFailures = 0;
+            trialInProgress = false;
+        }
+
+        public synchronized State getState() {
+            return state;
+        }
+
+        public int getActiveCalls() {
+            return bulkhead == null ? 0 : maxConcurrentCalls - bulkhead.availablePermits();
+        }
+
+        public long getRejectedCount() {
+            return rejected.get();
+        }
+    }
+
+    protected class GuardedClient implements InvocationHandler {
+
+        private final CircuitBreaker circuitBreaker;
+        private final Object target;
+        private final ConcurrentMap<Class<?>, Object> servicesClients = new ConcurrentHashMap<>();
+
+        protected GuardedClient(final CircuitBreaker circuitBreaker,
+                                final Object target) {
+            this.circuitBreaker = circuitBreaker;
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(final Object proxy,
+                             final Method method,
+                             final Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                return invokeTarget(method, args);
+            }
+            if (target instanceof KieServicesClient && method.getName().equals("getServicesClient")) {
+                final Object servicesClient = invokeTarget(method, args);
+                final Class type = (Class) args[0];
+                if (servicesClient == null || !type.isInterface()) {
+                    return servicesClient;
+                }
+                Object guarded = servicesClients.get(type);
+                if (guarded == null || ((GuardedClient) Proxy.getInvocationHandler(guarded)).target != servicesClient) {
+                    guarded = guard(circuitBreaker.serverTemplateId, type, servicesClient);
+                    servicesClients.put(type, guarded);
+                }
+                return guarded;
+            }
+
+            circuitBreaker.acquire();
+            boolean failure = false;
+            try {
+                return invokeTarget(method, args);
+            } catch (Throwable e) {
+                failure = isFailure(e);
+                throw e;
+            } finally {
+                circuitBreaker.release(failure);
+            }
+        }
+
+        protected Object invokeTarget(final Method method,
+                                      final Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
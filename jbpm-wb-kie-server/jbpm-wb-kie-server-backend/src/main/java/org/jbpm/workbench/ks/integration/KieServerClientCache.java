@@ -0,0 +1,82 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.workbench.ks.integration;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.UnaryOperator;
+import javax.enterprise.context.ApplicationScoped;
+
+import org.kie.server.client.KieServicesClient;
+
+/**
+ * Keeps the wrapped client of every server template and container, so that services wrap a client once rather than
+ * on every call. An entry is only reused while it wraps the same client instance, and is dropped by
+ * {@link KieServerIntegration} once the client is replaced or removed.
+ */
+@ApplicationScoped
+public class KieServerClientCache {
+
+    private final ConcurrentMap<List<String>, WrappedClient> clients = new ConcurrentHashMap<>();
+
+    /**
+     * @param containerId container the client is for, null for the server template client
+     * @return given client wrapped by given wrapper, the wrapper only being applied when no entry for the client exists
+     */
+    public KieServicesClient get(final String serverTemplateId,
+                                 final String containerId,
+                                 final KieServicesClient client,
+                                 final UnaryOperator<KieServicesClient> wrapper) {
+        final List<String> key = Arrays.asList(serverTemplateId, containerId);
+        WrappedClient wrappedClient = clients.get(key);
+        if (wrappedClient == null || wrappedClient.client != client) {
+            wrappedClient = new WrappedClient(client, wrapper.apply(client));
+            clients.put(key, wrappedClient);
+        }
+        return wrappedClient.wrapped;
+    }
+
+    public void release(final String serverTemplateId,
+                        final String containerId) {
+        clients.remove(Arrays.asList(serverTemplateId, containerId));
+    }
+
+    /**
+     * Drops the entries of the server template client and all its container clients
+     */
+    public void release(final String serverTemplateId) {
+        clients.keySet().removeIf(key -> serverTemplateId.equals(key.get(0)));
+    }
+
+    public int size() {
+        return clients.size();
+    }
+
+    protected static class WrappedClient {
+
+        private final KieServicesClient client;
+        private final KieServicesClient wrapped;
+
+        protected WrappedClient(final KieServicesClient client,
+                                final KieServicesClient wrapped) {
+            this.client = client;
+            this.wrapped = wrapped;
+        }
+    }
+}
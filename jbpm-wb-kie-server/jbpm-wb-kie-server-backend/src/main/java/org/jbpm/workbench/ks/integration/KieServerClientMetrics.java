@@ -0,0 +1,348 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jbpm.workbench.ks.integration;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.kie.server.client.KieServicesClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Records the calls made through the services clients of every server template: call and error counts, a
+ * latency histogram and the size of the returned payloads, per client method. Recording only touches striped
+ * counters so it adds next to nothing to the calls.
+ * <p>
+ * Payload size is measured on the unmarshalled results: number of elements for collections and arrays, length
+ * for byte arrays and strings, and 1 for any other non null result.
+ */
+@ApplicationScoped
+public class KieServerClientMetrics implements KieServerClientMetricsMBean {
+
+    public static final String ENABLED = "org.jbpm.wb.client.metrics";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(KieServerClientMetrics.class);
+
+    private static final String OBJECT_NAME = "org.jbpm.workbench:type=KieServerClientMetrics";
+
+    /**
+     * Latency buckets in milliseconds, bucket i counts calls that took less than 2^i ms, last bucket the rest
+     */
+    private static final int BUCKETS = 18;
+
+    private final boolean enabled;
+
+    private final ConcurrentMap<String, ConcurrentMap<Method, MethodMetrics>> metrics = new ConcurrentHashMap<>();
+
+    public KieServerClientMetrics() {
+        this(Boolean.parseBoolean(System.getProperty(ENABLED, "true")));
+    }
+
+    public KieServerClientMetrics(final boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @PostConstruct
+    public void registerMBean() {
+        try {
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(OBJECT_NAME);
+            if (!mBeanServer.isRegistered(objectName)) {
+                mBeanServer.registerMBean(this, objectName);
+            }
+        } catch (Exception e) {
+            LOGGER.warn("Unable to register kie server client metrics MBean due to {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void unregisterMBean() {
+        try {
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(OBJECT_NAME);
+            if (mBeanServer.isRegistered(objectName)) {
+                mBeanServer.unregisterMBean(objectName);
+            }
+        } catch (Exception e) {
+            LOGGER.debug("Unable to unregister kie server client metrics MBean due to {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Wraps given client so that the calls of the services clients it returns are recorded.
+     */
+    public KieServicesClient instrument(final String serverTemplateId,
+                                        final KieServicesClient client) {
+        if (!enabled || serverTemplateId == null) {
+            return client;
+        }
+        return (KieServicesClient) Proxy.newProxyInstance(KieServicesClient.class.getClassLoader(),
+                                                          new Class<?>[]{KieServicesClient.class},
+                                                          new InstrumentedClient(serverTemplateId, client));
+    }
+
+    public void record(final String serverTemplateId,
+                       final Method method,
+                       final long elapsedNanos,
+                       final Object result,
+                       final boolean error) {
+        final ConcurrentMap<Method, MethodMetrics> templateMetrics = metrics.computeIfAbsent(serverTemplateId, id -> new ConcurrentHashMap<>());
+        MethodMetrics methodMetrics = templateMetrics.get(method);
+        if (methodMetrics == null) {
+            methodMetrics = templateMetrics.computeIfAbsent(method, MethodMetrics::new);
+        }
+        methodMetrics.record(elapsedNanos, result, error);
+    }
+
+    protected static long payloadSize(final Object result) {
+        if (result == null) {
+            return 0;
+        }
+        if (result instanceof Collection) {
+            return ((Collection) result).size();
+        }
+        if (result instanceof Map) {
+            return ((Map) result).size();
+        }
+        if (result instanceof String) {
+            return ((String) result).length();
+        }
+        if (result.getClass().isArray()) {
+            return Array.getLength(result);
+        }
+        return 1;
+    }
+
+    public MethodMetrics getMethodMetrics(final String serverTemplateId,
+                                          final String method) {
+        final Map<Method, MethodMetrics> templateMetrics = metrics.get(serverTemplateId);
+        if (templateMetrics == null) {
+            return null;
+        }
+        return templateMetrics.values().stream().filter(m -> m.name.equals(method)).findFirst().orElse(null);
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public Map<String, Long> getCallCounts() {
+        return collect(MethodMetrics::getCallCount);
+    }
+
+    @Override
+    public Map<String, Long> getErrorCounts() {
+        return collect(MethodMetrics::getErrorCount);
+    }
+
+    @Override
+    public Map<String, Long> getMeanLatencies() {
+        return collect(MethodMetrics::getMeanLatency);
+    }
+
+    @Override
+    public Map<String, Long> getP95Latencies() {
+        return collect(m -> m.getLatencyPercentile(0.95));
+    }
+
+    @Override
+    public Map<String, Long> getPayloadSizes() {
+        return collect(MethodMetrics::getPayloadSize);
+    }
+
+    /**
+     * @return one line per server template and method with all recorded values, in text exposition format
+     */
+    @Override
+    public String getSnapshot() {
+        final StringBuilder snapshot = new StringBuilder();
+        new TreeMap<>(metrics).forEach((serverTemplateId, templateMetrics) -> templateMetrics.values().stream()
+                .sorted((m1, m2) -> m1.name.compareTo(m2.name))
+                .forEach(m -> {
+                    final String labels = "{template=\"" + serverTemplateId + "\",method=\"" + m.name + "\"}";
+                    snapshot.append("kie_server_client_calls").append(labels).append(' ').append(m.getCallCount()).append('\n');
+                    snapshot.append("kie_server_client_errors").append(labels).append(' ').append(m.getErrorCount()).append('\n');
+                    snapshot.append("kie_server_client_latency_mean_ms").append(labels).append(' ').append(m.getMeanLatency()).append('\n');
+                    snapshot.append("kie_server_client_latency_p95_ms").append(labels).append(' ').append(m.getLatencyPercentile(0.95)).append('\n');
+                    snapshot.append("kie_server_client_latency_p99_ms").append(labels).append(' ').append(m.getLatencyPercentile(0.99)).append('\n');
+                    snapshot.append("kie_server_client_payload_size").append(labels).append(' ').append(m.getPayloadSize()).append('\n');
+                }));
+        return snapshot.toString();
+    }
+
+    @Override
+    public void reset() {
+        metrics.clear();
+    }
+
+    protected Map<String, Long> collect(final ToLongFunction<MethodMetrics> value) {
+        final Map<String, Long> values = new TreeMap<>();
+        metrics.forEach((serverTemplateId, templateMetrics) -> templateMetrics.values().forEach(
+                m -> values.put(serverTemplateId + "|" + m.name, value.applyAsLong(m))));
+        return values;
+    }
+
+    public static class MethodMetrics {
+
+        private final String name;
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder latency = new LongAdder();
+        private final LongAdder payload = new LongAdder();
+        private final LongAdder[] histogram = new LongAdder[BUCKETS];
+
+        protected MethodMetrics(final Method method) {
+            this.name = method.getDeclaringClass().getSimpleName() + "." + method.getName();
+            for (int i = 0; i < BUCKETS; i++) {
+                histogram[i] = new LongAdder();
+            }
+        }
+
+        protected void record(final long elapsedNanos,
+                              final Object result,
+                              final boolean error) {
+            final long millis = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+            calls.increment();
+            latency.add(millis);
+            histogram[Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(millis))].increment();
+            if (error) {
+                errors.increment();
+            } else {
+                payload.add(payloadSize(result));
+            }
+        }
+
+        public long getCallCount() {
+            return calls.sum();
+        }
+
+        public long getErrorCount() {
+            return errors.sum();
+        }
+
+        public long getPayloadSize() {
+            return payload.sum();
+        }
+
+        public long getMeanLatency() {
+            final long count = calls.sum();
+            return count == 0 ? 0 : latency.sum() / count;
+        }
+
+        /**
+         * @return upper bound in milliseconds of the histogram bucket holding given percentile
+         */
+        public long getLatencyPercentile(final double percentile) {
+            final long[] counts = new long[BUCKETS];
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = histogram[i].sum();
+                total += counts[i];
+            }
+            if (total == 0) {
+                return 0;
+            }
+            final long rank = (long) Math.ceil(total * percentile);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return 1L << i;
+                }
+            }
+            return 1L << (BUCKETS - 1);
+        }
+    }
+
+    protected class InstrumentedClient implements InvocationHandler {
+
+        private final String serverTemplateId;
+        private final Object target;
+        private final ConcurrentMap<Class<?>, Object> servicesClients = new ConcurrentHashMap<>();
+
+        protected InstrumentedClient(final String serverTemplateId,
+                                     final Object target) {
+            this.serverTemplateId = serverTemplateId;
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(final Object proxy,
+                             final Method method,
+                             final Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                return invokeTarget(method, args);
+            }
+            if (target instanceof KieServicesClient) {
+                final Object result = invokeTarget(method, args);
+                if (method.getName().equals("getServicesClient") && result != null && ((Class) args[0]).isInterface()) {
+                    final Class<?> type = (Class<?>) args[0];
+                    Object instrumented = servicesClients.get(type);
+                    if (instrumented == null || ((InstrumentedClient) Proxy.getInvocationHandler(instrumented)).target != result) {
+                        instrumented = Proxy.newProxyInstance(type.getClassLoader(),
+                                                              new Class<?>[]{type},
+                                                              new InstrumentedClient(serverTemplateId, result));
+                        servicesClients.put(type, instrumented);
+                    }
+                    return instrumented;
+                }
+                return result;
+            }
+
+            final long start = System.nanoTime();
+            Object result = null;
+            boolean error = true;
+            try {
+                result = invokeTarget(method, args);
+                error = false;
+                return result;
+            } finally {
+                record(serverTemplateId, method, System.nanoTime() - start, result, error);
+            }
+        }
+
+        protected Object invokeTarget(final Method method,
+                                      final Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
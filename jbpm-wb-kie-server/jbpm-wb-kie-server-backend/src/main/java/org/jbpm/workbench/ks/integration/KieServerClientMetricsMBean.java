@@ -0,0 +1,42 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jbpm.workbench.ks.integration;
+
+import java.util.Map;
+
+/**
+ * JMX view of the calls made to kie servers, keyed by server template and client method
+ */
+public interface KieServerClientMetricsMBean {
+
+    boolean isEnabled();
+
+    Map<String, Long> getCallCounts();
+
+    Map<String, Long> getErrorCounts();
+
+    Map<String, Long> getMeanLatencies();
+
+    Map<String, Long> getP95Latencies();
+
+    Map<String, Long> getPayloadSizes();
+
+    String getSnapshot();
+
+    void reset();
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jbpm.workbench.ks.integration;
+
+import java.io.IOException;
+import javax.inject.Inject;
+import javax.servlet.annotation.HttpConstraint;
+import javax.servlet.annotation.ServletSecurity;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Plain text view of the kie server client metrics, for scraping without a JMX connection
+ */
+@WebServlet(name = "KieServerClientMetricsServlet", urlPatterns = "/kieserver/metrics")
+@ServletSecurity(@HttpConstraint(rolesAllowed = "admin"))
+public class KieServerClientMetricsServlet extends HttpServlet {
+
+    private static final long serialVersionUID = -8202527624500839408L;
+
+    @Inject
+    private KieServerClientMetrics metrics;
+
+    @Override
+    protected void doGet(final HttpServletRequest req,
+                         final HttpServletResponse resp) throws IOException {
+        resp.setContentType("text/plain;charset=UTF-8");
+        resp.setHeader("Cache-Control", "no-cache");
+        resp.getWriter().write(metrics.getSnapshot());
+    }
+}
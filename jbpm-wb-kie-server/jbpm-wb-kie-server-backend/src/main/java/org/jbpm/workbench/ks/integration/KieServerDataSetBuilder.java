@@ -0,0 +1,99 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.workbench.ks.integration;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.dashbuilder.dataset.ColumnType;
+import org.dashbuilder.dataset.DataColumn;
+import org.dashbuilder.dataset.DataSet;
+import org.dashbuilder.dataset.DataSetFactory;
+import org.dashbuilder.dataset.def.DataColumnDef;
+import org.dashbuilder.dataset.def.DataSetDef;
+import org.dashbuilder.dataset.impl.DataColumnImpl;
+
+/**
+ * Builds data set column by column from raw query rows that can be appended in several chunks, so that callers
+ * only need to keep the output and the chunk being read in memory. Date values sent as epoch numbers are
+ * converted to dates while copying.
+ */
+public class KieServerDataSetBuilder {
+
+    private final DataSet dataSet;
+    private final List[] values;
+    private final boolean[] dateColumn;
+    private int rowCount = 0;
+
+    public KieServerDataSetBuilder(final DataSetDef def, final List<DataColumn> extraColumns, final int expectedRows) {
+        dataSet = DataSetFactory.newEmptyDataSet();
+        dataSet.setUUID(def.getUUID());
+        dataSet.setDefinition(def);
+
+        final List<DataColumn> columns = new ArrayList<>();
+        if (extraColumns != null && !extraColumns.isEmpty()) {
+            columns.addAll(extraColumns);
+        } else {
+            for (DataColumnDef column : def.getColumns()) {
+                columns.add(new DataColumnImpl(column.getId(), column.getColumnType()));
+            }
+        }
+
+        values = new List[columns.size()];
+        dateColumn = new boolean[columns.size()];
+        for (int i = 0; i < values.length; i++) {
+            DataColumn column = columns.get(i);
+            values[i] = new ArrayList<>(Math.max(expectedRows, 0));
+            dateColumn[i] = ColumnType.DATE.equals(column.getColumnType());
+            column.setValues(values[i]);
+            dataSet.addColumn(column);
+        }
+    }
+
+    /**
+     * Copies given rows into the columns, the list itself is left untouched
+     */
+    public KieServerDataSetBuilder append(final List<List> rows) {
+        if (rows == null || rows.isEmpty()) {
+            return this;
+        }
+        for (List columnValues : values) {
+            ((ArrayList) columnValues).ensureCapacity(rowCount + rows.size());
+        }
+
+        for (List<Object> row : rows) {
+            final int cells = Math.min(row.size(), values.length);
+            for (int i = 0; i < cells; i++) {
+                final Object value = row.get(i);
+                values[i].add(dateColumn[i] && value instanceof Number ? new Date(((Number) value).longValue()) : value);
+            }
+            rowCount++;
+        }
+        return this;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public DataSet build() {
+        // total number of rows is set by the caller when it is known
+        dataSet.setRowCountNonTrimmed(rowCount);
+        return dataSet;
+    }
+}
@@ -16,10 +16,21 @@
 
 package org.jbpm.workbench.ks.integration;
 
-import java.util.Iterator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
+import javax.annotation.PreDestroy;
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.event.Event;
 import javax.enterprise.event.Observes;
@@ -30,10 +41,10 @@ import org.dashbuilder.dataset.def.DataSetDefRegistry;
 import org.dashbuilder.dataset.def.SQLDataSetDef;
 import org.jbpm.workbench.ks.events.KieServerDataSetRegistered;
 import org.jbpm.workbench.ks.integration.event.ServerInstanceRegistered;
-import org.kie.server.api.exception.KieServicesException;
 import org.kie.server.api.model.definition.QueryDefinition;
+import org.kie.server.client.KieServicesClient;
 import org.kie.server.client.QueryServicesClient;
-import org.kie.server.common.rest.KieServerHttpRequestException;
+import org.kie.server.client.impl.AbstractKieServicesClientImpl;
 import org.kie.server.controller.api.model.runtime.ServerInstance;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -42,25 +53,58 @@ import org.uberfire.commons.async.SimpleAsyncExecutorService;
 @ApplicationScoped
 public class KieServerDataSetManager {
 
+    public static final String REGISTRATION_TIMEOUT = "org.jbpm.wb.dataset.registration.timeout";
+    public static final String REGISTRATION_BACKOFF = "org.jbpm.wb.dataset.registration.backoff";
+    public static final String REGISTRATION_MAX_BACKOFF = "org.jbpm.wb.dataset.registration.backoff.max";
+
     private static final Logger LOGGER = LoggerFactory.getLogger(KieServerDataSetManager.class);
 
+    private static final int QUERIES_PAGE_SIZE = 100;
+
     private DataSetDefRegistry dataSetDefRegistry;
 
     private KieServerIntegration kieServerIntegration;
 
     private Event<KieServerDataSetRegistered> event;
 
+    private final long timeout;
+
+    private final long backoff;
+
+    private final long maxBackoff;
+
+    private ScheduledExecutorService scheduler;
+
     @Inject
     public KieServerDataSetManager(DataSetDefRegistry dataSetDefRegistry, KieServerIntegration kieServerIntegration, Event<KieServerDataSetRegistered> event) {
+        this(dataSetDefRegistry,
+             kieServerIntegration,
+             event,
+             Long.parseLong(System.getProperty(REGISTRATION_TIMEOUT, "300000")),
+             Long.parseLong(System.getProperty(REGISTRATION_BACKOFF, "500")),
+             Long.parseLong(System.getProperty(REGISTRATION_MAX_BACKOFF, "30000")));
+    }
+
+    /**
+     * @param timeout time in milliseconds after which failing registrations are given up
+     * @param backoff delay in milliseconds before the first retry
+     * @param maxBackoff max delay in milliseconds between retries
+     */
+    public KieServerDataSetManager(DataSetDefRegistry dataSetDefRegistry, KieServerIntegration kieServerIntegration, Event<KieServerDataSetRegistered> event,
+                                   long timeout, long backoff, long maxBackoff) {
         this.dataSetDefRegistry = dataSetDefRegistry;
         this.kieServerIntegration = kieServerIntegration;
         this.event = event;
+        this.timeout = timeout;
+        this.backoff = Math.max(1, backoff);
+        this.maxBackoff = Math.max(this.backoff, maxBackoff);
     }
 
     public void registerInKieServer(@Observes final ServerInstanceRegistered serverInstanceRegistered) {
         final ServerInstance serverInstance = serverInstanceRegistered.getServerInstance();
         final String serverInstanceId = serverInstance.getServerInstanceId();
         final String serverTemplateId = serverInstance.getServerTemplateId();
+        final String serverInstanceUrl = serverInstance.getUrl();
         LOGGER.info("Server instance '{}' connected, registering data sets", serverInstanceId);
 
         final List<DataSetDef> dataSetDefs = dataSetDefRegistry.getDataSetDefs(false);
@@ -71,7 +115,7 @@ public class KieServerDataSetManager {
             return;
         }
 
-        SimpleAsyncExecutorService.getDefaultInstance().execute(() -> {
+        getExecutor().execute(() -> {
             try {
                 LOGGER.debug("Registering data set definitions on connected server instance '{}'", serverInstanceId);
 
@@ -83,47 +127,209 @@ public class KieServerDataSetManager {
                                                                 .name(dataSetDef.getUUID())
                                                                 .expression(((SQLDataSetDef) dataSetDef).getDbSQL())
                                                                 .source(((SQLDataSetDef) dataSetDef).getDataSource())
-                                                                .target(dataSetDef.getName().contains("-") ? dataSetDef.getName().substring(0, dataSetDef.getName().indexOf("-")) : "CUSTOM")
+                                                                .target(getQueryTarget(dataSetDef))
                                                                 .build()
                                         ).collect(Collectors.toSet());
 
-                registerQueriesWithRetry(serverTemplateId, serverInstanceId, queryDefinitions);
+                registerQueriesWithRetry(serverTemplateId, serverInstanceId, serverInstanceUrl, queryDefinitions);
             } catch (Exception e) {
                 LOGGER.warn("Unable to register query definition on '{}' due to {}", serverInstanceId, e.getMessage(), e);
             }
         });
     }
 
-    protected void registerQueriesWithRetry(String serverTemplateId, String serverInstanceId, Set<QueryDefinition> queryDefinitions) throws Exception {
-        long waitLimit = 5 * 60 * 1000;   // default 5 min
-        long elapsed = 0;
+    /**
+     * Registers on the connected server instance the query definitions that are missing or differ from the ones it
+     * already has. Definitions are read and pushed through a client bound to that instance, as other instances of
+     * the template might keep their own query store. Definitions are pushed in parallel and the ones that fail are
+     * retried with exponential backoff until the registration timeout elapses.
+     * @return completed once every definition is registered or the registration is given up
+     */
+    protected CompletableFuture<Void> registerQueriesWithRetry(String serverTemplateId, String serverInstanceId, String serverInstanceUrl, Set<QueryDefinition> queryDefinitions) {
+        final Registration registration = new Registration(serverTemplateId, serverInstanceId, serverInstanceUrl, queryDefinitions);
+        registration.result.whenComplete((r, error) -> registration.closeClient());
+        registration.attempt();
+        return registration.result;
+    }
+
+    /**
+     * @return fingerprints of the query definitions registered on the server, by name
+     */
+    protected Map<String, String> getRegisteredQueries(QueryServicesClient queryClient) {
+        final Map<String, String> registered = new HashMap<>();
+        for (int page = 0; ; page++) {
+            final List<QueryDefinition> definitions = queryClient.getQueries(page, QUERIES_PAGE_SIZE);
+            if (definitions == null) {
+                break;
+            }
+            definitions.forEach(definition -> registered.put(definition.getName(), fingerprint(definition)));
+            if (definitions.size() < QUERIES_PAGE_SIZE) {
+                break;
+            }
+        }
+        return registered;
+    }
+
+    protected static String fingerprint(QueryDefinition definition) {
+        return String.join("\u0000",
+                           String.valueOf(definition.getSource()),
+                           String.valueOf(definition.getTarget()),
+                           definition.getExpression() == null ? "null" : definition.getExpression().trim());
+    }
+
+    /**
+     * @return delay in milliseconds before the given retry, doubled on every retry up to the max backoff, with
+     * half of it randomized so that registrations on several servers do not retry in lockstep
+     */
+    protected long nextDelay(int retry) {
+        final long delay = Math.min(maxBackoff, backoff << Math.min(retry, 30));
+        return delay / 2 + (long) (ThreadLocalRandom.current().nextDouble() * (delay - delay / 2));
+    }
+
+    /**
+     * Returns the kie server query target of given data set, encoded as prefix of its name, e.g. PO_TASK-Tasks
+     */
+    public static String getQueryTarget(final DataSetDef dataSetDef) {
+        final String name = dataSetDef.getName();
+        return name != null && name.contains("-") ? name.substring(0, name.indexOf("-")) : "CUSTOM";
+    }
+
+    /**
+     * Checks whether kie server filters rows of given data set by the user who runs the query
+     */
+    public static boolean isUserScoped(final DataSetDef dataSetDef) {
+        final String target = getQueryTarget(dataSetDef);
+        return target.startsWith("FILTERED_") || "PO_TASK".equals(target) || "BA_TASK".equals(target);
+    }
 
-        QueryServicesClient queryClient = kieServerIntegration.getAdminServerClient(serverTemplateId).getServicesClient(QueryServicesClient.class);
+    protected Executor getExecutor() {
+        return SimpleAsyncExecutorService.getDefaultInstance();
+    }
 
-        while (elapsed < waitLimit) {
+    protected synchronized ScheduledExecutorService getScheduler() {
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "kie-server-dataset-registration");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return scheduler;
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    protected class Registration {
+
+        private final String serverTemplateId;
+        private final String serverInstanceId;
+        private final String serverInstanceUrl;
+        private final Set<QueryDefinition> pending = ConcurrentHashMap.newKeySet();
+        private final long started = System.currentTimeMillis();
+        private final CompletableFuture<Void> result = new CompletableFuture<>();
+        private int retries;
+        private volatile KieServicesClient client;
+
+        protected Registration(String serverTemplateId, String serverInstanceId, String serverInstanceUrl, Set<QueryDefinition> queryDefinitions) {
+            this.serverTemplateId = serverTemplateId;
+            this.serverInstanceId = serverInstanceId;
+            this.serverInstanceUrl = serverInstanceUrl;
+            this.pending.addAll(queryDefinitions);
+        }
+
+        /**
+         * Every attempt uses a new client, as the instance is marked as failed on the previous one when unreachable
+         */
+        protected QueryServicesClient newQueryClient() {
+            closeClient();
+            client = kieServerIntegration.createAdminServerInstanceClient(serverTemplateId, serverInstanceUrl);
+            if (client == null) {
+                throw new IllegalStateException("No server template " + serverTemplateId);
+            }
+            return client.getServicesClient(QueryServicesClient.class);
+        }
+
+        protected void closeClient() {
+            final KieServicesClient previous = client;
+            client = null;
+            if (previous instanceof AbstractKieServicesClientImpl) {
+                ((AbstractKieServicesClientImpl) previous).getLoadBalancer().close();
+            }
+        }
+
+        /**
+         * Failures of any kind are retried until the registration timeout, the instance might still be booting
+         */
+        protected void attempt() {
             try {
-                Iterator<QueryDefinition> definitionIt = queryDefinitions.iterator();
+                final QueryServicesClient queryClient = newQueryClient();
+                final Map<String, String> registered = getRegisteredQueries(queryClient);
 
-                while (definitionIt.hasNext()) {
-                    QueryDefinition definition = definitionIt.next();
-                    queryClient.replaceQuery(definition);
-                    LOGGER.info("Query definition {} (type {}) successfully registered on kie server '{}'", definition.getName(), definition.getTarget(), serverInstanceId);
-                    // remove successfully stored definition to avoid duplicated reads in case of intermediate error
-                    definitionIt.remove();
-                }
+                pending.removeIf(definition -> {
+                    if (fingerprint(definition).equals(registered.get(definition.getName()))) {
+                        LOGGER.debug("Query definition {} already registered on kie server '{}'", definition.getName(), serverInstanceId);
+                        return true;
+                    }
+                    return false;
+                });
 
-                event.fire(new KieServerDataSetRegistered(serverInstanceId, serverTemplateId));
+                final AtomicReference<Exception> lastError = new AtomicReference<>();
+                final CompletableFuture<?>[] replacements = pending.stream()
+                        .map(definition -> CompletableFuture.runAsync(() -> {
+                            try {
+                                queryClient.replaceQuery(definition);
+                                LOGGER.info("Query definition {} (type {}) successfully registered on kie server '{}'", definition.getName(), definition.getTarget(), serverInstanceId);
+                                // remove successfully stored definition to avoid duplicated reads in case of intermediate error
+                                pending.remove(definition);
+                            } catch (Exception e) {
+                                lastError.set(e);
+                            }
+                        }, getExecutor()))
+                        .toArray(CompletableFuture<?>[]::new);
+
+                CompletableFuture.allOf(replacements).whenComplete((r, error) -> {
+                    if (error != null) {
+                        fail(error.getCause() != null ? error.getCause() : error);
+                    } else if (pending.isEmpty()) {
+                        event.fire(new KieServerDataSetRegistered(serverInstanceId, serverTemplateId));
+                        result.complete(null);
+                    } else {
+                        retry(lastError.get());
+                    }
+                });
+            } catch (Exception e) {
+                retry(e);
+            }
+        }
+
+        protected void retry(Exception error) {
+            // unable to register, might still be booting
+            final long elapsed = System.currentTimeMillis() - started;
+            if (elapsed >= timeout) {
+                LOGGER.warn("Timeout while trying to register query definitions on '{}'", serverInstanceId);
+                result.complete(null);
                 return;
-            } catch (KieServicesException | KieServerHttpRequestException e) {
-                // unable to register, might still be booting
-                Thread.sleep(500);
-                elapsed += 500;
-                // get admin client with forced check of endpoints as they might have been banned (marked as failed)
-                queryClient = kieServerIntegration.getAdminServerClientCheckEndpoints(serverTemplateId).getServicesClient(QueryServicesClient.class);
-                LOGGER.debug("Cannot reach KIE Server, elapsed time while waiting '{}', max time '{}' error {}", elapsed, waitLimit, e.getMessage());
+            }
+            final long delay = nextDelay(retries++);
+            LOGGER.debug("Cannot reach KIE Server, elapsed time while waiting '{}', max time '{}', retrying in {} ms, error {}", elapsed, timeout, delay, error == null ? null : error.getMessage());
+            try {
+                getScheduler().schedule(() -> getExecutor().execute(this::attempt),
+                                        delay,
+                                        TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                fail(e);
             }
         }
 
-        LOGGER.warn("Timeout while trying to register query definitions on '{}'", serverInstanceId);
+        protected void fail(Throwable error) {
+            LOGGER.warn("Unable to register query definition on '{}' due to {}", serverInstanceId, error.getMessage(), error);
+            result.completeExceptionally(error);
+        }
     }
 }
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jbpm.workbench.ks.integration;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.dashbuilder.dataset.ColumnType;
+import org.dashbuilder.dataset.DataSet;
+import org.dashbuilder.dataset.DataSetFactory;
+import org.dashbuilder.dataset.def.DataColumnDef;
+import org.dashbuilder.dataset.def.DataSetDef;
+import org.dashbuilder.dataset.impl.DataColumnImpl;
+
+/**
+ * Pivots raw name/value query rows into one row per key with a label column for every distinct name, e.g. task
+ * variables into one row per task. Rows can be appended in several chunks, keys are kept in the order they are
+ * first seen so the query sort order is preserved.
+ */
+public class KieServerDataSetPivot {
+
+    private final DataSetDef def;
+    private final String keyColumnId;
+    private final ColumnType keyColumnType;
+    private final int keyIndex;
+    private final int nameIndex;
+    private final int valueIndex;
+    private final Map<Object, Map<String, Object>> rows = new LinkedHashMap<>();
+
+    public KieServerDataSetPivot(final DataSetDef def, final String keyColumnId, final String nameColumnId, final String valueColumnId) {
+        this.def = def;
+        this.keyColumnId = keyColumnId;
+        this.keyIndex = indexOf(def, keyColumnId);
+        this.nameIndex = indexOf(def, nameColumnId);
+        this.valueIndex = indexOf(def, valueColumnId);
+        this.keyColumnType = def.getColumns().get(keyIndex).getColumnType();
+    }
+
+    protected static int indexOf(final DataSetDef def, final String columnId) {
+        final List<DataColumnDef> columns = def.getColumns();
+        for (int i = 0; i < columns.size(); i++) {
+            if (columns.get(i).getId().equals(columnId)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Column '" + columnId + "' not found in data set " + def.getUUID());
+    }
+
+    public KieServerDataSetPivot append(final List<List> chunk) {
+        if (chunk == null) {
+            return this;
+        }
+        for (List row : chunk) {
+            final Object key = row.get(keyIndex);
+            final Object name = row.get(nameIndex);
+            Map<String, Object> values = rows.get(key);
+            if (values == null) {
+                values = new HashMap<>();
+                rows.put(key, values);
+            }
+            // name of the key column cannot be reused by a pivoted column
+            if (name == null || keyColumnId.equals(name.toString())) {
+                continue;
+            }
+            values.put(name.toString(), row.get(valueIndex));
+        }
+        return this;
+    }
+
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    /**
+     * Builds data set of the pivoted rows starting at given offset, all remaining rows are returned when
+     * number of rows is not positive.
+     */
+    public DataSet build(final int offset, final int numberOfRows) {
+        final int from = Math.min(Math.max(offset, 0), rows.size());
+        final int to = numberOfRows > 0 ? Math.min(rows.size(), from + numberOfRows) : rows.size();
+
+        final List<Object> keys = new ArrayList<>(rows.keySet()).subList(from, to);
+        final DataSet dataSet = DataSetFactory.newEmptyDataSet();
+        dataSet.setUUID(def.getUUID());
+
+        final DataColumnImpl keyColumn = new DataColumnImpl(keyColumnId, keyColumnType);
+        keyColumn.setValues(new ArrayList<>(keys));
+        dataSet.addColumn(keyColumn);
+
+        // only names present in the returned rows become columns
+        final TreeSet<String> names = new TreeSet<>();
+        for (Object key : keys) {
+            names.addAll(rows.get(key).keySet());
+        }
+        for (String name : names) {
+            final List<Object> values = new ArrayList<>(keys.size());
+            for (Object key : keys) {
+                values.add(rows.get(key).get(name));
+            }
+            final DataColumnImpl column = new DataColumnImpl(name, ColumnType.LABEL);
+            column.setValues(values);
+            dataSet.addColumn(column);
+        }
+
+        dataSet.setRowCountNonTrimmed(rows.size());
+        return dataSet;
+    }
+}
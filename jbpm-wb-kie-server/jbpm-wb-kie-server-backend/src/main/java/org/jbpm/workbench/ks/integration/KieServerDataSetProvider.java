@@ -18,8 +18,20 @@ package org.jbpm.workbench.ks.integration;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
 
 import org.dashbuilder.dataprovider.DataSetProvider;
 import org.dashbuilder.dataprovider.DataSetProviderType;
@@ -32,24 +44,20 @@ import org.dashbuilder.dataset.DataSetMetadata;
 import org.dashbuilder.dataset.def.DataColumnDef;
 import org.dashbuilder.dataset.def.DataSetDef;
 import org.dashbuilder.dataset.filter.ColumnFilter;
-import org.dashbuilder.dataset.filter.CoreFunctionFilter;
-import org.dashbuilder.dataset.filter.DataSetFilter;
 import org.dashbuilder.dataset.filter.FilterFactory;
-import org.dashbuilder.dataset.filter.LogicalExprFilter;
-import org.dashbuilder.dataset.group.ColumnGroup;
 import org.dashbuilder.dataset.group.DataSetGroup;
-import org.dashbuilder.dataset.group.GroupFunction;
-import org.dashbuilder.dataset.group.Interval;
 import org.dashbuilder.dataset.impl.DataColumnImpl;
 import org.dashbuilder.dataset.impl.DataSetMetadataImpl;
 import org.dashbuilder.dataset.sort.ColumnSort;
 import org.dashbuilder.dataset.sort.DataSetSort;
 import org.dashbuilder.dataset.sort.SortOrder;
+import org.kie.internal.identity.IdentityProvider;
 import org.kie.server.api.model.definition.QueryFilterSpec;
 import org.kie.server.api.model.definition.QueryParam;
 import org.kie.server.client.QueryServicesClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.uberfire.commons.async.SimpleAsyncExecutorService;
 
 @ApplicationScoped
 public class KieServerDataSetProvider extends AbstractKieServerService implements DataSetProvider {
@@ -58,6 +66,41 @@ public class KieServerDataSetProvider extends AbstractKieServerService implement
 
     public static final DataSetProviderType TYPE = new KieServerDataSetProviderType();
 
+    public static final String COUNT_EXACT = "org.jbpm.wb.dataset.count.exact";
+
+    public static final String FETCH_SIZE = "org.jbpm.wb.dataset.fetch.size";
+
+    public static final String FEDERATED_TIMEOUT = "org.jbpm.wb.dataset.federated.timeout";
+
+    public static final String FEDERATED_MAX_CONCURRENT = "org.jbpm.wb.dataset.federated.max.concurrent";
+
+    public static final String KEYSET_COLUMNS = "org.jbpm.wb.dataset.keyset.columns";
+
+    /**
+     * Data set definition property naming the column that identifies its rows, required to read unbounded
+     * lookups in chunks
+     */
+    public static final String UNIQUE_COLUMN = "kieServerUniqueColumn";
+
+    private static final String DEFAULT_KEYSET_COLUMNS = "processInstanceId,start_date,taskId,createdOn,id,timestamp";
+
+    @Inject
+    private KieServerQueryCache queryCache;
+
+    @Inject
+    private KieServerQueryCoalescer queryCoalescer;
+
+    @Inject
+    private KieServerQueryPlanCompiler planCompiler;
+
+    @Inject
+    private KieServerDataSetWatermarks watermarks;
+
+    @Inject
+    private IdentityProvider identityProvider;
+
+    private Semaphore federatedLookups;
+
     @Override
     public DataSetProviderType getType() {
         return TYPE;
@@ -83,182 +126,473 @@ public class KieServerDataSetProvider extends AbstractKieServerService implement
             throw new IllegalArgumentException("DataSetLookup is of incorrect type " + lookup.getClass().getName());
         }
         ConsoleDataSetLookup dataSetLookup = (ConsoleDataSetLookup) lookup;
+        // kie server filters these rows by the caller, so they are cached per user
+        final String identity = KieServerDataSetManager.isUserScoped(def) ? identityProvider.getName() : null;
+        if (dataSetLookup.isFederated()) {
+            return lookupFederatedDataSet(def, dataSetLookup, identity);
+        }
+        return lookupDataSet(def, dataSetLookup, identity);
+    }
+
+    protected DataSet lookupDataSet(DataSetDef def, ConsoleDataSetLookup dataSetLookup, String identity) throws Exception {
         LOGGER.debug("Data Set lookup using Server Template Id: {}", dataSetLookup.getServerTemplateId());
         if (dataSetLookup.getServerTemplateId() == null || dataSetLookup.getServerTemplateId().isEmpty()) {
             return buildDataSet(def, new ArrayList<>(), new ArrayList<>());
         }
 
-        final QueryServicesClient queryClient = getClient(dataSetLookup.getServerTemplateId(), QueryServicesClient.class);
-
-        List<QueryParam> filterParams = new ArrayList<>();
-        QueryFilterSpec filterSpec = new QueryFilterSpec();
-        // apply filtering
-
-        for (DataSetFilter filter : dataSetLookup.getOperationList(DataSetFilter.class)) {
-            if (filter != null) {
+        final KieServerQueryPlan basePlan = planCompiler.compile(dataSetLookup);
+        final KieServerQueryPlan plan = dataSetLookup.isKeysetPagination() ? appendKeysetCondition(dataSetLookup, basePlan) : basePlan;
+        final QueryFilterSpec filterSpec = plan.toFilterSpec();
+
+        final KieServerQueryCache.Key queryKey = new KieServerQueryCache.Key(dataSetLookup.getServerTemplateId(),
+                                                                             dataSetLookup.getDataSetUUID(),
+                                                                             plan,
+                                                                             dataSetLookup.getRowOffset(),
+                                                                             dataSetLookup.getNumberOfRows()).withIdentity(identity);
+        final KieServerQueryCache.Key cacheKey = dataSetLookup.isPivoted() ? queryKey.withVariant(getPivotVariant(dataSetLookup)) : queryKey;
+        final DataSet cached = queryCache.get(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
 
-                for (ColumnFilter cFilter : filter.getColumnFilterList()) {
-                    if (cFilter instanceof CoreFunctionFilter) {
+        final boolean tracked = watermarks.isTracked(def) && queryCache.isEnabled(dataSetLookup.getDataSetUUID());
+        if (tracked && queryCache.hasEntry(cacheKey)) {
+            // expired entry is still valid as long as the data set did not change
+            final DataSet revalidated = queryCache.revalidate(cacheKey, pollWatermark(def, dataSetLookup.getServerTemplateId()));
+            if (revalidated != null) {
+                return revalidated;
+            }
+        }
 
-                        CoreFunctionFilter coreFunctionFilter = (CoreFunctionFilter) cFilter;
+        // concurrent lookups of the same page share single remote call
+        return queryCoalescer.execute(cacheKey, () -> {
+            // generation and watermark must be observed before the query so that the data set is never older than them
+            final long generation = queryCache.getGeneration(dataSetLookup.getServerTemplateId());
+            final KieServerDataSetWatermarks.Watermark watermark = tracked ? pollWatermark(def, dataSetLookup.getServerTemplateId()) : null;
+            final DataSet dataSet = dataSetLookup.isPivoted() ?
+                    queryPivotedDataSet(def, dataSetLookup, filterSpec) :
+                    queryDataSet(def, dataSetLookup, filterSpec, plan.newExtraColumns(), basePlan.isGrouped() ? null : basePlan, identity);
+            queryCache.put(cacheKey, dataSet, watermark, generation);
+            return dataSet;
+        });
+    }
 
-                        filterParams.add(new QueryParam(coreFunctionFilter.getColumnId(), coreFunctionFilter.getType().toString(), coreFunctionFilter.getParameters()));
-                    } else if (cFilter instanceof LogicalExprFilter) {
-                        LogicalExprFilter logicalExprFilter = (LogicalExprFilter) cFilter;
-                        filterParams.add(new QueryParam(logicalExprFilter.getColumnId(), logicalExprFilter.getLogicalOperator().toString(), logicalExprFilter.getLogicalTerms()));
+    protected KieServerDataSetWatermarks.Watermark pollWatermark(DataSetDef def, String serverTemplateId) {
+        return watermarks.getWatermark(getClient(serverTemplateId, QueryServicesClient.class), serverTemplateId, def);
+    }
 
+    /**
+     * Executes the lookup against every federated server template in parallel and merges the sorted results.
+     * Every template is asked for the rows up to the end of the requested page, templates that fail or do not
+     * respond within {@link #FEDERATED_TIMEOUT} are left out so that the others can still be listed. Lookups run
+     * with credentials captured on the calling thread.
+     * <p>
+     * A template left out after the timeout is not abandoned: its remote call keeps running on the executor until
+     * it answers or hits the client timeout. Template lookups in flight across all callers are therefore limited
+     * to {@link #FEDERATED_MAX_CONCURRENT}, templates that cannot start before the timeout are left out as well.
+     */
+    protected DataSet lookupFederatedDataSet(DataSetDef def, ConsoleDataSetLookup dataSetLookup, String identity) throws Exception {
+        final int offset = Math.max(dataSetLookup.getRowOffset(), 0);
+        final int numberOfRows = dataSetLookup.getNumberOfRows();
+        final Map<String, CompletableFuture<DataSet>> lookups = new LinkedHashMap<>();
+        final long deadline = System.currentTimeMillis() + getFederatedTimeout();
+        final Semaphore permits = getFederatedLookups();
+
+        for (String serverTemplateId : dataSetLookup.getFederatedServerTemplateIds()) {
+            if (!permits.tryAcquire(Math.max(deadline - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS)) {
+                LOGGER.warn("Too many federated lookups in progress, leaving server template '{}' out of data set {} results", serverTemplateId, def.getUUID());
+                continue;
+            }
+            final ConsoleDataSetLookup templateLookup = (ConsoleDataSetLookup) dataSetLookup.cloneInstance();
+            templateLookup.setFederatedServerTemplateIds(null);
+            templateLookup.setServerTemplateId(serverTemplateId);
+            templateLookup.clearKeyset();
+            templateLookup.setRowOffset(0);
+            templateLookup.setNumberOfRows(numberOfRows > 0 ? offset + numberOfRows : numberOfRows);
+
+            // worker threads have no security context of their own
+            try {
+                lookups.put(serverTemplateId, CompletableFuture.supplyAsync(withCallerCredentials(() -> {
+                    try {
+                        return lookupDataSet(def, templateLookup, identity);
+                    } catch (Exception e) {
+                        throw new CompletionException(e);
+                    } finally {
+                        permits.release();
                     }
-                }
+                }), getExecutor()));
+            } catch (RejectedExecutionException e) {
+                permits.release();
+                throw e;
             }
         }
-        List<DataColumn> extraColumns = new ArrayList<DataColumn>();
 
-        List<DataSetGroup> dataSetGroups = lookup.getFirstGroupOpSelections();
-        for (DataSetGroup group : dataSetGroups) {
-            if (group.getSelectedIntervalList()!=null && group.getSelectedIntervalList().size()>0) {
-                appendIntervalSelection(group, filterParams);
+        final Map<String, DataSet> dataSets = new LinkedHashMap<>();
+        Exception error = null;
+        for (Map.Entry<String, CompletableFuture<DataSet>> templateLookup : lookups.entrySet()) {
+            try {
+                dataSets.put(templateLookup.getKey(), templateLookup.getValue().get(Math.max(deadline - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS));
+            } catch (TimeoutException e) {
+                // only stops waiting, the remote call goes on until it completes
+                templateLookup.getValue().cancel(false);
+                LOGGER.warn("Server template '{}' did not respond in time, leaving it out of data set {} results", templateLookup.getKey(), def.getUUID());
+            } catch (ExecutionException e) {
+                error = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                LOGGER.warn("Unable to query server template '{}' for data set {} due to {}", templateLookup.getKey(), def.getUUID(), error.getMessage());
             }
         }
+        if (dataSets.isEmpty() && error != null) {
+            throw error;
+        }
 
-        DataSetGroup dataSetGroup = dataSetLookup.getLastGroupOp();
-        if (dataSetGroup != null) {
-            if (dataSetGroup.getColumnGroup() != null) {
-                // handle group
-                filterParams.add(new QueryParam(dataSetGroup.getColumnGroup().getSourceId(), "group", Arrays.asList(dataSetGroup.getColumnGroup().getColumnId())));
+        return mergeDataSets(def, dataSetLookup, dataSets);
+    }
+
+    /**
+     * K-way merge of per template results following the first sort column of the lookup, results are simply
+     * concatenated when the lookup is not sorted. Every row is tagged with its server template.
+     */
+    protected DataSet mergeDataSets(DataSetDef def, ConsoleDataSetLookup dataSetLookup, Map<String, DataSet> dataSets) throws Exception {
+        final DataSet merged = DataSetFactory.newEmptyDataSet();
+        merged.setUUID(def.getUUID());
+        merged.setDefinition(def);
+
+        final List<DataColumn> columns = dataSets.isEmpty() ? buildDataSet(def, new ArrayList<>(), null).getColumns() : dataSets.values().iterator().next().getColumns();
+        for (DataColumn column : columns) {
+            merged.addColumn(column.cloneEmpty());
+        }
+        final DataColumn templateColumn = new DataColumnImpl(ConsoleDataSetLookup.COLUMN_SERVER_TEMPLATE_ID, ColumnType.LABEL);
+        merged.addColumn(templateColumn);
+
+        final DataSetSort sort = dataSetLookup.getFirstSortOp();
+        final ColumnSort columnSort = sort == null || sort.getColumnSortList().isEmpty() ? null : sort.getColumnSortList().get(0);
+        final int sortColumn = columnSort == null ? -1 : indexOf(columns, columnSort.getColumnId());
+        final boolean ascending = columnSort == null || !SortOrder.DESCENDING.equals(columnSort.getOrder());
+
+        final List<String> serverTemplateIds = new ArrayList<>(dataSets.keySet());
+        final int[] positions = new int[serverTemplateIds.size()];
+        final PriorityQueue<Integer> heads = new PriorityQueue<>(Math.max(serverTemplateIds.size(), 1), (i1, i2) -> {
+            int result = sortColumn < 0 ? 0 : compareValues(dataSets.get(serverTemplateIds.get(i1)).getValueAt(positions[i1], sortColumn),
+                                                            dataSets.get(serverTemplateIds.get(i2)).getValueAt(positions[i2], sortColumn),
+                                                            ascending);
+            return result != 0 ? result : Integer.compare(i1, i2);
+        });
+        long total = 0;
+        for (int i = 0; i < serverTemplateIds.size(); i++) {
+            final DataSet dataSet = dataSets.get(serverTemplateIds.get(i));
+            total += dataSet.getRowCountNonTrimmed();
+            if (dataSet.getRowCount() > 0) {
+                heads.add(i);
             }
+        }
 
-            // handle additional columns
-            for (GroupFunction groupFunction : dataSetGroup.getGroupFunctions()) {
-                if (groupFunction.getFunction() != null) {
-                    filterParams.add(new QueryParam(groupFunction.getSourceId(), groupFunction.getFunction().toString(), Arrays.asList(groupFunction.getColumnId())));
-                    extraColumns.add(new DataColumnImpl(groupFunction.getSourceId(), ColumnType.NUMBER));
-                } else {
-                    filterParams.add(new QueryParam(groupFunction.getSourceId(), null, Arrays.asList(groupFunction.getColumnId())));
-                    extraColumns.add(new DataColumnImpl(groupFunction.getSourceId(), ColumnType.LABEL));
+        final int offset = Math.max(dataSetLookup.getRowOffset(), 0);
+        final int numberOfRows = dataSetLookup.getNumberOfRows();
+        int row = 0;
+        while (!heads.isEmpty() && (numberOfRows <= 0 || row < offset + numberOfRows)) {
+            final int index = heads.poll();
+            final DataSet dataSet = dataSets.get(serverTemplateIds.get(index));
+            if (row >= offset) {
+                for (int column = 0; column < columns.size(); column++) {
+                    merged.getColumnByIndex(column).getValues().add(dataSet.getValueAt(positions[index], column));
                 }
+                templateColumn.getValues().add(serverTemplateIds.get(index));
+            }
+            row++;
+            if (++positions[index] < dataSet.getRowCount()) {
+                heads.add(index);
+            }
+        }
 
+        merged.setRowCountNonTrimmed((int) Math.max(total, merged.getRowCount()));
+        return merged;
+    }
+
+    protected int indexOf(List<DataColumn> columns, String columnId) {
+        for (int i = 0; i < columns.size(); i++) {
+            if (columns.get(i).getId().equalsIgnoreCase(columnId)) {
+                return i;
             }
+        }
+        return -1;
+    }
 
+    protected int compareValues(Object value1, Object value2, boolean ascending) {
+        // nulls always go last
+        if (value1 == null || value2 == null) {
+            return value1 == value2 ? 0 : (value1 == null ? 1 : -1);
         }
+        final int result = ((Comparable) value1).compareTo(value2);
+        return ascending ? result : -result;
+    }
+
+    protected Executor getExecutor() {
+        return SimpleAsyncExecutorService.getDefaultInstance();
+    }
+
+    protected long getFederatedTimeout() {
+        return Long.parseLong(System.getProperty(FEDERATED_TIMEOUT, "10000"));
+    }
 
-        if (!filterParams.isEmpty()) {
-            filterSpec.setParameters(filterParams.toArray(new QueryParam[filterParams.size()]));
+    protected synchronized Semaphore getFederatedLookups() {
+        if (federatedLookups == null) {
+            federatedLookups = new Semaphore(Math.max(1, Integer.parseInt(System.getProperty(FEDERATED_MAX_CONCURRENT, "10"))));
         }
+        return federatedLookups;
+    }
 
-        // apply sorting
-        DataSetSort sort = dataSetLookup.getFirstSortOp();
-        if (sort != null) {
-            SortOrder sortOrder = SortOrder.UNSPECIFIED;
-            StringBuilder orderBy = new StringBuilder();
-            for (ColumnSort cSort : sort.getColumnSortList()) {
-                orderBy.append(cSort.getColumnId()).append(",");
-                sortOrder = cSort.getOrder();
-            }
-            // remove last ,
-            orderBy.deleteCharAt(orderBy.length()-1);
+    protected DataSet queryDataSet(DataSetDef def, ConsoleDataSetLookup dataSetLookup, QueryFilterSpec filterSpec, List<DataColumn> extraColumns, KieServerQueryPlan countedPlan, String identity) throws Exception {
+        final QueryServicesClient queryClient = getClient(dataSetLookup.getServerTemplateId(), QueryServicesClient.class);
+        final DataSet dataSet;
+        // counted plan is missing only for grouped lookups, which kie server would group chunk by chunk
+        if (dataSetLookup.getNumberOfRows() <= 0 && countedPlan != null && isChunked(def)) {
+            dataSet = queryAllRows(queryClient, def, dataSetLookup, withUniqueOrder(def, filterSpec), extraColumns);
+        } else {
+            dataSet = buildDataSet(def, queryRows(queryClient, dataSetLookup, filterSpec), extraColumns);
+        }
+        final int pageRowCount = dataSet.getRowCount();
+        LOGGER.debug("Query client returned {} row(s)", pageRowCount);
 
-            filterSpec.setOrderBy(orderBy.toString());
-            filterSpec.setAscending(sortOrder.equals(SortOrder.ASCENDING));
+        if (countedPlan != null) {
+            dataSet.setRowCountNonTrimmed(countRows(queryClient, def, dataSetLookup, countedPlan, pageRowCount, identity));
         }
-        final List<List> instances = queryClient.query(
-                    dataSetLookup.getDataSetUUID(),
-                    QueryServicesClient.QUERY_MAP_RAW,
-                    filterSpec,
-                    dataSetLookup.getRowOffset() / dataSetLookup.getNumberOfRows(),
-                    dataSetLookup.getNumberOfRows(),
-                    List.class
-            );
-        LOGGER.debug("Query client returned {} row(s)", instances.size());
-
-        return buildDataSet(def, instances, extraColumns);
+        return dataSet;
     }
 
-    @Override
-    public boolean isDataSetOutdated(DataSetDef def) {
-        return false;
+    /**
+     * Reads all raw rows matching the lookup filters and pivots them, see
+     * {@link ConsoleDataSetLookup#setPivot(String, String, String)}. Rows are read in chunks when the data set
+     * allows it, see {@link #isChunked(DataSetDef)}. Only the requested page of pivoted rows is returned, so
+     * callers are expected to filter the lookup down to the keys they display.
+     */
+    protected DataSet queryPivotedDataSet(DataSetDef def, ConsoleDataSetLookup dataSetLookup, QueryFilterSpec filterSpec) {
+        final QueryServicesClient queryClient = getClient(dataSetLookup.getServerTemplateId(), QueryServicesClient.class);
+        final KieServerDataSetPivot pivot = new KieServerDataSetPivot(def,
+                                                                      dataSetLookup.getPivotKeyColumnId(),
+                                                                      dataSetLookup.getPivotNameColumnId(),
+                                                                      dataSetLookup.getPivotValueColumnId());
+        final int fetchSize = getFetchSize();
+        if (!isChunked(def)) {
+            pivot.append(queryPage(queryClient, dataSetLookup, filterSpec, 0, -1));
+        } else {
+            final QueryFilterSpec chunkSpec = withUniqueOrder(def, filterSpec);
+            int page = 0;
+            int chunkSize;
+            do {
+                final List<List> chunk = queryPage(queryClient, dataSetLookup, chunkSpec, page++, fetchSize);
+                chunkSize = chunk.size();
+                pivot.append(chunk);
+            } while (chunkSize == fetchSize);
+        }
+        LOGGER.debug("Pivoted {} row(s) of data set {}", pivot.getRowCount(), dataSetLookup.getDataSetUUID());
+        return pivot.build(dataSetLookup.getRowOffset(), dataSetLookup.getNumberOfRows());
     }
 
-    protected DataSet buildDataSet(DataSetDef def, List<List> instances, List<DataColumn> extraColumns) throws Exception {
-        DataSet dataSet = DataSetFactory.newEmptyDataSet();
-        dataSet.setUUID(def.getUUID());
-        dataSet.setDefinition(def);
+    protected String getPivotVariant(ConsoleDataSetLookup dataSetLookup) {
+        return "pivot(" + dataSetLookup.getPivotKeyColumnId() + "," + dataSetLookup.getPivotNameColumnId() + "," + dataSetLookup.getPivotValueColumnId() + ")";
+    }
 
-        if (extraColumns != null && !extraColumns.isEmpty()) {
+    /**
+     * Returns total number of rows matching the lookup filters. It is derived from the page itself when the page
+     * is the last one, otherwise taken from the count cache or from a COUNT query that is shared by all pages
+     * of the same filters. When exact counts are disabled (see {@link #COUNT_EXACT}) or the count fails, the
+     * rows seen so far are returned which lets the grid know there might be more.
+     */
+    protected int countRows(QueryServicesClient queryClient, DataSetDef def, ConsoleDataSetLookup dataSetLookup, KieServerQueryPlan countedPlan, int pageRowCount, String identity) {
+        final int offset = dataSetLookup.getRowOffset();
+        final int numberOfRows = dataSetLookup.getNumberOfRows();
+        final int estimate = offset + pageRowCount;
+
+        if (numberOfRows <= 0 || (pageRowCount > 0 && pageRowCount < numberOfRows) || (pageRowCount == 0 && offset == 0)) {
+            return estimate;
+        }
+        if (def.getColumns() == null || def.getColumns().isEmpty() || !isExactCount(dataSetLookup.getDataSetUUID())) {
+            return estimate;
+        }
 
-            for (DataColumn extraColumn : extraColumns) {
-                dataSet.addColumn(extraColumn);
-            }
-        } else {
+        final KieServerQueryPlan countPlan = countedPlan.getCountPlan(def.getColumns().get(0).getId());
+        final QueryFilterSpec countSpec = countPlan.toFilterSpec();
+
+        final KieServerQueryCache.Key countKey = new KieServerQueryCache.Key(dataSetLookup.getServerTemplateId(),
+                                                                             dataSetLookup.getDataSetUUID(),
+                                                                             countPlan,
+                                                                             0,
+                                                                             0).withIdentity(identity);
+        final Long cached = queryCache.getCount(countKey);
+        if (cached != null) {
+            return cached.intValue();
+        }
 
-            for (DataColumnDef column : def.getColumns()) {
-                DataColumn numRows = new DataColumnImpl(column.getId(), column.getColumnType());
-                dataSet.addColumn(numRows);
+        try {
+            final long generation = queryCache.getGeneration(dataSetLookup.getServerTemplateId());
+            final List<List> result = queryPage(queryClient, dataSetLookup, countSpec, 0, 1);
+            if (result == null || result.isEmpty() || result.get(0).isEmpty() || !(result.get(0).get(0) instanceof Number)) {
+                LOGGER.debug("Count query of data set {} returned no value", dataSetLookup.getDataSetUUID());
+                return estimate;
             }
+            final long count = ((Number) result.get(0).get(0)).longValue();
+            queryCache.putCount(countKey, count, generation);
+            return (int) Math.max(count, estimate);
+        } catch (Exception e) {
+            LOGGER.warn("Unable to count rows of data set {} due to {}", dataSetLookup.getDataSetUUID(), e.getMessage());
+            return estimate;
         }
+    }
 
-        for(List<Object> row : instances ) {
+    protected boolean isExactCount(String dataSetUUID) {
+        return Boolean.parseBoolean(System.getProperty(COUNT_EXACT + "." + dataSetUUID, System.getProperty(COUNT_EXACT, "true")));
+    }
 
-            int columnIndex = 0;
-            for (Object value : row) {
-                DataColumn intervalBuilder = dataSet.getColumnByIndex(columnIndex);
-                intervalBuilder.getValues().add(value);
+    /**
+     * Reads all rows of unbounded lookups in chunks of {@link #FETCH_SIZE} rows, appending every chunk to the data
+     * set before the next one is requested, so that the complete raw response is never held in memory. The filter
+     * spec must be ordered by a unique column, see {@link #withUniqueOrder(DataSetDef, QueryFilterSpec)}.
+     */
+    protected DataSet queryAllRows(QueryServicesClient queryClient, DataSetDef def, ConsoleDataSetLookup dataSetLookup, QueryFilterSpec filterSpec, List<DataColumn> extraColumns) {
+        final int fetchSize = getFetchSize();
+        final KieServerDataSetBuilder builder = new KieServerDataSetBuilder(def, extraColumns, 0);
+        int page = 0;
+        int chunkSize;
+        do {
+            final List<List> chunk = queryPage(queryClient, dataSetLookup, filterSpec, page++, fetchSize);
+            chunkSize = chunk.size();
+            builder.append(chunk);
+        } while (chunkSize == fetchSize);
+        return builder.build();
+    }
 
-                columnIndex++;
-            }
+    /**
+     * Chunks are read page by page, which returns every row exactly once only when rows are ordered by a unique
+     * column, so data sets without {@link #UNIQUE_COLUMN} are read in a single request
+     */
+    protected boolean isChunked(DataSetDef def) {
+        return getFetchSize() > 0 && def.getProperty(UNIQUE_COLUMN) != null;
+    }
+
+    /**
+     * Returns copy of the filter spec ordered by the unique column of the data set after its own order
+     */
+    protected QueryFilterSpec withUniqueOrder(DataSetDef def, QueryFilterSpec filterSpec) {
+        final String uniqueColumnId = def.getProperty(UNIQUE_COLUMN);
+        final String orderBy = filterSpec.getOrderBy();
+        final QueryFilterSpec spec = new QueryFilterSpec();
+        spec.setParameters(filterSpec.getParameters());
+        spec.setColumnMapping(filterSpec.getColumnMapping());
+        if (orderBy == null || orderBy.isEmpty()) {
+            spec.setOrderBy(uniqueColumnId);
+            spec.setAscending(true);
+        } else {
+            spec.setOrderBy(Arrays.asList(orderBy.split(",")).contains(uniqueColumnId) ? orderBy : orderBy + "," + uniqueColumnId);
+            spec.setAscending(filterSpec.isAscending());
         }
-        // set size of the results to allow paging to be more then the actual size
-//        dataSet.setRowCountNonTrimmed(instances.size() == 0 ? 0 : instances.size() + 1);
-        dataSet.setRowCountNonTrimmed(instances.size());
-        return dataSet;
+        return spec;
     }
 
-    protected void appendIntervalSelection(DataSetGroup intervalSel, List<QueryParam> filterParams) {
-        if (intervalSel != null && intervalSel.isSelect()) {
-            ColumnGroup cg = intervalSel.getColumnGroup();
-            List<Interval> intervalList = intervalSel.getSelectedIntervalList();
-
-            // Get the filter values
-            List<Comparable> names = new ArrayList<Comparable>();
-            Comparable min = null;
-            Comparable max = null;
-            for (Interval interval : intervalList) {
-                names.add(interval.getName());
-                Comparable intervalMin = (Comparable) interval.getMinValue();
-                Comparable intervalMax = (Comparable) interval.getMaxValue();
-
-                if (intervalMin != null) {
-                    if (min == null) min = intervalMin;
-                    else if (min.compareTo(intervalMin) > 0) min = intervalMin;
-                }
-                if (intervalMax != null) {
-                    if (max == null) max = intervalMax;
-                    else if (max.compareTo(intervalMax) > 0) max = intervalMax;
-                }
-            }
-            // Min can't be greater than max.
-            if (min != null && max != null && min.compareTo(max) > 0) {
-                min = max;
-            }
+    protected int getFetchSize() {
+        return Integer.parseInt(System.getProperty(FETCH_SIZE, "1000"));
+    }
 
-            ColumnFilter filter;
-            if (min != null && max != null) {
-                filter = FilterFactory.between(cg.getSourceId(), min, max);
-            }
-            else if (min != null) {
-                filter = FilterFactory.greaterOrEqualsTo(cg.getSourceId(), min);
-            }
-            else if (max != null) {
-                filter = FilterFactory.lowerOrEqualsTo(cg.getSourceId(), max);
-            }
-            else {
-                filter = FilterFactory.equalsTo(cg.getSourceId(), names);
+    protected List<List> queryRows(QueryServicesClient queryClient, ConsoleDataSetLookup dataSetLookup, QueryFilterSpec filterSpec) {
+        final int offset = dataSetLookup.getRowOffset();
+        final int numberOfRows = dataSetLookup.getNumberOfRows();
+
+        if (dataSetLookup.isKeysetPagination() || numberOfRows <= 0) {
+            // keyset condition already positions the query after the last seen row
+            return queryPage(queryClient, dataSetLookup, filterSpec, 0, numberOfRows);
+        }
+        if (offset % numberOfRows == 0) {
+            return queryPage(queryClient, dataSetLookup, filterSpec, offset / numberOfRows, numberOfRows);
+        }
+
+        // offset is not aligned with the page size, read both pages it spans and trim them
+        final int page = offset / numberOfRows;
+        final int skip = offset % numberOfRows;
+        final List<List> rows = new ArrayList<>(queryPage(queryClient, dataSetLookup, filterSpec, page, numberOfRows));
+        if (rows.size() == numberOfRows) {
+            rows.addAll(queryPage(queryClient, dataSetLookup, filterSpec, page + 1, numberOfRows));
+        }
+        if (rows.size() <= skip) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(rows.subList(skip, Math.min(rows.size(), skip + numberOfRows)));
+    }
+
+    protected List<List> queryPage(QueryServicesClient queryClient, ConsoleDataSetLookup dataSetLookup, QueryFilterSpec filterSpec, int page, int pageSize) {
+        return queryClient.query(
+                dataSetLookup.getDataSetUUID(),
+                QueryServicesClient.QUERY_MAP_RAW,
+                filterSpec,
+                page,
+                pageSize,
+                List.class
+        );
+    }
+
+    /**
+     * Appends condition that selects only rows following the last seen row of the lookup in the sort order,
+     * e.g. (sortColumn > lastSortValue) or (sortColumn = lastSortValue and id > lastId). Unique column is always
+     * added to the order by clause so that the order is deterministic.
+     */
+    protected KieServerQueryPlan appendKeysetCondition(ConsoleDataSetLookup dataSetLookup, KieServerQueryPlan plan) {
+        final String idColumnId = dataSetLookup.getKeysetColumnId();
+        final Comparable lastId = dataSetLookup.getKeysetIdValue();
+        final String sortColumnId = plan.getOrderBy();
+        final boolean ascending = sortColumnId == null || plan.isAscending();
+
+        if (sortColumnId == null || sortColumnId.equals(idColumnId)) {
+            final ColumnFilter filter = ascending ? FilterFactory.greaterThan(idColumnId, lastId) : FilterFactory.lowerThan(idColumnId, lastId);
+            return plan.withCondition(toQueryParam(filter), idColumnId, ascending);
+        } else if (!sortColumnId.contains(",") && dataSetLookup.getKeysetSortValue() != null && isKeysetColumn(sortColumnId)) {
+            final Comparable lastSortValue = dataSetLookup.getKeysetSortValue();
+            final ColumnFilter filter = FilterFactory.OR(
+                    ascending ? FilterFactory.greaterThan(sortColumnId, lastSortValue) : FilterFactory.lowerThan(sortColumnId, lastSortValue),
+                    FilterFactory.AND(FilterFactory.equalsTo(sortColumnId, lastSortValue),
+                                      ascending ? FilterFactory.greaterThan(idColumnId, lastId) : FilterFactory.lowerThan(idColumnId, lastId)));
+            return plan.withCondition(toQueryParam(filter), sortColumnId + "," + idColumnId, ascending);
+        }
+
+        // multi column or nullable sort columns cannot be sought, fall back to offset based paging
+        LOGGER.debug("Keyset pagination not applicable for order by '{}', using row offset", sortColumnId);
+        dataSetLookup.clearKeyset();
+        return plan;
+    }
+
+    /**
+     * Keyset conditions never match rows whose sort value is NULL, so rows can be sought only by columns that are
+     * always set, listed in {@link #KEYSET_COLUMNS}
+     */
+    protected boolean isKeysetColumn(String columnId) {
+        for (String keysetColumnId : System.getProperty(KEYSET_COLUMNS, DEFAULT_KEYSET_COLUMNS).split(",")) {
+            if (keysetColumnId.trim().equalsIgnoreCase(columnId)) {
+                return true;
             }
+        }
+        return false;
+    }
 
-            CoreFunctionFilter coreFunctionFilter = (CoreFunctionFilter) filter;
-            filterParams.add(new QueryParam(coreFunctionFilter.getColumnId(), coreFunctionFilter.getType().toString(), coreFunctionFilter.getParameters()));
+    protected QueryParam toQueryParam(ColumnFilter filter) {
+        return KieServerQueryPlanCompiler.toQueryParam(filter);
+    }
 
+    @Override
+    public boolean isDataSetOutdated(DataSetDef def) {
+        for (String serverTemplateId : watermarks.getServerTemplates(def.getUUID())) {
+            try {
+                if (watermarks.isOutdated(getClient(serverTemplateId, QueryServicesClient.class), serverTemplateId, def)) {
+                    return true;
+                }
+            } catch (Exception e) {
+                LOGGER.debug("Unable to check data set {} on server template '{}' due to {}", def.getUUID(), serverTemplateId, e.getMessage());
+            }
         }
+        return false;
     }
 
+    protected DataSet buildDataSet(DataSetDef def, List<List> instances, List<DataColumn> extraColumns) throws Exception {
+        return new KieServerDataSetBuilder(def, extraColumns, instances.size()).append(instances).build();
+    }
 
-}
\ No newline at end of file
+    protected void appendIntervalSelection(DataSetGroup intervalSel, List<QueryParam> filterParams) {
+        KieServerQueryPlanCompiler.appendIntervalSelection(intervalSel, filterParams);
+    }
+}
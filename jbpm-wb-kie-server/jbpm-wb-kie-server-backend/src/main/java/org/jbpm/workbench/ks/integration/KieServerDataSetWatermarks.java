@@ -0,0 +1,213 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.workbench.ks.integration;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.enterprise.context.ApplicationScoped;
+
+import org.dashbuilder.dataset.ColumnType;
+import org.dashbuilder.dataset.def.DataColumnDef;
+import org.dashbuilder.dataset.def.DataSetDef;
+import org.kie.server.api.model.definition.QueryFilterSpec;
+import org.kie.server.api.model.definition.QueryParam;
+import org.kie.server.client.QueryServicesClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tracks modification watermarks of data sets per server template. Watermark consists of the latest value of the
+ * data set modification column, e.g. lastModificationDate, and the number of rows, both read by a single aggregate
+ * query, so changes can be detected without reloading the data set. Polls are limited to one per
+ * {@link #POLL_INTERVAL} for every server template and data set.
+ */
+@ApplicationScoped
+public class KieServerDataSetWatermarks {
+
+    public static final String POLL_INTERVAL = "org.jbpm.wb.dataset.watermark.interval";
+
+    public static final List<String> MODIFICATION_COLUMNS = Arrays.asList("lastModificationDate", "timestamp");
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(KieServerDataSetWatermarks.class);
+
+    private final long pollInterval;
+
+    private final ConcurrentMap<String, Observation> observations = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Watermark> reported = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Set<String>> serverTemplates = new ConcurrentHashMap<>();
+
+    public KieServerDataSetWatermarks() {
+        this(Long.parseLong(System.getProperty(POLL_INTERVAL, "2000")));
+    }
+
+    public KieServerDataSetWatermarks(final long pollInterval) {
+        this.pollInterval = pollInterval;
+    }
+
+    /**
+     * Returns the modification column of given data set or null when its changes cannot be tracked
+     */
+    public String getModificationColumn(final DataSetDef def) {
+        if (def == null || def.getColumns() == null) {
+            return null;
+        }
+        for (DataColumnDef column : def.getColumns()) {
+            if (ColumnType.DATE.equals(column.getColumnType()) && MODIFICATION_COLUMNS.contains(column.getId())) {
+                return column.getId();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether changes of given data set are tracked. Rows of user filtered data sets differ per caller, so
+     * a watermark polled by one user says nothing about the rows of others and such data sets are never tracked.
+     */
+    public boolean isTracked(final DataSetDef def) {
+        return pollInterval > 0 && getModificationColumn(def) != null && !KieServerDataSetManager.isUserScoped(def);
+    }
+
+    /**
+     * Returns the latest watermark polled for given server template and data set without polling, null when unknown
+     */
+    public Watermark getLastWatermark(final String serverTemplateId, final String dataSetUUID) {
+        final Observation observation = observations.get(key(serverTemplateId, dataSetUUID));
+        return observation == null ? null : observation.watermark;
+    }
+
+    /**
+     * Returns current watermark of the data set, polling the server when the last known one is older than the
+     * poll interval. Returns null when the data set is not tracked or the poll fails.
+     */
+    public Watermark getWatermark(final QueryServicesClient queryClient, final String serverTemplateId, final DataSetDef def) {
+        if (!isTracked(def)) {
+            return null;
+        }
+        final String column = getModificationColumn(def);
+        final String key = key(serverTemplateId, def.getUUID());
+        serverTemplates.computeIfAbsent(def.getUUID(), uuid -> ConcurrentHashMap.newKeySet()).add(serverTemplateId);
+
+        final Observation observation = observations.get(key);
+        if (observation != null && System.currentTimeMillis() - observation.polledAt < pollInterval) {
+            return observation.watermark;
+        }
+
+        final long polledAt = System.currentTimeMillis();
+        try {
+            final QueryFilterSpec filterSpec = new QueryFilterSpec();
+            filterSpec.setParameters(new QueryParam[]{
+                    new QueryParam(column, "MAX", Arrays.asList("watermark")),
+                    new QueryParam(column, "COUNT", Arrays.asList("count"))
+            });
+            final List<List> result = queryClient.query(def.getUUID(), QueryServicesClient.QUERY_MAP_RAW, filterSpec, 0, 1, List.class);
+            if (result == null || result.isEmpty() || result.get(0).size() < 2) {
+                return null;
+            }
+            final Watermark watermark = new Watermark(result.get(0).get(0), ((Number) result.get(0).get(1)).longValue());
+            observations.put(key, new Observation(watermark, polledAt));
+            return watermark;
+        } catch (Exception e) {
+            LOGGER.debug("Unable to poll watermark of data set {} on server template '{}' due to {}", def.getUUID(), serverTemplateId, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Checks whether the data set moved since the last check on given server template, first check never reports
+     * the data set as outdated
+     */
+    public boolean isOutdated(final QueryServicesClient queryClient, final String serverTemplateId, final DataSetDef def) {
+        final Watermark current = getWatermark(queryClient, serverTemplateId, def);
+        if (current == null) {
+            return false;
+        }
+        final Watermark previous = reported.put(key(serverTemplateId, def.getUUID()), current);
+        return previous != null && !previous.equals(current);
+    }
+
+    /**
+     * Returns server templates on which given data set has been tracked
+     */
+    public Set<String> getServerTemplates(final String dataSetUUID) {
+        final Set<String> templates = serverTemplates.get(dataSetUUID);
+        return templates == null ? Collections.emptySet() : Collections.unmodifiableSet(templates);
+    }
+
+    protected String key(final String serverTemplateId, final String dataSetUUID) {
+        return serverTemplateId + "|" + dataSetUUID;
+    }
+
+    private static class Observation {
+
+        private final Watermark watermark;
+        private final long polledAt;
+
+        Observation(Watermark watermark, long polledAt) {
+            this.watermark = watermark;
+            this.polledAt = polledAt;
+        }
+    }
+
+    /**
+     * Latest modification and number of rows of a data set
+     */
+    public static class Watermark {
+
+        private final Object lastModification;
+        private final long rowCount;
+
+        public Watermark(Object lastModification, long rowCount) {
+            this.lastModification = lastModification;
+            this.rowCount = rowCount;
+        }
+
+        public Object getLastModification() {
+            return lastModification;
+        }
+
+        public long getRowCount() {
+            return rowCount;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Watermark watermark = (Watermark) o;
+            return rowCount == watermark.rowCount
+                    && (lastModification == null ? watermark.lastModification == null : lastModification.equals(watermark.lastModification));
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (lastModification == null ? 0 : lastModification.hashCode()) + (int) (rowCount ^ (rowCount >>> 32));
+        }
+
+        @Override
+        public String toString() {
+            return "Watermark{lastModification=" + lastModification + ", rowCount=" + rowCount + '}';
+        }
+    }
+}
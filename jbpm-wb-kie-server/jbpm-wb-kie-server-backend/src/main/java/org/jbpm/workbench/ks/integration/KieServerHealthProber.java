@@ -0,0 +1,240 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.workbench.ks.integration;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.kie.server.common.rest.KieServerHttpRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Probes every server instance URL in the background and marks it online or offline on the load balancers
+ * of the server templates using it, so that requests never wait for endpoints to be checked. Probes of each
+ * URL are scheduled independently with a jittered interval to avoid probing all servers at once.
+ */
+@ApplicationScoped
+public class KieServerHealthProber {
+
+    public static final String PROBE_INTERVAL = "org.jbpm.wb.client.health.interval";
+    public static final String PROBE_JITTER = "org.jbpm.wb.client.health.jitter";
+    public static final String PROBE_TIMEOUT = "org.jbpm.wb.client.health.timeout";
+    public static final String PROBE_FAILURES = "org.jbpm.wb.client.health.failures";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(KieServerHealthProber.class);
+
+    private final long interval;
+    private final double jitter;
+    private final long timeout;
+    private final int failureThreshold;
+
+    private final ConcurrentMap<String, EndpointHealth> endpoints = new ConcurrentHashMap<>();
+
+    private volatile ScheduledExecutorService scheduler;
+
+    @Inject
+    private KieServerTransport transport;
+
+    public KieServerHealthProber() {
+        this(Long.parseLong(System.getProperty(PROBE_INTERVAL, "10000")),
+             Double.parseDouble(System.getProperty(PROBE_JITTER, "0.2")),
+             Long.parseLong(System.getProperty(PROBE_TIMEOUT, "1000")),
+             Integer.parseInt(System.getProperty(PROBE_FAILURES, "2")));
+    }
+
+    /**
+     * @param interval average time in milliseconds between probes of the same URL, 0 or less disables probing
+     * @param jitter fraction of the interval by which every delay is randomly shortened or extended
+     * @param timeout probe connect and read timeout in milliseconds
+     * @param failureThreshold consecutive failed probes after which an online URL is taken offline
+     */
+    public KieServerHealthProber(final long interval,
+                                 final double jitter,
+                                 final long timeout,
+                                 final int failureThreshold) {
+        this.interval = interval;
+        this.jitter = Math.max(0, Math.min(jitter, 1));
+        this.timeout = timeout;
+        this.failureThreshold = Math.max(1, failureThreshold);
+    }
+
+    public boolean isEnabled() {
+        return interval > 0;
+    }
+
+    /**
+     * Starts probing, URLs of server templates added later are picked up on the next discovery round.
+     */
+    public synchronized void start() {
+        if (!isEnabled() || scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newScheduledThreadPool(2, runnable -> {
+            final Thread thread = new Thread(runnable, "kie-server-health-prober");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::discover, 0, interval, TimeUnit.MILLISECONDS);
+        LOGGER.debug("Kie server health prober started with {} ms interval", interval);
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        endpoints.clear();
+    }
+
+    /**
+     * Schedules a probe for every URL not being probed yet and forgets URLs no longer used by any template.
+     */
+    protected void discover() {
+        try {
+            final Collection<String> routes = transport.getRoutes();
+            endpoints.keySet().removeIf(url -> {
+                if (!routes.contains(url)) {
+                    endpoints.get(url).cancel();
+                    return true;
+                }
+                return false;
+            });
+            routes.forEach(url -> endpoints.computeIfAbsent(url, u -> {
+                final EndpointHealth health = new EndpointHealth();
+                health.next = schedule(u, (long) (ThreadLocalRandom.current().nextDouble() * interval));
+                return health;
+            }));
+        } catch (Exception e) {
+            LOGGER.warn("Unable to discover kie server endpoints to probe due to {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Requests given URLs to be probed as soon as possible, without waiting for the result.
+     */
+    public void probeSoon(final Collection<String> urls) {
+        final ScheduledExecutorService executor = scheduler;
+        if (executor == null) {
+            return;
+        }
+        urls.forEach(url -> {
+            final EndpointHealth health = endpoints.get(url);
+            if (health != null && health.cancel()) {
+                health.next = schedule(url, 0);
+            }
+        });
+    }
+
+    protected ScheduledFuture<?> schedule(final String url,
+                                          final long delay) {
+        final ScheduledExecutorService executor = scheduler;
+        if (executor == null || executor.isShutdown()) {
+            return null;
+        }
+        return executor.schedule(() -> probe(url), delay, TimeUnit.MILLISECONDS);
+    }
+
+    protected void probe(final String url) {
+        final EndpointHealth health = endpoints.get(url);
+        if (health == null) {
+            return;
+        }
+        final long start = System.currentTimeMillis();
+        final boolean reachable = isReachable(url);
+        health.lastProbe = System.currentTimeMillis();
+        health.lastLatency = health.lastProbe - start;
+
+        if (reachable) {
+            health.failures.set(0);
+            transport.updateRoute(url, true);
+        } else if (health.failures.incrementAndGet() >= failureThreshold) {
+            transport.updateRoute(url, false);
+        }
+        LOGGER.debug("Probed {} in {} ms, reachable {}", url, health.lastLatency, reachable);
+
+        if (endpoints.get(url) == health) {
+            health.next = schedule(url, nextDelay());
+        }
+    }
+
+    protected long nextDelay() {
+        return (long) (interval * (1 - jitter + 2 * jitter * ThreadLocalRandom.current().nextDouble()));
+    }
+
+    /**
+     * Any response other than a server error means the server instance is up, authentication is not required.
+     */
+    protected boolean isReachable(final String url) {
+        KieServerHttpRequest request = null;
+        try {
+            request = KieServerHttpRequest.newRequest(url).followRedirects(true).timeout(timeout).get();
+            return request.response().code() < 500;
+        } catch (Exception e) {
+            LOGGER.debug("Url '{}' is not reachable due to {}", url, e.getCause() == null ? e.getMessage() : e.getCause().getMessage());
+            return false;
+        } finally {
+            if (request != null) {
+                request.disconnect();
+            }
+        }
+    }
+
+    /**
+     * @return number of consecutive failed probes per server instance URL
+     */
+    public Map<String, Integer> getConsecutiveFailures() {
+        final Map<String, Integer> failures = new HashMap<>();
+        endpoints.forEach((url, health) -> failures.put(url, health.failures.get()));
+        return failures;
+    }
+
+    /**
+     * @return duration in milliseconds of the last probe per server instance URL
+     */
+    public Map<String, Long> getProbeLatencies() {
+        final Map<String, Long> latencies = new HashMap<>();
+        endpoints.forEach((url, health) -> latencies.put(url, health.lastLatency));
+        return latencies;
+    }
+
+    protected static class EndpointHealth {
+
+        private final AtomicInteger failures = new AtomicInteger();
+        private volatile long lastProbe;
+        private volatile long lastLatency;
+        private volatile ScheduledFuture<?> next;
+
+        protected boolean cancel() {
+            final ScheduledFuture<?> scheduled = next;
+            return scheduled == null || scheduled.cancel(false);
+        }
+    }
+}
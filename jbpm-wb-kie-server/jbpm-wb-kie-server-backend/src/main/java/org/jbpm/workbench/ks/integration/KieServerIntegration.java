@@ -17,13 +17,30 @@
 package org.jbpm.workbench.ks.integration;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Iterator;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.event.Event;
 import javax.enterprise.event.Observes;
@@ -31,6 +48,7 @@ import javax.inject.Inject;
 
 import org.jbpm.workbench.ks.integration.event.ServerInstanceRegistered;
 import org.kie.api.KieServices;
+import org.kie.api.builder.ReleaseId;
 import org.kie.api.runtime.KieContainer;
 import org.kie.server.api.KieServerConstants;
 import org.kie.server.client.CredentialsProvider;
@@ -49,6 +67,7 @@ import org.kie.server.controller.api.model.spec.ServerTemplate;
 import org.kie.workbench.common.screens.server.management.service.SpecManagementService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.uberfire.commons.async.SimpleAsyncExecutorService;
 import org.uberfire.commons.services.cdi.Startup;
 
 import static org.jbpm.workbench.ks.utils.KieServerUtils.createKieServicesClient;
@@ -61,18 +80,73 @@ public class KieServerIntegration {
 
     private static final Logger logger = LoggerFactory.getLogger(KieServerIntegration.class);
 
+    public static final String CONTAINER_CLIENTS_MAX = "org.jbpm.wb.client.container.max";
+
+    public static final String CONTAINER_CLIENTS_IDLE_TIME = "org.jbpm.wb.client.container.idle";
+
+    public static final String BOOTSTRAP_THREADS = "org.jbpm.wb.client.bootstrap.threads";
+
+    public static final String BOOTSTRAP_WAIT = "org.jbpm.wb.client.bootstrap.wait";
+
+    private static final long IDLE_SWEEP_INTERVAL = 60000;
+
     private KieServices kieServices;
 
+    private final int maxContainerClients;
+
+    private final long containerClientIdleTime;
+
+    private ScheduledExecutorService idleSweeper;
+
+    private final AtomicLong containerClientEvictions = new AtomicLong();
+
+    private final AtomicInteger containerClientsCount = new AtomicInteger();
+
     private ConcurrentMap<String, KieServicesClient> serverTemplatesClients = new ConcurrentHashMap<String, KieServicesClient>();
+    // server template id -> container id -> client
+    private ConcurrentMap<String, ConcurrentMap<String, ContainerClient>> containerClients = new ConcurrentHashMap<String, ConcurrentMap<String, ContainerClient>>();
+    private ConcurrentMap<List<String>, CompletableFuture<ContainerClient>> pendingContainerClients = new ConcurrentHashMap<List<String>, CompletableFuture<ContainerClient>>();
     private ConcurrentMap<String, KieServicesClient> adminClients = new ConcurrentHashMap<String, KieServicesClient>();
     private ConcurrentMap<String, ServerInstanceKey> serverInstancesById = new ConcurrentHashMap<String, ServerInstanceKey>();
+    // server template id -> server instance ids, only modified while holding the server template entry
+    private ConcurrentMap<String, Set<String>> serverInstancesByTemplate = new ConcurrentHashMap<String, Set<String>>();
+
+    private ConcurrentMap<String, CompletableFuture<Void>> serverTemplatesBootstrap = new ConcurrentHashMap<String, CompletableFuture<Void>>();
+    private ConcurrentMap<String, Long> serverTemplatesStartupTimes = new ConcurrentHashMap<String, Long>();
+    private ConcurrentMap<String, ConcurrentMap<String, Long>> containerClientsStartupTimes = new ConcurrentHashMap<String, ConcurrentMap<String, Long>>();
+
+    private final KieServerClientCache instrumentedClients = new KieServerClientCache();
 
     @Inject
     private SpecManagementService specManagementService;
 
+    @Inject
+    private KieServerTransport transport;
+
+    @Inject
+    private KieServerHealthProber healthProber;
+
+    @Inject
+    private KieServerClientCache clientCache;
+
     @Inject
     private Event<ServerInstanceRegistered> serverInstanceRegisteredEvent;
 
+    public KieServerIntegration() {
+        this(Integer.parseInt(System.getProperty(CONTAINER_CLIENTS_MAX, "50")),
+             Long.parseLong(System.getProperty(CONTAINER_CLIENTS_IDLE_TIME, "1800000")));
+    }
+
+    /**
+     * @param maxContainerClients maximum number of container clients kept, least recently used ones are evicted first; 0 or less for unbounded
+     * @param containerClientIdleTime time in milliseconds after which a container client not used is evicted; 0 or less to keep them
+     */
+    public KieServerIntegration(final int maxContainerClients,
+                                final long containerClientIdleTime) {
+        this.maxContainerClients = maxContainerClients;
+        this.containerClientIdleTime = containerClientIdleTime;
+    }
+
     @PostConstruct
     public void createAvailableClients() {
         kieServices = KieServices.Factory.get();
@@ -80,99 +154,287 @@ public class KieServerIntegration {
         Collection<ServerTemplate> serverTemplates = specManagementService.listServerTemplates();
         logger.debug("Found {} server templates, creating clients for them...", serverTemplates.size());
 
-        serverTemplates.forEach((serverTemplate) -> buildClientsForServer(serverTemplate));
+        bootstrapClients(serverTemplates);
+        healthProber.start();
+        startIdleSweep();
+    }
+
+    /**
+     * Evicts idle container clients in the background, so that request threads never pay for the sweep.
+     */
+    protected synchronized void startIdleSweep() {
+        if (containerClientIdleTime <= 0 || idleSweeper != null) {
+            return;
+        }
+        long interval = Math.min(containerClientIdleTime, IDLE_SWEEP_INTERVAL);
+        idleSweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "kie-server-container-client-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        idleSweeper.scheduleWithFixedDelay(this::evictIdleContainerClients, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public synchronized void stopIdleSweep() {
+        if (idleSweeper != null) {
+            idleSweeper.shutdownNow();
+            idleSweeper = null;
+        }
+    }
+
+    /**
+     * Builds the clients of given server templates in the background, using at most
+     * org.jbpm.wb.client.bootstrap.threads concurrent tasks, so that startup does not wait for them.
+     */
+    protected void bootstrapClients(Collection<ServerTemplate> serverTemplates) {
+        Queue<ServerTemplate> pending = new ConcurrentLinkedQueue<>(serverTemplates);
+        serverTemplates.forEach(serverTemplate -> serverTemplatesBootstrap.put(serverTemplate.getId(), new CompletableFuture<>()));
+
+        int workers = Math.max(1, Math.min(getBootstrapThreads(), serverTemplates.size()));
+        for (int i = 0; i < workers; i++) {
+            getExecutor().execute(() -> {
+                ServerTemplate serverTemplate;
+                while ((serverTemplate = pending.poll()) != null) {
+                    bootstrapClientsForServer(serverTemplate);
+                }
+            });
+        }
+    }
+
+    protected void bootstrapClientsForServer(ServerTemplate serverTemplate) {
+        long start = System.currentTimeMillis();
+        try {
+            buildClientsForServer(serverTemplate);
+        } catch (Exception e) {
+            logger.warn("Failed to create kie server clients for server template {} due to {}", serverTemplate.getId(), e.getMessage());
+        } finally {
+            long time = System.currentTimeMillis() - start;
+            serverTemplatesStartupTimes.put(serverTemplate.getId(), time);
+            CompletableFuture<Void> bootstrap = serverTemplatesBootstrap.get(serverTemplate.getId());
+            if (bootstrap != null) {
+                bootstrap.complete(null);
+            }
+            logger.debug("Clients for server template {} created in {} ms", serverTemplate.getId(), time);
+        }
+    }
+
+    /**
+     * Waits, up to org.jbpm.wb.client.bootstrap.wait ms, for the clients of given server template in case they
+     * are still being created at startup.
+     */
+    protected void awaitBootstrap(String serverTemplateId) {
+        CompletableFuture<Void> bootstrap = serverTemplatesBootstrap.get(serverTemplateId);
+        if (bootstrap == null || bootstrap.isDone()) {
+            return;
+        }
+        try {
+            bootstrap.get(getBootstrapWait(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            logger.debug("Clients for server template {} are still being created", serverTemplateId);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.debug("Clients for server template {} failed to be created", serverTemplateId);
+        }
+    }
+
+    public boolean isServerTemplateReady(String serverTemplateId) {
+        CompletableFuture<Void> bootstrap = serverTemplatesBootstrap.get(serverTemplateId);
+        return (bootstrap == null || bootstrap.isDone()) && serverTemplatesClients.containsKey(serverTemplateId);
+    }
+
+    public boolean isBootstrapCompleted() {
+        return serverTemplatesBootstrap.values().stream().allMatch(CompletableFuture::isDone);
+    }
+
+    /**
+     * @return time in milliseconds it took to create the clients of each server template at startup
+     */
+    public Map<String, Long> getServerTemplatesStartupTimes() {
+        return new HashMap<>(serverTemplatesStartupTimes);
+    }
+
+    /**
+     * @return time in milliseconds it took to create each container client, keyed by server template and container ids
+     */
+    public Map<String, Long> getContainerClientsStartupTimes() {
+        Map<String, Long> startupTimes = new HashMap<>();
+        containerClientsStartupTimes.forEach((serverTemplateId, containers) ->
+                containers.forEach((containerId, time) -> startupTimes.put(serverTemplateId + "|" + containerId, time)));
+        return startupTimes;
+    }
+
+    protected Executor getExecutor() {
+        return SimpleAsyncExecutorService.getDefaultInstance();
+    }
+
+    protected int getBootstrapThreads() {
+        return Integer.parseInt(System.getProperty(BOOTSTRAP_THREADS, "4"));
+    }
+
+    protected long getBootstrapWait() {
+        return Long.parseLong(System.getProperty(BOOTSTRAP_WAIT, "10000"));
     }
 
     public KieServicesClient getServerClient(String serverTemplateId) {
-        return serverTemplatesClients.get(serverTemplateId);
+        KieServicesClient client = serverTemplatesClients.get(serverTemplateId);
+        if (client == null) {
+            awaitBootstrap(serverTemplateId);
+            client = serverTemplatesClients.get(serverTemplateId);
+        }
+        return client == null ? null : instrumentedClients.get(serverTemplateId, null, client, c -> instrument(serverTemplateId, c));
     }
 
+    /**
+     * Wraps given client so that its calls are measured when the server template balances by response time,
+     * or hedged when enabled for the server template. Done once per client, see {@link KieServerClientCache}.
+     */
+    protected KieServicesClient instrument(String serverTemplateId, KieServicesClient client) {
+        return transport.instrument(serverTemplateId, client);
+    }
 
+
+    /**
+     * Returns client that uses the class loader of given container. Container clients are created on first use, as
+     * that requires the container's kjar to be resolved, and evicted once they are not used for a while. Callers
+     * waiting for the container to be created by another thread give up after org.jbpm.wb.client.bootstrap.wait ms.
+     */
     public KieServicesClient getServerClient(String serverTemplateId, String containerId) {
-        return serverTemplatesClients.get(serverTemplateId + "|" + containerId);
+        ContainerClient containerClient = getContainerClients(serverTemplateId).get(containerId);
+        if (containerClient == null) {
+            containerClient = createContainerClient(serverTemplateId, containerId);
+        }
+        if (containerClient != null) {
+            containerClient.touch();
+        }
+
+        return containerClient == null ? null : instrumentedClients.get(serverTemplateId, containerId, containerClient.getClient(), c -> instrument(serverTemplateId, c));
+    }
+
+    protected Map<String, ContainerClient> getContainerClients(String serverTemplateId) {
+        Map<String, ContainerClient> clients = containerClients.get(serverTemplateId);
+        return clients == null ? Collections.emptyMap() : clients;
+    }
+
+    public int getContainerClientsCount() {
+        return containerClientsCount.get();
+    }
+
+    public long getContainerClientEvictionCount() {
+        return containerClientEvictions.get();
     }
 
     public KieServicesClient getAdminServerClient(String serverTemplateId) {
-        return adminClients.get(serverTemplateId);
+        awaitBootstrap(serverTemplateId);
+        return instrument(serverTemplateId, adminClients.get(serverTemplateId));
     }
 
     public KieServicesClient getAdminServerClientCheckEndpoints(String serverTemplateId) {
+        awaitBootstrap(serverTemplateId);
         KieServicesClient adminClient = adminClients.get(serverTemplateId);
         if (adminClient != null) {
             LoadBalancer loadBalancer = ((AbstractKieServicesClientImpl) adminClient).getLoadBalancer();
-            loadBalancer.checkFailedEndpoints();
+            if (healthProber.isEnabled()) {
+                // endpoints are checked in the background, just ask for the failed ones to be checked first
+                healthProber.probeSoon(loadBalancer.getFailedEndpoints());
+            } else {
+                loadBalancer.checkFailedEndpoints();
+            }
         }
-        return adminClient;
+        return instrument(serverTemplateId, adminClient);
     }
 
     protected void indexServerInstances(ServerTemplate serverTemplate) {
         for (ServerInstanceKey serverInstanceKey : serverTemplate.getServerInstanceKeys()) {
-            serverInstancesById.put(serverInstanceKey.getServerInstanceId(), serverInstanceKey);
+            ServerInstanceKey previous = serverInstancesById.get(serverInstanceKey.getServerInstanceId());
+            if (previous != null && !previous.getServerTemplateId().equals(serverInstanceKey.getServerTemplateId())) {
+                removeServerInstanceFromIndex(previous);
+            }
+            serverInstancesByTemplate.compute(serverInstanceKey.getServerTemplateId(), (serverTemplateId, serverInstanceIds) -> {
+                Set<String> instances = serverInstanceIds == null ? ConcurrentHashMap.newKeySet() : serverInstanceIds;
+                instances.add(serverInstanceKey.getServerInstanceId());
+                serverInstancesById.put(serverInstanceKey.getServerInstanceId(), serverInstanceKey);
+                return instances;
+            });
         }
     }
 
+    protected void removeServerInstanceFromIndex(ServerInstanceKey serverInstanceKey) {
+        serverInstancesByTemplate.computeIfPresent(serverInstanceKey.getServerTemplateId(), (serverTemplateId, serverInstanceIds) -> {
+            serverInstanceIds.remove(serverInstanceKey.getServerInstanceId());
+            serverInstancesById.remove(serverInstanceKey.getServerInstanceId(), serverInstanceKey);
+            return serverInstanceIds.isEmpty() ? null : serverInstanceIds;
+        });
+    }
+
     protected void removeServerInstancesFromIndex(String serverTemplateId) {
-        Iterator<Map.Entry<String, ServerInstanceKey>> iterator = serverInstancesById.entrySet().iterator();
-        while (iterator.hasNext()) {
-            Map.Entry<String, ServerInstanceKey> entry = iterator.next();
-            if (entry.getValue().getServerTemplateId().equals(serverTemplateId)) {
-                iterator.remove();
-            }
-        }
+        serverInstancesByTemplate.computeIfPresent(serverTemplateId, (id, serverInstanceIds) -> {
+            serverInstanceIds.forEach(serverInstanceId -> serverInstancesById.remove(serverInstanceId));
+            return null;
+        });
     }
 
     public void onServerTemplateDeleted(@Observes ServerTemplateUpdated serverTemplateUpdated) {
         buildClientsForServer(serverTemplateUpdated.getServerTemplate());
+        evictOutdatedContainerClients(serverTemplateUpdated.getServerTemplate());
     }
 
     public void onServerTemplateDeleted(@Observes ServerTemplateDeleted serverTemplateDeleted) {
+        String serverTemplateId = serverTemplateDeleted.getServerTemplateId();
         // remove all clients for this server template and its containers
-        Iterator<Map.Entry<String, KieServicesClient>> iterator = serverTemplatesClients.entrySet().iterator();
-        while (iterator.hasNext()) {
-            Map.Entry<String, KieServicesClient> entry = iterator.next();
-            if (entry.getKey().startsWith(serverTemplateDeleted.getServerTemplateId())) {
-                //KieServicesClient client = entry.getValue();
-                //client.close();
-                logger.debug("KieServerClient removed and closed for server template {}", entry.getKey());
-
-                iterator.remove();
-            }
+        if (serverTemplatesClients.remove(serverTemplateId) != null) {
+            //client.close();
+            logger.debug("KieServerClient removed and closed for server template {}", serverTemplateId);
+        }
+        Map<String, ContainerClient> removedContainerClients = containerClients.remove(serverTemplateId);
+        if (removedContainerClients != null) {
+            removedContainerClients.values().forEach(containerClient -> {
+                containerClientsCount.decrementAndGet();
+                logger.debug("KieServerClient removed for container {} of server template {}", containerClient.getContainerId(), serverTemplateId);
+            });
         }
         // remove admin client
-        adminClients.remove(serverTemplateDeleted.getServerTemplateId());
-
-        removeServerInstancesFromIndex(serverTemplateDeleted.getServerTemplateId());
+        adminClients.remove(serverTemplateId);
+        instrumentedClients.release(serverTemplateId);
+        clientCache.release(serverTemplateId);
+        transport.release(serverTemplateId);
+        serverTemplatesBootstrap.remove(serverTemplateId);
+        serverTemplatesStartupTimes.remove(serverTemplateId);
+        containerClientsStartupTimes.remove(serverTemplateId);
+
+        removeServerInstancesFromIndex(serverTemplateId);
     }
 
     public void onServerInstanceDisconnected(@Observes ServerInstanceDisconnected serverInstanceDisconnected) {
         ServerInstanceKey serverInstanceKey = serverInstancesById.get(serverInstanceDisconnected.getServerInstanceId());
 
         if (serverInstanceKey != null) {
-            Iterator<Map.Entry<String, KieServicesClient>> iterator = serverTemplatesClients.entrySet().iterator();
-            while (iterator.hasNext()) {
-                Map.Entry<String, KieServicesClient> entry = iterator.next();
-                if (entry.getKey().startsWith(serverInstanceKey.getServerTemplateId())) {
-                    KieServicesClient client = entry.getValue();
-                    if (client != null) {
-                        LoadBalancer loadBalancer = ((AbstractKieServicesClientImpl) client).getLoadBalancer();
-                        loadBalancer.markAsFailed(serverInstanceKey.getUrl());
-
-                        logger.debug("Server instance {} for server template {} removed from client thus won't be used for operations", serverInstanceKey.getUrl(), serverInstanceKey.getServerTemplateId());
-                    }
-
-                    logger.debug("KieServerClient load balancer updated for server template {}", entry.getKey());
-                }
+            String serverTemplateId = serverInstanceKey.getServerTemplateId();
+
+            KieServicesClient client = serverTemplatesClients.get(serverTemplateId);
+            if (client != null) {
+                LoadBalancer loadBalancer = ((AbstractKieServicesClientImpl) client).getLoadBalancer();
+                loadBalancer.markAsFailed(serverInstanceKey.getUrl());
+
+                logger.debug("Server instance {} for server template {} removed from client thus won't be used for operations", serverInstanceKey.getUrl(), serverTemplateId);
             }
+            getContainerClients(serverTemplateId).values().forEach(containerClient -> {
+                LoadBalancer loadBalancer = ((AbstractKieServicesClientImpl) containerClient.getClient()).getLoadBalancer();
+                loadBalancer.markAsFailed(serverInstanceKey.getUrl());
+
+                logger.debug("KieServerClient load balancer updated for container {} of server template {}", containerClient.getContainerId(), serverTemplateId);
+            });
 
-            serverInstancesById.remove(serverInstanceKey.getServerInstanceId());
+            removeServerInstanceFromIndex(serverInstanceKey);
 
             // update admin client
-            KieServicesClient adminClient = adminClients.get(serverInstanceKey.getServerTemplateId());
+            KieServicesClient adminClient = adminClients.get(serverTemplateId);
             if (adminClient != null) {
                 LoadBalancer loadBalancer = ((AbstractKieServicesClientImpl) adminClient).getLoadBalancer();
                 loadBalancer.markAsFailed(serverInstanceKey.getUrl());
 
-                logger.debug("Server instance {} for server template {} removed from client thus won't be used for operations", serverInstanceKey.getUrl(), serverInstanceKey.getServerTemplateId());
+                logger.debug("Server instance {} for server template {} removed from client thus won't be used for operations", serverInstanceKey.getUrl(), serverTemplateId);
             }
         }
     }
@@ -180,20 +442,22 @@ public class KieServerIntegration {
     public void onServerInstanceConnected(@Observes ServerInstanceConnected serverInstanceConnected) {
 
         ServerInstance serverInstance = serverInstanceConnected.getServerInstance();
+        String serverTemplateId = serverInstance.getServerTemplateId();
 
-        Iterator<Map.Entry<String, KieServicesClient>> iterator = serverTemplatesClients.entrySet().iterator();
-        while (iterator.hasNext()) {
-            Map.Entry<String, KieServicesClient> entry = iterator.next();
-            if (entry.getKey().startsWith(serverInstance.getServerTemplateId())) {
-                KieServicesClient client = entry.getValue();
-                // update regular clients
-                updateOrBuildClient(client, serverInstance);
+        KieServicesClient client = serverTemplatesClients.get(serverTemplateId);
+        if (client != null) {
+            // update regular clients
+            updateOrBuildClient(client, serverInstance);
 
-                logger.debug("KieServerClient load balancer updated for server template {}", entry.getKey());
-            }
+            logger.debug("KieServerClient load balancer updated for server template {}", serverTemplateId);
         }
+        getContainerClients(serverTemplateId).values().forEach(containerClient -> {
+            updateOrBuildClient(containerClient.getClient(), serverInstance);
+
+            logger.debug("KieServerClient load balancer updated for container {} of server template {}", containerClient.getContainerId(), serverTemplateId);
+        });
 
-        KieServicesClient adminClient = adminClients.get(serverInstance.getServerTemplateId());
+        KieServicesClient adminClient = adminClients.get(serverTemplateId);
         // update admin clients
         updateOrBuildClient(adminClient, serverInstance);
         // once all steps are completed successfully notify other parts interested so the serverClient can actually be used
@@ -217,64 +481,194 @@ public class KieServerIntegration {
 
     protected void buildClientsForServer(ServerTemplate serverTemplate) {
         KieServicesClient kieServicesClient = createClientForTemplate(serverTemplate, null, getCredentialsProvider());
-        if (kieServicesClient != null) {
-            serverTemplatesClients.put(serverTemplate.getId(), kieServicesClient);
-        }
-
-        if (serverTemplate.getContainersSpec() != null) {
-            for (ContainerSpec containerSpec : serverTemplate.getContainersSpec()) {
-                try {
-                    String key = serverTemplate.getId() + "|" + containerSpec.getId();
-                    if (serverTemplatesClients.containsKey(key)) {
-                        logger.debug("KieServerClient for {} is already created", key);
-                        continue;
-                    }
-
-                    KieContainer kieContainer = kieServices.newKieContainer(containerSpec.getReleasedId());
-
-                    KieServicesClient kieServicesClientForContainer = createClientForTemplate(serverTemplate, kieContainer.getClassLoader(), getCredentialsProvider());
-                    if (kieServicesClient != null) {
-                        serverTemplatesClients.put(key, kieServicesClientForContainer);
-                    }
-                } catch (Exception e) {
-                    logger.warn("Failed ot create kie server client for container {} due to {}", containerSpec.getId(), e.getMessage());
-                }
-            }
+        if (kieServicesClient != null && serverTemplatesClients.put(serverTemplate.getId(), kieServicesClient) != null) {
+            transport.releaseClient(serverTemplate.getId());
+            releaseWrappedClients(serverTemplate.getId(), null);
         }
+        // container clients are created on demand, see getServerClient(serverTemplateId, containerId)
+
         // lastly create admin client
         KieServicesClient adminKieServicesClient = createClientForTemplate(serverTemplate, null, getAdminCredentialsProvider());
-        if (adminKieServicesClient != null) {
-            adminClients.put(serverTemplate.getId(), adminKieServicesClient);
+        if (adminKieServicesClient != null && adminClients.put(serverTemplate.getId(), adminKieServicesClient) != null) {
+            transport.releaseClient(serverTemplate.getId());
+        }
+    }
+
+    /**
+     * Creates the client for given container, concurrent callers for the same container wait for the first one
+     * instead of building the container again.
+     */
+    protected ContainerClient createContainerClient(String serverTemplateId, String containerId) {
+        List<String> key = Arrays.asList(serverTemplateId, containerId);
+        CompletableFuture<ContainerClient> creation = new CompletableFuture<>();
+        CompletableFuture<ContainerClient> pending = pendingContainerClients.putIfAbsent(key, creation);
+        if (pending != null) {
+            logger.debug("KieServerClient for container {} of server template {} is being created, waiting for it", containerId, serverTemplateId);
+            try {
+                return pending.get(getBootstrapWait(), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                logger.warn("KieServerClient for container {} of server template {} still being created after {} ms", containerId, serverTemplateId, getBootstrapWait());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                logger.debug("KieServerClient for container {} of server template {} failed to be created", containerId, serverTemplateId);
+            }
+            return null;
+        }
+
+        ContainerClient containerClient = null;
+        try {
+            // might have been created since the caller looked it up
+            containerClient = getContainerClients(serverTemplateId).get(containerId);
+            if (containerClient == null) {
+                containerClient = buildContainerClient(serverTemplateId, containerId);
+                if (containerClient != null) {
+                    registerContainerClient(containerClient);
+                    evictLeastRecentlyUsedContainerClients(containerClient);
+                }
+            }
+        } finally {
+            pendingContainerClients.remove(key, creation);
+            creation.complete(containerClient);
+        }
+        return containerClient;
+    }
+
+    protected void registerContainerClient(ContainerClient containerClient) {
+        containerClients.compute(containerClient.getServerTemplateId(), (serverTemplateId, clients) -> {
+            ConcurrentMap<String, ContainerClient> templateClients = clients == null ? new ConcurrentHashMap<>() : clients;
+            if (templateClients.put(containerClient.getContainerId(), containerClient) == null) {
+                containerClientsCount.incrementAndGet();
+            } else {
+                transport.releaseClient(serverTemplateId);
+                releaseWrappedClients(serverTemplateId, containerClient.getContainerId());
+            }
+            return templateClients;
+        });
+    }
+
+    protected ContainerClient buildContainerClient(String serverTemplateId, String containerId) {
+        try {
+            ServerTemplate serverTemplate = specManagementService.getServerTemplate(serverTemplateId);
+            Optional<ContainerSpec> containerSpec = findContainerSpec(serverTemplate, containerId);
+            if (!containerSpec.isPresent()) {
+                logger.debug("Container {} not found in server template {}", containerId, serverTemplateId);
+                return null;
+            }
+
+            long start = System.currentTimeMillis();
+            KieContainer kieContainer = newKieContainer(containerSpec.get().getReleasedId());
+
+            KieServicesClient kieServicesClient = createClientForTemplate(serverTemplate, kieContainer.getClassLoader(), getCredentialsProvider());
+            if (kieServicesClient == null) {
+                kieContainer.dispose();
+                return null;
+            }
+            long time = System.currentTimeMillis() - start;
+            containerClientsStartupTimes.computeIfAbsent(serverTemplateId, id -> new ConcurrentHashMap<>()).put(containerId, time);
+            logger.debug("KieServerClient created for container {} of server template {} in {} ms", containerId, serverTemplateId, time);
+            return new ContainerClient(serverTemplateId, containerId, kieServicesClient, containerSpec.get().getReleasedId());
+        } catch (Exception e) {
+            logger.warn("Failed ot create kie server client for container {} due to {}", containerId, e.getMessage());
+            return null;
+        }
+    }
+
+    protected KieContainer newKieContainer(ReleaseId releaseId) {
+        return kieServices.newKieContainer(releaseId);
+    }
+
+    protected Optional<ContainerSpec> findContainerSpec(ServerTemplate serverTemplate, String containerId) {
+        if (serverTemplate == null || serverTemplate.getContainersSpec() == null) {
+            return Optional.empty();
+        }
+        return serverTemplate.getContainersSpec().stream().filter(containerSpec -> containerSpec.getId().equals(containerId)).findFirst();
+    }
+
+    /**
+     * Drops clients of containers removed from given server template or that now point to a different release.
+     */
+    protected void evictOutdatedContainerClients(ServerTemplate serverTemplate) {
+        getContainerClients(serverTemplate.getId()).values().forEach(containerClient -> {
+            Optional<ContainerSpec> containerSpec = findContainerSpec(serverTemplate, containerClient.getContainerId());
+            if (!containerSpec.isPresent() || !containerSpec.get().getReleasedId().equals(containerClient.getReleaseId())) {
+                evictContainerClient(containerClient);
+            }
+        });
+    }
+
+    protected void evictLeastRecentlyUsedContainerClients(ContainerClient keep) {
+        if (maxContainerClients <= 0) {
+            return;
+        }
+        while (containerClientsCount.get() > maxContainerClients) {
+            Optional<ContainerClient> eldest = containerClients.values().stream()
+                    .flatMap(clients -> clients.values().stream())
+                    .filter(containerClient -> containerClient != keep)
+                    .min(Comparator.comparingLong(ContainerClient::getLastAccess));
+            if (!eldest.isPresent()) {
+                return;
+            }
+            evictContainerClient(eldest.get());
         }
     }
 
+    protected void evictIdleContainerClients() {
+        long now = System.currentTimeMillis();
+        containerClients.values().forEach(clients -> clients.values().forEach(containerClient -> {
+            if (now - containerClient.getLastAccess() > containerClientIdleTime) {
+                evictContainerClient(containerClient);
+            }
+        }));
+    }
+
+    /**
+     * Only drops the client from the index: threads that got it earlier might still be using the container's class
+     * loader, so the container is not disposed and is reclaimed with the client once no longer referenced.
+     */
+    protected void evictContainerClient(ContainerClient containerClient) {
+        AtomicBoolean removed = new AtomicBoolean();
+        containerClients.computeIfPresent(containerClient.getServerTemplateId(), (serverTemplateId, clients) -> {
+            removed.set(clients.remove(containerClient.getContainerId(), containerClient));
+            return clients.isEmpty() ? null : clients;
+        });
+        if (removed.get()) {
+            containerClientsCount.decrementAndGet();
+            containerClientEvictions.incrementAndGet();
+            transport.releaseClient(containerClient.getServerTemplateId());
+            releaseWrappedClients(containerClient.getServerTemplateId(), containerClient.getContainerId());
+            logger.debug("KieServerClient removed for container {} of server template {}", containerClient.getContainerId(), containerClient.getServerTemplateId());
+        }
+    }
+
+    /**
+     * Drops the wrapped clients kept for a replaced or removed client, containerId being null for the server
+     * template client.
+     */
+    protected void releaseWrappedClients(String serverTemplateId, String containerId) {
+        instrumentedClients.release(serverTemplateId, containerId);
+        clientCache.release(serverTemplateId, containerId);
+    }
+
     protected KieServicesClient createClientForTemplate(ServerTemplate serverTemplate, ClassLoader classLoader, CredentialsProvider credentialsProvider) {
 
         if (serverTemplate.getServerInstanceKeys() == null || serverTemplate.getServerInstanceKeys().isEmpty()) {
             return null;
         }
+        LoadBalancer loadBalancer = null;
         try {
+            List<String> urls = new ArrayList<>();
             StringBuilder endpoints = new StringBuilder();
             for (ServerInstanceKey serverInstanceKey : serverTemplate.getServerInstanceKeys()) {
+                urls.add(serverInstanceKey.getUrl());
                 endpoints.append(serverInstanceKey.getUrl() + "|");
             }
             endpoints.deleteCharAt(endpoints.length() - 1);
             logger.debug("Creating client that will use following list of endpoints {}", endpoints);
 
-            final List<String> mappedCapabilities = new ArrayList<>();
-            if (serverTemplate.getCapabilities().contains(Capability.PROCESS.name())) {
-                mappedCapabilities.add(KieServerConstants.CAPABILITY_BPM);
-                mappedCapabilities.add(KieServerConstants.CAPABILITY_BPM_UI);
-                mappedCapabilities.add(KieServerConstants.CAPABILITY_CASE);
-            }
-            if (serverTemplate.getCapabilities().contains(Capability.RULE.name())) {
-                mappedCapabilities.add(KieServerConstants.CAPABILITY_BRM);
-            }
-            if (serverTemplate.getCapabilities().contains(Capability.PLANNING.name())) {
-                mappedCapabilities.add(KieServerConstants.CAPABILITY_BRP);
-            }
-
-            final KieServicesClient kieServicesClient = createKieServicesClient(endpoints.toString(), classLoader, credentialsProvider, mappedCapabilities.toArray(new String[mappedCapabilities.size()]));
+            // all clients of the template share the transport's load balancer
+            loadBalancer = transport.getLoadBalancer(serverTemplate.getId(), urls);
+            final KieServicesClient kieServicesClient = createKieServicesClient(endpoints.toString(), classLoader, credentialsProvider, loadBalancer, transport.getTimeout(), getCapabilities(serverTemplate));
 
             logger.debug("KieServerClient created successfully for server template {}", serverTemplate);
 
@@ -282,9 +676,79 @@ public class KieServerIntegration {
 
             return kieServicesClient;
         } catch (Exception e) {
+            if (loadBalancer != null) {
+                transport.releaseClient(serverTemplate.getId());
+            }
             logger.error("Unable to create kie server client for server template {} due to {}", serverTemplate, e.getMessage(), e);
             return null;
         }
     }
 
-}
\ No newline at end of file
+    /**
+     * Creates an admin client that talks to given server instance only, for state every instance keeps on its own
+     * such as query definitions. The client is not shared, the caller closes its load balancer once done with it.
+     */
+    public KieServicesClient createAdminServerInstanceClient(String serverTemplateId, String serverInstanceUrl) {
+        ServerTemplate serverTemplate = specManagementService.getServerTemplate(serverTemplateId);
+        if (serverTemplate == null) {
+            return null;
+        }
+        return createKieServicesClient(serverInstanceUrl, null, getAdminCredentialsProvider(), LoadBalancer.getDefault(serverInstanceUrl), transport.getTimeout(), getCapabilities(serverTemplate));
+    }
+
+    protected String[] getCapabilities(ServerTemplate serverTemplate) {
+        final List<String> mappedCapabilities = new ArrayList<>();
+        if (serverTemplate.getCapabilities().contains(Capability.PROCESS.name())) {
+            mappedCapabilities.add(KieServerConstants.CAPABILITY_BPM);
+            mappedCapabilities.add(KieServerConstants.CAPABILITY_BPM_UI);
+            mappedCapabilities.add(KieServerConstants.CAPABILITY_CASE);
+        }
+        if (serverTemplate.getCapabilities().contains(Capability.RULE.name())) {
+            mappedCapabilities.add(KieServerConstants.CAPABILITY_BRM);
+        }
+        if (serverTemplate.getCapabilities().contains(Capability.PLANNING.name())) {
+            mappedCapabilities.add(KieServerConstants.CAPABILITY_BRP);
+        }
+        return mappedCapabilities.toArray(new String[mappedCapabilities.size()]);
+    }
+
+    protected static class ContainerClient {
+
+        private final String serverTemplateId;
+        private final String containerId;
+        private final KieServicesClient client;
+        private final ReleaseId releaseId;
+        private volatile long lastAccess = System.currentTimeMillis();
+
+        protected ContainerClient(String serverTemplateId, String containerId, KieServicesClient client, ReleaseId releaseId) {
+            this.serverTemplateId = serverTemplateId;
+            this.containerId = containerId;
+            this.client = client;
+            this.releaseId = releaseId;
+        }
+
+        public String getServerTemplateId() {
+            return serverTemplateId;
+        }
+
+        public String getContainerId() {
+            return containerId;
+        }
+
+        public KieServicesClient getClient() {
+            return client;
+        }
+
+        public ReleaseId getReleaseId() {
+            return releaseId;
+        }
+
+        public long getLastAccess() {
+            return lastAccess;
+        }
+
+        protected void touch() {
+            lastAccess = System.currentTimeMillis();
+        }
+    }
+}
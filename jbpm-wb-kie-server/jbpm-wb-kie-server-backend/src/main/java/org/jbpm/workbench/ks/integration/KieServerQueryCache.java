@@ -0,0 +1,478 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.workbench.ks.integration;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.dashbuilder.dataset.DataSet;
+import org.kie.server.api.model.definition.QueryFilterSpec;
+import org.kie.server.api.model.definition.QueryParam;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounded, time based cache of data sets returned by kie server queries. Entries are kept per server template
+ * and data set so that mutating operations can invalidate only the affected ones. Total row counts are kept
+ * separately, usually with longer TTL, as they are shared by all pages of a query.
+ * <p>
+ * Every invalidation starts a new generation of its server template. Callers take the generation before they
+ * query the server and pass it along with the result, which is dropped when an invalidation happened meanwhile.
+ */
+@ApplicationScoped
+public class KieServerQueryCache implements KieServerQueryCacheMBean {
+
+    public static final String CACHE_SIZE = "org.jbpm.wb.dataset.cache.size";
+    public static final String CACHE_TTL = "org.jbpm.wb.dataset.cache.ttl";
+    public static final String CACHE_COUNT_TTL = "org.jbpm.wb.dataset.cache.count.ttl";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(KieServerQueryCache.class);
+
+    private static final String OBJECT_NAME = "org.jbpm.workbench:type=KieServerQueryCache";
+
+    private final int maxSize;
+    private final long defaultTtl;
+    private final long countTtl;
+    private final ConcurrentMap<String, Long> ttlByDataSet = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final AtomicLong revalidations = new AtomicLong();
+
+    private final Map<Key, Entry<DataSet>> entries;
+    private final Map<Key, Entry<Long>> counts;
+    private final ConcurrentMap<String, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    public KieServerQueryCache() {
+        this(Integer.parseInt(System.getProperty(CACHE_SIZE, "500")),
+             Long.parseLong(System.getProperty(CACHE_TTL, "10000")));
+    }
+
+    public KieServerQueryCache(final int maxSize, final long defaultTtl) {
+        this(maxSize, defaultTtl, Long.parseLong(System.getProperty(CACHE_COUNT_TTL, "30000")));
+    }
+
+    public KieServerQueryCache(final int maxSize, final long defaultTtl, final long countTtl) {
+        this.maxSize = maxSize;
+        this.defaultTtl = defaultTtl;
+        this.countTtl = countTtl;
+        this.entries = newLruMap();
+        this.counts = newLruMap();
+    }
+
+    private <T> Map<Key, Entry<T>> newLruMap() {
+        return new LinkedHashMap<Key, Entry<T>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry<T>> eldest) {
+                if (size() > KieServerQueryCache.this.maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    @PostConstruct
+    public void registerMBean() {
+        try {
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(OBJECT_NAME);
+            if (!mBeanServer.isRegistered(objectName)) {
+                mBeanServer.registerMBean(this, objectName);
+            }
+        } catch (Exception e) {
+            LOGGER.warn("Unable to register data set cache MBean due to {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void unregisterMBean() {
+        try {
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(OBJECT_NAME);
+            if (mBeanServer.isRegistered(objectName)) {
+                mBeanServer.unregisterMBean(objectName);
+            }
+        } catch (Exception e) {
+            LOGGER.debug("Unable to unregister data set cache MBean due to {}", e.getMessage());
+        }
+    }
+
+    public boolean isEnabled(final String dataSetUUID) {
+        return maxSize > 0 && getTtl(dataSetUUID) > 0;
+    }
+
+    /**
+     * Returns copy of the cached data set or null when there is no valid entry for given key
+     */
+    public DataSet get(final Key key) {
+        if (!isEnabled(key.getDataSetUUID())) {
+            return null;
+        }
+        final Entry<DataSet> entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null && entry.isExpired() && entry.watermark == null) {
+                entries.remove(key);
+            }
+        }
+        if (entry == null || entry.isExpired()) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        LOGGER.debug("Data set cache hit for {}", key);
+        return entry.value.cloneInstance();
+    }
+
+    /**
+     * Checks whether there is any entry for given key, including expired ones kept for revalidation
+     */
+    public boolean hasEntry(final Key key) {
+        synchronized (entries) {
+            return entries.containsKey(key);
+        }
+    }
+
+    /**
+     * Returns current generation of given server template, to be taken before the server is queried and passed
+     * to {@link #put(Key, DataSet, Object, long)} or {@link #putCount(Key, long, long)}
+     */
+    public long getGeneration(final String serverTemplateId) {
+        final AtomicLong generation = generations.get(serverTemplateId);
+        return generation == null ? 0 : generation.get();
+    }
+
+    public void put(final Key key, final DataSet dataSet) {
+        put(key, dataSet, null);
+    }
+
+    public void put(final Key key, final DataSet dataSet, final Object watermark) {
+        put(key, dataSet, watermark, getGeneration(key.getServerTemplateId()));
+    }
+
+    /**
+     * Stores the data set together with the data set watermark observed before it was queried, expired entries
+     * with watermark are kept so that they can be revalidated, see {@link #revalidate(Key, Object)}. The data set
+     * is not stored when its server template was invalidated since given generation.
+     */
+    public void put(final Key key, final DataSet dataSet, final Object watermark, final long generation) {
+        if (dataSet == null || !isEnabled(key.getDataSetUUID())) {
+            return;
+        }
+        final Entry<DataSet> entry = new Entry<>(dataSet.cloneInstance(), System.currentTimeMillis() + getTtl(key.getDataSetUUID()), watermark);
+        synchronized (entries) {
+            if (generation != getGeneration(key.getServerTemplateId())) {
+                LOGGER.debug("Data set of {} queried before last invalidation, not cached", key);
+                return;
+            }
+            entries.put(key, entry);
+        }
+    }
+
+    /**
+     * Returns copy of an expired data set when the data set did not change since it was stored, i.e. its watermark
+     * is the same as the given current one, and renews its expiration. Returns null otherwise.
+     */
+    public DataSet revalidate(final Key key, final Object currentWatermark) {
+        if (currentWatermark == null || !isEnabled(key.getDataSetUUID())) {
+            return null;
+        }
+        final Entry<DataSet> entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry == null || !currentWatermark.equals(entry.watermark)) {
+                return null;
+            }
+            entries.put(key, new Entry<>(entry.value, System.currentTimeMillis() + getTtl(key.getDataSetUUID()), entry.watermark));
+        }
+        revalidations.incrementAndGet();
+        LOGGER.debug("Data set cache entry revalidated for {}", key);
+        return entry.value.cloneInstance();
+    }
+
+    /**
+     * Returns the cached total number of rows matching given key or null when it is unknown. Counts do not depend
+     * on the requested page, so keys are expected to be created with zero offset and number of rows.
+     */
+    public Long getCount(final Key key) {
+        if (maxSize <= 0 || countTtl <= 0) {
+            return null;
+        }
+        synchronized (counts) {
+            final Entry<Long> entry = counts.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.isExpired()) {
+                counts.remove(key);
+                return null;
+            }
+            return entry.value;
+        }
+    }
+
+    public void putCount(final Key key, final long count) {
+        putCount(key, count, getGeneration(key.getServerTemplateId()));
+    }
+
+    /**
+     * Stores the total number of rows unless the server template was invalidated since given generation
+     */
+    public void putCount(final Key key, final long count, final long generation) {
+        if (maxSize <= 0 || countTtl <= 0) {
+            return;
+        }
+        synchronized (counts) {
+            if (generation != getGeneration(key.getServerTemplateId())) {
+                return;
+            }
+            counts.put(key, new Entry<>(count, System.currentTimeMillis() + countTtl, null));
+        }
+    }
+
+    /**
+     * Removes cached entries of given server template, restricted to given data sets when any is provided
+     */
+    public void invalidate(final String serverTemplateId, final String... dataSetUUIDs) {
+        final Set<String> uuids = dataSetUUIDs == null ? new HashSet<>() : new HashSet<>(Arrays.asList(dataSetUUIDs));
+        synchronized (entries) {
+            synchronized (counts) {
+                // results of queries still in flight must not be stored anymore
+                generations.computeIfAbsent(serverTemplateId, id -> new AtomicLong()).incrementAndGet();
+            }
+            invalidate(entries, serverTemplateId, uuids);
+        }
+        synchronized (counts) {
+            invalidate(counts, serverTemplateId, uuids);
+        }
+        LOGGER.debug("Data set cache invalidated for server template {} and data sets {}", serverTemplateId, uuids);
+    }
+
+    private void invalidate(final Map<Key, ?> map, final String serverTemplateId, final Set<String> uuids) {
+        Iterator<Key> iterator = map.keySet().iterator();
+        while (iterator.hasNext()) {
+            Key key = iterator.next();
+            if (key.getServerTemplateId().equals(serverTemplateId) && (uuids.isEmpty() || uuids.contains(key.getDataSetUUID()))) {
+                iterator.remove();
+                invalidations.incrementAndGet();
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+        synchronized (counts) {
+            counts.clear();
+        }
+    }
+
+    protected long getTtl(final String dataSetUUID) {
+        return ttlByDataSet.computeIfAbsent(dataSetUUID,
+                                            uuid -> Long.parseLong(System.getProperty(CACHE_TTL + "." + uuid, String.valueOf(defaultTtl))));
+    }
+
+    @Override
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    @Override
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    @Override
+    public long getInvalidationCount() {
+        return invalidations.get();
+    }
+
+    @Override
+    public long getRevalidationCount() {
+        return revalidations.get();
+    }
+
+    @Override
+    public int getSize() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    @Override
+    public int getCountSize() {
+        synchronized (counts) {
+            return counts.size();
+        }
+    }
+
+    @Override
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    private static class Entry<T> {
+
+        private final T value;
+        private final long expiresAt;
+        private final Object watermark;
+
+        Entry(T value, long expiresAt, Object watermark) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+            this.watermark = watermark;
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() > expiresAt;
+        }
+    }
+
+    /**
+     * Identifies single page of a query executed against given server template
+     */
+    public static class Key {
+
+        private final String serverTemplateId;
+        private final String dataSetUUID;
+        private final String filter;
+        private final int offset;
+        private final int numberOfRows;
+        private final String identity;
+        private final int hash;
+
+        public Key(String serverTemplateId, String dataSetUUID, QueryFilterSpec filterSpec, int offset, int numberOfRows) {
+            this(serverTemplateId, dataSetUUID, normalize(filterSpec), offset, numberOfRows, null);
+        }
+
+        public Key(String serverTemplateId, String dataSetUUID, KieServerQueryPlan plan, int offset, int numberOfRows) {
+            this(serverTemplateId, dataSetUUID, plan.getKey(), offset, numberOfRows, null);
+        }
+
+        private Key(String serverTemplateId, String dataSetUUID, String filter, int offset, int numberOfRows, String identity) {
+            this.serverTemplateId = serverTemplateId;
+            this.dataSetUUID = dataSetUUID;
+            this.filter = filter;
+            this.offset = offset;
+            this.numberOfRows = numberOfRows;
+            this.identity = identity;
+            this.hash = computeHash();
+        }
+
+        /**
+         * Returns key of the same query whose rows are shaped differently, e.g. pivoted
+         */
+        public Key withVariant(String variant) {
+            return new Key(serverTemplateId, dataSetUUID, filter + ";variant=" + variant, offset, numberOfRows, identity);
+        }
+
+        /**
+         * Returns key of the same query executed by given user, for data sets whose rows depend on the caller
+         */
+        public Key withIdentity(String identity) {
+            return new Key(serverTemplateId, dataSetUUID, filter, offset, numberOfRows, identity);
+        }
+
+        protected static String normalize(QueryFilterSpec filterSpec) {
+            StringBuilder normalized = new StringBuilder();
+            if (filterSpec.getParameters() != null) {
+                for (QueryParam param : filterSpec.getParameters()) {
+                    normalized.append(param.getColumn()).append("|")
+                            .append(param.getOperator()).append("|")
+                            .append(param.getValue()).append(";");
+                }
+            }
+            normalized.append("orderBy=").append(filterSpec.getOrderBy())
+                    .append(";ascending=").append(filterSpec.isAscending());
+            return normalized.toString();
+        }
+
+        private int computeHash() {
+            int result = serverTemplateId.hashCode();
+            result = 31 * result + dataSetUUID.hashCode();
+            result = 31 * result + filter.hashCode();
+            result = 31 * result + offset;
+            result = 31 * result + numberOfRows;
+            result = 31 * result + (identity != null ? identity.hashCode() : 0);
+            return result;
+        }
+
+        public String getServerTemplateId() {
+            return serverTemplateId;
+        }
+
+        public String getDataSetUUID() {
+            return dataSetUUID;
+        }
+
+        public String getIdentity() {
+            return identity;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key key = (Key) o;
+            return offset == key.offset
+                    && numberOfRows == key.numberOfRows
+                    && serverTemplateId.equals(key.serverTemplateId)
+                    && dataSetUUID.equals(key.dataSetUUID)
+                    && filter.equals(key.filter)
+                    && (identity != null ? identity.equals(key.identity) : key.identity == null);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public String toString() {
+            return "Key{serverTemplateId=" + serverTemplateId + ", dataSetUUID=" + dataSetUUID + ", filter=" + filter
+                    + ", offset=" + offset + ", numberOfRows=" + numberOfRows + ", identity=" + identity + '}';
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.workbench.ks.integration;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.enterprise.context.ApplicationScoped;
+
+import org.dashbuilder.dataset.DataSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Deduplicates concurrent executions of the same query so that only the first caller issues the remote call
+ * while the others wait for its result.
+ */
+@ApplicationScoped
+public class KieServerQueryCoalescer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(KieServerQueryCoalescer.class);
+
+    private final ConcurrentMap<KieServerQueryCache.Key, InFlightQuery> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong coalesced = new AtomicLong();
+
+    public DataSet execute(final KieServerQueryCache.Key key, final Callable<DataSet> query) throws Exception {
+        final InFlightQuery flight = new InFlightQuery();
+        InFlightQuery existing;
+        while ((existing = inFlight.putIfAbsent(key, flight)) != null) {
+            if (existing.join()) {
+                coalesced.incrementAndGet();
+                LOGGER.debug("Joining in flight query {}", key);
+                // every caller gets its own copy as data sets are modified by the consumers
+                return await(existing).cloneInstance();
+            }
+            // query finished after it was looked up and its result now belongs to the leader, start a new one
+        }
+
+        final DataSet dataSet;
+        int followers = 0;
+        try {
+            dataSet = query.call();
+            flight.result.complete(dataSet);
+        } catch (Exception e) {
+            flight.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+            // once closed no more callers can join, so followers count is final
+            followers = flight.close();
+        }
+        return followers > 0 ? dataSet.cloneInstance() : dataSet;
+    }
+
+    protected DataSet await(final InFlightQuery flight) throws Exception {
+        try {
+            return flight.result.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    protected static class InFlightQuery {
+
+        private final CompletableFuture<DataSet> result = new CompletableFuture<>();
+        private int followers;
+        private boolean closed;
+
+        protected synchronized boolean join() {
+            if (closed) {
+                return false;
+            }
+            followers++;
+            return true;
+        }
+
+        protected synchronized int close() {
+            closed = true;
+            return followers;
+        }
+    }
+}
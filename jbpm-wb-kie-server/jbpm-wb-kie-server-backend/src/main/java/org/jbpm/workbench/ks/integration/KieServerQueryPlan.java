@@ -0,0 +1,152 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.workbench.ks.integration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.dashbuilder.dataset.DataColumn;
+import org.dashbuilder.dataset.impl.DataColumnImpl;
+import org.kie.server.api.model.definition.QueryFilterSpec;
+import org.kie.server.api.model.definition.QueryParam;
+
+/**
+ * Translation of a data set lookup into kie server query parameters, independent of the requested page. Plans are
+ * shared between lookups, see {@link KieServerQueryPlanCompiler}, so neither the plan nor its parameters may be
+ * modified. Plans are compared by their structural key which makes them usable as part of result cache keys.
+ */
+public class KieServerQueryPlan {
+
+    private final String key;
+    private final int hash;
+    private final QueryParam[] parameters;
+    private final String orderBy;
+    private final boolean ascending;
+    private final boolean grouped;
+    private final List<DataColumnImpl> extraColumns;
+
+    private volatile KieServerQueryPlan countPlan;
+
+    public KieServerQueryPlan(final String key,
+                              final List<QueryParam> parameters,
+                              final String orderBy,
+                              final boolean ascending,
+                              final boolean grouped,
+                              final List<DataColumnImpl> extraColumns) {
+        this.key = key;
+        this.hash = key.hashCode();
+        this.parameters = parameters.toArray(new QueryParam[parameters.size()]);
+        this.orderBy = orderBy;
+        this.ascending = ascending;
+        this.grouped = grouped;
+        this.extraColumns = Collections.unmodifiableList(new ArrayList<>(extraColumns));
+    }
+
+    /**
+     * Returns new filter spec for this plan, parameters array is copied but the parameters themselves are shared
+     */
+    public QueryFilterSpec toFilterSpec() {
+        final QueryFilterSpec filterSpec = new QueryFilterSpec();
+        if (parameters.length > 0) {
+            filterSpec.setParameters(parameters.clone());
+        }
+        filterSpec.setOrderBy(orderBy);
+        filterSpec.setAscending(ascending);
+        return filterSpec;
+    }
+
+    /**
+     * Returns plan extended with given condition and order, e.g. to seek after the last seen row
+     */
+    public KieServerQueryPlan withCondition(final QueryParam condition, final String orderBy, final boolean ascending) {
+        final List<QueryParam> params = new ArrayList<>(Arrays.asList(parameters));
+        params.add(condition);
+        final StringBuilder conditionKey = new StringBuilder(key).append("|condition:");
+        KieServerQueryPlanCompiler.appendParam(conditionKey, condition);
+        conditionKey.append("|order:").append(orderBy).append(ascending);
+        return new KieServerQueryPlan(conditionKey.toString(), params, orderBy, ascending, grouped, extraColumns);
+    }
+
+    /**
+     * Returns plan counting all rows matching this plan, counted rows are not ordered
+     */
+    public KieServerQueryPlan getCountPlan(final String columnId) {
+        KieServerQueryPlan plan = countPlan;
+        if (plan == null || !plan.parameters[plan.parameters.length - 1].getColumn().equals(columnId)) {
+            final List<QueryParam> params = new ArrayList<>(Arrays.asList(parameters));
+            params.add(new QueryParam(columnId, "COUNT", Arrays.asList("count")));
+            plan = new KieServerQueryPlan(key + "|count:" + columnId, params, null, false, true, Collections.emptyList());
+            countPlan = plan;
+        }
+        return plan;
+    }
+
+    /**
+     * Returns new instances of the columns produced by group functions, empty when rows of the data set are queried
+     */
+    public List<DataColumn> newExtraColumns() {
+        final List<DataColumn> columns = new ArrayList<>(extraColumns.size());
+        for (DataColumnImpl column : extraColumns) {
+            columns.add(new DataColumnImpl(column.getId(), column.getColumnType()));
+        }
+        return columns;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public QueryParam[] getParameters() {
+        return parameters.clone();
+    }
+
+    public String getOrderBy() {
+        return orderBy;
+    }
+
+    public boolean isAscending() {
+        return ascending;
+    }
+
+    public boolean isGrouped() {
+        return grouped;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        KieServerQueryPlan plan = (KieServerQueryPlan) o;
+        return hash == plan.hash && key.equals(plan.key);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return "KieServerQueryPlan{" + key + '}';
+    }
+}
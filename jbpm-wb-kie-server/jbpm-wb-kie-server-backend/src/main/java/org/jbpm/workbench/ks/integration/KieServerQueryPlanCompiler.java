@@ -0,0 +1,327 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.workbench.ks.integration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.enterprise.context.ApplicationScoped;
+
+import org.dashbuilder.dataset.ColumnType;
+import org.dashbuilder.dataset.DataSetLookup;
+import org.dashbuilder.dataset.DataSetOp;
+import org.dashbuilder.dataset.filter.ColumnFilter;
+import org.dashbuilder.dataset.filter.CoreFunctionFilter;
+import org.dashbuilder.dataset.filter.DataSetFilter;
+import org.dashbuilder.dataset.filter.FilterFactory;
+import org.dashbuilder.dataset.filter.LogicalExprFilter;
+import org.dashbuilder.dataset.group.ColumnGroup;
+import org.dashbuilder.dataset.group.DataSetGroup;
+import org.dashbuilder.dataset.group.GroupFunction;
+import org.dashbuilder.dataset.group.Interval;
+import org.dashbuilder.dataset.impl.DataColumnImpl;
+import org.dashbuilder.dataset.sort.ColumnSort;
+import org.dashbuilder.dataset.sort.DataSetSort;
+import org.dashbuilder.dataset.sort.SortOrder;
+import org.kie.server.api.model.definition.QueryParam;
+
+/**
+ * Translates data set lookups into {@link KieServerQueryPlan}s. Plans are memoized in a bounded cache keyed by the
+ * structure of the lookup (data set, filters, groups and sorting), so structurally identical lookups, as issued
+ * repeatedly by dashboards, are translated only once regardless of the requested page.
+ */
+@ApplicationScoped
+public class KieServerQueryPlanCompiler {
+
+    public static final String PLAN_CACHE_SIZE = "org.jbpm.wb.dataset.plan.cache.size";
+
+    private final int maxSize;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private final Map<String, KieServerQueryPlan> plans;
+
+    public KieServerQueryPlanCompiler() {
+        this(Integer.parseInt(System.getProperty(PLAN_CACHE_SIZE, "1000")));
+    }
+
+    public KieServerQueryPlanCompiler(final int maxSize) {
+        this.maxSize = maxSize;
+        this.plans = new LinkedHashMap<String, KieServerQueryPlan>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, KieServerQueryPlan> eldest) {
+                return size() > KieServerQueryPlanCompiler.this.maxSize;
+            }
+        };
+    }
+
+    public KieServerQueryPlan compile(final DataSetLookup lookup) {
+        final String key = structuralKey(lookup);
+        synchronized (plans) {
+            final KieServerQueryPlan plan = plans.get(key);
+            if (plan != null) {
+                hits.incrementAndGet();
+                return plan;
+            }
+        }
+        misses.incrementAndGet();
+        final KieServerQueryPlan plan = translate(key, lookup);
+        if (maxSize > 0) {
+            synchronized (plans) {
+                plans.put(key, plan);
+            }
+        }
+        return plan;
+    }
+
+    protected KieServerQueryPlan translate(final String key, final DataSetLookup lookup) {
+        final List<QueryParam> filterParams = new ArrayList<>();
+        final List<DataColumnImpl> extraColumns = new ArrayList<>();
+
+        // apply filtering
+        for (DataSetFilter filter : lookup.getOperationList(DataSetFilter.class)) {
+            if (filter != null) {
+                for (ColumnFilter cFilter : filter.getColumnFilterList()) {
+                    if (cFilter instanceof CoreFunctionFilter || cFilter instanceof LogicalExprFilter) {
+                        filterParams.add(toQueryParam(cFilter));
+                    }
+                }
+            }
+        }
+
+        for (DataSetGroup group : lookup.getFirstGroupOpSelections()) {
+            if (group.getSelectedIntervalList() != null && group.getSelectedIntervalList().size() > 0) {
+                appendIntervalSelection(group, filterParams);
+            }
+        }
+
+        final DataSetGroup dataSetGroup = lookup.getLastGroupOp();
+        if (dataSetGroup != null) {
+            if (dataSetGroup.getColumnGroup() != null) {
+                // handle group
+                filterParams.add(new QueryParam(dataSetGroup.getColumnGroup().getSourceId(), "group", Arrays.asList(dataSetGroup.getColumnGroup().getColumnId())));
+            }
+
+            // handle additional columns
+            for (GroupFunction groupFunction : dataSetGroup.getGroupFunctions()) {
+                if (groupFunction.getFunction() != null) {
+                    filterParams.add(new QueryParam(groupFunction.getSourceId(), groupFunction.getFunction().toString(), Arrays.asList(groupFunction.getColumnId())));
+                    extraColumns.add(new DataColumnImpl(groupFunction.getSourceId(), ColumnType.NUMBER));
+                } else {
+                    filterParams.add(new QueryParam(groupFunction.getSourceId(), null, Arrays.asList(groupFunction.getColumnId())));
+                    extraColumns.add(new DataColumnImpl(groupFunction.getSourceId(), ColumnType.LABEL));
+                }
+            }
+        }
+
+        // apply sorting
+        String orderBy = null;
+        boolean ascending = false;
+        final DataSetSort sort = lookup.getFirstSortOp();
+        if (sort != null && !sort.getColumnSortList().isEmpty()) {
+            SortOrder sortOrder = SortOrder.UNSPECIFIED;
+            StringBuilder order = new StringBuilder();
+            for (ColumnSort cSort : sort.getColumnSortList()) {
+                order.append(cSort.getColumnId()).append(",");
+                sortOrder = cSort.getOrder();
+            }
+            // remove last ,
+            order.deleteCharAt(order.length() - 1);
+
+            orderBy = order.toString();
+            ascending = sortOrder.equals(SortOrder.ASCENDING);
+        }
+
+        return new KieServerQueryPlan(key, filterParams, orderBy, ascending, dataSetGroup != null, extraColumns);
+    }
+
+    public static QueryParam toQueryParam(final ColumnFilter filter) {
+        if (filter instanceof LogicalExprFilter) {
+            LogicalExprFilter logicalExprFilter = (LogicalExprFilter) filter;
+            return new QueryParam(logicalExprFilter.getColumnId(), logicalExprFilter.getLogicalOperator().toString(), logicalExprFilter.getLogicalTerms());
+        }
+        CoreFunctionFilter coreFunctionFilter = (CoreFunctionFilter) filter;
+        return new QueryParam(coreFunctionFilter.getColumnId(), coreFunctionFilter.getType().toString(), coreFunctionFilter.getParameters());
+    }
+
+    public static void appendIntervalSelection(DataSetGroup intervalSel, List<QueryParam> filterParams) {
+        if (intervalSel != null && intervalSel.isSelect()) {
+            ColumnGroup cg = intervalSel.getColumnGroup();
+            List<Interval> intervalList = intervalSel.getSelectedIntervalList();
+
+            // Get the filter values
+            List<Comparable> names = new ArrayList<Comparable>();
+            Comparable min = null;
+            Comparable max = null;
+            for (Interval interval : intervalList) {
+                names.add(interval.getName());
+                Comparable intervalMin = (Comparable) interval.getMinValue();
+                Comparable intervalMax = (Comparable) interval.getMaxValue();
+
+                if (intervalMin != null) {
+                    if (min == null) min = intervalMin;
+                    else if (min.compareTo(intervalMin) > 0) min = intervalMin;
+                }
+                if (intervalMax != null) {
+                    if (max == null) max = intervalMax;
+                    else if (max.compareTo(intervalMax) > 0) max = intervalMax;
+                }
+            }
+            // Min can't be greater than max.
+            if (min != null && max != null && min.compareTo(max) > 0) {
+                min = max;
+            }
+
+            ColumnFilter filter;
+            if (min != null && max != null) {
+                filter = FilterFactory.between(cg.getSourceId(), min, max);
+            }
+            else if (min != null) {
+                filter = FilterFactory.greaterOrEqualsTo(cg.getSourceId(), min);
+            }
+            else if (max != null) {
+                filter = FilterFactory.lowerOrEqualsTo(cg.getSourceId(), max);
+            }
+            else {
+                filter = FilterFactory.equalsTo(cg.getSourceId(), names);
+            }
+
+            filterParams.add(toQueryParam(filter));
+        }
+    }
+
+    /**
+     * Builds key identifying the structure of the lookup, offset and number of rows are not part of it. Every value
+     * is written with its type and length so that different lookups can never share the same key.
+     */
+    protected String structuralKey(final DataSetLookup lookup) {
+        final StringBuilder key = new StringBuilder();
+        appendValue(key, lookup.getDataSetUUID());
+        for (DataSetOp op : lookup.getOperationList()) {
+            if (op instanceof DataSetFilter) {
+                key.append("|filter:");
+                for (ColumnFilter filter : ((DataSetFilter) op).getColumnFilterList()) {
+                    appendFilter(key, filter);
+                }
+            } else if (op instanceof DataSetGroup) {
+                final DataSetGroup group = (DataSetGroup) op;
+                key.append("|group:").append(group.isSelect());
+                final ColumnGroup columnGroup = group.getColumnGroup();
+                if (columnGroup != null) {
+                    appendValue(key, columnGroup.getSourceId());
+                    appendValue(key, columnGroup.getColumnId());
+                    appendValue(key, columnGroup.getStrategy());
+                    appendValue(key, columnGroup.getIntervalSize());
+                    appendValue(key, columnGroup.getMaxIntervals());
+                }
+                for (GroupFunction function : group.getGroupFunctions()) {
+                    key.append("f");
+                    appendValue(key, function.getSourceId());
+                    appendValue(key, function.getColumnId());
+                    appendValue(key, function.getFunction());
+                }
+                if (group.getSelectedIntervalList() != null) {
+                    for (Interval interval : group.getSelectedIntervalList()) {
+                        key.append("i");
+                        appendValue(key, interval.getName());
+                        appendValue(key, interval.getMinValue());
+                        appendValue(key, interval.getMaxValue());
+                    }
+                }
+            } else if (op instanceof DataSetSort) {
+                key.append("|sort:");
+                for (ColumnSort sort : ((DataSetSort) op).getColumnSortList()) {
+                    appendValue(key, sort.getColumnId());
+                    appendValue(key, sort.getOrder());
+                }
+            } else {
+                key.append("|op:");
+                appendValue(key, op);
+            }
+        }
+        return key.toString();
+    }
+
+    protected static void appendFilter(final StringBuilder key, final ColumnFilter filter) {
+        if (filter instanceof LogicalExprFilter) {
+            final LogicalExprFilter logicalExprFilter = (LogicalExprFilter) filter;
+            key.append("(").append(logicalExprFilter.getLogicalOperator());
+            for (ColumnFilter term : logicalExprFilter.getLogicalTerms()) {
+                appendFilter(key, term);
+            }
+            key.append(")");
+        } else if (filter instanceof CoreFunctionFilter) {
+            final CoreFunctionFilter coreFunctionFilter = (CoreFunctionFilter) filter;
+            key.append("[");
+            appendValue(key, coreFunctionFilter.getColumnId());
+            appendValue(key, coreFunctionFilter.getType());
+            appendValue(key, coreFunctionFilter.getParameters());
+            key.append("]");
+        } else {
+            appendValue(key, filter);
+        }
+    }
+
+    protected static void appendParam(final StringBuilder key, final QueryParam param) {
+        appendValue(key, param.getColumn());
+        appendValue(key, param.getOperator());
+        if (param.getValue() != null) {
+            for (Object value : param.getValue()) {
+                if (value instanceof ColumnFilter) {
+                    appendFilter(key, (ColumnFilter) value);
+                } else {
+                    appendValue(key, value);
+                }
+            }
+        }
+    }
+
+    protected static void appendValue(final StringBuilder key, final Object value) {
+        if (value == null) {
+            key.append("~");
+        } else if (value instanceof Collection) {
+            key.append("{");
+            for (Object item : (Collection) value) {
+                appendValue(key, item);
+            }
+            key.append("}");
+        } else {
+            final String string = value instanceof Date ? String.valueOf(((Date) value).getTime()) : value.toString();
+            key.append(value.getClass().getSimpleName()).append(string.length()).append(':').append(string);
+        }
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public int getSize() {
+        synchronized (plans) {
+            return plans.size();
+        }
+    }
+}
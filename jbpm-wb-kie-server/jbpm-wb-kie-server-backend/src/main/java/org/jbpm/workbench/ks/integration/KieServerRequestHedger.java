@@ -0,0 +1,291 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.workbench.ks.integration;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jbpm.workbench.ks.security.PropagatingCredentialsProvider;
+import org.kie.server.api.exception.KieServicesException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hedges idempotent reads of a server template: when the request has not answered within the 95th percentile
+ * of recent response times a duplicate is sent to another instance of the template. Hedges are paid from a budget
+ * that grows with every request, so they never exceed the configured fraction of the traffic.
+ * <p>
+ * Hedged requests and their duplicates run on the executor with credentials captured on the caller's thread. The
+ * first successful answer is returned, waiting at most for the request timeout; the request's error is reported
+ * when both attempts fail.
+ */
+public class KieServerRequestHedger {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(KieServerRequestHedger.class);
+
+    private static final int MIN_SAMPLES = 20;
+    private static final double MAX_TOKENS = 10;
+
+    private final Set<String> methods;
+    private final double budget;
+    private final long minDelay;
+    private final long timeout;
+    private final ScheduledExecutorService scheduler;
+    private final Executor executor;
+    private final PropagatingCredentialsProvider credentialsProvider;
+
+    private final long[] samples = new long[256];
+    private final AtomicLong sampleCount = new AtomicLong();
+    private volatile long percentile = -1;
+
+    private double tokens;
+
+    private final AtomicLong hedged = new AtomicLong();
+    private final AtomicLong hedgeWins = new AtomicLong();
+
+    /**
+     * @param timeout time in milliseconds to wait for an answer of a hedged request, 0 or less to wait without limit
+     */
+    public KieServerRequestHedger(final Set<String> methods,
+                                  final double budget,
+                                  final long minDelay,
+                                  final long timeout,
+                                  final ScheduledExecutorService scheduler,
+                                  final Executor executor,
+                                  final PropagatingCredentialsProvider credentialsProvider) {
+        this.methods = methods;
+        this.budget = budget;
+        this.minDelay = minDelay;
+        this.timeout = timeout;
+        this.scheduler = scheduler;
+        this.executor = executor;
+        this.credentialsProvider = credentialsProvider;
+    }
+
+    public boolean isHedged(final String method) {
+        return methods.contains(method);
+    }
+
+    public Object invoke(final Callable<Object> request) throws Exception {
+        deposit();
+        final long delay = getHedgeDelay();
+        final long start = System.nanoTime();
+        if (delay < 0 || !hasTokens()) {
+            // not enough samples yet or no budget left, just measure the request
+            return measure(request, start);
+        }
+
+        final Race race = new Race(request, credentialsProvider.capture(), delay, start);
+        try {
+            executor.execute(race::runPrimary);
+        } catch (RejectedExecutionException e) {
+            // no thread to race on, answer from the caller's thread without hedging
+            return measure(request, start);
+        }
+        final ScheduledFuture<?> timer;
+        try {
+            timer = scheduler.schedule(race::runHedge, delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            return race.await();
+        }
+        try {
+            return race.await();
+        } finally {
+            timer.cancel(false);
+        }
+    }
+
+    protected Object measure(final Callable<Object> request,
+                             final long start) throws Exception {
+        final Object result = request.call();
+        record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return result;
+    }
+
+    protected synchronized void deposit() {
+        tokens = Math.min(MAX_TOKENS, tokens + budget);
+    }
+
+    protected synchronized boolean hasTokens() {
+        return tokens >= 1;
+    }
+
+    protected synchronized boolean withdraw() {
+        if (tokens < 1) {
+            return false;
+        }
+        tokens -= 1;
+        return true;
+    }
+
+    protected void record(final long millis) {
+        final long count = sampleCount.incrementAndGet();
+        synchronized (samples) {
+            samples[(int) ((count - 1) % samples.length)] = millis;
+        }
+        if (count >= MIN_SAMPLES && (count % 16 == 0 || percentile < 0)) {
+            final long[] copy;
+            synchronized (samples) {
+                copy = Arrays.copyOf(samples, (int) Math.min(count, samples.length));
+            }
+            Arrays.sort(copy);
+            percentile = copy[(int) Math.ceil(copy.length * 0.95) - 1];
+        }
+    }
+
+    /**
+     * @return time in milliseconds to wait for the first attempt before hedging, -1 while there are not enough samples
+     */
+    public long getHedgeDelay() {
+        final long p95 = percentile;
+        return p95 < 0 ? -1 : Math.max(p95, minDelay);
+    }
+
+    public long getHedgedCount() {
+        return hedged.get();
+    }
+
+    public long getHedgeWinCount() {
+        return hedgeWins.get();
+    }
+
+    /**
+     * A request and its duplicate, sent once the delay elapses unless the request is done by then. The first
+     * successful attempt answers.
+     */
+    protected class Race {
+
+        private final Callable<Object> request;
+        private final PropagatingCredentialsProvider.Credentials credentials;
+        private final long delay;
+        private final long start;
+        private final KieServerTransport.RouteSelection primarySelection = new KieServerTransport.RouteSelection(null);
+        private final CompletableFuture<Object> answer = new CompletableFuture<>();
+        private boolean hedgeSent;
+        private boolean hedgeFailed;
+        private Throwable primaryError;
+
+        protected Race(final Callable<Object> request,
+                       final PropagatingCredentialsProvider.Credentials credentials,
+                       final long delay,
+                       final long start) {
+            this.request = request;
+            this.credentials = credentials;
+            this.delay = delay;
+            this.start = start;
+        }
+
+        protected void runPrimary() {
+            final Object result;
+            try {
+                result = call(primarySelection);
+            } catch (Throwable e) {
+                synchronized (this) {
+                    primaryError = e;
+                    if (!hedgeSent || hedgeFailed) {
+                        answer.completeExceptionally(e);
+                    }
+                }
+                return;
+            }
+            record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            synchronized (this) {
+                answer.complete(result);
+            }
+        }
+
+        protected synchronized void hedgeAnswered(final Object result) {
+            if (!answer.isDone()) {
+                hedgeWins.incrementAndGet();
+                answer.complete(result);
+            }
+        }
+
+        protected void runHedge() {
+            synchronized (this) {
+                if (answer.isDone() || primaryError != null || !withdraw()) {
+                    return;
+                }
+                hedgeSent = true;
+            }
+            hedged.incrementAndGet();
+            LOGGER.debug("No answer from {} within {} ms, hedging request", primarySelection.getSelected(), delay);
+            try {
+                executor.execute(() -> {
+                    try {
+                        hedgeAnswered(call(new KieServerTransport.RouteSelection(primarySelection.getSelected())));
+                    } catch (Throwable e) {
+                        hedgeFailed(e);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                hedgeFailed(e);
+            }
+        }
+
+        protected synchronized void hedgeFailed(final Throwable e) {
+            LOGGER.debug("Hedged request failed due to {}", e.getMessage());
+            hedgeFailed = true;
+            if (primaryError != null) {
+                answer.completeExceptionally(primaryError);
+            }
+        }
+
+        protected Object call(final KieServerTransport.RouteSelection selection) throws Exception {
+            final PropagatingCredentialsProvider.Credentials previous = PropagatingCredentialsProvider.bind(credentials);
+            try {
+                return KieServerTransport.withRouteSelection(selection, request);
+            } finally {
+                PropagatingCredentialsProvider.restore(previous);
+            }
+        }
+
+        /**
+         * Waits for the first successful answer, or the request's error when no attempt succeeds
+         */
+        protected Object await() throws Exception {
+            try {
+                if (timeout <= 0) {
+                    return answer.get();
+                }
+                final long remaining = timeout - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                return answer.get(Math.max(remaining, 0), TimeUnit.MILLISECONDS);
+            } catch (ExecutionException e) {
+                final Throwable cause = e.getCause();
+                if (cause instanceof Exception) {
+                    throw (Exception) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw e;
+            } catch (TimeoutException e) {
+                throw new KieServicesException("No answer within " + timeout + " ms");
+            }
+        }
+    }
+}
@@ -0,0 +1,502 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.workbench.ks.integration;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.jbpm.workbench.ks.utils.KieServerUtils;
+import org.kie.server.client.KieServicesClient;
+import org.kie.server.client.balancer.BalancerStrategy;
+import org.kie.server.client.balancer.LoadBalancer;
+import org.kie.server.client.balancer.impl.RandomBalancerStrategy;
+import org.kie.server.client.balancer.impl.RoundRobinBalancerStrategy;
+import org.kie.server.common.rest.KieServerHttpRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.uberfire.commons.async.SimpleAsyncExecutorService;
+
+/**
+ * HTTP transport shared by all kie server clients. REST clients open their connections through
+ * HttpURLConnection, which keeps idle connections in a JVM wide keep-alive cache per server instance URL.
+ * The cache is shared with every other HttpURLConnection user of the application server, so it is only changed
+ * when explicitly configured through org.jbpm.wb.client.http.keep.alive or
+ * org.jbpm.wb.client.http.max.idle.connections.per.route. Every client of a server template (regular,
+ * container and admin) shares a single load balancer, so endpoint failures detected by one are seen by all
+ * and only one failed endpoints checker runs per template.
+ */
+@ApplicationScoped
+public class KieServerTransport implements KieServerTransportMBean {
+
+    public static final String MAX_IDLE_CONNECTIONS_PER_ROUTE = "org.jbpm.wb.client.http.max.idle.connections.per.route";
+    public static final String KEEP_ALIVE = "org.jbpm.wb.client.http.keep.alive";
+    public static final String TIMEOUT = "org.jbpm.wb.client.http.timeout";
+    public static final String BALANCER_STRATEGY = "org.jbpm.wb.client.balancer.strategy";
+    public static final String BALANCER_EWMA_ALPHA = "org.jbpm.wb.client.balancer.ewma.alpha";
+    public static final String BALANCER_EWMA_DECAY = "org.jbpm.wb.client.balancer.ewma.decay";
+    public static final String HEDGING = "org.jbpm.wb.client.hedging";
+    public static final String HEDGING_BUDGET = "org.jbpm.wb.client.hedging.budget";
+    public static final String HEDGING_METHODS = "org.jbpm.wb.client.hedging.methods";
+    public static final String HEDGING_MIN_DELAY = "org.jbpm.wb.client.hedging.min.delay";
+
+    private static final ThreadLocal<RouteSelection> ROUTE_SELECTION = new ThreadLocal<>();
+
+    /**
+     * Load balancing strategies that can be set globally or per server template, by appending the server
+     * template id to org.jbpm.wb.client.balancer.strategy
+     */
+    public enum Strategy {
+        ROUND_ROBIN,
+        RANDOM,
+        LEAST_LATENCY,
+        POWER_OF_TWO_CHOICES
+    }
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(KieServerTransport.class);
+
+    private static final String OBJECT_NAME = "org.jbpm.workbench:type=KieServerTransport";
+
+    private final Integer maxIdleConnectionsPerRoute;
+    private final Boolean keepAlive;
+    private final long timeout;
+
+    private final ConcurrentMap<String, TemplateTransport> transports = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Route> routes = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService hedgeScheduler;
+
+    public KieServerTransport() {
+        this(System.getProperty(MAX_IDLE_CONNECTIONS_PER_ROUTE) == null ? null : Integer.valueOf(System.getProperty(MAX_IDLE_CONNECTIONS_PER_ROUTE)),
+             System.getProperty(KEEP_ALIVE) == null ? null : Boolean.valueOf(System.getProperty(KEEP_ALIVE)),
+             Long.parseLong(System.getProperty(TIMEOUT, "60000")));
+    }
+
+    /**
+     * @param maxIdleConnectionsPerRoute idle connections kept for reuse per server instance URL, null to keep the JDK
+     * setting; this is the size of the keep-alive cache, it does not limit the number of concurrent connections
+     * @param keepAlive whether connections are kept alive, null to keep the JDK setting
+     */
+    public KieServerTransport(final Integer maxIdleConnectionsPerRoute,
+                              final Boolean keepAlive,
+                              final long timeout) {
+        this.maxIdleConnectionsPerRoute = maxIdleConnectionsPerRoute;
+        this.keepAlive = keepAlive;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Applies the keep-alive settings that are explicitly configured, must happen before the first connection is
+     * opened as the JDK reads them only once. An explicitly configured http.maxConnections takes precedence.
+     */
+    @PostConstruct
+    public void configure() {
+        if (keepAlive != null) {
+            KieServerHttpRequest.setKeepAlive(keepAlive);
+        }
+        if (System.getProperty("http.maxConnections") == null && maxIdleConnectionsPerRoute != null && maxIdleConnectionsPerRoute > 0) {
+            KieServerHttpRequest.setMaxConnections(maxIdleConnectionsPerRoute);
+        }
+        registerMBean();
+    }
+
+    protected void registerMBean() {
+        try {
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(OBJECT_NAME);
+            if (!mBeanServer.isRegistered(objectName)) {
+                mBeanServer.registerMBean(this, objectName);
+            }
+        } catch (Exception e) {
+            LOGGER.warn("Unable to register kie server transport MBean due to {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        transports.values().forEach(transport -> transport.loadBalancer.close());
+        transports.clear();
+        synchronized (this) {
+            if (hedgeScheduler != null) {
+                hedgeScheduler.shutdownNow();
+                hedgeScheduler = null;
+            }
+        }
+        try {
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(OBJECT_NAME);
+            if (mBeanServer.isRegistered(objectName)) {
+                mBeanServer.unregisterMBean(objectName);
+            }
+        } catch (Exception e) {
+            LOGGER.debug("Unable to unregister kie server transport MBean due to {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the load balancer shared by the clients of given server template. When the server template now
+     * has a different set of endpoints the existing load balancer is updated in place, so clients created
+     * earlier follow the change.
+     */
+    public LoadBalancer getLoadBalancer(final String serverTemplateId,
+                                        final List<String> endpoints) {
+        final TemplateTransport transport = transports.compute(serverTemplateId, (id, existing) -> {
+            if (existing == null) {
+                endpoints.forEach(url -> getRoute(url).templates.incrementAndGet());
+                final BalancerStrategy strategy = newBalancerStrategy(serverTemplateId, endpoints);
+                return new TemplateTransport(endpoints, strategy, newLoadBalancer(strategy), newHedger(serverTemplateId));
+            }
+            existing.update(endpoints);
+            return existing;
+        });
+        transport.clients.incrementAndGet();
+        return transport.loadBalancer;
+    }
+
+    /**
+     * Tells that a client created with the load balancer of given server template was dropped or replaced
+     */
+    public void releaseClient(final String serverTemplateId) {
+        final TemplateTransport transport = transports.get(serverTemplateId);
+        if (transport != null) {
+            transport.clients.updateAndGet(count -> Math.max(0, count - 1));
+        }
+    }
+
+    protected LoadBalancer newLoadBalancer(final BalancerStrategy strategy) {
+        return new LoadBalancer(new RouteCountingStrategy(strategy)) {
+        };
+    }
+
+    protected BalancerStrategy newBalancerStrategy(final String serverTemplateId,
+                                                   final List<String> endpoints) {
+        final Strategy strategy = getStrategy(serverTemplateId);
+        LOGGER.debug("Using {} load balancing for server template {}", strategy, serverTemplateId);
+        switch (strategy) {
+            case RANDOM:
+                return new RandomBalancerStrategy(endpoints);
+            case LEAST_LATENCY:
+            case POWER_OF_TWO_CHOICES:
+                return new LatencyAwareBalancerStrategy(endpoints,
+                                                        strategy == Strategy.POWER_OF_TWO_CHOICES,
+                                                        Double.parseDouble(System.getProperty(BALANCER_EWMA_ALPHA, "0.3")),
+                                                        Long.parseLong(System.getProperty(BALANCER_EWMA_DECAY, "10000")));
+            default:
+                return new RoundRobinBalancerStrategy(endpoints);
+        }
+    }
+
+    public Strategy getStrategy(final String serverTemplateId) {
+        final String strategy = System.getProperty(BALANCER_STRATEGY + "." + serverTemplateId, System.getProperty(BALANCER_STRATEGY, Strategy.ROUND_ROBIN.name()));
+        try {
+            return Strategy.valueOf(strategy.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            LOGGER.warn("Unknown load balancing strategy {}, using {}", strategy, Strategy.ROUND_ROBIN);
+            return Strategy.ROUND_ROBIN;
+        }
+    }
+
+    /**
+     * @return strategy of given server template when it balances by response time, null otherwise
+     */
+    public LatencyAwareBalancerStrategy getLatencyAwareStrategy(final String serverTemplateId) {
+        final TemplateTransport transport = transports.get(serverTemplateId);
+        return transport != null && transport.strategy instanceof LatencyAwareBalancerStrategy ? (LatencyAwareBalancerStrategy) transport.strategy : null;
+    }
+
+    /**
+     * Read requests of a server template are hedged when org.jbpm.wb.client.hedging is enabled, globally or with
+     * the server template id appended, and the template has more than one server instance.
+     */
+    protected KieServerRequestHedger newHedger(final String serverTemplateId) {
+        if (!Boolean.parseBoolean(System.getProperty(HEDGING + "." + serverTemplateId, System.getProperty(HEDGING, "false")))) {
+            return null;
+        }
+        final Set<String> methods = new HashSet<>(Arrays.asList(System.getProperty(HEDGING_METHODS, "query,getTaskInstance,getProcessInstance,findNodeInstances").split("\\s*,\\s*")));
+        return new KieServerRequestHedger(methods,
+                                          Double.parseDouble(System.getProperty(HEDGING_BUDGET, "0.05")),
+                                          Long.parseLong(System.getProperty(HEDGING_MIN_DELAY, "10")),
+                                          timeout,
+                                          getHedgeScheduler(),
+                                          SimpleAsyncExecutorService.getDefaultInstance(),
+                                          KieServerUtils.getCredentialsProvider());
+    }
+
+    protected synchronized ScheduledExecutorService getHedgeScheduler() {
+        if (hedgeScheduler == null) {
+            hedgeScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "kie-server-request-hedging");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return hedgeScheduler;
+    }
+
+    /**
+     * @return hedger of given server template, null when its requests are not hedged
+     */
+    public KieServerRequestHedger getHedger(final String serverTemplateId) {
+        final TemplateTransport transport = transports.get(serverTemplateId);
+        return transport == null || transport.endpoints.size() < 2 ? null : transport.hedger;
+    }
+
+    /**
+     * Wraps given client when requests of its server template are measured or hedged.
+     */
+    public KieServicesClient instrument(final String serverTemplateId,
+                                        final KieServicesClient client) {
+        final LatencyAwareBalancerStrategy strategy = getLatencyAwareStrategy(serverTemplateId);
+        final KieServerRequestHedger hedger = getHedger(serverTemplateId);
+        if (client == null || (strategy == null && hedger == null)) {
+            return client;
+        }
+        return KieServicesClientProxy.newProxy(client, strategy, hedger);
+    }
+
+    /**
+     * Runs given request with its endpoint selection tracked, and avoiding the selection's excluded endpoint
+     * unless it is the only one available.
+     */
+    public static <T> T withRouteSelection(final RouteSelection selection,
+                                           final Callable<T> request) throws Exception {
+        final RouteSelection previous = ROUTE_SELECTION.get();
+        ROUTE_SELECTION.set(selection);
+        try {
+            return request.call();
+        } finally {
+            if (previous == null) {
+                ROUTE_SELECTION.remove();
+            } else {
+                ROUTE_SELECTION.set(previous);
+            }
+        }
+    }
+
+    public void release(final String serverTemplateId) {
+        final TemplateTransport transport = transports.remove(serverTemplateId);
+        if (transport != null) {
+            transport.endpoints.forEach(this::releaseRoute);
+            transport.loadBalancer.close();
+        }
+    }
+
+    /**
+     * @return server instance URLs used by any server template
+     */
+    public Set<String> getRoutes() {
+        return new HashSet<>(routes.keySet());
+    }
+
+    /**
+     * Marks given server instance URL as online or offline on every load balancer that uses it. Updates are
+     * serialized per URL so that concurrent probes and events leave all load balancers in the same state.
+     */
+    public void updateRoute(final String url,
+                            final boolean online) {
+        final Route route = routes.get(url);
+        if (route == null) {
+            return;
+        }
+        synchronized (route) {
+            transports.values().stream().filter(transport -> transport.endpoints.contains(url)).forEach(transport -> {
+                final LoadBalancer loadBalancer = transport.loadBalancer;
+                if (online && loadBalancer.getFailedEndpoints().contains(url)) {
+                    loadBalancer.activate(url);
+                } else if (!online && loadBalancer.getAvailableEndpoints().contains(url)) {
+                    loadBalancer.markAsFailed(url);
+                }
+            });
+        }
+    }
+
+    protected Route getRoute(final String url) {
+        return routes.computeIfAbsent(url, u -> new Route());
+    }
+
+    protected void releaseRoute(final String url) {
+        routes.computeIfPresent(url, (u, route) -> route.templates.decrementAndGet() > 0 ? route : null);
+    }
+
+    @Override
+    public int getMaxIdleConnectionsPerRoute() {
+        // effective JDK setting, 5 when not configured at all
+        return Integer.getInteger("http.maxConnections", 5);
+    }
+
+    @Override
+    public boolean isKeepAlive() {
+        return Boolean.parseBoolean(System.getProperty("http.keepAlive", "true"));
+    }
+
+    @Override
+    public long getTimeout() {
+        return timeout;
+    }
+
+    @Override
+    public int getLoadBalancerCount() {
+        return transports.size();
+    }
+
+    @Override
+    public long getClientCount() {
+        return transports.values().stream().mapToLong(transport -> transport.clients.get()).sum();
+    }
+
+    @Override
+    public Map<String, Long> getRouteRequestCounts() {
+        final Map<String, Long> counts = new HashMap<>();
+        routes.forEach((url, route) -> counts.put(url, route.requests.get()));
+        return counts;
+    }
+
+    @Override
+    public Map<String, Integer> getRouteTemplateCounts() {
+        final Map<String, Integer> counts = new HashMap<>();
+        routes.forEach((url, route) -> counts.put(url, route.templates.get()));
+        return counts;
+    }
+
+    protected static class Route {
+
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicInteger templates = new AtomicInteger();
+    }
+
+    protected class TemplateTransport {
+
+        private final List<String> endpoints;
+        private final BalancerStrategy strategy;
+        private final LoadBalancer loadBalancer;
+        private final KieServerRequestHedger hedger;
+        private final AtomicLong clients = new AtomicLong();
+
+        protected TemplateTransport(final List<String> endpoints,
+                                    final BalancerStrategy strategy,
+                                    final LoadBalancer loadBalancer,
+                                    final KieServerRequestHedger hedger) {
+            this.endpoints = new CopyOnWriteArrayList<>(endpoints);
+            this.strategy = strategy;
+            this.loadBalancer = loadBalancer;
+            this.hedger = hedger;
+        }
+
+        protected void update(final List<String> current) {
+            for (String url : current) {
+                if (!endpoints.contains(url)) {
+                    endpoints.add(url);
+                    getRoute(url).templates.incrementAndGet();
+                    loadBalancer.activate(url);
+                }
+            }
+            for (String url : new ArrayList<>(endpoints)) {
+                if (!current.contains(url)) {
+                    endpoints.remove(url);
+                    releaseRoute(url);
+                    loadBalancer.markAsFailed(url);
+                }
+            }
+        }
+    }
+
+    /**
+     * Endpoint selected for a request, and the endpoint to avoid if any
+     */
+    public static class RouteSelection {
+
+        private final String excluded;
+        private volatile String selected;
+
+        public RouteSelection(final String excluded) {
+            this.excluded = excluded;
+        }
+
+        public String getExcluded() {
+            return excluded;
+        }
+
+        public String getSelected() {
+            return selected;
+        }
+    }
+
+    /**
+     * Counts the requests routed to every server instance URL and applies the current thread's route selection
+     */
+    protected class RouteCountingStrategy implements BalancerStrategy {
+
+        private final BalancerStrategy delegate;
+
+        protected RouteCountingStrategy(final BalancerStrategy delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public String next() {
+            String url = delegate.next();
+            final RouteSelection selection = ROUTE_SELECTION.get();
+            if (selection != null) {
+                if (url != null && url.equals(selection.excluded)) {
+                    final int attempts = delegate.getAvailableEndpoints().size();
+                    for (int i = 0; i < attempts && url.equals(selection.excluded); i++) {
+                        url = delegate.next();
+                    }
+                }
+                selection.selected = url;
+            }
+            final Route route = url == null ? null : routes.get(url);
+            if (route != null) {
+                route.requests.incrementAndGet();
+            }
+            return url;
+        }
+
+        @Override
+        public void markAsOffline(final String url) {
+            delegate.markAsOffline(url);
+        }
+
+        @Override
+        public void markAsOnline(final String url) {
+            delegate.markAsOnline(url);
+        }
+
+        @Override
+        public List<String> getAvailableEndpoints() {
+            return delegate.getAvailableEndpoints();
+        }
+    }
+}
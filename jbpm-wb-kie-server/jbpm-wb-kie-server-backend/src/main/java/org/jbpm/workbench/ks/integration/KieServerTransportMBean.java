@@ -0,0 +1,45 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.workbench.ks.integration;
+
+import java.util.Map;
+
+/**
+ * JMX view of the HTTP transport shared by kie server clients
+ */
+public interface KieServerTransportMBean {
+
+    /**
+     * @return idle connections kept for reuse per server instance URL, not a limit of concurrent connections
+     */
+    int getMaxIdleConnectionsPerRoute();
+
+    boolean isKeepAlive();
+
+    long getTimeout();
+
+    int getLoadBalancerCount();
+
+    /**
+     * @return clients currently in use that share the load balancers
+     */
+    long getClientCount();
+
+    Map<String, Long> getRouteRequestCounts();
+
+    Map<String, Integer> getRouteTemplateCounts();
+}
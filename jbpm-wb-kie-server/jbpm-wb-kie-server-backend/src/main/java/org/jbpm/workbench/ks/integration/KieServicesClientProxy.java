@@ -0,0 +1,124 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.workbench.ks.integration;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.kie.server.client.KieServicesClient;
+
+/**
+ * Measures every remote call made through a kie server client, and the services clients it returns, so
+ * that the load balancer of its server template can route by response time. Idempotent reads are handed to
+ * the template's hedger when it has one.
+ */
+public class KieServicesClientProxy implements InvocationHandler {
+
+    private final Object target;
+    private final LatencyAwareBalancerStrategy strategy;
+    private final KieServerRequestHedger hedger;
+    private final ConcurrentMap<Class<?>, Object> servicesClients = new ConcurrentHashMap<>();
+
+    protected KieServicesClientProxy(final Object target,
+                                     final LatencyAwareBalancerStrategy strategy,
+                                     final KieServerRequestHedger hedger) {
+        this.target = target;
+        this.strategy = strategy;
+        this.hedger = hedger;
+    }
+
+    /**
+     * @param strategy strategy to report response times to, might be null
+     * @param hedger hedger of idempotent reads, might be null
+     */
+    public static KieServicesClient newProxy(final KieServicesClient client,
+                                             final LatencyAwareBalancerStrategy strategy,
+                                             final KieServerRequestHedger hedger) {
+        return newProxy(KieServicesClient.class, client, strategy, hedger);
+    }
+
+    protected static <T> T newProxy(final Class<T> type,
+                                    final T target,
+                                    final LatencyAwareBalancerStrategy strategy,
+                                    final KieServerRequestHedger hedger) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(),
+                                                new Class<?>[]{type},
+                                                new KieServicesClientProxy(target, strategy, hedger)));
+    }
+
+    @Override
+    public Object invoke(final Object proxy,
+                         final Method method,
+                         final Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            return invokeTarget(method, args);
+        }
+        if (target instanceof KieServicesClient && method.getName().equals("getServicesClient")) {
+            final Object servicesClient = invokeTarget(method, args);
+            final Class type = (Class) args[0];
+            if (servicesClient == null || !type.isInterface()) {
+                return servicesClient;
+            }
+            Object measured = servicesClients.get(type);
+            if (measured == null || ((KieServicesClientProxy) Proxy.getInvocationHandler(measured)).target != servicesClient) {
+                measured = newProxy(type, servicesClient, strategy, hedger);
+                servicesClients.put(type, measured);
+            }
+            return measured;
+        }
+
+        if (hedger != null && hedger.isHedged(method.getName())) {
+            return hedger.invoke(() -> {
+                try {
+                    return invokeMeasured(method, args);
+                } catch (Exception | Error e) {
+                    throw e;
+                } catch (Throwable e) {
+                    throw new UndeclaredThrowableException(e);
+                }
+            });
+        }
+        return invokeMeasured(method, args);
+    }
+
+    protected Object invokeMeasured(final Method method,
+                                    final Object[] args) throws Throwable {
+        final boolean measured = strategy != null && strategy.begin();
+        final long start = System.nanoTime();
+        try {
+            return invokeTarget(method, args);
+        } finally {
+            if (measured) {
+                strategy.end(System.nanoTime() - start);
+            }
+        }
+    }
+
+    protected Object invokeTarget(final Method method,
+                                  final Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
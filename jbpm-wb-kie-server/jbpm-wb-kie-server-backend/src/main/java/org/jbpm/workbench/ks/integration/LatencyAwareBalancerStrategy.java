@@ -0,0 +1,200 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.workbench.ks.integration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.kie.server.client.balancer.impl.AbstractBalancerStrategy;
+
+/**
+ * Routes each request to the server instance with the lowest expected cost: an exponentially weighted moving
+ * average of its response times multiplied by its requests in flight. The average decays while an instance
+ * gets no traffic, so an instance that was slow for a while is tried again later. With power of two choices
+ * only two randomly picked instances are compared, which avoids all callers herding on the same instance.
+ * <p>
+ * Requests are only measured between {@link #begin()} and {@link #end(long)} on the calling thread, see
+ * {@link KieServicesClientProxy}.
+ */
+public class LatencyAwareBalancerStrategy extends AbstractBalancerStrategy {
+
+    private final CopyOnWriteArrayList<String> availableEndpoints;
+    private final ConcurrentMap<String, EndpointStats> stats = new ConcurrentHashMap<>();
+    private final ThreadLocal<List<String>> selections = new ThreadLocal<>();
+
+    private final boolean powerOfTwoChoices;
+    private final double alpha;
+    private final long decayTime;
+
+    public LatencyAwareBalancerStrategy(final List<String> endpoints,
+                                        final boolean powerOfTwoChoices,
+                                        final double alpha,
+                                        final long decayTime) {
+        this.availableEndpoints = new CopyOnWriteArrayList<>(endpoints);
+        this.powerOfTwoChoices = powerOfTwoChoices;
+        this.alpha = alpha;
+        this.decayTime = decayTime;
+    }
+
+    @Override
+    public String next() {
+        final Object[] endpoints = availableEndpoints.toArray();
+        checkEmpty(Arrays.asList(endpoints));
+
+        final long now = System.currentTimeMillis();
+        final String url;
+        if (endpoints.length == 1) {
+            url = (String) endpoints[0];
+        } else if (powerOfTwoChoices && endpoints.length > 2) {
+            final ThreadLocalRandom random = ThreadLocalRandom.current();
+            final int first = random.nextInt(endpoints.length);
+            final int second = (first + 1 + random.nextInt(endpoints.length - 1)) % endpoints.length;
+            url = (String) (getCost(endpoints[first], now) <= getCost(endpoints[second], now) ? endpoints[first] : endpoints[second]);
+        } else {
+            url = leastCost(endpoints, now);
+        }
+
+        final List<String> tracked = selections.get();
+        if (tracked != null) {
+            tracked.add(url);
+            getStats(url).inFlight.incrementAndGet();
+        }
+        return url;
+    }
+
+    protected String leastCost(final Object[] endpoints,
+                               final long now) {
+        // start at a random position so that ties are spread
+        final int offset = ThreadLocalRandom.current().nextInt(endpoints.length);
+        String best = null;
+        double bestCost = Double.MAX_VALUE;
+        for (int i = 0; i < endpoints.length; i++) {
+            final String url = (String) endpoints[(offset + i) % endpoints.length];
+            final double cost = getCost(url, now);
+            if (cost < bestCost) {
+                best = url;
+                bestCost = cost;
+            }
+        }
+        return best;
+    }
+
+    protected double getCost(final Object url,
+                             final long now) {
+        final EndpointStats endpointStats = stats.get(url);
+        return endpointStats == null ? 1 : endpointStats.getCost(now);
+    }
+
+    /**
+     * Starts measuring a request on the calling thread.
+     * @return false if a request is already being measured on this thread
+     */
+    public boolean begin() {
+        if (selections.get() != null) {
+            return false;
+        }
+        selections.set(new ArrayList<>(2));
+        return true;
+    }
+
+    /**
+     * Ends the request started with {@link #begin()}. Only the last selected endpoint gets the sample, the
+     * earlier ones were abandoned after failing.
+     */
+    public void end(final long elapsedNanos) {
+        final List<String> tracked = selections.get();
+        selections.remove();
+        if (tracked == null) {
+            return;
+        }
+        for (int i = 0; i < tracked.size(); i++) {
+            final EndpointStats endpointStats = getStats(tracked.get(i));
+            endpointStats.inFlight.decrementAndGet();
+            if (i == tracked.size() - 1) {
+                endpointStats.update(TimeUnit.NANOSECONDS.toMicros(elapsedNanos) / 1000d);
+            }
+        }
+    }
+
+    protected EndpointStats getStats(final String url) {
+        return stats.computeIfAbsent(url, u -> new EndpointStats());
+    }
+
+    @Override
+    public void markAsOffline(final String url) {
+        availableEndpoints.remove(url);
+    }
+
+    @Override
+    public void markAsOnline(final String url) {
+        availableEndpoints.addIfAbsent(url);
+    }
+
+    @Override
+    public List<String> getAvailableEndpoints() {
+        return new ArrayList<>(availableEndpoints);
+    }
+
+    /**
+     * @return moving average of response times in milliseconds per server instance URL
+     */
+    public Map<String, Double> getResponseTimes() {
+        final Map<String, Double> responseTimes = new HashMap<>();
+        stats.forEach((url, endpointStats) -> responseTimes.put(url, endpointStats.ewma));
+        return responseTimes;
+    }
+
+    public Map<String, Integer> getInFlightRequests() {
+        final Map<String, Integer> inFlight = new HashMap<>();
+        stats.forEach((url, endpointStats) -> inFlight.put(url, endpointStats.inFlight.get()));
+        return inFlight;
+    }
+
+    @Override
+    public String toString() {
+        return "LatencyAwareBalancerStrategy{" +
+                "availableEndpoints=" + availableEndpoints +
+                ", powerOfTwoChoices=" + powerOfTwoChoices +
+                '}';
+    }
+
+    protected class EndpointStats {
+
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private volatile double ewma;
+        private volatile long lastUpdate;
+
+        protected synchronized void update(final double responseTime) {
+            ewma = lastUpdate == 0 ? responseTime : alpha * responseTime + (1 - alpha) * ewma;
+            lastUpdate = System.currentTimeMillis();
+        }
+
+        protected double getCost(final long now) {
+            final double decayed = decayTime > 0 ? ewma * Math.exp(-Math.max(0, now - lastUpdate) / (double) decayTime) : ewma;
+            return (decayed + 1) * (inFlight.get() + 1);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jbpm.workbench.ks.integration;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.kie.server.api.exception.KieServicesException;
+import org.kie.server.api.exception.KieServicesHttpException;
+import org.kie.server.client.KieServicesClient;
+import org.kie.server.client.QueryServicesClient;
+import org.kie.server.common.rest.KieServerHttpRequestException;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class KieServerCircuitBreakersTest {
+
+    @Mock
+    KieServicesClient kieServicesClient;
+
+    @Mock
+    QueryServicesClient queryServicesClient;
+
+    private final KieServerCircuitBreakers circuitBreakers = new KieServerCircuitBreakers(2, 50, 1);
+
+    private QueryServicesClient client;
+
+    @Before
+    public void setUp() {
+        when(kieServicesClient.getServicesClient(QueryServicesClient.class)).thenReturn(queryServicesClient);
+        client = circuitBreakers.guard("template", kieServicesClient).getServicesClient(QueryServicesClient.class);
+    }
+
+    @Test
+    public void testServicesClientWrappedOnce() {
+        final KieServicesClient guarded = circuitBreakers.guard("template", kieServicesClient);
+
+        assertSame(guarded.getServicesClient(QueryServicesClient.class), guarded.getServicesClient(QueryServicesClient.class));
+    }
+
+    @Test
+    public void testCircuitOpensAfterConsecutiveFailures() {
+        when(queryServicesClient.getQueries(0, 10)).thenThrow(new KieServerHttpRequestException("Connection refused"));
+
+        callFailing();
+        callFailing();
+        assertEquals("OPEN", circuitBreakers.getStates().get("template"));
+
+        callFailing();
+        verify(queryServicesClient, times(2)).getQueries(0, 10);
+        assertEquals(Long.valueOf(1), circuitBreakers.getRejectedCounts().get("template"));
+    }
+
+    @Test
+    public void testCircuitClosedAfterSuccessfulTrial() throws Exception {
+        when(queryServicesClient.getQueries(0, 10)).thenThrow(new KieServicesHttpException("Unavailable", 503, "url", "body")).thenThrow(new KieServerHttpRequestException("Connection refused")).thenReturn(null);
+
+        callFailing();
+        callFailing();
+        Thread.sleep(60);
+        client.getQueries(0, 10);
+
+        assertEquals(KieServerCircuitBreakers.State.CLOSED, circuitBreakers.getCircuitBreaker("template").getState());
+    }
+
+    @Test
+    public void testApplicationErrorsDoNotOpenCircuit() {
+        when(queryServicesClient.getQueries(0, 10)).thenThrow(new KieServicesException("Query not found"));
+
+        callFailing();
+        callFailing();
+        callFailing();
+
+        assertEquals("CLOSED", circuitBreakers.getStates().get("template"));
+        verify(queryServicesClient, times(3)).getQueries(0, 10);
+    }
+
+    @Test
+    public void testBulkheadRejectsExcessCalls() {
+        final KieServerCircuitBreakers.CircuitBreaker circuitBreaker = circuitBreakers.getCircuitBreaker("template");
+        circuitBreaker.acquire();
+        try {
+            callFailing();
+            assertEquals(1, circuitBreaker.getActiveCalls());
+            assertEquals(1, circuitBreaker.getRejectedCount());
+            verify(queryServicesClient, never()).getQueries(0, 10);
+        } finally {
+            circuitBreaker.release(false);
+        }
+        assertEquals(0, circuitBreaker.getActiveCalls());
+    }
+
+    private void callFailing() {
+        try {
+            client.getQueries(0, 10);
+            fail("Call error expected");
+        } catch (KieServicesException | KieServerHttpRequestException e) {
+            // expected
+        }
+    }
+}
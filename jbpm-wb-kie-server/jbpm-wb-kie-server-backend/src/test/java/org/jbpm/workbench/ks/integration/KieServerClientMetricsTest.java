@@ -0,0 +1,104 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jbpm.workbench.ks.integration;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.kie.server.api.exception.KieServicesException;
+import org.kie.server.client.KieServicesClient;
+import org.kie.server.client.QueryServicesClient;
+import org.kie.server.client.UserTaskServicesClient;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class KieServerClientMetricsTest {
+
+    @Mock
+    KieServicesClient kieServicesClient;
+
+    @Mock
+    QueryServicesClient queryServicesClient;
+
+    @Mock
+    UserTaskServicesClient userTaskServicesClient;
+
+    private final KieServerClientMetrics metrics = new KieServerClientMetrics(true);
+
+    @Before
+    public void setUp() {
+        when(kieServicesClient.getServicesClient(QueryServicesClient.class)).thenReturn(queryServicesClient);
+        when(kieServicesClient.getServicesClient(UserTaskServicesClient.class)).thenReturn(userTaskServicesClient);
+    }
+
+    @Test
+    public void testCallsRecordedPerTemplateAndMethod() {
+        when(queryServicesClient.getQueries(0, 10)).thenReturn(Arrays.asList(null, null, null));
+
+        metrics.instrument("template", kieServicesClient).getServicesClient(QueryServicesClient.class).getQueries(0, 10);
+        metrics.instrument("template", kieServicesClient).getServicesClient(QueryServicesClient.class).getQueries(0, 10);
+        metrics.instrument("other", kieServicesClient).getServicesClient(UserTaskServicesClient.class).findTasks("user", 0, 10);
+
+        final KieServerClientMetrics.MethodMetrics methodMetrics = metrics.getMethodMetrics("template", "QueryServicesClient.getQueries");
+        assertEquals(2, methodMetrics.getCallCount());
+        assertEquals(0, methodMetrics.getErrorCount());
+        assertEquals(6, methodMetrics.getPayloadSize());
+        assertEquals(Long.valueOf(1), metrics.getCallCounts().get("other|UserTaskServicesClient.findTasks"));
+        assertTrue(metrics.getSnapshot().contains("kie_server_client_calls{template=\"template\",method=\"QueryServicesClient.getQueries\"} 2"));
+    }
+
+    @Test
+    public void testErrorsRecorded() {
+        when(queryServicesClient.getQueries(0, 10)).thenThrow(new KieServicesException("error"));
+
+        try {
+            metrics.instrument("template", kieServicesClient).getServicesClient(QueryServicesClient.class).getQueries(0, 10);
+            fail("Call error expected");
+        } catch (KieServicesException e) {
+            // expected
+        }
+
+        assertEquals(Long.valueOf(1), metrics.getErrorCounts().get("template|QueryServicesClient.getQueries"));
+    }
+
+    @Test
+    public void testLatencyPercentileFromHistogram() throws Exception {
+        final KieServerClientMetrics.MethodMetrics methodMetrics = new KieServerClientMetrics.MethodMetrics(QueryServicesClient.class.getMethod("getQueries", Integer.class, Integer.class));
+        for (int i = 0; i < 95; i++) {
+            methodMetrics.record(1_000_000, null, false);
+        }
+        for (int i = 0; i < 5; i++) {
+            methodMetrics.record(100_000_000, null, false);
+        }
+
+        assertEquals(2, methodMetrics.getLatencyPercentile(0.95));
+        assertEquals(128, methodMetrics.getLatencyPercentile(0.99));
+        assertEquals(5, methodMetrics.getMeanLatency());
+    }
+
+    @Test
+    public void testDisabled() {
+        assertSame(kieServicesClient, new KieServerClientMetrics(false).instrument("template", kieServicesClient));
+    }
+}
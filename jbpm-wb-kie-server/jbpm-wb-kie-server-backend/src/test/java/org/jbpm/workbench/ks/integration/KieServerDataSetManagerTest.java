@@ -17,9 +17,12 @@
 package org.jbpm.workbench.ks.integration;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import javax.enterprise.event.Event;
 
 import org.dashbuilder.dataset.def.DataSetDefRegistry;
@@ -37,12 +40,14 @@ import org.mockito.runners.MockitoJUnitRunner;
 import org.uberfire.mocks.EventSourceMock;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.*;
 import static org.mockito.Mockito.*;
 
 @RunWith(MockitoJUnitRunner.class)
 public class KieServerDataSetManagerTest {
 
+    private static final String INSTANCE_URL = "http://instance:8080/kie-server/services/rest/server";
 
     private DataSetDefRegistry dataSetDefRegistry;
 
@@ -73,7 +78,7 @@ public class KieServerDataSetManagerTest {
         this.queryClient = Mockito.mock(QueryServicesClient.class);
         when(kieClient.getServicesClient(any())).thenReturn(queryClient);
 
-        when(kieServerIntegration.getAdminServerClient(anyString())).thenReturn(kieClient);
+        when(kieServerIntegration.createAdminServerInstanceClient(anyString(), anyString())).thenReturn(kieClient);
 
         this.kieServerDataSetManager = new KieServerDataSetManager(dataSetDefRegistry, kieServerIntegration, event);
     }
@@ -86,9 +91,10 @@ public class KieServerDataSetManagerTest {
         Set<QueryDefinition> definitions = new HashSet<>();
         definitions.add(query);
 
-        kieServerDataSetManager.registerQueriesWithRetry("template", "instance", definitions);
+        kieServerDataSetManager.registerQueriesWithRetry("template", "instance", INSTANCE_URL, definitions).get(5, TimeUnit.SECONDS);
 
-        verify(kieServerIntegration, times(1)).getAdminServerClient(anyString());
+        verify(kieServerIntegration, times(1)).createAdminServerInstanceClient("template", INSTANCE_URL);
+        verify(kieServerIntegration, never()).getAdminServerClient(anyString());
         verify(queryClient, times(1)).replaceQuery(any());
 
         assertEquals(1, receivedEvents.size());
@@ -104,6 +110,60 @@ public class KieServerDataSetManagerTest {
         registerQueriesWithRetryException(new KieServerHttpRequestException("KieServer endpoint down"));
     }
 
+    @Test
+    public void testRegisterOnlyChangedQueries() throws Exception {
+        QueryDefinition unchanged = QueryDefinition.builder().name("unchanged").expression("expression").source("jbpm").target("CUSTOM").build();
+        QueryDefinition changed = QueryDefinition.builder().name("changed").expression("new expression").source("jbpm").target("CUSTOM").build();
+        QueryDefinition added = QueryDefinition.builder().name("added").expression("expression").source("jbpm").target("CUSTOM").build();
+        Set<QueryDefinition> definitions = new HashSet<>(Arrays.asList(unchanged, changed, added));
+
+        when(queryClient.getQueries(0, 100)).thenReturn(Arrays.asList(
+                QueryDefinition.builder().name("unchanged").expression("expression").source("jbpm").target("CUSTOM").build(),
+                QueryDefinition.builder().name("changed").expression("expression").source("jbpm").target("CUSTOM").build()));
+
+        kieServerDataSetManager.registerQueriesWithRetry("template", "instance", INSTANCE_URL, definitions).get(5, TimeUnit.SECONDS);
+
+        verify(queryClient, never()).replaceQuery(unchanged);
+        verify(queryClient).replaceQuery(changed);
+        verify(queryClient).replaceQuery(added);
+        assertEquals(1, receivedEvents.size());
+    }
+
+    @Test
+    public void testRegisterQueriesWithRetryDueToUnexpectedException() throws Exception {
+        kieServerDataSetManager = new KieServerDataSetManager(dataSetDefRegistry, kieServerIntegration, event, 5000, 10, 20);
+        QueryDefinition query = QueryDefinition.builder().name("test").expression("expression").source("jbpm").target("CUSTOM").build();
+        doThrow(new IllegalStateException("Unexpected response")).doNothing().when(queryClient).replaceQuery(query);
+
+        kieServerDataSetManager.registerQueriesWithRetry("template", "instance", INSTANCE_URL, Collections.singleton(query)).get(5, TimeUnit.SECONDS);
+
+        verify(queryClient, times(2)).replaceQuery(query);
+        assertEquals(1, receivedEvents.size());
+    }
+
+    @Test
+    public void testRegisterQueriesGivenUpAfterTimeout() throws Exception {
+        kieServerDataSetManager = new KieServerDataSetManager(dataSetDefRegistry, kieServerIntegration, event, 50, 10, 20);
+        doThrow(new KieServerHttpRequestException("KieServer endpoint down")).when(queryClient).replaceQuery(any());
+
+        kieServerDataSetManager.registerQueriesWithRetry("template", "instance", INSTANCE_URL, Collections.singleton(
+                QueryDefinition.builder().name("test").expression("expression").source("jbpm").target("CUSTOM").build())).get(5, TimeUnit.SECONDS);
+
+        verify(queryClient, atLeast(2)).replaceQuery(any());
+        assertTrue(receivedEvents.isEmpty());
+    }
+
+    @Test
+    public void testRetryDelayBackedOffWithJitter() {
+        kieServerDataSetManager = new KieServerDataSetManager(dataSetDefRegistry, kieServerIntegration, event, 1000, 100, 1000);
+
+        for (int i = 0; i < 10; i++) {
+            final long delay = kieServerDataSetManager.nextDelay(i);
+            final long max = Math.min(1000, 100 << i);
+            assertTrue(delay >= max / 2 && delay <= max);
+        }
+    }
+
     private void registerQueriesWithRetryException(Exception exception) throws Exception {
         QueryDefinition query = QueryDefinition.builder().name("test").expression("expression").source("jbpm").target("CUSTOM").build();
         Set<QueryDefinition> definitions = new HashSet<>();
@@ -113,14 +173,13 @@ public class KieServerDataSetManagerTest {
         QueryServicesClient queryClientRecreated = Mockito.mock(QueryServicesClient.class);
         when(kieClientRecreated.getServicesClient(any())).thenReturn(queryClientRecreated);
 
-        when(kieServerIntegration.getAdminServerClientCheckEndpoints(anyString())).thenReturn(kieClientRecreated);
+        when(kieServerIntegration.createAdminServerInstanceClient(anyString(), anyString())).thenReturn(kieClient, kieClientRecreated);
 
         doThrow(exception).when(queryClient).replaceQuery(any());
 
-        kieServerDataSetManager.registerQueriesWithRetry("template", "instance", definitions);
+        kieServerDataSetManager.registerQueriesWithRetry("template", "instance", INSTANCE_URL, definitions).get(5, TimeUnit.SECONDS);
 
-        verify(kieServerIntegration, times(1)).getAdminServerClient(anyString());
-        verify(kieServerIntegration, times(1)).getAdminServerClientCheckEndpoints(anyString());
+        verify(kieServerIntegration, times(2)).createAdminServerInstanceClient("template", INSTANCE_URL);
         verify(queryClient, times(1)).replaceQuery(any());
         verify(queryClientRecreated, times(1)).replaceQuery(any());
 
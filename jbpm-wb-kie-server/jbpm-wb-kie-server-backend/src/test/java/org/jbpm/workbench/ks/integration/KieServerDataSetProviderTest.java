@@ -16,9 +16,15 @@
 package org.jbpm.workbench.ks.integration;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 
+import org.dashbuilder.dataset.ColumnType;
+import org.dashbuilder.dataset.DataSet;
 import org.dashbuilder.dataset.DataSetLookup;
+import org.dashbuilder.dataset.def.DataColumnDef;
 import org.dashbuilder.dataset.def.DataSetDef;
 import org.dashbuilder.dataset.filter.ColumnFilter;
 import org.dashbuilder.dataset.filter.CoreFunctionFilter;
@@ -28,16 +34,23 @@ import org.dashbuilder.dataset.group.DataSetGroup;
 import org.dashbuilder.dataset.group.GroupStrategy;
 import org.dashbuilder.dataset.group.Interval;
 import org.dashbuilder.dataset.impl.DataSetImpl;
+import org.dashbuilder.dataset.sort.ColumnSort;
+import org.dashbuilder.dataset.sort.DataSetSort;
+import org.dashbuilder.dataset.sort.SortOrder;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.kie.server.api.model.definition.QueryFilterSpec;
 import org.kie.server.api.model.definition.QueryParam;
+import org.kie.server.client.CredentialsProvider;
 import org.kie.server.client.KieServicesClient;
 import org.kie.server.client.QueryServicesClient;
 import org.mockito.ArgumentCaptor;
+import org.jbpm.workbench.ks.security.PropagatingCredentialsProvider;
+import org.kie.internal.identity.IdentityProvider;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.runners.MockitoJUnitRunner;
 
 import static org.dashbuilder.dataset.filter.FilterFactory.*;
@@ -67,6 +80,30 @@ public class KieServerDataSetProviderTest {
     @Mock
     DataSetDef dataSetDef;
 
+    @Mock
+    IdentityProvider identityProvider;
+
+    @Spy
+    KieServerQueryCache queryCache = new KieServerQueryCache(10, 60000);
+
+    @Spy
+    KieServerCircuitBreakers circuitBreakers = new KieServerCircuitBreakers(5, 30000, 50);
+
+    @Spy
+    KieServerClientMetrics clientMetrics = new KieServerClientMetrics(true);
+
+    @Spy
+    KieServerClientCache clientCache = new KieServerClientCache();
+
+    @Spy
+    KieServerQueryCoalescer queryCoalescer = new KieServerQueryCoalescer();
+
+    @Spy
+    KieServerQueryPlanCompiler planCompiler = new KieServerQueryPlanCompiler(10);
+
+    @Spy
+    KieServerDataSetWatermarks watermarks = new KieServerDataSetWatermarks(60000);
+
     @Before
     public void setUp() {
         when(kieServerIntegration.getServerClient("servereTemplateId")).thenReturn(kieServicesClient);
@@ -148,4 +185,445 @@ public class KieServerDataSetProviderTest {
 
     }
 
+    @Test
+    public void lookupDataSetCachedTest() throws Exception {
+        DataSetLookup lookup = new DataSetLookup();
+        lookup.setDataSetUUID("");
+        lookup.setNumberOfRows(10);
+        when(dataSetDef.getUUID()).thenReturn("");
+
+        DataSetFilter filter = new DataSetFilter();
+        filter.addFilterColumn(equalsTo("column1", "value"));
+        lookup.addOperation(filter);
+
+        kieServerDataSetProvider.lookupDataSet(dataSetDef, ConsoleDataSetLookup.fromInstance(lookup, "servereTemplateId"));
+        kieServerDataSetProvider.lookupDataSet(dataSetDef, ConsoleDataSetLookup.fromInstance(lookup, "servereTemplateId"));
+
+        verify(queryServicesClient, times(1)).query(anyString(), anyString(), any(QueryFilterSpec.class), anyInt(), anyInt(), any());
+        assertEquals(1, queryCache.getHitCount());
+        assertEquals(1, queryCache.getMissCount());
+
+        queryCache.invalidate("servereTemplateId", "");
+        kieServerDataSetProvider.lookupDataSet(dataSetDef, ConsoleDataSetLookup.fromInstance(lookup, "servereTemplateId"));
+
+        verify(queryServicesClient, times(2)).query(anyString(), anyString(), any(QueryFilterSpec.class), anyInt(), anyInt(), any());
+    }
+
+    @Test
+    public void lookupUserScopedDataSetCachedPerUserTest() throws Exception {
+        DataSetLookup lookup = new DataSetLookup();
+        lookup.setDataSetUUID("");
+        lookup.setNumberOfRows(10);
+        when(dataSetDef.getUUID()).thenReturn("");
+        when(dataSetDef.getName()).thenReturn("FILTERED_PO_TASK-Human tasks and users");
+        when(identityProvider.getName()).thenReturn("john", "mary", "john");
+
+        kieServerDataSetProvider.lookupDataSet(dataSetDef, ConsoleDataSetLookup.fromInstance(lookup, "servereTemplateId"));
+        kieServerDataSetProvider.lookupDataSet(dataSetDef, ConsoleDataSetLookup.fromInstance(lookup, "servereTemplateId"));
+        kieServerDataSetProvider.lookupDataSet(dataSetDef, ConsoleDataSetLookup.fromInstance(lookup, "servereTemplateId"));
+
+        verify(queryServicesClient, times(2)).query(anyString(), anyString(), any(QueryFilterSpec.class), anyInt(), anyInt(), any());
+        assertEquals(1, queryCache.getHitCount());
+    }
+
+    @Test
+    public void lookupDataSetInvalidatedWhileQueryingNotCachedTest() throws Exception {
+        DataSetLookup lookup = new DataSetLookup();
+        lookup.setDataSetUUID("");
+        lookup.setNumberOfRows(10);
+        when(dataSetDef.getUUID()).thenReturn("");
+        when(queryServicesClient.query(anyString(), anyString(), any(QueryFilterSpec.class), anyInt(), anyInt(), any())).thenAnswer(invocation -> {
+            queryCache.invalidate("servereTemplateId", "");
+            return new ArrayList<>();
+        });
+
+        kieServerDataSetProvider.lookupDataSet(dataSetDef, ConsoleDataSetLookup.fromInstance(lookup, "servereTemplateId"));
+        kieServerDataSetProvider.lookupDataSet(dataSetDef, ConsoleDataSetLookup.fromInstance(lookup, "servereTemplateId"));
+
+        verify(queryServicesClient, times(2)).query(anyString(), anyString(), any(QueryFilterSpec.class), anyInt(), anyInt(), any());
+        assertEquals(0, queryCache.getHitCount());
+    }
+
+    @Test
+    public void lookupDataSetKeysetTest() throws Exception {
+        DataSetLookup lookup = new DataSetLookup();
+        lookup.setDataSetUUID("");
+        lookup.setRowOffset(10);
+        lookup.setNumberOfRows(10);
+        DataSetSort sort = new DataSetSort();
+        sort.addSortColumn(new ColumnSort("start_date", SortOrder.DESCENDING));
+        lookup.addOperation(sort);
+        when(dataSetDef.getUUID()).thenReturn("");
+
+        ConsoleDataSetLookup consoleLookup = (ConsoleDataSetLookup) ConsoleDataSetLookup.fromInstance(lookup, "servereTemplateId");
+        consoleLookup.setKeyset("processInstanceId", 100L, 5L);
+        kieServerDataSetProvider.lookupDataSet(dataSetDef, consoleLookup);
+
+        final ArgumentCaptor<QueryFilterSpec> captor = ArgumentCaptor.forClass(QueryFilterSpec.class);
+        verify(queryServicesClient).query(anyString(), anyString(), captor.capture(), eq(0), eq(10), any());
+
+        assertEquals("start_date,processInstanceId", captor.getValue().getOrderBy());
+        assertFalse(captor.getValue().isAscending());
+        QueryParam[] parameters = captor.getValue().getParameters();
+        assertEquals(1, parameters.length);
+        assertEquals("OR", parameters[0].getOperator());
+        List<ColumnFilter> terms = (List<ColumnFilter>) parameters[0].getValue();
+        assertEquals(lowerThan("start_date", 100L), terms.get(0));
+        assertEquals(AND(equalsTo("start_date", 100L), lowerThan("processInstanceId", 5L)), terms.get(1));
+    }
+
+    @Test
+    public void lookupDataSetKeysetNullableSortColumnTest() throws Exception {
+        DataSetLookup lookup = new DataSetLookup();
+        lookup.setDataSetUUID("");
+        lookup.setRowOffset(10);
+        lookup.setNumberOfRows(10);
+        DataSetSort sort = new DataSetSort();
+        sort.addSortColumn(new ColumnSort("correlationKey", SortOrder.ASCENDING));
+        lookup.addOperation(sort);
+        when(dataSetDef.getUUID()).thenReturn("");
+
+        ConsoleDataSetLookup consoleLookup = (ConsoleDataSetLookup) ConsoleDataSetLookup.fromInstance(lookup, "servereTemplateId");
+        consoleLookup.setKeyset("processInstanceId", "key", 5L);
+        kieServerDataSetProvider.lookupDataSet(dataSetDef, consoleLookup);
+
+        final ArgumentCaptor<QueryFilterSpec> captor = ArgumentCaptor.forClass(QueryFilterSpec.class);
+        verify(queryServicesClient).query(anyString(), anyString(), captor.capture(), eq(1), eq(10), any());
+
+        assertEquals("correlationKey", captor.getValue().getOrderBy());
+        assertNull(captor.getValue().getParameters());
+    }
+
+    @Test
+    public void lookupDataSetUnalignedOffsetTest() throws Exception {
+        DataSetLookup lookup = new DataSetLookup();
+        lookup.setDataSetUUID("");
+        lookup.setRowOffset(3);
+        lookup.setNumberOfRows(2);
+        when(dataSetDef.getUUID()).thenReturn("");
+        when(dataSetDef.getColumns()).thenReturn(Arrays.asList(new DataColumnDef("id", ColumnType.NUMBER)));
+        when(queryServicesClient.query(anyString(), anyString(), any(QueryFilterSpec.class), eq(1), eq(2), any())).thenReturn(Arrays.asList(Arrays.asList(3), Arrays.asList(4)));
+        when(queryServicesClient.query(anyString(), anyString(), any(QueryFilterSpec.class), eq(2), eq(2), any())).thenReturn(Arrays.asList(Arrays.asList(5), Arrays.asList(6)));
+
+        DataSet result = kieServerDataSetProvider.lookupDataSet(dataSetDef, ConsoleDataSetLookup.fromInstance(lookup, "servereTemplateId"));
+
+        assertEquals(2, result.getRowCount());
+        assertEquals(4, result.getValueAt(0, 0));
+        assertEquals(5, result.getValueAt(1, 0));
+    }
+
+    @Test
+    public void lookupDataSetPivotedTest() throws Exception {
+        DataSetLookup lookup = new DataSetLookup();
+        lookup.setDataSetUUID("");
+        lookup.setNumberOfRows(2);
+        when(dataSetDef.getUUID()).thenReturn("");
+        when(dataSetDef.getColumns()).thenReturn(Arrays.asList(new DataColumnDef("taskId", ColumnType.NUMBER),
+                                                               new DataColumnDef("name", ColumnType.LABEL),
+                                                               new DataColumnDef("value", ColumnType.LABEL)));
+        when(queryServicesClient.query(anyString(), anyString(), any(QueryFilterSpec.class), eq(0), eq(-1), any())).thenReturn(Arrays.asList(
+                Arrays.asList(1, "var1", "value1"),
+                Arrays.asList(1, "var2", "value2"),
+                Arrays.asList(2, "var1", "value3"),
+                Arrays.asList(3, "var3", "value4")));
+
+        ConsoleDataSetLookup consoleLookup = (ConsoleDataSetLookup) ConsoleDataSetLookup.fromInstance(lookup, "servereTemplateId");
+        consoleLookup.setPivot("taskId", "name", "value");
+        DataSet result = kieServerDataSetProvider.lookupDataSet(dataSetDef, consoleLookup);
+
+        assertEquals(2, result.getRowCount());
+        assertEquals(3, result.getRowCountNonTrimmed());
+        assertEquals(3, result.getColumns().size());
+        assertEquals(1, result.getColumnById("taskId").getValues().get(0));
+        assertEquals(2, result.getColumnById("taskId").getValues().get(1));
+        assertEquals(Arrays.asList("value1", "value3"), result.getColumnById("var1").getValues());
+        assertEquals(Arrays.asList("value2", null), result.getColumnById("var2").getValues());
+        assertNull(result.getColumnById("var3"));
+
+        // plain lookup of the same page is not served from the pivoted cache entry
+        kieServerDataSetProvider.lookupDataSet(dataSetDef, ConsoleDataSetLookup.fromInstance(lookup, "servereTemplateId"));
+        verify(queryServicesClient).query(anyString(), anyString(), any(QueryFilterSpec.class), eq(0), eq(2), any());
+    }
+
+    @Test
+    public void lookupDataSetTotalCountTest() throws Exception {
+        DataSetLookup lookup = new DataSetLookup();
+        lookup.setDataSetUUID("");
+        lookup.setNumberOfRows(2);
+        when(dataSetDef.getUUID()).thenReturn("");
+        when(dataSetDef.getColumns()).thenReturn(Arrays.asList(new DataColumnDef("id", ColumnType.NUMBER)));
+        when(queryServicesClient.query(anyString(), anyString(), any(QueryFilterSpec.class), eq(0), eq(2), any())).thenReturn(Arrays.asList(Arrays.asList(1), Arrays.asList(2)));
+        when(queryServicesClient.query(anyString(), anyString(), any(QueryFilterSpec.class), eq(1), eq(2), any())).thenReturn(Arrays.asList(Arrays.asList(3), Arrays.asList(4)));
+        when(queryServicesClient.query(anyString(), anyString(), any(QueryFilterSpec.class), eq(0), eq(1), any())).thenReturn(Arrays.asList(Arrays.asList(5L)));
+
+        DataSet firstPage = kieServerDataSetProvider.lookupDataSet(dataSetDef, ConsoleDataSetLookup.fromInstance(lookup, "servereTemplateId"));
+        lookup.setRowOffset(2);
+        DataSet secondPage = kieServerDataSetProvider.lookupDataSet(dataSetDef, ConsoleDataSetLookup.fromInstance(lookup, "servereTemplateId"));
+
+        assertEquals(5, firstPage.getRowCountNonTrimmed());
+        assertEquals(5, secondPage.getRowCountNonTrimmed());
+
+        // count query is issued once and shared by the pages
+        final ArgumentCaptor<QueryFilterSpec> captor = ArgumentCaptor.forClass(QueryFilterSpec.class);
+        verify(queryServicesClient).query(anyString(), anyString(), captor.capture(), eq(0), eq(1), any());
+        QueryParam[] parameters = captor.getValue().getParameters();
+        assertEquals(1, parameters.length);
+        assertEquals("id", parameters[0].getColumn());
+        assertEquals("COUNT", parameters[0].getOperator());
+        assertNull(captor.getValue().getOrderBy());
+
+        // last page is not full so total is known without counting
+        lookup.setRowOffset(4);
+        when(queryServicesClient.query(anyString(), anyString(), any(QueryFilterSpec.class), eq(2), eq(2), any())).thenReturn(Arrays.asList(Arrays.asList(5)));
+        DataSet lastPage = kieServerDataSetProvider.lookupDataSet(dataSetDef, ConsoleDataSetLookup.fromInstance(lookup, "servereTemplateId"));
+
+        assertEquals(5, lastPage.getRowCountNonTrimmed());
+        verify(queryServicesClient, times(1)).query(anyString(), anyString(), any(QueryFilterSpec.class), eq(0), eq(1), any());
+    }
+
+    @Test
+    public void lookupDataSetEstimatedCountTest() throws Exception {
+        DataSetLookup lookup = new DataSetLookup();
+        lookup.setDataSetUUID("estimated");
+        lookup.setNumberOfRows(2);
+        when(dataSetDef.getUUID()).thenReturn("estimated");
+        when(dataSetDef.getColumns()).thenReturn(Arrays.asList(new DataColumnDef("id", ColumnType.NUMBER)));
+        when(queryServicesClient.query(anyString(), anyString(), any(QueryFilterSpec.class), eq(0), eq(2), any())).thenReturn(Arrays.asList(Arrays.asList(1), Arrays.asList(2)));
+
+        System.setProperty(KieServerDataSetProvider.COUNT_EXACT + ".estimated", "false");
+        try {
+            DataSet result = kieServerDataSetProvider.lookupDataSet(dataSetDef, ConsoleDataSetLookup.fromInstance(lookup, "servereTemplateId"));
+
+            assertEquals(2, result.getRowCountNonTrimmed());
+            verify(queryServicesClient, never()).query(anyString(), anyString(), any(QueryFilterSpec.class), eq(0), eq(1), any());
+        } finally {
+            System.clearProperty(KieServerDataSetProvider.COUNT_EXACT + ".estimated");
+        }
+    }
+
+    @Test
+    public void buildDataSetTest() throws Exception {
+        when(dataSetDef.getUUID()).thenReturn("");
+        when(dataSetDef.getColumns()).thenReturn(Arrays.asList(new DataColumnDef("id", ColumnType.NUMBER),
+                                                               new DataColumnDef("name", ColumnType.LABEL),
+                                                               new DataColumnDef("date", ColumnType.DATE)));
+        final Date date = new Date();
+        final List<List> rows = new ArrayList<>(Arrays.asList(Arrays.asList(1, "first", date.getTime()),
+                                                              Arrays.asList(2, "second", date)));
+
+        DataSet result = kieServerDataSetProvider.buildDataSet(dataSetDef, rows, null);
+
+        assertEquals(2, result.getRowCount());
+        assertEquals(3, result.getColumns().size());
+        assertEquals(1, result.getValueAt(0, 0));
+        assertEquals("second", result.getValueAt(1, 1));
+        assertEquals(date, result.getValueAt(0, 2));
+        assertEquals(date, result.getValueAt(1, 2));
+        // raw rows of the caller are left untouched
+        assertEquals(2, rows.size());
+        assertEquals(1, rows.get(0).get(0));
+    }
+
+    @Test
+    public void lookupDataSetReadInChunksTest() throws Exception {
+        DataSetLookup lookup = new DataSetLookup();
+        lookup.setDataSetUUID("");
+        when(dataSetDef.getUUID()).thenReturn("");
+        when(dataSetDef.getColumns()).thenReturn(Arrays.asList(new DataColumnDef("id", ColumnType.NUMBER)));
+        when(dataSetDef.getProperty(KieServerDataSetProvider.UNIQUE_COLUMN)).thenReturn("id");
+        when(queryServicesClient.query(anyString(), anyString(), any(QueryFilterSpec.class), eq(0), eq(2), any())).thenReturn(new ArrayList<>(Arrays.asList(Arrays.asList(1), Arrays.asList(2))));
+        when(queryServicesClient.query(anyString(), anyString(), any(QueryFilterSpec.class), eq(1), eq(2), any())).thenReturn(new ArrayList<>(Arrays.asList(Arrays.asList(3))));
+
+        System.setProperty(KieServerDataSetProvider.FETCH_SIZE, "2");
+        try {
+            DataSet result = kieServerDataSetProvider.lookupDataSet(dataSetDef, ConsoleDataSetLookup.fromInstance(lookup, "servereTemplateId"));
+
+            assertEquals(3, result.getRowCount());
+            assertEquals(3, result.getRowCountNonTrimmed());
+            assertEquals(3, result.getValueAt(2, 0));
+            final ArgumentCaptor<QueryFilterSpec> captor = ArgumentCaptor.forClass(QueryFilterSpec.class);
+            verify(queryServicesClient, times(2)).query(anyString(), anyString(), captor.capture(), anyInt(), eq(2), any());
+            // chunks are ordered by the unique column so that no row is skipped or repeated
+            assertEquals("id", captor.getValue().getOrderBy());
+        } finally {
+            System.clearProperty(KieServerDataSetProvider.FETCH_SIZE);
+        }
+    }
+
+    @Test
+    public void lookupDataSetWithoutUniqueColumnReadAtOnceTest() throws Exception {
+        DataSetLookup lookup = new DataSetLookup();
+        lookup.setDataSetUUID("");
+        DataSetSort sort = new DataSetSort();
+        sort.addSortColumn(new ColumnSort("name", SortOrder.ASCENDING));
+        lookup.addOperation(sort);
+        when(dataSetDef.getUUID()).thenReturn("");
+        when(dataSetDef.getColumns()).thenReturn(Arrays.asList(new DataColumnDef("name", ColumnType.LABEL)));
+        when(queryServicesClient.query(anyString(), anyString(), any(QueryFilterSpec.class), eq(0), eq(-1), any())).thenReturn(new ArrayList<>(Arrays.asList(Arrays.asList("a"), Arrays.asList("a"), Arrays.asList("b"))));
+
+        System.setProperty(KieServerDataSetProvider.FETCH_SIZE, "2");
+        try {
+            DataSet result = kieServerDataSetProvider.lookupDataSet(dataSetDef, ConsoleDataSetLookup.fromInstance(lookup, "servereTemplateId"));
+
+            assertEquals(3, result.getRowCount());
+            verify(queryServicesClient).query(anyString(), anyString(), any(QueryFilterSpec.class), anyInt(), anyInt(), any());
+        } finally {
+            System.clearProperty(KieServerDataSetProvider.FETCH_SIZE);
+        }
+    }
+
+    @Test
+    public void withUniqueOrderTest() {
+        when(dataSetDef.getProperty(KieServerDataSetProvider.UNIQUE_COLUMN)).thenReturn("id");
+        QueryFilterSpec filterSpec = new QueryFilterSpec();
+        filterSpec.setOrderBy("name");
+
+        QueryFilterSpec ordered = kieServerDataSetProvider.withUniqueOrder(dataSetDef, filterSpec);
+
+        assertEquals("name,id", ordered.getOrderBy());
+        assertFalse(ordered.isAscending());
+        assertEquals("name", filterSpec.getOrderBy());
+
+        filterSpec.setOrderBy("name,id");
+        assertEquals("name,id", kieServerDataSetProvider.withUniqueOrder(dataSetDef, filterSpec).getOrderBy());
+    }
+
+    @Test
+    public void lookupFederatedDataSetTest() throws Exception {
+        DataSetLookup lookup = new DataSetLookup();
+        lookup.setDataSetUUID("");
+        lookup.setRowOffset(1);
+        lookup.setNumberOfRows(2);
+        DataSetSort sort = new DataSetSort();
+        sort.addSortColumn(new ColumnSort("id", SortOrder.DESCENDING));
+        lookup.addOperation(sort);
+        when(dataSetDef.getUUID()).thenReturn("");
+        when(dataSetDef.getColumns()).thenReturn(Arrays.asList(new DataColumnDef("id", ColumnType.NUMBER)));
+        mockTemplateRows("templateA", Arrays.asList(Arrays.asList(5), Arrays.asList(3), Arrays.asList(2)));
+        mockTemplateRows("templateB", Arrays.asList(Arrays.asList(4), Arrays.asList(1)));
+
+        DataSet result = kieServerDataSetProvider.lookupDataSet(dataSetDef, ConsoleDataSetLookup.fromInstance(lookup, Arrays.asList("templateA", "templateB")));
+
+        assertEquals(2, result.getRowCount());
+        assertEquals(4, result.getValueAt(0, 0));
+        assertEquals("templateB", result.getValueAt(0, 1));
+        assertEquals(3, result.getValueAt(1, 0));
+        assertEquals("templateA", result.getValueAt(1, 1));
+        assertEquals(ConsoleDataSetLookup.COLUMN_SERVER_TEMPLATE_ID, result.getColumnByIndex(1).getId());
+    }
+
+    @Test
+    public void lookupFederatedDataSetWithCallerCredentialsTest() throws Exception {
+        DataSetLookup lookup = new DataSetLookup();
+        lookup.setDataSetUUID("");
+        lookup.setNumberOfRows(10);
+        when(dataSetDef.getUUID()).thenReturn("");
+        when(dataSetDef.getColumns()).thenReturn(Arrays.asList(new DataColumnDef("id", ColumnType.NUMBER)));
+        final QueryServicesClient templateQueryClient = mockTemplateRows("templateA", Arrays.asList(Arrays.asList(1)));
+        final PropagatingCredentialsProvider userCredentials = new PropagatingCredentialsProvider(mock(CredentialsProvider.class));
+        final List<String> authorizations = new ArrayList<>();
+        when(templateQueryClient.query(anyString(), anyString(), any(QueryFilterSpec.class), anyInt(), anyInt(), any())).thenAnswer(invocation -> {
+            authorizations.add(userCredentials.getAuthorization());
+            return Arrays.asList(Arrays.asList(1));
+        });
+
+        final PropagatingCredentialsProvider.Credentials previous = PropagatingCredentialsProvider.bind(new PropagatingCredentialsProvider.Credentials("Bearer john"));
+        try {
+            kieServerDataSetProvider.lookupDataSet(dataSetDef, ConsoleDataSetLookup.fromInstance(lookup, Arrays.asList("templateA")));
+        } finally {
+            PropagatingCredentialsProvider.restore(previous);
+        }
+
+        assertEquals(Arrays.asList("Bearer john"), authorizations);
+    }
+
+    @Test
+    public void lookupFederatedDataSetTimeoutTest() throws Exception {
+        DataSetLookup lookup = new DataSetLookup();
+        lookup.setDataSetUUID("");
+        lookup.setNumberOfRows(10);
+        when(dataSetDef.getUUID()).thenReturn("");
+        when(dataSetDef.getColumns()).thenReturn(Arrays.asList(new DataColumnDef("id", ColumnType.NUMBER)));
+        mockTemplateRows("templateA", Arrays.asList(Arrays.asList(1)));
+        final QueryServicesClient slowClient = mockTemplateRows("templateB", Arrays.asList(Arrays.asList(2)));
+        when(slowClient.query(anyString(), anyString(), any(QueryFilterSpec.class), anyInt(), anyInt(), any())).thenAnswer(invocation -> {
+            Thread.sleep(2000);
+            return Arrays.asList(Arrays.asList(2));
+        });
+
+        System.setProperty(KieServerDataSetProvider.FEDERATED_TIMEOUT, "200");
+        try {
+            DataSet result = kieServerDataSetProvider.lookupDataSet(dataSetDef, ConsoleDataSetLookup.fromInstance(lookup, Arrays.asList("templateA", "templateB")));
+
+            assertEquals(1, result.getRowCount());
+            assertEquals("templateA", result.getValueAt(0, 1));
+        } finally {
+            System.clearProperty(KieServerDataSetProvider.FEDERATED_TIMEOUT);
+        }
+    }
+
+    @Test
+    public void lookupFederatedDataSetBoundedBySlowTemplatesTest() throws Exception {
+        DataSetLookup lookup = new DataSetLookup();
+        lookup.setDataSetUUID("");
+        lookup.setNumberOfRows(10);
+        when(dataSetDef.getUUID()).thenReturn("");
+        when(dataSetDef.getColumns()).thenReturn(Arrays.asList(new DataColumnDef("id", ColumnType.NUMBER)));
+        final QueryServicesClient fastClient = mockTemplateRows("templateA", Arrays.asList(Arrays.asList(1)));
+        final QueryServicesClient slowClient = mockTemplateRows("templateB", Arrays.asList(Arrays.asList(2)));
+        when(slowClient.query(anyString(), anyString(), any(QueryFilterSpec.class), anyInt(), anyInt(), any())).thenAnswer(invocation -> {
+            Thread.sleep(2000);
+            return Arrays.asList(Arrays.asList(2));
+        });
+
+        System.setProperty(KieServerDataSetProvider.FEDERATED_TIMEOUT, "200");
+        System.setProperty(KieServerDataSetProvider.FEDERATED_MAX_CONCURRENT, "1");
+        try {
+            assertEquals(0, kieServerDataSetProvider.lookupDataSet(dataSetDef, ConsoleDataSetLookup.fromInstance(lookup, Arrays.asList("templateB"))).getRowCount());
+
+            // the timed out lookup still runs and holds the only permit
+            DataSet result = kieServerDataSetProvider.lookupDataSet(dataSetDef, ConsoleDataSetLookup.fromInstance(lookup, Arrays.asList("templateA")));
+
+            assertEquals(0, result.getRowCount());
+            verify(fastClient, never()).query(anyString(), anyString(), any(QueryFilterSpec.class), anyInt(), anyInt(), any());
+        } finally {
+            System.clearProperty(KieServerDataSetProvider.FEDERATED_TIMEOUT);
+            System.clearProperty(KieServerDataSetProvider.FEDERATED_MAX_CONCURRENT);
+        }
+    }
+
+    private QueryServicesClient mockTemplateRows(String serverTemplateId, List<List> rows) {
+        final KieServicesClient templateClient = mock(KieServicesClient.class);
+        final QueryServicesClient templateQueryClient = mock(QueryServicesClient.class);
+        when(kieServerIntegration.getServerClient(serverTemplateId)).thenReturn(templateClient);
+        when(templateClient.getServicesClient(QueryServicesClient.class)).thenReturn(templateQueryClient);
+        when(templateQueryClient.query(anyString(), anyString(), any(QueryFilterSpec.class), anyInt(), anyInt(), any())).thenReturn((List) rows);
+        return templateQueryClient;
+    }
+
+    @Test
+    public void isDataSetOutdatedTest() throws Exception {
+        DataSetLookup lookup = new DataSetLookup();
+        lookup.setDataSetUUID("tasks");
+        lookup.setNumberOfRows(10);
+        when(dataSetDef.getUUID()).thenReturn("tasks");
+        when(dataSetDef.getColumns()).thenReturn(Arrays.asList(new DataColumnDef("id", ColumnType.NUMBER),
+                                                               new DataColumnDef("lastModificationDate", ColumnType.DATE)));
+        when(queryServicesClient.query(anyString(), anyString(), any(QueryFilterSpec.class), eq(0), eq(1), any())).thenReturn(Arrays.asList(Arrays.asList(new Date(1), 2)));
+
+        assertFalse(kieServerDataSetProvider.isDataSetOutdated(dataSetDef));
+
+        kieServerDataSetProvider.lookupDataSet(dataSetDef, ConsoleDataSetLookup.fromInstance(lookup, "servereTemplateId"));
+
+        // watermark polled before the data set query
+        final ArgumentCaptor<QueryFilterSpec> captor = ArgumentCaptor.forClass(QueryFilterSpec.class);
+        verify(queryServicesClient).query(eq("tasks"), anyString(), captor.capture(), eq(0), eq(1), any());
+        assertEquals("MAX", captor.getValue().getParameters()[0].getOperator());
+        assertEquals("lastModificationDate", captor.getValue().getParameters()[0].getColumn());
+        assertEquals("COUNT", captor.getValue().getParameters()[1].getOperator());
+
+        assertFalse(kieServerDataSetProvider.isDataSetOutdated(dataSetDef));
+        assertEquals(Collections.singleton("servereTemplateId"), watermarks.getServerTemplates("tasks"));
+    }
+
 }
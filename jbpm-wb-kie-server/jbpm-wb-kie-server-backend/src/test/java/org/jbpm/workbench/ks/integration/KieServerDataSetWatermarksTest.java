@@ -0,0 +1,124 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.workbench.ks.integration;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.dashbuilder.dataset.ColumnType;
+import org.dashbuilder.dataset.def.DataColumnDef;
+import org.dashbuilder.dataset.def.DataSetDef;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.kie.server.api.model.definition.QueryFilterSpec;
+import org.kie.server.client.QueryServicesClient;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class KieServerDataSetWatermarksTest {
+
+    private static final String TEMPLATE = "template";
+
+    @Mock
+    QueryServicesClient queryClient;
+
+    @Mock
+    DataSetDef dataSetDef;
+
+    @Before
+    public void setUp() {
+        when(dataSetDef.getUUID()).thenReturn("requests");
+        when(dataSetDef.getColumns()).thenReturn(Arrays.asList(new DataColumnDef("id", ColumnType.NUMBER),
+                                                               new DataColumnDef("timestamp", ColumnType.DATE)));
+    }
+
+    @Test
+    public void testOutdatedOnlyWhenWatermarkMoves() {
+        final KieServerDataSetWatermarks watermarks = new KieServerDataSetWatermarks(1);
+        mockWatermark(new Date(1), 5);
+
+        assertFalse(watermarks.isOutdated(queryClient, TEMPLATE, dataSetDef));
+        sleep();
+        assertFalse(watermarks.isOutdated(queryClient, TEMPLATE, dataSetDef));
+
+        mockWatermark(new Date(2), 5);
+        sleep();
+        assertTrue(watermarks.isOutdated(queryClient, TEMPLATE, dataSetDef));
+        sleep();
+        assertFalse(watermarks.isOutdated(queryClient, TEMPLATE, dataSetDef));
+
+        // removed rows do not change the latest modification
+        mockWatermark(new Date(2), 4);
+        sleep();
+        assertTrue(watermarks.isOutdated(queryClient, TEMPLATE, dataSetDef));
+    }
+
+    @Test
+    public void testPollsAreRateLimited() {
+        final KieServerDataSetWatermarks watermarks = new KieServerDataSetWatermarks(60000);
+        mockWatermark(new Date(1), 5);
+
+        final KieServerDataSetWatermarks.Watermark watermark = watermarks.getWatermark(queryClient, TEMPLATE, dataSetDef);
+        mockWatermark(new Date(2), 5);
+
+        assertEquals(watermark, watermarks.getWatermark(queryClient, TEMPLATE, dataSetDef));
+        assertEquals(watermark, watermarks.getLastWatermark(TEMPLATE, "requests"));
+        verify(queryClient, times(1)).query(anyString(), anyString(), any(QueryFilterSpec.class), anyInt(), anyInt(), any());
+    }
+
+    @Test
+    public void testDataSetWithoutModificationColumnNotTracked() {
+        final KieServerDataSetWatermarks watermarks = new KieServerDataSetWatermarks(1);
+        when(dataSetDef.getColumns()).thenReturn(Arrays.asList(new DataColumnDef("id", ColumnType.NUMBER)));
+
+        assertFalse(watermarks.isTracked(dataSetDef));
+        assertNull(watermarks.getWatermark(queryClient, TEMPLATE, dataSetDef));
+        verify(queryClient, never()).query(anyString(), anyString(), any(QueryFilterSpec.class), anyInt(), anyInt(), any());
+    }
+
+    @Test
+    public void testUserFilteredDataSetNotTracked() {
+        final KieServerDataSetWatermarks watermarks = new KieServerDataSetWatermarks(60000);
+        when(dataSetDef.getName()).thenReturn("FILTERED_PO_TASK-Human tasks and users");
+        mockWatermark(new Date(1), 5);
+
+        assertFalse(watermarks.isTracked(dataSetDef));
+        assertNull(watermarks.getWatermark(queryClient, TEMPLATE, dataSetDef));
+        assertFalse(watermarks.isOutdated(queryClient, TEMPLATE, dataSetDef));
+        verify(queryClient, never()).query(anyString(), anyString(), any(QueryFilterSpec.class), anyInt(), anyInt(), any());
+    }
+
+    private void mockWatermark(Date lastModification, long count) {
+        final List rows = Arrays.asList(Arrays.asList(lastModification, count));
+        when(queryClient.query(anyString(), anyString(), any(QueryFilterSpec.class), anyInt(), anyInt(), any())).thenReturn(rows);
+    }
+
+    private void sleep() {
+        try {
+            Thread.sleep(5);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
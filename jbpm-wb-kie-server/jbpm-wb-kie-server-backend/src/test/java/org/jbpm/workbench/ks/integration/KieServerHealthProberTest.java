@@ -0,0 +1,116 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.workbench.ks.integration;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.kie.server.client.balancer.LoadBalancer;
+import org.mockito.InjectMocks;
+import org.mockito.Spy;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import static org.junit.Assert.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class KieServerHealthProberTest {
+
+    private static final String URL_1 = "http://server1:8080/kie-server/services/rest/server";
+    private static final String URL_2 = "http://server2:8080/kie-server/services/rest/server";
+
+    @Spy
+    KieServerTransport transport = new KieServerTransport(null, null, 1000);
+
+    @InjectMocks
+    TestKieServerHealthProber healthProber = new TestKieServerHealthProber();
+
+    @After
+    public void tearDown() {
+        healthProber.stop();
+        transport.close();
+    }
+
+    @Test
+    public void testUnreachableEndpointTakenOfflineAfterThreshold() {
+        final LoadBalancer template1 = transport.getLoadBalancer("template1", Arrays.asList(URL_1, URL_2));
+        final LoadBalancer template2 = transport.getLoadBalancer("template2", Collections.singletonList(URL_2));
+        healthProber.discover();
+        healthProber.unreachable.add(URL_2);
+
+        healthProber.probe(URL_2);
+        assertEquals(Arrays.asList(URL_1, URL_2), template1.getAvailableEndpoints());
+
+        healthProber.probe(URL_2);
+        assertEquals(Collections.singletonList(URL_1), template1.getAvailableEndpoints());
+        assertEquals(Collections.singletonList(URL_2), template2.getFailedEndpoints());
+        assertEquals(Integer.valueOf(2), healthProber.getConsecutiveFailures().get(URL_2));
+    }
+
+    @Test
+    public void testReachableEndpointActivated() {
+        final LoadBalancer loadBalancer = transport.getLoadBalancer("template", Arrays.asList(URL_1, URL_2));
+        loadBalancer.markAsFailed(URL_1);
+        healthProber.discover();
+
+        healthProber.probe(URL_1);
+
+        assertTrue(loadBalancer.getFailedEndpoints().isEmpty());
+        assertEquals(2, loadBalancer.getAvailableEndpoints().size());
+    }
+
+    @Test
+    public void testEndpointsProbedInBackground() throws Exception {
+        final LoadBalancer loadBalancer = transport.getLoadBalancer("template", Collections.singletonList(URL_1));
+        loadBalancer.markAsFailed(URL_1);
+
+        healthProber.start();
+
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (!loadBalancer.getFailedEndpoints().isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(loadBalancer.getFailedEndpoints().isEmpty());
+        assertTrue(healthProber.getProbeLatencies().containsKey(URL_1));
+    }
+
+    @Test
+    public void testDelaysAreJittered() {
+        for (int i = 0; i < 100; i++) {
+            final long delay = healthProber.nextDelay();
+            assertTrue(delay >= 40 && delay <= 60);
+        }
+    }
+
+    public static class TestKieServerHealthProber extends KieServerHealthProber {
+
+        final Set<String> unreachable = ConcurrentHashMap.newKeySet();
+
+        public TestKieServerHealthProber() {
+            super(50, 0.2, 100, 2);
+        }
+
+        @Override
+        protected boolean isReachable(String url) {
+            return !unreachable.contains(url);
+        }
+    }
+}
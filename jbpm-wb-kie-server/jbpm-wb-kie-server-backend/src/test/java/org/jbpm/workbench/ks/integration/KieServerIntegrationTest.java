@@ -0,0 +1,369 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.workbench.ks.integration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.kie.api.builder.ReleaseId;
+import org.kie.api.runtime.KieContainer;
+import org.kie.server.client.CredentialsProvider;
+import org.kie.server.client.KieServicesClient;
+import org.kie.server.client.balancer.LoadBalancer;
+import org.kie.server.client.impl.KieServicesClientImpl;
+import org.kie.server.controller.api.model.events.ServerInstanceDisconnected;
+import org.kie.server.controller.api.model.events.ServerTemplateDeleted;
+import org.kie.server.controller.api.model.runtime.ServerInstanceKey;
+import org.kie.server.controller.api.model.spec.ContainerSpec;
+import org.kie.server.controller.api.model.spec.ServerTemplate;
+import org.kie.workbench.common.screens.server.management.service.SpecManagementService;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class KieServerIntegrationTest {
+
+    private static final String TEMPLATE = "template";
+
+    @Mock
+    SpecManagementService specManagementService;
+
+    @Spy
+    KieServerTransport transport = new KieServerTransport(null, null, 1000);
+
+    @Mock
+    KieServerHealthProber healthProber;
+
+    @Spy
+    KieServerClientCache clientCache = new KieServerClientCache();
+
+    @InjectMocks
+    TestKieServerIntegration kieServerIntegration = new TestKieServerIntegration(2, 0);
+
+    @InjectMocks
+    TestKieServerIntegration idleKieServerIntegration = new TestKieServerIntegration(0, 1);
+
+    private ServerTemplate serverTemplate;
+
+    @Before
+    public void setUp() {
+        serverTemplate = new ServerTemplate(TEMPLATE, TEMPLATE);
+        final List<ContainerSpec> containers = new ArrayList<>();
+        for (String containerId : new String[]{"c1", "c2", "c3"}) {
+            final ContainerSpec containerSpec = new ContainerSpec();
+            containerSpec.setId(containerId);
+            containerSpec.setReleasedId(new org.kie.server.api.model.ReleaseId("org.jbpm", containerId, "1.0"));
+            containers.add(containerSpec);
+        }
+        serverTemplate.setContainersSpec(containers);
+        when(specManagementService.getServerTemplate(TEMPLATE)).thenReturn(serverTemplate);
+        when(specManagementService.listServerTemplates()).thenReturn(Collections.singletonList(serverTemplate));
+    }
+
+    @Test
+    public void testContainerClientsCreatedOnDemand() {
+        kieServerIntegration.createAvailableClients();
+        assertEquals(0, kieServerIntegration.containersCreated.get());
+
+        final KieServicesClient client = kieServerIntegration.getServerClient(TEMPLATE, "c1");
+
+        assertNotNull(client);
+        assertSame(client, kieServerIntegration.getServerClient(TEMPLATE, "c1"));
+        assertEquals(1, kieServerIntegration.containersCreated.get());
+        assertNull(kieServerIntegration.getServerClient(TEMPLATE, "unknown"));
+    }
+
+    @Test
+    public void testConcurrentCallersShareContainerClient() throws Exception {
+        kieServerIntegration.creationLatch = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<KieServicesClient>> clients = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                clients.add(executor.submit(() -> kieServerIntegration.getServerClient(TEMPLATE, "c1")));
+            }
+            Thread.sleep(50);
+            kieServerIntegration.creationLatch.countDown();
+
+            final KieServicesClient client = clients.get(0).get(5, TimeUnit.SECONDS);
+            for (Future<KieServicesClient> future : clients) {
+                assertSame(client, future.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, kieServerIntegration.containersCreated.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testLeastRecentlyUsedContainerClientEvicted() throws Exception {
+        kieServerIntegration.getServerClient(TEMPLATE, "c1");
+        Thread.sleep(5);
+        kieServerIntegration.getServerClient(TEMPLATE, "c2");
+        Thread.sleep(5);
+        kieServerIntegration.getServerClient(TEMPLATE, "c1");
+        Thread.sleep(5);
+        kieServerIntegration.getServerClient(TEMPLATE, "c3");
+
+        assertEquals(2, kieServerIntegration.getContainerClientsCount());
+        assertEquals(1, kieServerIntegration.getContainerClientEvictionCount());
+        // evicted containers might still be used by callers that got their client earlier
+        verify(kieServerIntegration.kieContainers.get(1), never()).dispose();
+    }
+
+    @Test
+    public void testWrappedClientsReleasedWhenClientReplaced() throws Exception {
+        kieServerIntegration.buildClientsForServer(serverTemplate);
+        final KieServicesClient client = kieServerIntegration.getServerClient(TEMPLATE);
+        assertSame(client, kieServerIntegration.getServerClient(TEMPLATE));
+        clientCache.get(TEMPLATE, null, client, c -> mock(KieServicesClient.class));
+        clientCache.get(TEMPLATE, "c1", kieServerIntegration.getServerClient(TEMPLATE, "c1"), c -> mock(KieServicesClient.class));
+        assertEquals(2, clientCache.size());
+
+        kieServerIntegration.buildClientsForServer(serverTemplate);
+
+        assertEquals(1, clientCache.size());
+        assertNotSame(client, kieServerIntegration.getServerClient(TEMPLATE));
+
+        Thread.sleep(5);
+        kieServerIntegration.getServerClient(TEMPLATE, "c2");
+        Thread.sleep(5);
+        kieServerIntegration.getServerClient(TEMPLATE, "c3");
+
+        assertEquals(0, clientCache.size());
+    }
+
+    @Test
+    public void testIdleContainerClientEvicted() throws Exception {
+        idleKieServerIntegration.getServerClient(TEMPLATE, "c1");
+        Thread.sleep(10);
+        idleKieServerIntegration.getServerClient(TEMPLATE, "c2");
+
+        assertEquals(2, idleKieServerIntegration.getContainerClientsCount());
+
+        Thread.sleep(10);
+        idleKieServerIntegration.evictIdleContainerClients();
+
+        assertEquals(0, idleKieServerIntegration.getContainerClientsCount());
+        verify(idleKieServerIntegration.kieContainers.get(0), never()).dispose();
+    }
+
+    @Test
+    public void testIdleContainerClientsSweptInBackground() throws Exception {
+        idleKieServerIntegration.createAvailableClients();
+        try {
+            idleKieServerIntegration.getServerClient(TEMPLATE, "c1");
+
+            for (int i = 0; i < 100 && idleKieServerIntegration.getContainerClientsCount() > 0; i++) {
+                Thread.sleep(10);
+            }
+            assertEquals(0, idleKieServerIntegration.getContainerClientsCount());
+        } finally {
+            idleKieServerIntegration.stopIdleSweep();
+        }
+    }
+
+    @Test
+    public void testWaitForContainerClientBeingCreatedBounded() throws Exception {
+        kieServerIntegration.creationLatch = new CountDownLatch(1);
+        kieServerIntegration.bootstrapWait = 50;
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Future<KieServicesClient> creator = executor.submit(() -> kieServerIntegration.getServerClient(TEMPLATE, "c1"));
+            Thread.sleep(20);
+
+            assertNull(kieServerIntegration.getServerClient(TEMPLATE, "c1"));
+
+            kieServerIntegration.creationLatch.countDown();
+            assertNotNull(creator.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testRemovedContainerClientEvictedOnTemplateUpdate() {
+        kieServerIntegration.getServerClient(TEMPLATE, "c1");
+        kieServerIntegration.getServerClient(TEMPLATE, "c2");
+
+        final List<ContainerSpec> containers = new ArrayList<>(serverTemplate.getContainersSpec());
+        containers.remove(0);
+        serverTemplate.setContainersSpec(containers);
+        kieServerIntegration.evictOutdatedContainerClients(serverTemplate);
+
+        assertEquals(1, kieServerIntegration.getContainerClientsCount());
+        verify(kieServerIntegration.kieContainers.get(0), never()).dispose();
+    }
+
+    @Test
+    public void testServerTemplatesBootstrappedInParallel() throws Exception {
+        final ServerTemplate slowTemplate = newServerTemplate("slow");
+        final ServerTemplate fastTemplate = newServerTemplate("fast");
+        when(specManagementService.listServerTemplates()).thenReturn(Arrays.asList(slowTemplate, fastTemplate));
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        kieServerIntegration.executor = executor;
+        kieServerIntegration.slowTemplateLatch = new CountDownLatch(1);
+        try {
+            kieServerIntegration.createAvailableClients();
+
+            assertNotNull(kieServerIntegration.getServerClient("fast"));
+            assertTrue(kieServerIntegration.isServerTemplateReady("fast"));
+            assertFalse(kieServerIntegration.isServerTemplateReady("slow"));
+            assertFalse(kieServerIntegration.isBootstrapCompleted());
+
+            kieServerIntegration.slowTemplateLatch.countDown();
+
+            assertNotNull(kieServerIntegration.getServerClient("slow"));
+            assertTrue(kieServerIntegration.isServerTemplateReady("slow"));
+            assertTrue(kieServerIntegration.isBootstrapCompleted());
+            assertEquals(new HashSet<>(Arrays.asList("slow", "fast")), kieServerIntegration.getServerTemplatesStartupTimes().keySet());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testContainerClientStartupTimeRecorded() {
+        kieServerIntegration.getServerClient(TEMPLATE, "c1");
+
+        assertEquals(Collections.singleton(TEMPLATE + "|c1"), kieServerIntegration.getContainerClientsStartupTimes().keySet());
+    }
+
+    @Test
+    public void testServerInstanceEventsMatchExactServerTemplate() {
+        final ServerTemplate prod = newServerTemplate("prod");
+        final ServerTemplate prod2 = newServerTemplate("prod2");
+        kieServerIntegration.buildClientsForServer(prod);
+        kieServerIntegration.buildClientsForServer(prod2);
+
+        kieServerIntegration.onServerInstanceDisconnected(new ServerInstanceDisconnected("prod-instance"));
+
+        verify(kieServerIntegration.loadBalancers.get("prod"), times(2)).markAsFailed("http://prod:8080/kie-server/services/rest/server");
+        verify(kieServerIntegration.loadBalancers.get("prod2"), never()).markAsFailed(anyString());
+
+        // instance no longer indexed, further events are ignored
+        kieServerIntegration.onServerInstanceDisconnected(new ServerInstanceDisconnected("prod-instance"));
+        verify(kieServerIntegration.loadBalancers.get("prod"), times(2)).markAsFailed(anyString());
+
+        kieServerIntegration.onServerTemplateDeleted(new ServerTemplateDeleted("prod2"));
+        kieServerIntegration.onServerInstanceDisconnected(new ServerInstanceDisconnected("prod2-instance"));
+        verify(kieServerIntegration.loadBalancers.get("prod2"), never()).markAsFailed(anyString());
+        assertNotNull(kieServerIntegration.getServerClient("prod"));
+    }
+
+    @Test
+    public void testServerTemplateDeletedRemovesOnlyItsContainerClients() {
+        final ServerTemplate otherTemplate = newServerTemplate(TEMPLATE + "2");
+        otherTemplate.setContainersSpec(serverTemplate.getContainersSpec());
+        when(specManagementService.getServerTemplate(TEMPLATE + "2")).thenReturn(otherTemplate);
+        kieServerIntegration.getServerClient(TEMPLATE, "c1");
+        kieServerIntegration.getServerClient(TEMPLATE + "2", "c1");
+
+        kieServerIntegration.onServerTemplateDeleted(new ServerTemplateDeleted(TEMPLATE));
+
+        assertEquals(1, kieServerIntegration.getContainerClientsCount());
+        assertNotNull(kieServerIntegration.getServerClient(TEMPLATE + "2", "c1"));
+        assertEquals(2, kieServerIntegration.containersCreated.get());
+    }
+
+    private ServerTemplate newServerTemplate(String id) {
+        final ServerTemplate template = new ServerTemplate(id, id);
+        template.addServerInstance(new ServerInstanceKey(id, id, id + "-instance", "http://" + id + ":8080/kie-server/services/rest/server"));
+        return template;
+    }
+
+    public static class TestKieServerIntegration extends KieServerIntegration {
+
+        final AtomicInteger containersCreated = new AtomicInteger();
+
+        final List<KieContainer> kieContainers = Collections.synchronizedList(new ArrayList<>());
+
+        volatile CountDownLatch creationLatch;
+
+        volatile CountDownLatch slowTemplateLatch;
+
+        Executor executor = Runnable::run;
+
+        volatile long bootstrapWait = 10000;
+
+        final Map<String, LoadBalancer> loadBalancers = new ConcurrentHashMap<>();
+
+        public TestKieServerIntegration(int maxContainerClients, long containerClientIdleTime) {
+            super(maxContainerClients, containerClientIdleTime);
+        }
+
+        @Override
+        protected KieContainer newKieContainer(ReleaseId releaseId) {
+            try {
+                if (creationLatch != null) {
+                    creationLatch.await(5, TimeUnit.SECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            containersCreated.incrementAndGet();
+            final KieContainer kieContainer = mock(KieContainer.class);
+            kieContainers.add(kieContainer);
+            return kieContainer;
+        }
+
+        @Override
+        protected KieServicesClient createClientForTemplate(ServerTemplate serverTemplate, ClassLoader classLoader, CredentialsProvider credentialsProvider) {
+            if (slowTemplateLatch != null && "slow".equals(serverTemplate.getId())) {
+                try {
+                    slowTemplateLatch.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            indexServerInstances(serverTemplate);
+            final KieServicesClientImpl client = mock(KieServicesClientImpl.class);
+            when(client.getLoadBalancer()).thenReturn(loadBalancers.computeIfAbsent(serverTemplate.getId(), id -> mock(LoadBalancer.class)));
+            return client;
+        }
+
+        @Override
+        protected Executor getExecutor() {
+            return executor;
+        }
+
+        @Override
+        protected long getBootstrapWait() {
+            return bootstrapWait;
+        }
+    }
+}
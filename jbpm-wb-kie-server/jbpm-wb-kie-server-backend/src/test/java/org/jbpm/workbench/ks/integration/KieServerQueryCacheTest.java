@@ -0,0 +1,160 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.workbench.ks.integration;
+
+import org.dashbuilder.dataset.DataSetFactory;
+import org.junit.Test;
+import org.kie.server.api.model.definition.QueryFilterSpec;
+import org.kie.server.api.model.definition.QueryParam;
+
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.*;
+
+public class KieServerQueryCacheTest {
+
+    private static final String TEMPLATE = "template";
+
+    @Test
+    public void testEquivalentFilterSpecsShareEntry() {
+        final KieServerQueryCache cache = new KieServerQueryCache(10, 60000);
+
+        cache.put(newKey("dataSet", "value"), DataSetFactory.newEmptyDataSet());
+
+        assertNotNull(cache.get(newKey("dataSet", "value")));
+        assertNull(cache.get(newKey("dataSet", "otherValue")));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void testEntriesExpire() throws Exception {
+        final KieServerQueryCache cache = new KieServerQueryCache(10, 1);
+
+        cache.put(newKey("dataSet", "value"), DataSetFactory.newEmptyDataSet());
+        Thread.sleep(10);
+
+        assertNull(cache.get(newKey("dataSet", "value")));
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void testEldestEntryEvicted() {
+        final KieServerQueryCache cache = new KieServerQueryCache(2, 60000);
+
+        cache.put(newKey("dataSet", "1"), DataSetFactory.newEmptyDataSet());
+        cache.put(newKey("dataSet", "2"), DataSetFactory.newEmptyDataSet());
+        cache.put(newKey("dataSet", "3"), DataSetFactory.newEmptyDataSet());
+
+        assertEquals(2, cache.getSize());
+        assertEquals(1, cache.getEvictionCount());
+        assertNull(cache.get(newKey("dataSet", "1")));
+    }
+
+    @Test
+    public void testInvalidateOnlyGivenDataSets() {
+        final KieServerQueryCache cache = new KieServerQueryCache(10, 60000);
+
+        cache.put(newKey("tasks", "value"), DataSetFactory.newEmptyDataSet());
+        cache.put(newKey("processes", "value"), DataSetFactory.newEmptyDataSet());
+
+        cache.invalidate(TEMPLATE, "tasks");
+
+        assertNull(cache.get(newKey("tasks", "value")));
+        assertNotNull(cache.get(newKey("processes", "value")));
+
+        cache.invalidate(TEMPLATE);
+
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void testDisabledWhenTtlIsZero() {
+        final KieServerQueryCache cache = new KieServerQueryCache(10, 0);
+
+        cache.put(newKey("dataSet", "value"), DataSetFactory.newEmptyDataSet());
+
+        assertNull(cache.get(newKey("dataSet", "value")));
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void testCountsInvalidatedWithDataSets() {
+        final KieServerQueryCache cache = new KieServerQueryCache(10, 60000, 60000);
+
+        cache.putCount(newKey("tasks", "value"), 20);
+
+        assertEquals(Long.valueOf(20), cache.getCount(newKey("tasks", "value")));
+        assertNull(cache.getCount(newKey("tasks", "otherValue")));
+
+        cache.invalidate(TEMPLATE, "tasks");
+
+        assertNull(cache.getCount(newKey("tasks", "value")));
+        assertEquals(0, cache.getCountSize());
+    }
+
+    @Test
+    public void testExpiredEntryRevalidatedByWatermark() throws Exception {
+        final KieServerQueryCache cache = new KieServerQueryCache(10, 1);
+
+        cache.put(newKey("dataSet", "value"), DataSetFactory.newEmptyDataSet(), "watermark");
+        Thread.sleep(10);
+
+        assertNull(cache.get(newKey("dataSet", "value")));
+        assertTrue(cache.hasEntry(newKey("dataSet", "value")));
+        assertNull(cache.revalidate(newKey("dataSet", "value"), "newWatermark"));
+        assertNotNull(cache.revalidate(newKey("dataSet", "value"), "watermark"));
+        assertEquals(1, cache.getRevalidationCount());
+    }
+
+    @Test
+    public void testEntriesKeptPerIdentity() {
+        final KieServerQueryCache cache = new KieServerQueryCache(10, 60000, 60000);
+
+        cache.put(newKey("tasks", "value").withIdentity("john"), DataSetFactory.newEmptyDataSet());
+        cache.putCount(newKey("tasks", "value").withIdentity("john"), 20);
+
+        assertNotNull(cache.get(newKey("tasks", "value").withIdentity("john")));
+        assertNull(cache.get(newKey("tasks", "value").withIdentity("mary")));
+        assertNull(cache.get(newKey("tasks", "value")));
+        assertNull(cache.getCount(newKey("tasks", "value").withIdentity("mary")));
+    }
+
+    @Test
+    public void testPutQueriedBeforeInvalidationDropped() {
+        final KieServerQueryCache cache = new KieServerQueryCache(10, 60000, 60000);
+
+        final long generation = cache.getGeneration(TEMPLATE);
+        cache.invalidate(TEMPLATE, "tasks");
+        cache.put(newKey("tasks", "value"), DataSetFactory.newEmptyDataSet(), null, generation);
+        cache.putCount(newKey("tasks", "value"), 20, generation);
+
+        assertNull(cache.get(newKey("tasks", "value")));
+        assertNull(cache.getCount(newKey("tasks", "value")));
+
+        cache.put(newKey("tasks", "value"), DataSetFactory.newEmptyDataSet(), null, cache.getGeneration(TEMPLATE));
+
+        assertNotNull(cache.get(newKey("tasks", "value")));
+    }
+
+    private KieServerQueryCache.Key newKey(String dataSetUUID, String value) {
+        final QueryFilterSpec filterSpec = new QueryFilterSpec();
+        filterSpec.setParameters(new QueryParam[]{new QueryParam("column", "EQUALS_TO", singletonList(value))});
+        filterSpec.setOrderBy("column");
+        filterSpec.setAscending(true);
+        return new KieServerQueryCache.Key(TEMPLATE, dataSetUUID, filterSpec, 0, 10);
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.workbench.ks.integration;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.dashbuilder.dataset.DataSet;
+import org.dashbuilder.dataset.DataSetFactory;
+import org.junit.Test;
+import org.kie.server.api.model.definition.QueryFilterSpec;
+
+import static org.junit.Assert.*;
+
+public class KieServerQueryCoalescerTest {
+
+    private final KieServerQueryCoalescer coalescer = new KieServerQueryCoalescer();
+
+    private final KieServerQueryCache.Key key = new KieServerQueryCache.Key("template", "dataSet", new QueryFilterSpec(), 0, 10);
+
+    @Test
+    public void testConcurrentQueriesShareSingleCall() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final Future<DataSet> leader = executor.submit(() -> coalescer.execute(key, () -> {
+                calls.incrementAndGet();
+                started.countDown();
+                release.await();
+                return DataSetFactory.newEmptyDataSet();
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            final Future<DataSet> follower = executor.submit(() -> coalescer.execute(key, () -> {
+                calls.incrementAndGet();
+                return DataSetFactory.newEmptyDataSet();
+            }));
+            while (coalescer.getCoalescedCount() == 0) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            assertNotNull(leader.get(5, TimeUnit.SECONDS));
+            assertNotNull(follower.get(5, TimeUnit.SECONDS));
+            assertNotSame(leader.get(), follower.get());
+            assertEquals(1, calls.get());
+            assertEquals(0, coalescer.getInFlightCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testNoCallerJoinsClosedQuery() {
+        final KieServerQueryCoalescer.InFlightQuery flight = new KieServerQueryCoalescer.InFlightQuery();
+
+        assertTrue(flight.join());
+        assertEquals(1, flight.close());
+        assertFalse(flight.join());
+        assertEquals(1, flight.close());
+    }
+
+    @Test
+    public void testFailureIsNotRemembered() throws Exception {
+        try {
+            coalescer.execute(key, () -> {
+                throw new IllegalStateException("KIE server down");
+            });
+            fail("Exception expected");
+        } catch (IllegalStateException e) {
+            assertEquals("KIE server down", e.getMessage());
+        }
+
+        assertNotNull(coalescer.execute(key, DataSetFactory::newEmptyDataSet));
+        assertEquals(0, coalescer.getInFlightCount());
+    }
+}
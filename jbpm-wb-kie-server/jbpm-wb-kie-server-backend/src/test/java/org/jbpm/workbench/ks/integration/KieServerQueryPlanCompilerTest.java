@@ -0,0 +1,132 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.workbench.ks.integration;
+
+import java.util.Arrays;
+
+import org.dashbuilder.dataset.DataSetLookup;
+import org.dashbuilder.dataset.filter.DataSetFilter;
+import org.dashbuilder.dataset.group.AggregateFunctionType;
+import org.dashbuilder.dataset.group.ColumnGroup;
+import org.dashbuilder.dataset.group.DataSetGroup;
+import org.dashbuilder.dataset.group.GroupFunction;
+import org.dashbuilder.dataset.group.GroupStrategy;
+import org.dashbuilder.dataset.sort.ColumnSort;
+import org.dashbuilder.dataset.sort.DataSetSort;
+import org.dashbuilder.dataset.sort.SortOrder;
+import org.junit.Test;
+import org.kie.server.api.model.definition.QueryFilterSpec;
+import org.kie.server.api.model.definition.QueryParam;
+
+import static org.dashbuilder.dataset.filter.FilterFactory.*;
+import static org.junit.Assert.*;
+
+public class KieServerQueryPlanCompilerTest {
+
+    private KieServerQueryPlanCompiler compiler = new KieServerQueryPlanCompiler(10);
+
+    @Test
+    public void testPlanSharedBetweenPages() {
+        final DataSetLookup firstPage = newLookup("value");
+        final DataSetLookup secondPage = newLookup("value");
+        secondPage.setRowOffset(10);
+
+        final KieServerQueryPlan plan = compiler.compile(firstPage);
+
+        assertSame(plan, compiler.compile(secondPage));
+        assertEquals(1, compiler.getHitCount());
+        assertEquals(1, compiler.getMissCount());
+        assertNotEquals(plan, compiler.compile(newLookup("otherValue")));
+    }
+
+    @Test
+    public void testPlanTranslation() {
+        final KieServerQueryPlan plan = compiler.compile(newLookup("value"));
+        final QueryFilterSpec filterSpec = plan.toFilterSpec();
+
+        assertEquals("column1", filterSpec.getOrderBy());
+        assertFalse(filterSpec.isAscending());
+        assertFalse(plan.isGrouped());
+        assertEquals(1, filterSpec.getParameters().length);
+        assertEquals("column1", filterSpec.getParameters()[0].getColumn());
+        assertEquals("EQUALS_TO", filterSpec.getParameters()[0].getOperator());
+        assertEquals(Arrays.asList("value"), filterSpec.getParameters()[0].getValue());
+        // every spec gets its own parameters array
+        assertNotSame(filterSpec.getParameters(), plan.toFilterSpec().getParameters());
+    }
+
+    @Test
+    public void testGroupTranslation() {
+        final DataSetLookup lookup = new DataSetLookup();
+        lookup.setDataSetUUID("dataSet");
+        final DataSetGroup group = new DataSetGroup();
+        group.setColumnGroup(new ColumnGroup("status", "status", GroupStrategy.DYNAMIC));
+        group.addGroupFunction(new GroupFunction("status", "status", null));
+        group.addGroupFunction(new GroupFunction("id", "total", AggregateFunctionType.COUNT));
+        lookup.addOperation(group);
+
+        final KieServerQueryPlan plan = compiler.compile(lookup);
+        final QueryParam[] parameters = plan.getParameters();
+
+        assertTrue(plan.isGrouped());
+        assertEquals(3, parameters.length);
+        assertEquals("group", parameters[0].getOperator());
+        assertEquals("COUNT", parameters[2].getOperator());
+        assertEquals(2, plan.newExtraColumns().size());
+    }
+
+    @Test
+    public void testStructuralKeyIsUnambiguous() {
+        final DataSetLookup joined = new DataSetLookup();
+        joined.setDataSetUUID("dataSet");
+        final DataSetFilter joinedFilter = new DataSetFilter();
+        joinedFilter.addFilterColumn(in("column1", Arrays.asList("a, b")));
+        joined.addOperation(joinedFilter);
+
+        final DataSetLookup separate = new DataSetLookup();
+        separate.setDataSetUUID("dataSet");
+        final DataSetFilter separateFilter = new DataSetFilter();
+        separateFilter.addFilterColumn(in("column1", Arrays.asList("a", "b")));
+        separate.addOperation(separateFilter);
+
+        assertNotEquals(compiler.compile(joined), compiler.compile(separate));
+    }
+
+    @Test
+    public void testCountPlan() {
+        final KieServerQueryPlan plan = compiler.compile(newLookup("value"));
+        final KieServerQueryPlan countPlan = plan.getCountPlan("id");
+
+        assertSame(countPlan, plan.getCountPlan("id"));
+        assertNull(countPlan.getOrderBy());
+        assertEquals(2, countPlan.getParameters().length);
+        assertEquals("COUNT", countPlan.getParameters()[1].getOperator());
+    }
+
+    private DataSetLookup newLookup(String value) {
+        final DataSetLookup lookup = new DataSetLookup();
+        lookup.setDataSetUUID("dataSet");
+        lookup.setNumberOfRows(10);
+        final DataSetFilter filter = new DataSetFilter();
+        filter.addFilterColumn(equalsTo("column1", value));
+        lookup.addOperation(filter);
+        final DataSetSort sort = new DataSetSort();
+        sort.addSortColumn(new ColumnSort("column1", SortOrder.DESCENDING));
+        lookup.addOperation(sort);
+        return lookup;
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jbpm.workbench.ks.integration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jbpm.workbench.ks.security.PropagatingCredentialsProvider;
+import org.junit.After;
+import org.junit.Test;
+import org.kie.server.api.exception.KieServicesException;
+import org.kie.server.client.CredentialsProvider;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class KieServerRequestHedgerTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    private final PropagatingCredentialsProvider credentialsProvider = new PropagatingCredentialsProvider(mock(CredentialsProvider.class));
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void testNotHedgedUntilEnoughSamples() throws Exception {
+        final KieServerRequestHedger hedger = newHedger(1);
+
+        assertEquals(-1, hedger.getHedgeDelay());
+        warmUp(hedger);
+
+        assertEquals(5, hedger.getHedgeDelay());
+        assertEquals(0, hedger.getHedgedCount());
+        assertTrue(hedger.isHedged("query"));
+        assertFalse(hedger.isHedged("startProcess"));
+    }
+
+    @Test
+    public void testSlowRequestAnsweredByHedge() throws Exception {
+        final KieServerRequestHedger hedger = newHedger(1);
+        warmUp(hedger);
+
+        final AtomicInteger attempts = new AtomicInteger();
+        final long start = System.nanoTime();
+        final Object result = hedger.invoke(() -> {
+            if (attempts.incrementAndGet() == 1) {
+                Thread.sleep(2000);
+                return "primary";
+            }
+            return "hedge";
+        });
+
+        assertEquals("hedge", result);
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+        assertEquals(1, hedger.getHedgedCount());
+        assertEquals(1, hedger.getHedgeWinCount());
+    }
+
+    @Test
+    public void testSlowRequestAnsweredByHedgeWhenItFails() throws Exception {
+        final KieServerRequestHedger hedger = newHedger(1);
+        warmUp(hedger);
+
+        final AtomicInteger attempts = new AtomicInteger();
+        final Object result = hedger.invoke(() -> {
+            if (attempts.incrementAndGet() == 1) {
+                Thread.sleep(50);
+                throw new IllegalStateException("primary");
+            }
+            Thread.sleep(100);
+            return "hedge";
+        });
+
+        assertEquals("hedge", result);
+        assertEquals(1, hedger.getHedgedCount());
+        assertEquals(1, hedger.getHedgeWinCount());
+    }
+
+    @Test
+    public void testFirstAnswerKept() throws Exception {
+        final KieServerRequestHedger hedger = newHedger(1);
+        warmUp(hedger);
+
+        final AtomicInteger attempts = new AtomicInteger();
+        final Object result = hedger.invoke(() -> {
+            if (attempts.incrementAndGet() == 1) {
+                Thread.sleep(50);
+                return "primary";
+            }
+            Thread.sleep(2000);
+            return "hedge";
+        });
+
+        assertEquals("primary", result);
+        assertEquals(1, hedger.getHedgedCount());
+        assertEquals(0, hedger.getHedgeWinCount());
+    }
+
+    @Test
+    public void testWaitBoundedByTimeout() throws Exception {
+        final KieServerRequestHedger hedger = new KieServerRequestHedger(Collections.singleton("query"), 1, 5, 200, scheduler, executor, credentialsProvider);
+        warmUp(hedger);
+
+        final long start = System.nanoTime();
+        try {
+            hedger.invoke(() -> {
+                Thread.sleep(2000);
+                return "late";
+            });
+            fail("Timeout expected");
+        } catch (KieServicesException e) {
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+        }
+    }
+
+    @Test
+    public void testAttemptsSentWithCallerCredentials() throws Exception {
+        final KieServerRequestHedger hedger = newHedger(1);
+        warmUp(hedger);
+
+        final AtomicInteger attempts = new AtomicInteger();
+        final List<String> authorizations = Collections.synchronizedList(new ArrayList<>());
+        final PropagatingCredentialsProvider.Credentials previous = PropagatingCredentialsProvider.bind(new PropagatingCredentialsProvider.Credentials("Bearer john"));
+        try {
+            hedger.invoke(() -> {
+                authorizations.add(credentialsProvider.getAuthorization());
+                if (attempts.incrementAndGet() == 1) {
+                    Thread.sleep(50);
+                    throw new IllegalStateException("primary");
+                }
+                return "hedge";
+            });
+        } finally {
+            PropagatingCredentialsProvider.restore(previous);
+        }
+
+        assertEquals(Arrays.asList("Bearer john", "Bearer john"), authorizations);
+    }
+
+    @Test
+    public void testHedgesLimitedByBudget() throws Exception {
+        final KieServerRequestHedger hedger = newHedger(0);
+        warmUp(hedger);
+
+        final Object result = hedger.invoke(() -> {
+            Thread.sleep(50);
+            return "primary";
+        });
+
+        assertEquals("primary", result);
+        assertEquals(0, hedger.getHedgedCount());
+    }
+
+    @Test
+    public void testPrimaryErrorReportedWhenBothAttemptsFail() throws Exception {
+        final KieServerRequestHedger hedger = newHedger(1);
+        warmUp(hedger);
+
+        final AtomicInteger attempts = new AtomicInteger();
+        try {
+            hedger.invoke(() -> {
+                if (attempts.incrementAndGet() == 1) {
+                    Thread.sleep(50);
+                    throw new IllegalStateException("primary");
+                }
+                throw new IllegalStateException("hedge");
+            });
+            fail("Request error expected");
+        } catch (IllegalStateException e) {
+            assertEquals("primary", e.getMessage());
+        }
+        assertEquals(1, hedger.getHedgedCount());
+    }
+
+    private KieServerRequestHedger newHedger(final double budget) {
+        return new KieServerRequestHedger(Collections.singleton("query"), budget, 5, 60000, scheduler, executor, credentialsProvider);
+    }
+
+    private void warmUp(final KieServerRequestHedger hedger) throws Exception {
+        for (int i = 0; i < 20; i++) {
+            hedger.invoke(() -> "warm up");
+        }
+    }
+}
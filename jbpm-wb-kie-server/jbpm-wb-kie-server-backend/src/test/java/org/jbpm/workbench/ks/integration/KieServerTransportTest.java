@@ -0,0 +1,162 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.workbench.ks.integration;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.After;
+import org.junit.Test;
+import org.kie.server.client.balancer.LoadBalancer;
+
+import static org.junit.Assert.*;
+
+public class KieServerTransportTest {
+
+    private static final String URL_1 = "http://server1:8080/kie-server/services/rest/server";
+    private static final String URL_2 = "http://server2:8080/kie-server/services/rest/server";
+
+    private final KieServerTransport transport = new KieServerTransport(null, null, 1000);
+
+    @After
+    public void tearDown() {
+        transport.close();
+    }
+
+    @Test
+    public void testClientsOfTemplateShareLoadBalancer() {
+        final LoadBalancer loadBalancer = transport.getLoadBalancer("template", Arrays.asList(URL_1, URL_2));
+
+        assertSame(loadBalancer, transport.getLoadBalancer("template", Arrays.asList(URL_1, URL_2)));
+        assertNotSame(loadBalancer, transport.getLoadBalancer("other", Collections.singletonList(URL_1)));
+        assertEquals(2, transport.getLoadBalancerCount());
+        assertEquals(3, transport.getClientCount());
+        assertEquals(Integer.valueOf(2), transport.getRouteTemplateCounts().get(URL_1));
+    }
+
+    @Test
+    public void testReleasedClientsNotCounted() {
+        transport.getLoadBalancer("template", Arrays.asList(URL_1, URL_2));
+        transport.getLoadBalancer("template", Arrays.asList(URL_1, URL_2));
+        transport.getLoadBalancer("other", Collections.singletonList(URL_1));
+
+        transport.releaseClient("template");
+        assertEquals(2, transport.getClientCount());
+
+        transport.release("other");
+        assertEquals(1, transport.getClientCount());
+    }
+
+    @Test
+    public void testJdkKeepAliveSettingsLeftUnlessConfigured() {
+        final String keepAlive = System.getProperty("http.keepAlive");
+        final String maxConnections = System.getProperty("http.maxConnections");
+        try {
+            System.clearProperty("http.keepAlive");
+            System.clearProperty("http.maxConnections");
+            transport.configure();
+
+            assertNull(System.getProperty("http.keepAlive"));
+            assertNull(System.getProperty("http.maxConnections"));
+
+            final KieServerTransport configured = new KieServerTransport(10, false, 1000);
+            configured.configure();
+            configured.close();
+
+            assertEquals(10, configured.getMaxIdleConnectionsPerRoute());
+            assertFalse(configured.isKeepAlive());
+        } finally {
+            restoreProperty("http.keepAlive", keepAlive);
+            restoreProperty("http.maxConnections", maxConnections);
+        }
+    }
+
+    @Test
+    public void testRequestsCountedPerRoute() throws Exception {
+        final LoadBalancer loadBalancer = transport.getLoadBalancer("template", Arrays.asList(URL_1, URL_2));
+
+        for (int i = 0; i < 4; i++) {
+            loadBalancer.getUrl();
+        }
+        loadBalancer.markAsFailed(URL_2);
+        loadBalancer.getUrl();
+
+        assertEquals(Long.valueOf(3), transport.getRouteRequestCounts().get(URL_1));
+        assertEquals(Long.valueOf(2), transport.getRouteRequestCounts().get(URL_2));
+    }
+
+    @Test
+    public void testLoadBalancerFollowsTemplateEndpoints() {
+        final LoadBalancer loadBalancer = transport.getLoadBalancer("template", Collections.singletonList(URL_1));
+
+        transport.getLoadBalancer("template", Collections.singletonList(URL_2));
+
+        assertEquals(Collections.singletonList(URL_2), loadBalancer.getAvailableEndpoints());
+        assertEquals(Collections.singleton(URL_2), transport.getRouteTemplateCounts().keySet());
+    }
+
+    @Test
+    public void testReleaseRemovesRoutes() {
+        transport.getLoadBalancer("template", Arrays.asList(URL_1, URL_2));
+        transport.getLoadBalancer("other", Collections.singletonList(URL_1));
+
+        transport.release("template");
+
+        assertEquals(1, transport.getLoadBalancerCount());
+        assertEquals(Collections.singleton(URL_1), transport.getRouteTemplateCounts().keySet());
+    }
+
+    @Test
+    public void testBalancerStrategySelectablePerTemplate() {
+        System.setProperty(KieServerTransport.BALANCER_STRATEGY + ".latency", "power_of_two_choices");
+        try {
+            transport.getLoadBalancer("latency", Arrays.asList(URL_1, URL_2));
+            transport.getLoadBalancer("template", Arrays.asList(URL_1, URL_2));
+
+            assertEquals(KieServerTransport.Strategy.POWER_OF_TWO_CHOICES, transport.getStrategy("latency"));
+            assertNotNull(transport.getLatencyAwareStrategy("latency"));
+            assertEquals(KieServerTransport.Strategy.ROUND_ROBIN, transport.getStrategy("template"));
+            assertNull(transport.getLatencyAwareStrategy("template"));
+        } finally {
+            System.clearProperty(KieServerTransport.BALANCER_STRATEGY + ".latency");
+        }
+    }
+
+    @Test
+    public void testRouteSelectionAvoidsExcludedEndpoint() throws Exception {
+        final LoadBalancer loadBalancer = transport.getLoadBalancer("template", Arrays.asList(URL_1, URL_2));
+
+        for (int i = 0; i < 4; i++) {
+            final KieServerTransport.RouteSelection selection = new KieServerTransport.RouteSelection(URL_1);
+            assertEquals(URL_2, KieServerTransport.withRouteSelection(selection, loadBalancer::getUrl));
+            assertEquals(URL_2, selection.getSelected());
+        }
+
+        loadBalancer.markAsFailed(URL_2);
+        final KieServerTransport.RouteSelection selection = new KieServerTransport.RouteSelection(URL_1);
+        assertEquals(URL_1, KieServerTransport.withRouteSelection(selection, loadBalancer::getUrl));
+    }
+
+    private static void restoreProperty(final String key,
+                                        final String value) {
+        if (value == null) {
+            System.clearProperty(key);
+        } else {
+            System.setProperty(key, value);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.workbench.ks.integration;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.kie.server.client.KieServicesClient;
+import org.kie.server.client.QueryServicesClient;
+import org.kie.server.common.rest.KieServerHttpRequestException;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class LatencyAwareBalancerStrategyTest {
+
+    private static final String URL_1 = "http://server1:8080/kie-server/services/rest/server";
+    private static final String URL_2 = "http://server2:8080/kie-server/services/rest/server";
+    private static final String URL_3 = "http://server3:8080/kie-server/services/rest/server";
+
+    @Test
+    public void testSlowEndpointAvoided() {
+        final LatencyAwareBalancerStrategy strategy = new LatencyAwareBalancerStrategy(Arrays.asList(URL_1, URL_2), false, 0.5, 0);
+        request(strategy, URL_1, 500);
+        request(strategy, URL_2, 10);
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(URL_2, strategy.next());
+        }
+    }
+
+    @Test
+    public void testInFlightRequestsCounted() {
+        final LatencyAwareBalancerStrategy strategy = new LatencyAwareBalancerStrategy(Arrays.asList(URL_1, URL_2), false, 0.5, 0);
+        request(strategy, URL_1, 10);
+        request(strategy, URL_2, 10);
+
+        strategy.begin();
+        final String busy = strategy.next();
+        assertEquals(Integer.valueOf(1), strategy.getInFlightRequests().get(busy));
+
+        // another thread would now pick the idle endpoint
+        assertNotEquals(busy, strategy.next());
+        strategy.end(TimeUnit.MILLISECONDS.toNanos(10));
+        assertEquals(Integer.valueOf(0), strategy.getInFlightRequests().get(URL_1));
+        assertEquals(Integer.valueOf(0), strategy.getInFlightRequests().get(URL_2));
+    }
+
+    @Test
+    public void testSlowEndpointRetriedAfterDecay() throws Exception {
+        final LatencyAwareBalancerStrategy strategy = new LatencyAwareBalancerStrategy(Arrays.asList(URL_1, URL_2), false, 1, 10);
+        request(strategy, URL_1, 500);
+        request(strategy, URL_2, 100);
+        assertEquals(URL_2, strategy.next());
+
+        Thread.sleep(50);
+        request(strategy, URL_2, 100);
+
+        assertEquals(URL_1, strategy.next());
+    }
+
+    @Test
+    public void testPowerOfTwoChoicesNeverPicksSlowestOfThree() {
+        final LatencyAwareBalancerStrategy strategy = new LatencyAwareBalancerStrategy(Arrays.asList(URL_1, URL_2, URL_3), true, 1, 0);
+        request(strategy, URL_1, 10);
+        request(strategy, URL_2, 20);
+        request(strategy, URL_3, 1000);
+
+        for (int i = 0; i < 50; i++) {
+            assertNotEquals(URL_3, strategy.next());
+        }
+    }
+
+    @Test(expected = KieServerHttpRequestException.class)
+    public void testNoAvailableEndpoints() {
+        final LatencyAwareBalancerStrategy strategy = new LatencyAwareBalancerStrategy(Collections.singletonList(URL_1), false, 0.5, 0);
+        strategy.markAsOffline(URL_1);
+
+        strategy.next();
+    }
+
+    @Test
+    public void testProxyMeasuresServicesClientCalls() {
+        final LatencyAwareBalancerStrategy strategy = new LatencyAwareBalancerStrategy(Collections.singletonList(URL_1), false, 0.5, 0);
+        final KieServicesClient client = mock(KieServicesClient.class);
+        final QueryServicesClient queryClient = mock(QueryServicesClient.class);
+        when(client.getServicesClient(QueryServicesClient.class)).thenReturn(queryClient);
+        when(queryClient.getQueries(0, 10)).thenAnswer(invocation -> {
+            strategy.next();
+            Thread.sleep(20);
+            return Collections.emptyList();
+        });
+
+        KieServicesClientProxy.newProxy(client, strategy, null).getServicesClient(QueryServicesClient.class).getQueries(0, 10);
+
+        assertTrue(strategy.getResponseTimes().get(URL_1) >= 20);
+        assertEquals(Integer.valueOf(0), strategy.getInFlightRequests().get(URL_1));
+    }
+
+    private void request(LatencyAwareBalancerStrategy strategy, String url, long millis) {
+        // leave only the given url available so that it gets the sample
+        final List<String> others = strategy.getAvailableEndpoints();
+        others.remove(url);
+        others.forEach(strategy::markAsOffline);
+
+        strategy.begin();
+        assertEquals(url, strategy.next());
+        strategy.end(TimeUnit.MILLISECONDS.toNanos(millis));
+
+        others.forEach(strategy::markAsOnline);
+    }
+}
@@ -117,6 +117,10 @@ public class DataSetDefsBootstrap {
         processWithVariablesDef.setPublic(false);
         processWithVariablesDef.setProvider(KieServerDataSetProvider.TYPE);
 
+        // Columns identifying the rows, used to read large results in chunks
+        processInstancesDef.setProperty(KieServerDataSetProvider.UNIQUE_COLUMN, COLUMN_PROCESS_INSTANCE_ID);
+        processWithVariablesDef.setProperty(KieServerDataSetProvider.UNIQUE_COLUMN, VARIABLE_ID);
+
         // Register the data set definitions
         dataSetDefRegistry.registerDataSetDef(processInstancesDef);
         dataSetDefRegistry.registerDataSetDef(processWithVariablesDef);
@@ -28,6 +28,8 @@ import org.jbpm.workbench.pr.service.ProcessService;
 import org.kie.internal.process.CorrelationKey;
 import org.kie.server.client.ProcessServicesClient;
 
+import static org.jbpm.workbench.pr.model.ProcessInstanceDataSetConstants.PROCESS_INSTANCE_WITH_VARIABLES_DATASET;
+
 @Service
 @ApplicationScoped
 public class RemoteProcessServiceImpl extends AbstractKieServerService implements ProcessService {
@@ -37,6 +39,7 @@ public class RemoteProcessServiceImpl extends AbstractKieServerService implement
         ProcessServicesClient client = getClient(serverTemplateId, containerId, ProcessServicesClient.class);
 
         client.abortProcessInstance(containerId, processInstanceId);
+        invalidateQueryCache(serverTemplateId);
     }
 
     @Override
@@ -50,6 +53,7 @@ public class RemoteProcessServiceImpl extends AbstractKieServerService implement
                 client.abortProcessInstance(containers.get(i), processInstanceId.get(i));
             }
         }
+        invalidateQueryCache(serverTemplateId);
     }
 
     @Override
@@ -60,11 +64,14 @@ public class RemoteProcessServiceImpl extends AbstractKieServerService implement
 
             CorrelationKey actualCorrelationKey = new RemoteCorrelationKey(correlationKey);
 
-            return client.startProcess(containerId, processId, actualCorrelationKey, params);
-
+            final Long processInstanceId = client.startProcess(containerId, processId, actualCorrelationKey, params);
+            invalidateQueryCache(serverTemplateId);
+            return processInstanceId;
         }
 
-        return client.startProcess(containerId, processId, params);
+        final Long processInstanceId = client.startProcess(containerId, processId, params);
+        invalidateQueryCache(serverTemplateId);
+        return processInstanceId;
     }
 
     @Override
@@ -79,6 +86,7 @@ public class RemoteProcessServiceImpl extends AbstractKieServerService implement
         ProcessServicesClient client = getClient(serverTemplateId, containerId, ProcessServicesClient.class);
 
         client.signalProcessInstance(containerId, processInstanceId, signal, event);
+        invalidateQueryCache(serverTemplateId);
     }
 
     @Override
@@ -92,6 +100,7 @@ public class RemoteProcessServiceImpl extends AbstractKieServerService implement
                 client.signalProcessInstance(containers.get(i), processInstanceId.get(i), signal, event);
             }
         }
+        invalidateQueryCache(serverTemplateId);
     }
 
     @Override
@@ -99,6 +108,7 @@ public class RemoteProcessServiceImpl extends AbstractKieServerService implement
         ProcessServicesClient client = getClient(serverTemplateId, containerId, ProcessServicesClient.class);
 
         client.setProcessVariable(containerId, processInstanceId, variableName, value);
+        invalidateQueryCache(serverTemplateId, PROCESS_INSTANCE_WITH_VARIABLES_DATASET);
     }
 
 }
\ No newline at end of file
@@ -20,6 +20,9 @@ import java.lang.reflect.Method;
 import java.util.Collection;
 import java.util.List;
 
+import org.jbpm.workbench.ks.integration.KieServerCircuitBreakers;
+import org.jbpm.workbench.ks.integration.KieServerClientCache;
+import org.jbpm.workbench.ks.integration.KieServerClientMetrics;
 import org.jbpm.workbench.ks.integration.KieServerIntegration;
 import org.jbpm.workbench.pr.model.ProcessDefinitionKey;
 import org.jbpm.workbench.pr.model.ProcessSummary;
@@ -33,6 +36,7 @@ import org.kie.server.client.ProcessServicesClient;
 import org.kie.server.client.QueryServicesClient;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.runners.MockitoJUnitRunner;
 
 import static java.lang.String.format;
@@ -49,6 +53,15 @@ public class RemoteProcessRuntimeDataServiceImplTest {
     @Mock
     private KieServerIntegration kieServerIntegration;
 
+    @Spy
+    private KieServerCircuitBreakers circuitBreakers = new KieServerCircuitBreakers(5, 30000, 50);
+
+    @Spy
+    private KieServerClientMetrics clientMetrics = new KieServerClientMetrics(true);
+
+    @Spy
+    private KieServerClientCache clientCache = new KieServerClientCache();
+
     @Mock
     private QueryServicesClient queryServicesClient;
 
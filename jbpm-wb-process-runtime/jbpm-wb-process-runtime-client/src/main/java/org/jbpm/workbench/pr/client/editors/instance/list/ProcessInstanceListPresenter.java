@@ -134,6 +134,8 @@ public class ProcessInstanceListPresenter extends AbstractMultiGridPresenter<Pro
 
                 dataSetQueryHelper.setCurrentTableSettings( currentTableSettings );
                 dataSetQueryHelper.setDataSetHandler( currentTableSettings );
+                dataSetQueryHelper.setKeysetColumnId( COLUMN_PROCESS_INSTANCE_ID );
+                dataSetQueryHelper.setPrefetchEnabled( true );
                 dataSetQueryHelper.lookupDataSet( visibleRange.getStart(), createDataSetProcessInstanceCallback( visibleRange.getStart(), currentTableSettings ) );
             }
         } catch ( Exception e ) {
@@ -159,7 +161,9 @@ public class ProcessInstanceListPresenter extends AbstractMultiGridPresenter<Pro
     }
 
     protected DataSetReadyCallback createDataSetDomainSpecificCallback( final int startRange,
-                                                                        final FilterSettings tableSettings,boolean lastPage ) {
+                                                                        final FilterSettings tableSettings,
+                                                                        final int totalRowCount,
+                                                                        boolean exactCount ) {
         return new AbstractDataSetReadyCallback( errorPopup, view, tableSettings.getUUID() ) {
             @Override
             public void callback( DataSet dataSet ) {
@@ -178,7 +182,7 @@ public class ProcessInstanceListPresenter extends AbstractMultiGridPresenter<Pro
                 }
                 view.addDomainSpecifColumns(view.getListGrid(), columns);
 
-                updateDataOnCallback(myProcessInstancesFromDataSet, startRange, startRange+myProcessInstancesFromDataSet.size(), lastPage);
+                updateDataOnCallback( myProcessInstancesFromDataSet, startRange, totalRowCount, exactCount );
             }
 
         };
@@ -200,15 +204,13 @@ public class ProcessInstanceListPresenter extends AbstractMultiGridPresenter<Pro
                     List<DataSetOp> ops = tableSettings.getDataSetLookup().getOperationList();
                     String filterValue = isFilteredByProcessId( ops );
 
-                    boolean lastPage=false;
-                    if( dataSet.getRowCount() < view.getListGrid().getPageSize()) {
-                        lastPage=true;
-                    }
+                    final int totalRowCount = getTotalRowCount( startRange, dataSet.getRowCount(), dataSet.getRowCountNonTrimmed() );
+                    final boolean exactCount = isTotalRowCountExact( startRange, dataSet.getRowCount(), dataSet.getRowCountNonTrimmed() );
 
                     if ( filterValue != null ) {
-                        getDomainSpecifDataForProcessInstances( startRange, filterValue, lastPage );
+                        getDomainSpecifDataForProcessInstances( startRange, filterValue, totalRowCount, exactCount );
                     } else {
-                        updateDataOnCallback(myProcessInstancesFromDataSet, startRange, startRange+myProcessInstancesFromDataSet.size(), lastPage);
+                        updateDataOnCallback( myProcessInstancesFromDataSet, startRange, totalRowCount, exactCount );
                     }
 
                 }
@@ -245,7 +247,7 @@ public class ProcessInstanceListPresenter extends AbstractMultiGridPresenter<Pro
 
     }
 
-    public void getDomainSpecifDataForProcessInstances( final int startRange, String filterValue, boolean lastPage ) {
+    public void getDomainSpecifDataForProcessInstances( final int startRange, String filterValue, final int totalRowCount, boolean exactCount ) {
 
         FilterSettings variablesTableSettings = view.getVariablesTableSettings( filterValue );
         variablesTableSettings.setServerTemplateId( selectedServerTemplate );
@@ -255,7 +257,7 @@ public class ProcessInstanceListPresenter extends AbstractMultiGridPresenter<Pro
         dataSetQueryHelperDomainSpecific.setCurrentTableSettings( variablesTableSettings );
         dataSetQueryHelperDomainSpecific.setLastOrderedColumn( PROCESS_INSTANCE_ID );
         dataSetQueryHelperDomainSpecific.setLastSortOrder( SortOrder.ASCENDING );
-        dataSetQueryHelperDomainSpecific.lookupDataSet( 0, createDataSetDomainSpecificCallback( startRange, variablesTableSettings,  lastPage ) );
+        dataSetQueryHelperDomainSpecific.lookupDataSet( 0, createDataSetDomainSpecificCallback( startRange, variablesTableSettings, totalRowCount, exactCount ) );
 
     }
 